@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+#include <sys/types.h>
+#include <stdint.h>
+#include <errno.h>
+
+static int32_t batch_counter;
+
+static int32_t
+batch_add_int32(int32_t a, int32_t b)
+{
+    return a + b;
+}
+
+static int8_t
+batch_add_int8(int8_t a, int8_t b)
+{
+    return a + b;
+}
+
+static double
+batch_mix(int64_t a, double b, float c)
+{
+    return a + b + c;
+}
+
+static int32_t
+batch_next(int32_t delta)
+{
+    batch_counter += delta;
+    return batch_counter;
+}
+
+static void
+batch_set_errno(int32_t error)
+{
+    errno = error;
+}
+
+void* batch_function(int32_t id)
+{
+    switch (id) {
+        case 0: return (void *) batch_add_int32;
+        case 1: return (void *) batch_add_int8;
+        case 2: return (void *) batch_mix;
+        case 3: return (void *) batch_next;
+        case 4: return (void *) batch_set_errno;
+        default: return (void *) 0;
+    }
+}
+
+int32_t batch_counter_value(void)
+{
+    return batch_counter;
+}
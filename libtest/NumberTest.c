@@ -68,3 +68,9 @@ TEST(SignedLong);
 TEST(Float32);
 TEST(Float64);
 RET(pointer);
+
+int32_t
+args6_int32_t(int32_t a, int32_t b, int32_t c, int32_t d, int32_t e, int32_t f)
+{
+    return a * 100000 + b * 10000 + c * 1000 + d * 100 + e * 10 + f;
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+#include <stdint.h>
+#include <string.h>
+
+#ifdef _WIN32
+#include <windows.h>
+#define yield() SwitchToThread()
+#else
+#include <sched.h>
+#define yield() sched_yield()
+#endif
+
+/*
+ * A native implementation of the jnr.ffi.util.RingBuffer protocol.
+ */
+
+#define CAPACITY_OFFSET 0
+#define TAIL_OFFSET 64
+#define HEAD_OFFSET 128
+#define HEADER_SIZE 192
+#define RECORD_HEADER_SIZE 8
+#define PADDING_TYPE -1
+#define ALIGN(n) (((n) + 7) & ~7LL)
+
+#define CURSOR(ring, offset) ((int64_t *) ((char *) (ring) + (offset)))
+#define RECORD(ring, index) ((int32_t *) ((char *) (ring) + HEADER_SIZE + (index)))
+
+int
+ring_write(void* ring, int32_t type, const void* data, int32_t length)
+{
+    int64_t capacity = *CURSOR(ring, CAPACITY_OFFSET);
+    int64_t required = ALIGN(length + RECORD_HEADER_SIZE);
+    int64_t head, tail, index, padding;
+    int32_t* record;
+
+    do {
+        head = __atomic_load_n(CURSOR(ring, HEAD_OFFSET), __ATOMIC_ACQUIRE);
+        tail = __atomic_load_n(CURSOR(ring, TAIL_OFFSET), __ATOMIC_ACQUIRE);
+        index = tail & (capacity - 1);
+        padding = required > (capacity - index) ? capacity - index : 0;
+        if (padding + required > capacity - (tail - head)) {
+            return 0;
+        }
+    } while (!__atomic_compare_exchange_n(CURSOR(ring, TAIL_OFFSET), &tail, tail + padding + required,
+            0, __ATOMIC_ACQ_REL, __ATOMIC_ACQUIRE));
+
+    if (padding != 0) {
+        record = RECORD(ring, index);
+        record[1] = PADDING_TYPE;
+        __atomic_store_n(&record[0], (int32_t) padding, __ATOMIC_RELEASE);
+        index = 0;
+    }
+
+    record = RECORD(ring, index);
+    record[1] = type;
+    memcpy(&record[2], data, length);
+    __atomic_store_n(&record[0], length + RECORD_HEADER_SIZE, __ATOMIC_RELEASE);
+
+    return 1;
+}
+
+int
+ring_write_longs(void* ring, int32_t type, int64_t first, int32_t count)
+{
+    int32_t i;
+    for (i = 0; i < count; i++) {
+        int64_t value = first + i;
+        while (!ring_write(ring, type, &value, sizeof(value))) {
+            yield();
+        }
+    }
+
+    return count;
+}
+
+int64_t
+ring_read_sum(void* ring, int32_t* count)
+{
+    int64_t capacity = *CURSOR(ring, CAPACITY_OFFSET);
+    int64_t head = *CURSOR(ring, HEAD_OFFSET);
+    int64_t bytesRead = 0, sum = 0;
+
+    while (bytesRead < capacity) {
+        int32_t* record = RECORD(ring, (head + bytesRead) & (capacity - 1));
+        int32_t length = __atomic_load_n(&record[0], __ATOMIC_ACQUIRE);
+        int64_t value;
+        if (length <= 0) {
+            break;
+        }
+
+        if (record[1] != PADDING_TYPE) {
+            memcpy(&value, &record[2], sizeof(value));
+            sum += value;
+            ++*count;
+        }
+
+        memset(record, 0, ALIGN(length));
+        bytesRead += ALIGN(length);
+    }
+
+    __atomic_store_n(CURSOR(ring, HEAD_OFFSET), head + bytesRead, __ATOMIC_RELEASE);
+
+    return sum;
+}
@@ -39,6 +39,18 @@ string_concat(char* dst, const char* src)
     strcpy(ep, src);
 }
 
+void
+string_copy_unterminated(char* dst, const char* src)
+{
+    memcpy(dst, src, strlen(src));
+}
+
+int
+string_length(const char* s)
+{
+    return (int) strlen(s);
+}
+
 char*
 string_duplicate(const char* s1)
 {
@@ -77,6 +77,37 @@ struct_make_struct(char b, short s, int i, long long ll, float f, double d)
     return &t;
 }
 
+struct point { int x; int y; };
+struct rect { struct point origin; struct point size; };
+struct vec3 { double x; double y; double z; };
+struct padded { double d; int i; };
+
+struct point
+struct_point_add(struct point a, struct point b)
+{
+    struct point p = { a.x + b.x, a.y + b.y };
+    return p;
+}
+
+int
+struct_rect_area(struct rect r)
+{
+    return r.size.x * r.size.y;
+}
+
+struct vec3
+struct_vec3_scale(struct vec3 v, double f)
+{
+    struct vec3 r = { v.x * f, v.y * f, v.z * f };
+    return r;
+}
+
+double
+struct_padded_sum(struct padded p)
+{
+    return p.d + p.i;
+}
+
 struct foo {
   unsigned long l1,l2, l3;
 };
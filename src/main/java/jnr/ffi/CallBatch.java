@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+/**
+ * Queues many invocations of a single native function and executes them all at once.
+ *
+ * <p>
+ * Each call to {@link #add()} appends a new invocation record to an off-heap argument buffer.  When
+ * {@link #invoke()} is called, all queued invocations are executed in order, and the result of each
+ * invocation is stored back into its record, where it can be retrieved with {@link #getInt(int)},
+ * {@link #getLong(int)} etc.
+ * <p>
+ * Where the runtime supports it, the whole batch is executed within a single java to native transition,
+ * which makes this suitable for large numbers of small calls (e.g. close(2) on many file descriptors).
+ * <p>
+ * Only primitive numeric and pointer parameter and result types are supported.  Instances of this class
+ * are not thread safe.
+ * <p>
+ * <b>Example</b>
+ * <pre>
+ *     {@code
+ *
+ *     CallBatch batch = CallBatch.newInstance(runtime, closeFunction, fds.length, NativeType.SINT, NativeType.SINT);
+ *     for (int fd : fds) {
+ *         batch.add(fd);
+ *     }
+ *     batch.invoke();
+ *     for (int i = 0; i < batch.size(); i++) {
+ *         if (batch.getInt(i) != 0) { ... }
+ *     }
+ *     }
+ * </pre>
+ */
+public abstract class CallBatch {
+
+    /**
+     * Creates a new {@code CallBatch} for a native function.
+     *
+     * @param runtime The runtime to use.
+     * @param function The address of the native function.
+     * @param capacity The maximum number of invocations that can be queued.
+     * @param resultType The native type of the function result.
+     * @param parameterTypes The native types of the function parameters.
+     * @return A new {@code CallBatch} instance.
+     */
+    public static CallBatch newInstance(Runtime runtime, Pointer function, int capacity,
+                                        NativeType resultType, NativeType... parameterTypes) {
+        return runtime.newCallBatch(function, capacity, true, resultType, parameterTypes);
+    }
+
+    /**
+     * Creates a new {@code CallBatch} for a native function.
+     *
+     * @param runtime The runtime to use.
+     * @param function The address of the native function.
+     * @param capacity The maximum number of invocations that can be queued.
+     * @param saveError Whether the errno/last error should be saved after the batch is executed.
+     * @param resultType The native type of the function result.
+     * @param parameterTypes The native types of the function parameters.
+     * @return A new {@code CallBatch} instance.
+     */
+    public static CallBatch newInstance(Runtime runtime, Pointer function, int capacity, boolean saveError,
+                                        NativeType resultType, NativeType... parameterTypes) {
+        return runtime.newCallBatch(function, capacity, saveError, resultType, parameterTypes);
+    }
+
+    /**
+     * Gets the number of invocations currently queued.
+     *
+     * @return The number of queued invocations.
+     */
+    public abstract int size();
+
+    /**
+     * Gets the maximum number of invocations that can be queued.
+     *
+     * @return The capacity of this batch.
+     */
+    public abstract int capacity();
+
+    /**
+     * Removes all queued invocations.
+     */
+    public abstract void clear();
+
+    /**
+     * Appends a new invocation record with all parameters set to zero.
+     *
+     * @return The index of the new invocation record.
+     */
+    public abstract int add();
+
+    /**
+     * Appends a new invocation of a one parameter function.
+     *
+     * @param arg0 The value of the first parameter.
+     * @return The index of the new invocation record.
+     */
+    public abstract int add(long arg0);
+
+    /**
+     * Appends a new invocation of a two parameter function.
+     *
+     * @param arg0 The value of the first parameter.
+     * @param arg1 The value of the second parameter.
+     * @return The index of the new invocation record.
+     */
+    public abstract int add(long arg0, long arg1);
+
+    /**
+     * Appends a new invocation of a three parameter function.
+     *
+     * @param arg0 The value of the first parameter.
+     * @param arg1 The value of the second parameter.
+     * @param arg2 The value of the third parameter.
+     * @return The index of the new invocation record.
+     */
+    public abstract int add(long arg0, long arg1, long arg2);
+
+    /**
+     * Sets an integer parameter of a queued invocation.
+     *
+     * @param index The index of the invocation record.
+     * @param parameter The index of the parameter.
+     * @param value The value of the parameter.
+     */
+    public abstract void putInt(int index, int parameter, int value);
+
+    /**
+     * Sets a long integer parameter of a queued invocation.
+     *
+     * @param index The index of the invocation record.
+     * @param parameter The index of the parameter.
+     * @param value The value of the parameter.
+     */
+    public abstract void putLong(int index, int parameter, long value);
+
+    /**
+     * Sets a float parameter of a queued invocation.
+     *
+     * @param index The index of the invocation record.
+     * @param parameter The index of the parameter.
+     * @param value The value of the parameter.
+     */
+    public abstract void putFloat(int index, int parameter, float value);
+
+    /**
+     * Sets a double parameter of a queued invocation.
+     *
+     * @param index The index of the invocation record.
+     * @param parameter The index of the parameter.
+     * @param value The value of the parameter.
+     */
+    public abstract void putDouble(int index, int parameter, double value);
+
+    /**
+     * Sets a pointer parameter of a queued invocation.
+     *
+     * @param index The index of the invocation record.
+     * @param parameter The index of the parameter.
+     * @param value The value of the parameter.  Must be a direct pointer or null.
+     */
+    public abstract void putPointer(int index, int parameter, Pointer value);
+
+    /**
+     * Executes all queued invocations.
+     * <p>
+     * The queued invocations are retained, so the results can be read, and the batch can be re-executed.
+     * Call {@link #clear()} to remove them.
+     */
+    public abstract void invoke();
+
+    /**
+     * Gets the integer result of an executed invocation.
+     *
+     * @param index The index of the invocation record.
+     * @return The result of the invocation.
+     */
+    public abstract int getInt(int index);
+
+    /**
+     * Gets the long integer result of an executed invocation.
+     *
+     * @param index The index of the invocation record.
+     * @return The result of the invocation.
+     */
+    public abstract long getLong(int index);
+
+    /**
+     * Gets the float result of an executed invocation.
+     *
+     * @param index The index of the invocation record.
+     * @return The result of the invocation.
+     */
+    public abstract float getFloat(int index);
+
+    /**
+     * Gets the double result of an executed invocation.
+     *
+     * @param index The index of the invocation record.
+     * @return The result of the invocation.
+     */
+    public abstract double getDouble(int index);
+
+    /**
+     * Gets the pointer result of an executed invocation.
+     *
+     * @param index The index of the invocation record.
+     * @return The result of the invocation.
+     */
+    public abstract Pointer getPointer(int index);
+}
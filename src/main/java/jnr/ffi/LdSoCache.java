@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads the shared library names and paths the dynamic linker has cached in /etc/ld.so.cache.
+ */
+final class LdSoCache {
+    static final File CACHE_FILE = new File("/etc/ld.so.cache");
+
+    private static final String OLD_MAGIC = "ld.so-1.7.0";
+    private static final String NEW_MAGIC = "glibc-ld.so.cache1.1";
+    private static final int OLD_HEADER_SIZE = 16, OLD_ENTRY_SIZE = 12;
+    private static final int NEW_HEADER_SIZE = 48, NEW_ENTRY_SIZE = 24;
+
+    private static final int FLAG_ELF_LIBC6 = 0x0003;
+    private static final int FLAG_TYPE_MASK = 0x00ff;
+    private static final int FLAG_ARCH_MASK = 0xff00;
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private LdSoCache() {
+    }
+
+    private static final class SingletonHolder {
+        static final Map<String, String> libraries = load(CACHE_FILE, getArchFlags(Platform.getNativePlatform().getCPU()));
+    }
+
+    /**
+     * Gets the libraries in the system cache that match the current architecture.
+     *
+     * @return a map of library names (e.g. libc.so.6) to their paths, or an empty map if the cache cannot be read.
+     */
+    static Map<String, String> getLibraries() {
+        return SingletonHolder.libraries;
+    }
+
+    /**
+     * Gets the architecture flags ldconfig sets on libraries for a cpu, or -1 if they are not known.
+     */
+    static int getArchFlags(Platform.CPU cpu) {
+        switch (cpu) {
+            case I386:
+            case PPC:
+            case MIPS32:
+                return 0x0000;
+            case X86_64:
+                return 0x0300;
+            case S390X:
+                return 0x0400;
+            case PPC64:
+            case PPC64LE:
+                return 0x0500;
+            case AARCH64:
+                return 0x0a00;
+            default:
+                return -1;
+        }
+    }
+
+    static Map<String, String> load(File file, int archFlags) {
+        if (!file.isFile()) {
+            return Collections.emptyMap();
+        }
+
+        try {
+            byte[] data = new byte[(int) file.length()];
+            FileInputStream in = new FileInputStream(file);
+            try {
+                int off = 0, n;
+                while (off < data.length && (n = in.read(data, off, data.length - off)) > 0) {
+                    off += n;
+                }
+            } finally {
+                in.close();
+            }
+
+            return parse(data, archFlags);
+
+        } catch (IOException ex) {
+            return Collections.emptyMap();
+
+        } catch (RuntimeException ex) {
+            // A truncated or otherwise corrupt cache is ignored, libraries are then only found by searching
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Parses the contents of a cache file in either the new format, or the old format with the new format appended.
+     *
+     * @param data the contents of the cache file
+     * @param archFlags the architecture flags the libraries must have, or -1 to accept all ELF libraries
+     * @return a map of library names to their paths, in the order the dynamic linker prefers them
+     */
+    static Map<String, String> parse(byte[] data, int archFlags) {
+        ByteBuffer buf = ByteBuffer.wrap(data).order(ByteOrder.nativeOrder());
+
+        int start = 0;
+        if (startsWith(data, 0, OLD_MAGIC)) {
+            int nlibs = buf.getInt(OLD_MAGIC.length() + 1);
+            start = align(OLD_HEADER_SIZE + nlibs * OLD_ENTRY_SIZE, 8);
+        }
+
+        if (!startsWith(data, start, NEW_MAGIC)) {
+            return Collections.emptyMap();
+        }
+
+        int nlibs = buf.getInt(start + NEW_MAGIC.length());
+        Map<String, String> libraries = new LinkedHashMap<String, String>();
+        for (int i = 0; i < nlibs; i++) {
+            int entry = start + NEW_HEADER_SIZE + (i * NEW_ENTRY_SIZE);
+            int flags = buf.getInt(entry);
+            if ((flags & FLAG_TYPE_MASK) != FLAG_ELF_LIBC6 || (archFlags >= 0 && (flags & FLAG_ARCH_MASK) != archFlags)) {
+                continue;
+            }
+
+            String name = getString(data, start + buf.getInt(entry + 4));
+            String path = getString(data, start + buf.getInt(entry + 8));
+            if (!libraries.containsKey(name)) {
+                libraries.put(name, path);
+            }
+        }
+
+        return Collections.unmodifiableMap(libraries);
+    }
+
+    private static boolean startsWith(byte[] data, int offset, String magic) {
+        if (offset < 0 || offset + magic.length() > data.length) {
+            return false;
+        }
+
+        return magic.equals(new String(data, offset, magic.length(), ASCII));
+    }
+
+    private static String getString(byte[] data, int offset) {
+        int end = offset;
+        while (data[end] != 0) {
+            end++;
+        }
+
+        return new String(data, offset, end - offset, ASCII);
+    }
+
+    private static int align(int offset, int alignment) {
+        return (offset + alignment - 1) & ~(alignment - 1);
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers where libraries were located, so a later search of the same directories is a lookup.
+ *
+ * Each location is stored with the modification times of the searched directories and of /etc/ld.so.cache,
+ * and is only used while those are unchanged, i.e. while no library has been added to or removed from them.
+ * If the {@code jnr.ffi.library.cache} property names a file, locations are also saved there and reused by later
+ * processes.
+ */
+final class LibraryLocationCache {
+    private final Map<String, Location> locations = new ConcurrentHashMap<String, Location>();
+    private final File file;
+
+    private static final class SingletonHolder {
+        static final LibraryLocationCache INSTANCE = new LibraryLocationCache(getCacheFile());
+    }
+
+    static LibraryLocationCache getInstance() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    private static File getCacheFile() {
+        try {
+            String path = System.getProperty("jnr.ffi.library.cache");
+            return path != null && !path.isEmpty() ? new File(path) : null;
+
+        } catch (SecurityException se) {
+            return null;
+        }
+    }
+
+    private static final class Location {
+        final String path;
+        final long[] stamps;
+
+        Location(String path, long[] stamps) {
+            this.path = path;
+            this.stamps = stamps;
+        }
+    }
+
+    LibraryLocationCache(File file) {
+        this.file = file;
+        if (file != null) {
+            load();
+        }
+    }
+
+    /**
+     * Gets the cached location of a library.
+     *
+     * @param libName the name of the library
+     * @param libraryPaths the directories that were searched
+     * @return the location, or null if it is not known or the directories have changed since it was located.
+     */
+    String get(String libName, List<String> libraryPaths) {
+        Location location = locations.get(key(libName, libraryPaths));
+        if (location == null || !Arrays.equals(location.stamps, stamps(libraryPaths))) {
+            return null;
+        }
+
+        // The library itself may have been removed without touching its directory
+        return new File(location.path).exists() ? location.path : null;
+    }
+
+    /**
+     * Remembers the location of a library that was found by searching.
+     *
+     * @param libName the name of the library
+     * @param libraryPaths the directories that were searched
+     * @param path the absolute path of the library
+     */
+    void put(String libName, List<String> libraryPaths, String path) {
+        Location location = new Location(path, stamps(libraryPaths));
+        Location previous = locations.put(key(libName, libraryPaths), location);
+
+        // Only write the file when it would change, not each time another thread or process locates the same library
+        if (file != null && (previous == null || !previous.path.equals(path)
+                || !Arrays.equals(previous.stamps, location.stamps))) {
+            save();
+        }
+    }
+
+    private static String key(String libName, List<String> libraryPaths) {
+        StringBuilder sb = new StringBuilder(libName);
+        for (String path : libraryPaths) {
+            sb.append(File.pathSeparatorChar).append(path);
+        }
+
+        return sb.toString();
+    }
+
+    private static long[] stamps(List<String> libraryPaths) {
+        long[] stamps = new long[libraryPaths.size() + 1];
+        for (int i = 0; i < libraryPaths.size(); i++) {
+            stamps[i] = new File(libraryPaths.get(i)).lastModified();
+        }
+        stamps[libraryPaths.size()] = LdSoCache.CACHE_FILE.lastModified();
+
+        return stamps;
+    }
+
+    private void load() {
+        Properties properties = new Properties();
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                properties.load(in);
+            } finally {
+                in.close();
+            }
+
+        } catch (IOException ex) {
+            // No usable cache file yet, it is created when a library is located
+            return;
+        }
+
+        for (String key : properties.stringPropertyNames()) {
+            // Each value is the comma separated directory stamps, then a ';' and the library location
+            String value = properties.getProperty(key);
+            int separator = value.indexOf(';');
+            if (separator < 0) {
+                continue;
+            }
+
+            try {
+                String[] fields = value.substring(0, separator).split(",");
+                long[] stamps = new long[fields.length];
+                for (int i = 0; i < fields.length; i++) {
+                    stamps[i] = Long.parseLong(fields[i]);
+                }
+                locations.put(key, new Location(value.substring(separator + 1), stamps));
+
+            } catch (NumberFormatException ex) {
+                // ignore entries written by something else
+            }
+        }
+    }
+
+    private synchronized void save() {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Location> entry : locations.entrySet()) {
+            StringBuilder sb = new StringBuilder();
+            for (long stamp : entry.getValue().stamps) {
+                if (sb.length() > 0) {
+                    sb.append(',');
+                }
+                sb.append(stamp);
+            }
+            properties.setProperty(entry.getKey(), sb.append(';').append(entry.getValue().path).toString());
+        }
+
+        // Write to a temporary file and rename it, so other processes never read a partially written cache
+        File tmp = null;
+        try {
+            tmp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+            OutputStream out = new FileOutputStream(tmp);
+            try {
+                properties.store(out, "jnr-ffi library locations");
+            } finally {
+                out.close();
+            }
+
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+            }
+
+        } catch (IOException ex) {
+            // The cache file is only an optimization
+            if (tmp != null) {
+                tmp.delete();
+            }
+
+        } catch (SecurityException se) {
+            // ignore
+        }
+    }
+}
@@ -61,5 +61,17 @@ public enum LibraryOption {
     /**
      * Load the library into memory immediately, instead of lazily loading it
      */
-    LoadNow
+    LoadNow,
+
+    /**
+     * A {@link jnr.ffi.util.LockRegistry} which supplies the locks used by
+     * {@link jnr.ffi.annotations.Synchronized} methods.
+     */
+    LockRegistry,
+
+    /**
+     * A {@link jnr.ffi.util.BlockingCallExecutor} which runs the native calls of
+     * {@link jnr.ffi.annotations.Blocking} methods.
+     */
+    BlockingCallExecutor
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+/**
+ * Access to a 64 bit integer ({@code int64_t} or {@code long long}) library global variable, without boxing.
+ *
+ * <p>
+ *     Declare a method with a return type of this interface to access the global variable.
+ *     All accesses have volatile semantics, so changes made by native threads are seen when the variable
+ *     is polled.
+ *
+ * @see IntVariable
+ */
+public interface LongVariable {
+    /**
+     * Gets the current value of the global variable
+     *
+     * @return The value of the variable
+     */
+    public long getLong();
+
+    /**
+     * Sets the global variable to a value
+     *
+     * @param value The value to set the global variable to.
+     */
+    public void setLong(long value);
+
+    /**
+     * Atomically sets the global variable to a value, if it currently equals the expected value.
+     *
+     * @param expected The expected current value.
+     * @param value The new value.
+     * @return true if the variable was updated.
+     */
+    public boolean compareAndSet(long expected, long value);
+
+    /**
+     * Atomically adds to the global variable.
+     *
+     * @param delta The value to add.
+     * @return The previous value of the variable.
+     */
+    public long getAndAdd(long delta);
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+import jnr.ffi.provider.MemoryMapper;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A region of memory mapped from a file, or an anonymous shared mapping.
+ * <p>
+ * Mappings are created with {@link #map} or {@link #mapAnonymous}.  The {@link Pointer} returned by
+ * {@link #getPointer()} is bounded to the mapped length, and throws {@link UnsupportedOperationException}
+ * on writes to a {@link MapMode#READ_ONLY} mapping.
+ * <p>
+ * Mappings are <b>not</b> released when they are garbage collected.  {@link #unmap()} (or {@link #close()})
+ * must be called explicitly, after which the pointer must no longer be accessed.
+ */
+public abstract class MappedMemory implements Closeable {
+
+    /** How a file is mapped into memory */
+    public enum MapMode {
+        /** Read only, shared mapping */
+        READ_ONLY,
+        /** Read/write, shared mapping.  Changes are written back to the file. */
+        READ_WRITE,
+        /** Read/write, copy-on-write mapping.  Changes are not written back to the file. */
+        PRIVATE
+    }
+
+    /** Hints to the operating system about how the mapping will be accessed */
+    public enum Advice {
+        /** No special treatment */
+        NORMAL,
+        /** Pages will be accessed in random order */
+        RANDOM,
+        /** Pages will be accessed in sequential order */
+        SEQUENTIAL,
+        /** Pages will be accessed soon */
+        WILL_NEED,
+        /** Pages will not be accessed in the near future */
+        DONT_NEED
+    }
+
+    /**
+     * Maps a region of a file into memory.
+     *
+     * @param runtime The runtime to map the file with.
+     * @param file The file to map.
+     * @param mode How the file is mapped.
+     * @param offset The offset in the file to start the mapping at.  It need not be page aligned.
+     * @param length The number of bytes to map, or -1 to map to the end of the file.
+     * @return The mapped region.
+     * @throws IOException if the file could not be opened or mapped.
+     */
+    public static MappedMemory map(Runtime runtime, File file, MapMode mode, long offset, long length) throws IOException {
+        return getMapper(runtime).map(file, mode, offset, length);
+    }
+
+    /**
+     * Maps a region of zero filled memory that is not backed by a file.
+     *
+     * @param runtime The runtime to map the memory with.
+     * @param length The number of bytes to map.
+     * @param shared If true, the mapping is shared with child processes, otherwise it is private.
+     * @return The mapped region.
+     */
+    public static MappedMemory mapAnonymous(Runtime runtime, long length, boolean shared) {
+        return getMapper(runtime).mapAnonymous(length, shared);
+    }
+
+    private static MemoryMapper getMapper(Runtime runtime) {
+        if (!(runtime.getMemoryManager() instanceof MemoryMapper)) {
+            throw new UnsupportedOperationException("memory mapping not supported by " + runtime.getClass().getName());
+        }
+
+        return (MemoryMapper) runtime.getMemoryManager();
+    }
+
+    /**
+     * Gets a pointer to the start of the mapped region.
+     *
+     * @return A pointer bounded to the size of the mapping.
+     */
+    public abstract Pointer getPointer();
+
+    /**
+     * Gets the size of the mapped region.
+     *
+     * @return The size of the mapping, in bytes.
+     */
+    public abstract long size();
+
+    /**
+     * Writes all modified pages in the mapping back to the file, and waits for the writes to complete.
+     */
+    public void sync() {
+        sync(0, size(), false);
+    }
+
+    /**
+     * Writes modified pages in a range of the mapping back to the file.
+     *
+     * @param offset The offset from the start of the mapping.
+     * @param length The number of bytes to sync.
+     * @param async If true, schedule the writes and return immediately.
+     */
+    public abstract void sync(long offset, long length, boolean async);
+
+    /**
+     * Advises the operating system how the whole mapping will be accessed.
+     *
+     * @param advice The access pattern hint.
+     */
+    public void advise(Advice advice) {
+        advise(0, size(), advice);
+    }
+
+    /**
+     * Advises the operating system how a range of the mapping will be accessed.
+     *
+     * @param offset The offset from the start of the mapping.
+     * @param length The number of bytes the hint applies to.
+     * @param advice The access pattern hint.
+     */
+    public abstract void advise(long offset, long length, Advice advice);
+
+    /**
+     * Unmaps the region.  Calling this more than once has no effect.
+     */
+    public abstract void unmap();
+
+    /**
+     * Checks if this region has been unmapped.
+     *
+     * @return true if {@link #unmap()} has been called.
+     */
+    public abstract boolean isUnmapped();
+
+    /**
+     * Unmaps the region.
+     *
+     * @see #unmap()
+     */
+    public void close() {
+        unmap();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+/**
+ * Base class for arrays of primitive values in native memory.
+ * <p>
+ * A native array can be passed directly as a pointer parameter to a native function.  Arrays allocated with
+ * {@code allocate()} are in direct memory, so only the address is passed; nothing is copied to or from
+ * java memory on each call, and the same array can be reused across calls.
+ */
+public abstract class NativeArray {
+    final Pointer memory;
+    private final Pointer pointer;
+    private final int length;
+
+    NativeArray(Pointer memory, int length, int elementSize) {
+        if (length < 0) {
+            throw new IllegalArgumentException("negative length " + length);
+        }
+
+        // Indexes are checked against the length, so there is no need for the memory to check them as well.
+        // The unchecked view is only used by the element accessors; everything else gets a bounds checked one.
+        this.memory = memory.uncheckedSlice(0, (long) length * elementSize);
+        this.pointer = memory.slice(0, (long) length * elementSize);
+        this.length = length;
+    }
+
+    /**
+     * Gets the memory containing the array elements.
+     *
+     * @return a {@link Pointer} to the first element.
+     */
+    public final Pointer getPointer() {
+        return pointer;
+    }
+
+    /**
+     * Gets the number of elements in the array.
+     *
+     * @return the array length.
+     */
+    public final int length() {
+        return length;
+    }
+
+    /** The smallest page size in use; reads which stay within a page cannot fault if its first byte is mapped */
+    private static final long PAGE_SIZE = 4096;
+
+    /** The number of addresses read at once when searching for a {@code NULL} terminator */
+    private static final int SCAN_BLOCK_SIZE = 32;
+
+    /**
+     * Counts the number of elements in a {@code NULL} terminated array of pointers, reading in blocks.
+     */
+    static int nullTerminatedLength(Pointer memory, long offset) {
+        final int addressSize = memory.getRuntime().addressSize();
+        final long[] block = new long[SCAN_BLOCK_SIZE];
+
+        for (int count = 0; ; ) {
+            long position = offset + (long) count * addressSize;
+            long n = Math.min(SCAN_BLOCK_SIZE, (memory.size() - position) / addressSize);
+            if (memory.isDirect()) {
+                // Do not read beyond the page containing the terminator, in case the next page is not mapped
+                long address = memory.address() + position;
+                n = Math.min(n, (PAGE_SIZE - (address & (PAGE_SIZE - 1))) / addressSize);
+            }
+
+            // Always read at least one address, so a missing terminator is reported as a bounds error
+            n = Math.max(1, n);
+            memory.getAddresses(position, block, 0, (int) n);
+            for (int i = 0; i < n; i++) {
+                if (block[i] == 0) {
+                    return count + i;
+                }
+            }
+            count += n;
+        }
+    }
+
+    static int byteSize(int length, int elementSize) {
+        long size = (long) length * elementSize;
+        if (length < 0 || size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("invalid length " + length);
+        }
+
+        return (int) size;
+    }
+
+    final void checkIndex(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds for length " + length);
+        }
+    }
+
+    final void checkRange(int index, int count) {
+        if (index < 0 || count < 0 || index > length - count) {
+            throw new IndexOutOfBoundsException("range [" + index + ", " + index + " + " + count
+                    + ") out of bounds for length " + length);
+        }
+    }
+}
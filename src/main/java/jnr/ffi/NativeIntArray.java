@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+/**
+ * An array of {@code int} (32 bit) values in native memory.
+ */
+public final class NativeIntArray extends NativeArray {
+    private NativeIntArray(Pointer memory, int length) {
+        super(memory, length, 4);
+    }
+
+    /**
+     * Allocates a new array in direct memory, with all elements set to zero.
+     *
+     * @param runtime The runtime to allocate the memory in.
+     * @param length The number of elements in the array.
+     * @return A new array.
+     */
+    public static NativeIntArray allocate(Runtime runtime, int length) {
+        return new NativeIntArray(Memory.allocateDirect(runtime, byteSize(length, 4)), length);
+    }
+
+    /**
+     * Creates an array which uses existing memory.
+     *
+     * @param memory The memory containing the array elements.
+     * @param length The number of elements in the array.
+     * @return An array using the memory.
+     * @throws IndexOutOfBoundsException if the memory is too small to contain the array.
+     */
+    public static NativeIntArray wrap(Pointer memory, int length) {
+        return new NativeIntArray(memory, length);
+    }
+
+    /**
+     * Gets the value of an element.
+     *
+     * @param index The index of the element.
+     * @return The value of the element.
+     */
+    public int get(int index) {
+        checkIndex(index);
+        return memory.getInt(index * 4L);
+    }
+
+    /**
+     * Sets the value of an element.
+     *
+     * @param index The index of the element.
+     * @param value The new value of the element.
+     */
+    public void set(int index, int value) {
+        checkIndex(index);
+        memory.putInt(index * 4L, value);
+    }
+
+    /**
+     * Copies elements to a java array.
+     *
+     * @param index The index of the first element to copy.
+     * @param dst The array to copy the elements to.
+     * @param idx The index in {@code dst} to start copying to.
+     * @param len The number of elements to copy.
+     */
+    public void get(int index, int[] dst, int idx, int len) {
+        checkRange(index, len);
+        memory.get(index * 4L, dst, idx, len);
+    }
+
+    /**
+     * Copies elements from a java array.
+     *
+     * @param index The index of the first element to copy to.
+     * @param src The array to copy the elements from.
+     * @param idx The index in {@code src} to start copying from.
+     * @param len The number of elements to copy.
+     */
+    public void put(int index, int[] src, int idx, int len) {
+        checkRange(index, len);
+        memory.put(index * 4L, src, idx, len);
+    }
+
+    /**
+     * Copies all the elements to a new java array.
+     *
+     * @return A java array containing the elements.
+     */
+    public int[] toArray() {
+        int[] array = new int[length()];
+        get(0, array, 0, array.length);
+        return array;
+    }
+
+    /**
+     * Creates an array which shares a range of the elements of this array.
+     *
+     * @param index The index of the first element in the new array.
+     * @param length The number of elements in the new array.
+     * @return An array sharing the elements.
+     */
+    public NativeIntArray slice(int index, int length) {
+        checkRange(index, length);
+        return new NativeIntArray(memory.slice(index * 4L, (long) length * 4L), length);
+    }
+}
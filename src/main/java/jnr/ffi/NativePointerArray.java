@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+/**
+ * An array of native pointers in native memory.
+ */
+public final class NativePointerArray extends NativeArray {
+    private final int addressSize;
+
+    private NativePointerArray(Pointer memory, int length) {
+        super(memory, length, memory.getRuntime().addressSize());
+        this.addressSize = memory.getRuntime().addressSize();
+    }
+
+    /**
+     * Allocates a new array in direct memory, with all elements set to {@code NULL}.
+     *
+     * @param runtime The runtime to allocate the memory in.
+     * @param length The number of elements in the array.
+     * @return A new array.
+     */
+    public static NativePointerArray allocate(Runtime runtime, int length) {
+        return new NativePointerArray(Memory.allocateDirect(runtime, byteSize(length, runtime.addressSize())), length);
+    }
+
+    /**
+     * Creates an array which uses existing memory.
+     *
+     * @param memory The memory containing the array elements.
+     * @param length The number of elements in the array.
+     * @return An array using the memory.
+     * @throws IndexOutOfBoundsException if the memory is too small to contain the array.
+     */
+    public static NativePointerArray wrap(Pointer memory, int length) {
+        return new NativePointerArray(memory, length);
+    }
+
+    /**
+     * Creates an array which uses existing memory containing a {@code NULL} terminated array of pointers.
+     * The terminator is not included in the array.  Elements are not copied; each pointer is only created
+     * when its element is read.
+     *
+     * @param memory The memory containing the array elements.
+     * @return An array using the memory.
+     */
+    public static NativePointerArray wrapNullTerminated(Pointer memory) {
+        return new NativePointerArray(memory, nullTerminatedLength(memory, 0));
+    }
+
+    /**
+     * Gets the value of an element.
+     *
+     * @param index The index of the element.
+     * @return The pointer, or {@code null} if the element is {@code NULL}.
+     */
+    public Pointer get(int index) {
+        checkIndex(index);
+        return memory.getPointer((long) index * addressSize);
+    }
+
+    /**
+     * Sets the value of an element.
+     *
+     * @param index The index of the element.
+     * @param value The new value of the element.  {@code null} sets it to {@code NULL}.
+     */
+    public void set(int index, Pointer value) {
+        checkIndex(index);
+        memory.putPointer((long) index * addressSize, value);
+    }
+
+    /**
+     * Gets the address of an element.
+     *
+     * @param index The index of the element.
+     * @return The native address.
+     */
+    public long getAddress(int index) {
+        checkIndex(index);
+        return memory.getAddress((long) index * addressSize);
+    }
+
+    /**
+     * Sets the address of an element.
+     *
+     * @param index The index of the element.
+     * @param address The new native address.
+     */
+    public void setAddress(int index, long address) {
+        checkIndex(index);
+        memory.putAddress((long) index * addressSize, address);
+    }
+
+    /**
+     * Copies elements to a java array.
+     *
+     * @param index The index of the first element to copy.
+     * @param dst The array to copy the elements to.
+     * @param idx The index in {@code dst} to start copying to.
+     * @param len The number of elements to copy.
+     */
+    public void get(int index, Pointer[] dst, int idx, int len) {
+        checkRange(index, len);
+        memory.get((long) index * addressSize, dst, idx, len);
+    }
+
+    /**
+     * Copies elements from a java array.
+     *
+     * @param index The index of the first element to copy to.
+     * @param src The array to copy the elements from.
+     * @param idx The index in {@code src} to start copying from.
+     * @param len The number of elements to copy.
+     */
+    public void put(int index, Pointer[] src, int idx, int len) {
+        checkRange(index, len);
+        memory.put((long) index * addressSize, src, idx, len);
+    }
+
+    /**
+     * Copies all the elements to a new java array.
+     *
+     * @return A java array containing the elements.
+     */
+    public Pointer[] toArray() {
+        Pointer[] array = new Pointer[length()];
+        get(0, array, 0, array.length);
+        return array;
+    }
+
+    /**
+     * Creates an array which shares a range of the elements of this array.
+     *
+     * @param index The index of the first element in the new array.
+     * @param length The number of elements in the new array.
+     * @return An array sharing the elements.
+     */
+    public NativePointerArray slice(int index, int length) {
+        checkRange(index, length);
+        return new NativePointerArray(memory.slice((long) index * addressSize, (long) length * addressSize), length);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+import java.nio.charset.Charset;
+
+/**
+ * A view of an array of C strings ({@code char*}) in native memory, such as {@code argv} or {@code environ}.
+ * <p>
+ * Strings are only decoded when they are first read, and are then cached, so reading a few entries of a large
+ * array does not decode the rest.  Changes to the array after a string has been read are not seen.
+ */
+public final class NativeStringArray extends NativeArray {
+    private final int addressSize;
+    private final Charset charset;
+    private final String[] strings;
+
+    private NativeStringArray(Pointer memory, int length, Charset charset) {
+        super(memory, length, memory.getRuntime().addressSize());
+        this.addressSize = memory.getRuntime().addressSize();
+        this.charset = charset;
+        this.strings = new String[length];
+    }
+
+    /**
+     * Creates a view of an array of strings in existing memory.
+     *
+     * @param memory The memory containing the array of {@code char*} pointers.
+     * @param length The number of elements in the array.
+     * @param charset The charset used to decode the strings.
+     * @return A view of the array.
+     */
+    public static NativeStringArray wrap(Pointer memory, int length, Charset charset) {
+        return new NativeStringArray(memory, length, charset);
+    }
+
+    /**
+     * Creates a view of a {@code NULL} terminated array of strings in existing memory.  The terminator is not
+     * included in the view.
+     *
+     * @param memory The memory containing the array of {@code char*} pointers.
+     * @param charset The charset used to decode the strings.
+     * @return A view of the array.
+     */
+    public static NativeStringArray wrapNullTerminated(Pointer memory, Charset charset) {
+        return new NativeStringArray(memory, nullTerminatedLength(memory, 0), charset);
+    }
+
+    /**
+     * Creates a view of a {@code NULL} terminated array of strings in existing memory, decoded using the
+     * default charset.
+     *
+     * @param memory The memory containing the array of {@code char*} pointers.
+     * @return A view of the array.
+     */
+    public static NativeStringArray wrapNullTerminated(Pointer memory) {
+        return wrapNullTerminated(memory, Charset.defaultCharset());
+    }
+
+    /**
+     * Gets the string at an index.
+     *
+     * @param index The index of the element.
+     * @return The decoded string, or {@code null} if the element is {@code NULL}.
+     */
+    public String get(int index) {
+        checkIndex(index);
+        String string = strings[index];
+        if (string == null) {
+            Pointer ptr = memory.getPointer((long) index * addressSize);
+            if (ptr != null) {
+                strings[index] = string = ptr.getString(0, Integer.MAX_VALUE, charset);
+            }
+        }
+
+        return string;
+    }
+
+    /**
+     * Gets the pointer to the string at an index, without decoding it.
+     *
+     * @param index The index of the element.
+     * @return The pointer, or {@code null} if the element is {@code NULL}.
+     */
+    public Pointer getPointer(int index) {
+        checkIndex(index);
+        return memory.getPointer((long) index * addressSize);
+    }
+
+    /**
+     * Decodes all the strings into a new java array.
+     *
+     * @return A java array containing the strings.
+     */
+    public String[] toArray() {
+        String[] array = new String[length()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = get(i);
+        }
+
+        return array;
+    }
+}
@@ -466,6 +466,21 @@ public abstract class Platform {
 
         @Override
         public String locateLibrary(final String libName, List<String> libraryPaths) {
+            LibraryLocationCache cache = LibraryLocationCache.getInstance();
+            String location = cache.get(libName, libraryPaths);
+            if (location == null) {
+                location = searchLibrary(libName, libraryPaths);
+                if (location == null) {
+                    // Not found, so leave it to the dynamic linker, and search again next time
+                    return mapLibraryName(libName);
+                }
+                cache.put(libName, libraryPaths, location);
+            }
+
+            return location;
+        }
+
+        private String searchLibrary(final String libName, List<String> libraryPaths) {
             Pattern exclude;
             // there are /libx32 directories in wild on ubuntu 14.04 and the
             // oracle-java8-installer package
@@ -497,19 +512,23 @@ public abstract class Platform {
                 }
 
                 for (File file : files) {
-                    Matcher matcher = versionedLibPattern.matcher(file.getName());
-                    String versionString = matcher.matches() ? matcher.group(1) : "";
-                    int[] version;
-                    if (versionString == null || versionString.isEmpty()) {
-                        version = new int[0];
-                    } else {
-                        String[] parts = versionString.split("\\.");
-                        version = new int[parts.length - 1];
-                        for (int i = 1; i < parts.length; i++) {
-                            version[i - 1] = Integer.parseInt(parts[i]);
-                        }
+                    matches.put(file.getAbsolutePath(), getVersion(versionedLibPattern.matcher(file.getName())));
+                }
+            }
+
+            //
+            // Fall back to the libraries known to the dynamic linker, which includes the
+            // versioned libraries of packages that do not install a lib<name>.so symlink
+            //
+            if (matches.isEmpty()) {
+                // The cached libraries are already filtered by architecture, unless ldconfig's flags for it are unknown
+                boolean checkArch = LdSoCache.getArchFlags(getCPU()) < 0;
+                for (Map.Entry<String, String> entry : LdSoCache.getLibraries().entrySet()) {
+                    Matcher matcher = versionedLibPattern.matcher(entry.getKey());
+                    if (matcher.matches() && (!checkArch || !exclude.matcher(entry.getValue()).matches())
+                            && new File(entry.getValue()).exists()) {
+                        matches.put(entry.getValue(), getVersion(matcher));
                     }
-                    matches.put(file.getAbsolutePath(), version);
                 }
             }
 
@@ -529,7 +548,22 @@ public abstract class Platform {
                 }
             }
 
-            return bestMatch != null ? bestMatch : mapLibraryName(libName);
+            return bestMatch;
+        }
+
+        private static int[] getVersion(Matcher matcher) {
+            String versionString = matcher.matches() ? matcher.group(1) : "";
+            int[] version;
+            if (versionString == null || versionString.isEmpty()) {
+                version = new int[0];
+            } else {
+                String[] parts = versionString.split("\\.");
+                version = new int[parts.length - 1];
+                for (int i = 1; i < parts.length; i++) {
+                    version[i - 1] = Integer.parseInt(parts[i]);
+                }
+            }
+            return version;
         }
 
         private static int compareVersions(int[] version1, int[] version2) {
@@ -18,10 +18,11 @@
 
 package jnr.ffi;
 
+import jnr.ffi.provider.MemoryManager;
+import jnr.ffi.provider.jffi.UnsafeAccess;
+
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * A native memory address.
@@ -621,6 +622,43 @@ abstract public class Pointer {
      */
     abstract public Pointer slice(long offset, long size);
 
+    /**
+     * Creates a new {@code Pointer} representing a sub-region of the memory referred to by this
+     * {@code Pointer}, which does not check bounds on each access.
+     *
+     * <p>The whole sub-region is checked once, when it is created, so loops which access many values within
+     * a known range do not pay for a bounds check on every access.  Accesses outside the sub-region through
+     * the returned {@code Pointer} may not be detected.
+     *
+     * @param offset the offset from the start of the memory this {@code Pointer}
+     * represents at which the new {@code Pointer} will start.
+     * @param size the size of the memory sub-region.
+     * @return a {@code Pointer} instance representing the new sub-region.
+     * @throws java.lang.IndexOutOfBoundsException if the sub-region is not within the bounds of this memory.
+     */
+    public Pointer uncheckedSlice(long offset, long size) {
+        checkBounds(offset, size);
+        return slice(offset, size);
+    }
+
+    /**
+     * Creates a {@link ByteBuffer} which shares a region of the memory referred to by this {@code Pointer}.
+     *
+     * <p>No data is copied; changes to the memory are visible through the buffer, and vice versa.  The buffer
+     * uses the byte order of the runtime, and keeps the memory of this {@code Pointer} alive for as long as
+     * the buffer (or any buffer derived from it) is reachable.  Memory which is not owned by java code (e.g.
+     * a pointer returned by a native function) must remain valid while the buffer is in use.
+     *
+     * @param offset the offset from the start of the memory this {@code Pointer} represents.
+     * @param length the length of the region in bytes.
+     * @return a {@code ByteBuffer} sharing the memory region.
+     * @throws java.lang.IndexOutOfBoundsException if the region is not within the bounds of this memory.
+     * @throws java.lang.UnsupportedOperationException if this memory cannot be accessed as a {@code ByteBuffer}.
+     */
+    public ByteBuffer asByteBuffer(long offset, int length) {
+        throw new UnsupportedOperationException("cannot create a ByteBuffer view of " + getClass().getName());
+    }
+
     /**
      * Bulk data transfer from one memory location to another.
      *
@@ -679,6 +717,211 @@ abstract public class Pointer {
      */
     abstract public int indexOf(long offset, byte value, int maxlen);
 
+    /**
+     * Reads an {@code int} (32 bit) value at the given offset, with volatile (acquire) semantics.
+     *
+     * <p>This, and the other atomic operations below, can be used to coordinate with native threads through
+     * values in native memory.  The offset must be aligned to the size of the value.  Memory which is not
+     * natively accessible (e.g. a java array) is only guaranteed to be atomic with respect to other atomic
+     * operations from java.  Memory which supports neither throws {@link UnsupportedOperationException}.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents at which the value will be read.
+     * @return the {@code int} value at the offset.
+     */
+    public int getIntVolatile(long offset) {
+        synchronized (atomicLock()) {
+            return getInt(offset);
+        }
+    }
+
+    /**
+     * Writes an {@code int} (32 bit) value at the given offset, with volatile semantics.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents at which the value will be written.
+     * @param value the {@code int} value to be written.
+     */
+    public void putIntVolatile(long offset, int value) {
+        synchronized (atomicLock()) {
+            putInt(offset, value);
+        }
+    }
+
+    /**
+     * Writes an {@code int} (32 bit) value at the given offset, with release semantics.
+     *
+     * <p>Prior writes are visible to any thread which sees this value, but unlike {@link #putIntVolatile},
+     * the write may not be immediately visible to other threads.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents at which the value will be written.
+     * @param value the {@code int} value to be written.
+     */
+    public void putIntOrdered(long offset, int value) {
+        putIntVolatile(offset, value);
+    }
+
+    /**
+     * Atomically sets the {@code int} (32 bit) value at the given offset to {@code value}, if it currently
+     * equals {@code expected}.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents.
+     * @param expected the expected current value.
+     * @param value the new value.
+     * @return true if the value was updated.
+     */
+    public boolean compareAndSwapInt(long offset, int expected, int value) {
+        synchronized (atomicLock()) {
+            if (getInt(offset) != expected) {
+                return false;
+            }
+            putInt(offset, value);
+            return true;
+        }
+    }
+
+    /**
+     * Atomically adds to the {@code int} (32 bit) value at the given offset.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents.
+     * @param delta the value to add.
+     * @return the previous value.
+     */
+    public int getAndAddInt(long offset, int delta) {
+        int value;
+        do {
+            value = getIntVolatile(offset);
+        } while (!compareAndSwapInt(offset, value, value + delta));
+
+        return value;
+    }
+
+    /**
+     * Reads a {@code long} (64 bit) value at the given offset, with volatile (acquire) semantics.
+     *
+     * <p>The value is read as a single 64 bit access, even on 32 bit platforms, so the offset must be aligned to 8 bytes.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents at which the value will be read.
+     * @return the {@code long} value at the offset.
+     */
+    public long getLongVolatile(long offset) {
+        synchronized (atomicLock()) {
+            return getLongLong(offset);
+        }
+    }
+
+    /**
+     * Writes a {@code long} (64 bit) value at the given offset, with volatile semantics.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents at which the value will be written.
+     * @param value the {@code long} value to be written.
+     */
+    public void putLongVolatile(long offset, long value) {
+        synchronized (atomicLock()) {
+            putLongLong(offset, value);
+        }
+    }
+
+    /**
+     * Writes a {@code long} (64 bit) value at the given offset, with release semantics.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents at which the value will be written.
+     * @param value the {@code long} value to be written.
+     * @see #putIntOrdered(long, int)
+     */
+    public void putLongOrdered(long offset, long value) {
+        putLongVolatile(offset, value);
+    }
+
+    /**
+     * Atomically sets the {@code long} (64 bit) value at the given offset to {@code value}, if it currently
+     * equals {@code expected}.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents.
+     * @param expected the expected current value.
+     * @param value the new value.
+     * @return true if the value was updated.
+     */
+    public boolean compareAndSwapLong(long offset, long expected, long value) {
+        synchronized (atomicLock()) {
+            if (getLongLong(offset) != expected) {
+                return false;
+            }
+            putLongLong(offset, value);
+            return true;
+        }
+    }
+
+    /**
+     * Atomically adds to the {@code long} (64 bit) value at the given offset.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents.
+     * @param delta the value to add.
+     * @return the previous value.
+     */
+    public long getAndAddLong(long offset, long delta) {
+        long value;
+        do {
+            value = getLongVolatile(offset);
+        } while (!compareAndSwapLong(offset, value, value + delta));
+
+        return value;
+    }
+
+    /**
+     * Ensures that loads and stores before the fence are not reordered with loads and stores after it.
+     */
+    public static void fullFence() {
+        UnsafeAccess.fullFence();
+    }
+
+    /**
+     * Ensures that loads before the fence are not reordered with loads and stores after it.
+     */
+    public static void loadFence() {
+        UnsafeAccess.loadFence();
+    }
+
+    /**
+     * Ensures that loads and stores before the fence are not reordered with stores after it.
+     */
+    public static void storeFence() {
+        UnsafeAccess.storeFence();
+    }
+
+    /**
+     * Java memory shares a lock per array, so all views of the same array are atomic with respect to each other.
+     */
+    private Object atomicLock() {
+        if (!hasArray()) {
+            throw new UnsupportedOperationException("atomic operations are not supported by " + getClass().getName());
+        }
+
+        return array();
+    }
+
+    /**
+     * Bulk get method for multiple native addresses.
+     *
+     * This method reads multiple addresses from consecutive memory locations, beginning at the given offset,
+     * in a single copy, and stores them in an array.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents at which the first value will be read.
+     * @param dst The array into which the addresses are to be stored.
+     * @param idx the start index in the {@code dst} array to begin storing the values.
+     * @param len the number of values to be read.
+     */
+    public void getAddresses(long offset, long[] dst, int idx, int len) {
+        if (getRuntime().addressSize() == 8) {
+            get(offset, dst, idx, len);
+
+        } else {
+            int[] addresses = new int[len];
+            get(offset, addresses, 0, len);
+            for (int i = 0; i < len; i++) {
+                dst[idx + i] = addresses[i] & 0xffffffffL;
+            }
+        }
+    }
+
     /**
      * Bulk get method for multiple {@code Pointer} values.
      *
@@ -691,9 +934,12 @@ abstract public class Pointer {
      * @param len the number of values to be read.
      */
     public void get(long offset, Pointer[] dst, int idx, int len) {
-        final int pointerSize = getRuntime().addressSize();
+        long[] addresses = new long[len];
+        getAddresses(offset, addresses, 0, len);
+
+        MemoryManager memoryManager = getRuntime().getMemoryManager();
         for (int i = 0; i < len; i++) {
-            dst[idx + i] = getPointer(offset + (i * pointerSize));
+            dst[idx + i] = addresses[i] != 0 ? memoryManager.newPointer(addresses[i]) : null;
         }
     }
 
@@ -715,41 +961,38 @@ abstract public class Pointer {
         }
     }
 
+    /**
+     * Reads a {@code NULL} terminated array of C strings, such as {@code argv} or {@code environ}.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents at which the array starts.
+     * @return the strings, decoded using the default charset.
+     * @see NativeStringArray#wrapNullTerminated(Pointer, Charset) for a view which decodes strings on demand.
+     */
     public String[] getNullTerminatedStringArray(long offset) {
-
-        Pointer ptr;
-        if ((ptr = getPointer(offset)) == null) {
-            return new String[0];
+        int length = NativeArray.nullTerminatedLength(this, offset);
+        long[] addresses = new long[length];
+        getAddresses(offset, addresses, 0, length);
+
+        MemoryManager memoryManager = getRuntime().getMemoryManager();
+        String[] array = new String[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = memoryManager.newPointer(addresses[i]).getString(0);
         }
 
-        final int pointerSize = getRuntime().addressSize();
-
-        List<String> array = new ArrayList<String>();
-        array.add(ptr.getString(0));
-
-        for (int off = pointerSize; (ptr = getPointer(offset + off)) != null; off += pointerSize) {
-            array.add(ptr.getString(0));
-        }
-
-        return array.toArray(new String[array.size()]);
+        return array;
     }
 
+    /**
+     * Reads a {@code NULL} terminated array of pointers.
+     *
+     * @param offset The offset from the start of the memory this {@code Pointer} represents at which the array starts.
+     * @return the pointers, not including the terminating {@code NULL}.
+     * @see NativePointerArray#wrapNullTerminated(Pointer) for a view which does not copy the array.
+     */
     public Pointer[] getNullTerminatedPointerArray(long offset) {
+        Pointer[] array = new Pointer[NativeArray.nullTerminatedLength(this, offset)];
+        get(offset, array, 0, array.length);
 
-        Pointer ptr;
-        if ((ptr = getPointer(offset)) == null) {
-            return new Pointer[0];
-        }
-
-        final int pointerSize = getRuntime().addressSize();
-
-        List<Pointer> array = new ArrayList<Pointer>();
-        array.add(ptr);
-
-        for (int off = pointerSize; (ptr = getPointer(offset + off)) != null; off += pointerSize) {
-            array.add(ptr);
-        }
-
-        return array.toArray(new Pointer[array.size()]);
+        return array;
     }
 }
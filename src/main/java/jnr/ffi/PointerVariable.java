@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+/**
+ * Access to a pointer library global variable.
+ *
+ * <p>
+ *     Declare a method with a return type of this interface to access the global variable.
+ *     All accesses have volatile semantics, so changes made by native threads are seen when the variable
+ *     is polled.
+ *
+ * @see IntVariable
+ */
+public interface PointerVariable {
+    /**
+     * Gets the current value of the global variable
+     *
+     * @return The value of the variable, or {@code null} if it is {@code NULL}.
+     */
+    public Pointer getPointer();
+
+    /**
+     * Sets the global variable to a value
+     *
+     * @param value The value to set the global variable to.  {@code null} sets it to {@code NULL}.
+     */
+    public void setPointer(Pointer value);
+
+    /**
+     * Gets the current value of the global variable as an address, without creating a {@link Pointer}.
+     *
+     * @return The address the variable contains.
+     */
+    public long getAddress();
+
+    /**
+     * Sets the global variable to an address
+     *
+     * @param address The address to set the global variable to.
+     */
+    public void setAddress(long address);
+
+    /**
+     * Atomically sets the global variable to an address, if it currently equals the expected address.
+     *
+     * @param expected The expected current address.
+     * @param address The new address.
+     * @return true if the variable was updated.
+     */
+    public boolean compareAndSet(long expected, long address);
+}
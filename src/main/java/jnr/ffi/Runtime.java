@@ -120,6 +120,23 @@ public abstract class Runtime {
      */
     public abstract <T> ObjectReferenceManager<T> newObjectReferenceManager();
 
+    /**
+     * Creates a new {@code CallBatch}
+     * <p>
+     * The default implementation throws {@link UnsupportedOperationException}.
+     *
+     * @param function The address of the native function.
+     * @param capacity The maximum number of invocations that can be queued.
+     * @param saveError Whether the errno/last error should be saved after the batch is executed.
+     * @param resultType The native type of the function result.
+     * @param parameterTypes The native types of the function parameters.
+     * @return A new {@link CallBatch}
+     */
+    public CallBatch newCallBatch(Pointer function, int capacity, boolean saveError,
+                                  NativeType resultType, NativeType... parameterTypes) {
+        throw new UnsupportedOperationException("call batches are not supported by this runtime");
+    }
+
     /**
      * Gets the last native error code.
      * <p>
@@ -27,6 +27,7 @@
 
 package jnr.ffi;
 
+import jnr.ffi.annotations.Direct;
 import jnr.ffi.provider.ParameterFlags;
 import jnr.ffi.provider.jffi.ArrayMemoryIO;
 import jnr.ffi.util.EnumMapper;
@@ -34,6 +35,7 @@ import jnr.ffi.util.EnumMapper;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Representation of C structures in java.
@@ -44,9 +46,23 @@ public abstract class Struct {
     static final Charset ASCII = Charset.forName("ASCII");
     static final Charset UTF8 = Charset.forName("UTF-8");
 
+    /**
+     * The number of times a heap backed struct is passed to native code before it is moved to direct memory.
+     * A value of zero disables promotion.
+     */
+    static final int DIRECT_PROMOTION_THRESHOLD = getIntegerProperty("jnr.ffi.struct.directPromotionThreshold", 4);
+    private static final AtomicLong directPromotions = new AtomicLong();
+    private static final java.util.Map<Class<? extends Struct>, java.lang.Boolean> directClasses
+            = new java.util.concurrent.ConcurrentHashMap<Class<? extends Struct>, java.lang.Boolean>();
+    private static final ThreadLocal<java.lang.Boolean> recordMembers = new ThreadLocal<java.lang.Boolean>();
+
     static final class Info {
         private final Runtime runtime;
         private jnr.ffi.Pointer memory = null;
+        private boolean replaceable = false; // memory was allocated by this struct, and has not been handed out
+        private boolean promoted = false;
+        private int nativeUses = 0;
+        boolean alwaysDirect = false;
         Struct enclosing = null;
         int offset = 0; // offset within enclosing Struct
 
@@ -57,8 +73,15 @@ public abstract class Struct {
 
         Alignment alignment = new Alignment(0);
 
+        /** The native type of each member, or the inner struct, in the order they were added; only recorded on request */
+        final java.util.List<Object> members;
+        final java.util.List<java.lang.Integer> memberOffsets;
+
         public Info(Runtime runtime) {
             this.runtime = runtime;
+            boolean record = recordMembers.get() != null;
+            this.members = record ? new java.util.ArrayList<Object>() : null;
+            this.memberOffsets = record ? new java.util.ArrayList<java.lang.Integer>() : null;
         }
 
         public final int getOffset() {
@@ -73,6 +96,32 @@ public abstract class Struct {
             return getMemory(ParameterFlags.TRANSIENT);
         }
 
+        final jnr.ffi.Pointer getNativeMemory(int flags) {
+            if (enclosing != null) {
+                return enclosing.__info.getNativeMemory(flags);
+            }
+
+            jnr.ffi.Pointer memory = getMemory(flags);
+            if (!promoted && replaceable && !memory.isDirect() && DIRECT_PROMOTION_THRESHOLD > 0
+                    && ++nativeUses >= DIRECT_PROMOTION_THRESHOLD) {
+                // This struct is regularly passed to native code, so move it to direct memory to avoid copying
+                jnr.ffi.Pointer direct = runtime.getMemoryManager().allocateDirect(size(), true);
+                direct.transferFrom(0, memory, 0, size());
+                this.memory = memory = direct;
+                this.promoted = true;
+                directPromotions.incrementAndGet();
+            }
+
+            return memory;
+        }
+
+        final void exposeMemory() {
+            if (enclosing != null) {
+                enclosing.__info.exposeMemory();
+            }
+            replaceable = false;
+        }
+
         final boolean isDirect() {
             return (enclosing != null && enclosing.__info.isDirect()) || (memory != null && memory.isDirect());
         }
@@ -86,7 +135,8 @@ public abstract class Struct {
         }
 
         private jnr.ffi.Pointer allocateMemory(int flags) {
-            if (ParameterFlags.isDirect(flags)) {
+            replaceable = true;
+            if (alwaysDirect || ParameterFlags.isDirect(flags)) {
                 return runtime.getMemoryManager().allocateDirect(size(), true);
             } else {
                 return runtime.getMemoryManager().allocate(size());
@@ -95,15 +145,64 @@ public abstract class Struct {
 
         public final void useMemory(jnr.ffi.Pointer io) {
             this.memory = io;
+            this.replaceable = false;
         }
 
         protected final int addField(int sizeBits, int alignBits, Offset offset) {
+            return addUntypedMembers(placeField(sizeBits, alignBits, offset), sizeBits, alignBits);
+        }
+
+        protected final int addField(int sizeBits, int alignBits) {
+            return addUntypedMembers(placeField(sizeBits, alignBits), sizeBits, alignBits);
+        }
+
+        final int addField(Type type) {
+            return addMember(type.getNativeType(), placeField(type.size() * 8, type.alignment() * 8));
+        }
+
+        final int addField(Type type, Offset offset) {
+            return addMember(type.getNativeType(), placeField(type.size() * 8, type.alignment() * 8, offset));
+        }
+
+        final int addMember(Object type, int offset) {
+            if (members != null) {
+                members.add(type);
+                memberOffsets.add(offset);
+            }
+            return offset;
+        }
+
+        /**
+         * Members such as strings and padding have no native type of their own, so describe them as
+         * a run of integers of their alignment.
+         */
+        private int addUntypedMembers(int offset, int sizeBits, int alignBits) {
+            if (members == null) {
+                return offset;
+            }
+
+            int align = Math.max(1, alignBits >> 3);
+            NativeType type = align >= 8 ? NativeType.SLONGLONG
+                    : align >= 4 ? NativeType.SINT : align >= 2 ? NativeType.SSHORT : NativeType.SCHAR;
+            int unit = align >= 8 ? 8 : align >= 4 ? 4 : align >= 2 ? 2 : 1;
+            int size = sizeBits >> 3;
+            int i = 0;
+            for (; i + unit <= size; i += unit) {
+                addMember(type, offset + i);
+            }
+            for (; i < size; i++) {
+                addMember(NativeType.SCHAR, offset + i);
+            }
+            return offset;
+        }
+
+        private int placeField(int sizeBits, int alignBits, Offset offset) {
             this.size = Math.max(this.size, offset.intValue() + (sizeBits >> 3));
             this.minAlign = Math.max(this.minAlign, alignBits >> 3);
             return offset.intValue();
         }
 
-        protected final int addField(int sizeBits, int alignBits) {
+        private int placeField(int sizeBits, int alignBits) {
             final int alignment = this.alignment.intValue() > 0 ? Math.min(this.alignment.intValue(), (alignBits >> 3)) : (alignBits >> 3);
             final int offset = resetIndex ? 0 : align(this.size, alignment);
             this.size = Math.max(this.size, offset + (sizeBits >> 3));
@@ -120,6 +219,7 @@ public abstract class Struct {
      */
     protected Struct(Runtime runtime) {
         this.__info = new Info(runtime);
+        __info.alwaysDirect = isDirectClass(getClass());
     }
 
     protected Struct(Runtime runtime, Alignment alignment) {
@@ -157,11 +257,58 @@ public abstract class Struct {
     }
 
     public static jnr.ffi.Pointer getMemory(Struct struct) {
-        return struct.__info.getMemory(0);
+        jnr.ffi.Pointer memory = struct.__info.getMemory(0);
+        struct.__info.exposeMemory();
+        return memory;
     }
 
     public static jnr.ffi.Pointer getMemory(Struct struct, int flags) {
-        return struct.__info.getMemory(flags);
+        jnr.ffi.Pointer memory = struct.__info.getMemory(flags);
+        struct.__info.exposeMemory();
+        return memory;
+    }
+
+    /**
+     * Gets the memory of a struct that is being passed to a native function.
+     * <p>
+     * Heap backed structs which are repeatedly passed to native functions are transparently moved to
+     * direct memory, so they no longer need to be copied to and from native memory on each call.  Structs
+     * whose memory has been retrieved with {@link #getMemory(Struct)}, or from one of their members, or set with
+     * {@link #useMemory(Pointer)} are never moved.  Nor are structs with fields that have been accessed atomically,
+     * since atomic operations on heap memory lock the backing array.
+     *
+     * @param struct the struct being passed to native code.
+     * @param flags the {@link ParameterFlags} of the parameter.
+     * @return the memory of the struct.
+     */
+    public static jnr.ffi.Pointer getNativeMemory(Struct struct, int flags) {
+        return struct.__info.getNativeMemory(flags);
+    }
+
+    /**
+     * Gets the number of heap backed structs which have been moved to direct memory.
+     *
+     * @return the number of structs moved to direct memory.
+     */
+    public static long getDirectPromotionCount() {
+        return directPromotions.get();
+    }
+
+    private static boolean isDirectClass(Class<? extends Struct> structClass) {
+        java.lang.Boolean direct = directClasses.get(structClass);
+        if (direct == null) {
+            directClasses.put(structClass, direct = structClass.isAnnotationPresent(Direct.class));
+        }
+
+        return direct;
+    }
+
+    private static int getIntegerProperty(java.lang.String propertyName, int defaultValue) {
+        try {
+            return Integer.getInteger(propertyName, defaultValue);
+        } catch (SecurityException se) {
+            return defaultValue;
+        }
     }
 
     public static int size(Struct struct) {
@@ -176,6 +323,79 @@ public abstract class Struct {
         return struct.__info.isDirect();
     }
 
+    /**
+     * Creates an instance of a struct class which records the type and offset of each of its members, so its
+     * layout can be described to native code when the struct is passed by value.  Other struct instances do
+     * not record their members.
+     *
+     * @param structClass the struct class to describe.
+     * @param runtime the runtime of the new struct.
+     * @return a new struct which has recorded its members.
+     */
+    public static <T extends Struct> T newMemberRecordingInstance(Class<T> structClass, Runtime runtime) {
+        java.lang.Boolean previous = recordMembers.get();
+        recordMembers.set(java.lang.Boolean.TRUE);
+        try {
+            java.lang.reflect.Constructor<T> constructor = structClass.getDeclaredConstructor(Runtime.class);
+            constructor.setAccessible(true);
+            return constructor.newInstance(runtime);
+
+        } catch (NoSuchMethodException nsme) {
+            throw new IllegalArgumentException(structClass.getName() + " has no constructor that accepts jnr.ffi.Runtime");
+        } catch (java.lang.reflect.InvocationTargetException ite) {
+            throw new RuntimeException(ite.getCause());
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            recordMembers.set(previous);
+        }
+    }
+
+    /**
+     * Gets the members of a struct created by {@link #newMemberRecordingInstance(Class, Runtime)}, in the order
+     * they were added.  Each element is either the {@link NativeType} of a member, or the {@code Struct} of an
+     * inner struct.
+     *
+     * @param struct the struct to describe.
+     * @return a read-only list of member types.
+     */
+    public static java.util.List<Object> getMemberTypes(Struct struct) {
+        return java.util.Collections.unmodifiableList(recordedMembers(struct).members);
+    }
+
+    /**
+     * Gets the offset of each member of a struct created by {@link #newMemberRecordingInstance(Class, Runtime)},
+     * in the same order as {@link #getMemberTypes(Struct)}.
+     *
+     * @param struct the struct to describe.
+     * @return the offset of each member within the struct.
+     */
+    public static int[] getMemberOffsets(Struct struct) {
+        java.util.List<java.lang.Integer> memberOffsets = recordedMembers(struct).memberOffsets;
+        int[] offsets = new int[memberOffsets.size()];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = memberOffsets.get(i);
+        }
+        return offsets;
+    }
+
+    private static Info recordedMembers(Struct struct) {
+        if (struct.__info.members == null) {
+            throw new IllegalArgumentException("the members of " + struct.getClass().getName() + " were not recorded");
+        }
+        return struct.__info;
+    }
+
+    /**
+     * Tests if a struct is a union, whose members all start at offset zero.
+     *
+     * @param struct the struct to test.
+     * @return true if the struct is a union.
+     */
+    public static boolean isUnion(Struct struct) {
+        return struct.__info.isUnion;
+    }
+
     private static int align(int offset, int align) {
         return (offset + align - 1) & ~(align - 1);
     }
@@ -688,6 +908,7 @@ public abstract class Struct {
         struct.__info.enclosing = this;
         struct.__info.offset = offset;
         __info.size = Math.max(__info.size, offset + struct.__info.size);
+        __info.addMember(struct, offset);
         return struct;
     }
 
@@ -708,16 +929,18 @@ public abstract class Struct {
 
         protected AbstractMember(NativeType type) {
             final Type t = getRuntime().findType(type);
-            this.offset = __info.addField(t.size() * 8, t.alignment() * 8);
+            this.offset = __info.addField(t);
         }
 
         protected AbstractMember(NativeType type, Offset offset) {
             final Type t = getRuntime().findType(type);
-            this.offset = __info.addField(t.size() * 8, t.alignment() * 8, offset);
+            this.offset = __info.addField(t, offset);
         }
 
         public final jnr.ffi.Pointer getMemory() {
-            return __info.getMemory();
+            jnr.ffi.Pointer memory = __info.getMemory();
+            __info.exposeMemory(); // the caller may keep the memory, so the struct can no longer be moved
+            return memory;
         }
 
         /**
@@ -783,11 +1006,11 @@ public abstract class Struct {
         }
 
         public final boolean get() {
-            return (getMemory().getByte(offset()) & 0x1) != 0;
+            return (__info.getMemory().getByte(offset()) & 0x1) != 0;
         }
 
         public final void set(boolean value) {
-            getMemory().putByte(offset(), (byte) (value ? 1 : 0));
+            __info.getMemory().putByte(offset(), (byte) (value ? 1 : 0));
         }
     }
 
@@ -800,11 +1023,11 @@ public abstract class Struct {
         }
 
         public final boolean get() {
-            return (getMemory().getInt(offset()) & 0x1) != 0;
+            return (__info.getMemory().getInt(offset()) & 0x1) != 0;
         }
 
         public final void set(boolean value) {
-            getMemory().putInt(offset(), value ? 1 : 0);
+            __info.getMemory().putInt(offset(), value ? 1 : 0);
         }
     }
 
@@ -814,11 +1037,11 @@ public abstract class Struct {
     }
 
     public final boolean get() {
-      return (getMemory().getShort(offset()) & 0x1) != 0;
+      return (__info.getMemory().getShort(offset()) & 0x1) != 0;
     }
 
     public final void set(boolean value) {
-      getMemory().putShort(offset(), (short) (value ? 1 : 0));
+      __info.getMemory().putShort(offset(), (short) (value ? 1 : 0));
     }
   }
 
@@ -870,27 +1093,29 @@ public abstract class Struct {
 
         protected NumberField(NativeType type) {
             Type t = this.type = getRuntime().findType(type);
-            this.offset = __info.addField(t.size() * 8, t.alignment() * 8);
+            this.offset = __info.addField(t);
         }
 
         protected NumberField(NativeType type, Offset offset) {
             Type t = this.type = getRuntime().findType(type);
-            this.offset = __info.addField(t.size() * 8, t.alignment() * 8, offset);
+            this.offset = __info.addField(t, offset);
         }
 
         protected NumberField(TypeAlias type) {
             Type t = this.type = getRuntime().findType(type);
-            this.offset = __info.addField(t.size() * 8, t.alignment() * 8);
+            this.offset = __info.addField(t);
         }
 
         protected NumberField(TypeAlias type, Offset offset) {
             Type t = this.type = getRuntime().findType(type);
-            this.offset = __info.addField(t.size() * 8, t.alignment() * 8, offset);
+            this.offset = __info.addField(t, offset);
         }
 
 
         public final jnr.ffi.Pointer getMemory() {
-            return __info.getMemory();
+            jnr.ffi.Pointer memory = __info.getMemory();
+            __info.exposeMemory(); // the caller may keep the memory, so the struct can no longer be moved
+            return memory;
         }
 
 
@@ -991,11 +1216,11 @@ public abstract class Struct {
 
         @Override
         public void set(Number value) {
-            getMemory().putInt(type, offset(), value.longValue());
+            __info.getMemory().putInt(type, offset(), value.longValue());
         }
 
         public void set(long value) {
-            getMemory().putInt(type, offset(), value);
+            __info.getMemory().putInt(type, offset(), value);
         }
 
         /**
@@ -1004,7 +1229,7 @@ public abstract class Struct {
          * @return a long.
          */
         public final long get() {
-            return getMemory().getInt(type, offset());
+            return __info.getMemory().getInt(type, offset());
         }
 
 
@@ -1055,7 +1280,7 @@ public abstract class Struct {
          * @return a byte.
          */
         public final byte get() {
-            return getMemory().getByte(offset());
+            return __info.getMemory().getByte(offset());
         }
 
         /**
@@ -1064,11 +1289,11 @@ public abstract class Struct {
          * @param value the 8 bit value to set.
          */
         public final void set(byte value) {
-            getMemory().putByte(offset(), value);
+            __info.getMemory().putByte(offset(), value);
         }
 
         public void set(java.lang.Number value) {
-            getMemory().putByte(offset(), value.byteValue());
+            __info.getMemory().putByte(offset(), value.byteValue());
         }
 
         /**
@@ -1128,7 +1353,7 @@ public abstract class Struct {
          * @return a byte.
          */
         public final short get() {
-            short value = getMemory().getByte(offset());
+            short value = __info.getMemory().getByte(offset());
             return value < 0 ? (short) ((value & 0x7F) + 0x80) : value;
         }
 
@@ -1138,11 +1363,11 @@ public abstract class Struct {
          * @param value the 8 bit value to set.
          */
         public final void set(short value) {
-            getMemory().putByte(offset(), (byte) value);
+            __info.getMemory().putByte(offset(), (byte) value);
         }
 
         public void set(java.lang.Number value) {
-            getMemory().putByte(offset(), value.byteValue());
+            __info.getMemory().putByte(offset(), value.byteValue());
         }
 
         /**
@@ -1192,7 +1417,7 @@ public abstract class Struct {
          * @return a short.
          */
         public final short get() {
-            return getMemory().getShort(offset());
+            return __info.getMemory().getShort(offset());
         }
 
         /**
@@ -1201,11 +1426,11 @@ public abstract class Struct {
          * @param value the 16 bit value to set.
          */
         public final void set(short value) {
-            getMemory().putShort(offset(), value);
+            __info.getMemory().putShort(offset(), value);
         }
 
         public void set(java.lang.Number value) {
-            getMemory().putShort(offset(), value.shortValue());
+            __info.getMemory().putShort(offset(), value.shortValue());
         }
 
         /**
@@ -1255,7 +1480,7 @@ public abstract class Struct {
          * @return a short.
          */
         public final int get() {
-            int value = getMemory().getShort(offset());
+            int value = __info.getMemory().getShort(offset());
             return value < 0 ? (int)((value & 0x7FFF) + 0x8000) : value;
         }
 
@@ -1265,11 +1490,11 @@ public abstract class Struct {
          * @param value the 16 bit unsigned value to set.
          */
         public final void set(int value) {
-            getMemory().putShort(offset(), (short) value);
+            __info.getMemory().putShort(offset(), (short) value);
         }
 
         public void set(Number value) {
-            getMemory().putShort(offset(), value.shortValue());
+            __info.getMemory().putShort(offset(), value.shortValue());
         }
 
         /**
@@ -1309,7 +1534,7 @@ public abstract class Struct {
          * @return a int.
          */
         public final int get() {
-            return getMemory().getInt(offset());
+            return __info.getMemory().getInt(offset());
         }
 
         /**
@@ -1318,11 +1543,61 @@ public abstract class Struct {
          * @param value the 32 bit value to set.
          */
         public final void set(int value) {
-            getMemory().putInt(offset(), value);
+            __info.getMemory().putInt(offset(), value);
         }
 
         public void set(java.lang.Number value) {
-            getMemory().putInt(offset(), value.intValue());
+            __info.getMemory().putInt(offset(), value.intValue());
+        }
+
+        /**
+         * Gets the value for this field, with volatile semantics.
+         *
+         * @return a int.
+         * @see jnr.ffi.Pointer#getIntVolatile(long)
+         */
+        public final int getVolatile() {
+            return getMemory().getIntVolatile(offset());
+        }
+
+        /**
+         * Sets the value for this field, with volatile semantics.
+         *
+         * @param value the 32 bit value to set.
+         */
+        public final void setVolatile(int value) {
+            getMemory().putIntVolatile(offset(), value);
+        }
+
+        /**
+         * Sets the value for this field, with release semantics.
+         *
+         * @param value the 32 bit value to set.
+         * @see jnr.ffi.Pointer#putIntOrdered(long, int)
+         */
+        public final void setOrdered(int value) {
+            getMemory().putIntOrdered(offset(), value);
+        }
+
+        /**
+         * Atomically sets the value for this field, if it currently equals the expected value.
+         *
+         * @param expected the expected current value.
+         * @param value the new value.
+         * @return true if the field was updated.
+         */
+        public final boolean compareAndSet(int expected, int value) {
+            return getMemory().compareAndSwapInt(offset(), expected, value);
+        }
+
+        /**
+         * Atomically adds to the value of this field.
+         *
+         * @param delta the value to add.
+         * @return the previous value.
+         */
+        public final int getAndAdd(int delta) {
+            return getMemory().getAndAddInt(offset(), delta);
         }
 
         /**
@@ -1362,7 +1637,7 @@ public abstract class Struct {
          * @return a long.
          */
         public final long get() {
-            long value = getMemory().getInt(offset());
+            long value = __info.getMemory().getInt(offset());
             return value < 0 ? (long)((value & 0x7FFFFFFFL) + 0x80000000L) : value;
         }
 
@@ -1372,11 +1647,61 @@ public abstract class Struct {
          * @param value the 32 bit unsigned value to set.
          */
         public final void set(long value) {
-            getMemory().putInt(offset(), (int) value);
+            __info.getMemory().putInt(offset(), (int) value);
         }
 
         public void set(java.lang.Number value) {
-            getMemory().putInt(offset(), value.intValue());
+            __info.getMemory().putInt(offset(), value.intValue());
+        }
+
+        /**
+         * Gets the value for this field, with volatile semantics.
+         *
+         * @return a long.
+         * @see jnr.ffi.Pointer#getIntVolatile(long)
+         */
+        public final long getVolatile() {
+            return getMemory().getIntVolatile(offset()) & 0xffffffffL;
+        }
+
+        /**
+         * Sets the value for this field, with volatile semantics.
+         *
+         * @param value the 32 bit unsigned value to set.
+         */
+        public final void setVolatile(long value) {
+            getMemory().putIntVolatile(offset(), (int) value);
+        }
+
+        /**
+         * Sets the value for this field, with release semantics.
+         *
+         * @param value the 32 bit unsigned value to set.
+         * @see jnr.ffi.Pointer#putIntOrdered(long, int)
+         */
+        public final void setOrdered(long value) {
+            getMemory().putIntOrdered(offset(), (int) value);
+        }
+
+        /**
+         * Atomically sets the value for this field, if it currently equals the expected value.
+         *
+         * @param expected the expected current value.
+         * @param value the new value.
+         * @return true if the field was updated.
+         */
+        public final boolean compareAndSet(long expected, long value) {
+            return getMemory().compareAndSwapInt(offset(), (int) expected, (int) value);
+        }
+
+        /**
+         * Atomically adds to the value of this field.
+         *
+         * @param delta the value to add.
+         * @return the previous value.
+         */
+        public final long getAndAdd(long delta) {
+            return getMemory().getAndAddInt(offset(), (int) delta) & 0xffffffffL;
         }
 
         /**
@@ -1436,7 +1761,7 @@ public abstract class Struct {
          * @return a long.
          */
         public final long get() {
-            return getMemory().getLongLong(offset());
+            return __info.getMemory().getLongLong(offset());
         }
 
         /**
@@ -1445,11 +1770,61 @@ public abstract class Struct {
          * @param value the 64 bit value to set.
          */
         public final void set(long value) {
-            getMemory().putLongLong(offset(), value);
+            __info.getMemory().putLongLong(offset(), value);
         }
 
         public void set(java.lang.Number value) {
-            getMemory().putLongLong(offset(), value.longValue());
+            __info.getMemory().putLongLong(offset(), value.longValue());
+        }
+
+        /**
+         * Gets the value for this field, with volatile semantics.
+         *
+         * @return a long.
+         * @see jnr.ffi.Pointer#getIntVolatile(long)
+         */
+        public final long getVolatile() {
+            return getMemory().getLongVolatile(offset());
+        }
+
+        /**
+         * Sets the value for this field, with volatile semantics.
+         *
+         * @param value the 64 bit value to set.
+         */
+        public final void setVolatile(long value) {
+            getMemory().putLongVolatile(offset(), value);
+        }
+
+        /**
+         * Sets the value for this field, with release semantics.
+         *
+         * @param value the 64 bit value to set.
+         * @see jnr.ffi.Pointer#putIntOrdered(long, int)
+         */
+        public final void setOrdered(long value) {
+            getMemory().putLongOrdered(offset(), value);
+        }
+
+        /**
+         * Atomically sets the value for this field, if it currently equals the expected value.
+         *
+         * @param expected the expected current value.
+         * @param value the new value.
+         * @return true if the field was updated.
+         */
+        public final boolean compareAndSet(long expected, long value) {
+            return getMemory().compareAndSwapLong(offset(), expected, value);
+        }
+
+        /**
+         * Atomically adds to the value of this field.
+         *
+         * @param delta the value to add.
+         * @return the previous value.
+         */
+        public final long getAndAdd(long delta) {
+            return getMemory().getAndAddLong(offset(), delta);
         }
 
         /**
@@ -1509,7 +1884,7 @@ public abstract class Struct {
          * @return a long.
          */
         public final long get() {
-            return getMemory().getLongLong(offset());
+            return __info.getMemory().getLongLong(offset());
         }
 
         /**
@@ -1518,11 +1893,61 @@ public abstract class Struct {
          * @param value the 64 bit value to set.
          */
         public final void set(long value) {
-            getMemory().putLongLong(offset(), value);
+            __info.getMemory().putLongLong(offset(), value);
         }
 
         public void set(java.lang.Number value) {
-            getMemory().putLongLong(offset(), value.longValue());
+            __info.getMemory().putLongLong(offset(), value.longValue());
+        }
+
+        /**
+         * Gets the value for this field, with volatile semantics.
+         *
+         * @return a long.
+         * @see jnr.ffi.Pointer#getIntVolatile(long)
+         */
+        public final long getVolatile() {
+            return getMemory().getLongVolatile(offset());
+        }
+
+        /**
+         * Sets the value for this field, with volatile semantics.
+         *
+         * @param value the 64 bit value to set.
+         */
+        public final void setVolatile(long value) {
+            getMemory().putLongVolatile(offset(), value);
+        }
+
+        /**
+         * Sets the value for this field, with release semantics.
+         *
+         * @param value the 64 bit value to set.
+         * @see jnr.ffi.Pointer#putIntOrdered(long, int)
+         */
+        public final void setOrdered(long value) {
+            getMemory().putLongOrdered(offset(), value);
+        }
+
+        /**
+         * Atomically sets the value for this field, if it currently equals the expected value.
+         *
+         * @param expected the expected current value.
+         * @param value the new value.
+         * @return true if the field was updated.
+         */
+        public final boolean compareAndSet(long expected, long value) {
+            return getMemory().compareAndSwapLong(offset(), expected, value);
+        }
+
+        /**
+         * Atomically adds to the value of this field.
+         *
+         * @param delta the value to add.
+         * @return the previous value.
+         */
+        public final long getAndAdd(long delta) {
+            return getMemory().getAndAddLong(offset(), delta);
         }
 
         /**
@@ -1582,7 +2007,7 @@ public abstract class Struct {
          * @return a long.
          */
         public final long get() {
-            return getMemory().getNativeLong(offset());
+            return __info.getMemory().getNativeLong(offset());
         }
 
         /**
@@ -1591,11 +2016,73 @@ public abstract class Struct {
          * @param value the 32/64 bit value to set.
          */
         public final void set(long value) {
-            getMemory().putNativeLong(offset(), value);
+            __info.getMemory().putNativeLong(offset(), value);
         }
 
         public void set(java.lang.Number value) {
-            getMemory().putNativeLong(offset(), value.longValue());
+            __info.getMemory().putNativeLong(offset(), value.longValue());
+        }
+
+        /**
+         * Gets the value for this field, with volatile semantics.
+         *
+         * @return a long.
+         * @see jnr.ffi.Pointer#getIntVolatile(long)
+         */
+        public final long getVolatile() {
+            return type.size() == 4 ? getMemory().getIntVolatile(offset()) : getMemory().getLongVolatile(offset());
+        }
+
+        /**
+         * Sets the value for this field, with volatile semantics.
+         *
+         * @param value the 32/64 bit value to set.
+         */
+        public final void setVolatile(long value) {
+            if (type.size() == 4) {
+                getMemory().putIntVolatile(offset(), (int) value);
+            } else {
+                getMemory().putLongVolatile(offset(), value);
+            }
+        }
+
+        /**
+         * Sets the value for this field, with release semantics.
+         *
+         * @param value the 32/64 bit value to set.
+         * @see jnr.ffi.Pointer#putIntOrdered(long, int)
+         */
+        public final void setOrdered(long value) {
+            if (type.size() == 4) {
+                getMemory().putIntOrdered(offset(), (int) value);
+            } else {
+                getMemory().putLongOrdered(offset(), value);
+            }
+        }
+
+        /**
+         * Atomically sets the value for this field, if it currently equals the expected value.
+         *
+         * @param expected the expected current value.
+         * @param value the new value.
+         * @return true if the field was updated.
+         */
+        public final boolean compareAndSet(long expected, long value) {
+            return type.size() == 4
+                    ? getMemory().compareAndSwapInt(offset(), (int) expected, (int) value)
+                    : getMemory().compareAndSwapLong(offset(), expected, value);
+        }
+
+        /**
+         * Atomically adds to the value of this field.
+         *
+         * @param delta the value to add.
+         * @return the previous value.
+         */
+        public final long getAndAdd(long delta) {
+            return type.size() == 4
+                    ? getMemory().getAndAddInt(offset(), (int) delta)
+                    : getMemory().getAndAddLong(offset(), delta);
         }
 
         /**
@@ -1656,7 +2143,7 @@ public abstract class Struct {
          * @return a int.
          */
         public final long get() {
-            long value = getMemory().getNativeLong(offset());
+            long value = __info.getMemory().getNativeLong(offset());
             final long mask = getRuntime().findType(NativeType.SLONG).size() == 32 ? 0xffffffffL : 0xffffffffffffffffL;
             return value < 0
                     ? (long) ((value & mask) + mask + 1)
@@ -1669,11 +2156,73 @@ public abstract class Struct {
          * @param value the 32/64 bit value to set.
          */
         public final void set(long value) {
-            getMemory().putNativeLong(offset(), value);
+            __info.getMemory().putNativeLong(offset(), value);
         }
 
         public void set(java.lang.Number value) {
-            getMemory().putNativeLong(offset(), value.longValue());
+            __info.getMemory().putNativeLong(offset(), value.longValue());
+        }
+
+        /**
+         * Gets the value for this field, with volatile semantics.
+         *
+         * @return a long.
+         * @see jnr.ffi.Pointer#getIntVolatile(long)
+         */
+        public final long getVolatile() {
+            return type.size() == 4 ? getMemory().getIntVolatile(offset()) & 0xffffffffL : getMemory().getLongVolatile(offset());
+        }
+
+        /**
+         * Sets the value for this field, with volatile semantics.
+         *
+         * @param value the 32/64 bit value to set.
+         */
+        public final void setVolatile(long value) {
+            if (type.size() == 4) {
+                getMemory().putIntVolatile(offset(), (int) value);
+            } else {
+                getMemory().putLongVolatile(offset(), value);
+            }
+        }
+
+        /**
+         * Sets the value for this field, with release semantics.
+         *
+         * @param value the 32/64 bit value to set.
+         * @see jnr.ffi.Pointer#putIntOrdered(long, int)
+         */
+        public final void setOrdered(long value) {
+            if (type.size() == 4) {
+                getMemory().putIntOrdered(offset(), (int) value);
+            } else {
+                getMemory().putLongOrdered(offset(), value);
+            }
+        }
+
+        /**
+         * Atomically sets the value for this field, if it currently equals the expected value.
+         *
+         * @param expected the expected current value.
+         * @param value the new value.
+         * @return true if the field was updated.
+         */
+        public final boolean compareAndSet(long expected, long value) {
+            return type.size() == 4
+                    ? getMemory().compareAndSwapInt(offset(), (int) expected, (int) value)
+                    : getMemory().compareAndSwapLong(offset(), expected, value);
+        }
+
+        /**
+         * Atomically adds to the value of this field.
+         *
+         * @param delta the value to add.
+         * @return the previous value.
+         */
+        public final long getAndAdd(long delta) {
+            return type.size() == 4
+                    ? getMemory().getAndAddInt(offset(), (int) delta) & 0xffffffffL
+                    : getMemory().getAndAddLong(offset(), delta);
         }
 
         /**
@@ -1721,13 +2270,13 @@ public abstract class Struct {
         }
 
         public final float get() {
-            return getMemory().getFloat(offset());
+            return __info.getMemory().getFloat(offset());
         }
         public final void set(float value) {
-            getMemory().putFloat(offset(), value);
+            __info.getMemory().putFloat(offset(), value);
         }
         public void set(java.lang.Number value) {
-            getMemory().putFloat(offset(), value.floatValue());
+            __info.getMemory().putFloat(offset(), value.floatValue());
         }
 
         @Override
@@ -1763,13 +2312,13 @@ public abstract class Struct {
             super(NativeType.DOUBLE, offset);
         }
         public final double get() {
-            return getMemory().getDouble(offset());
+            return __info.getMemory().getDouble(offset());
         }
         public final void set(double value) {
-            getMemory().putDouble(offset(), value);
+            __info.getMemory().putDouble(offset(), value);
         }
         public void set(java.lang.Number value) {
-            getMemory().putDouble(offset(), value.doubleValue());
+            __info.getMemory().putDouble(offset(), value.doubleValue());
         }
 
         @Override
@@ -1817,7 +2366,7 @@ public abstract class Struct {
          * @return a {@link jnr.ffi.Address}.
          */
         public final jnr.ffi.Address get() {
-            return jnr.ffi.Address.valueOf(getMemory().getAddress(offset()));
+            return jnr.ffi.Address.valueOf(__info.getMemory().getAddress(offset()));
         }
 
         /**
@@ -1826,11 +2375,11 @@ public abstract class Struct {
          * @param value the value to write.
          */
         public final void set(jnr.ffi.Address value) {
-            getMemory().putAddress(offset(), value != null ? value.nativeAddress() : 0);
+            __info.getMemory().putAddress(offset(), value != null ? value.nativeAddress() : 0);
         }
 
         public void set(java.lang.Number value) {
-            getMemory().putAddress(offset(), value.longValue());
+            __info.getMemory().putAddress(offset(), value.longValue());
         }
         /**
          * Returns an integer representation of this address.
@@ -1883,7 +2432,7 @@ public abstract class Struct {
          * @return a {@link jnr.ffi.Pointer}.
          */
         protected final jnr.ffi.Pointer getPointer() {
-            return getMemory().getPointer(offset());
+            return __info.getMemory().getPointer(offset());
         }
 
         /**
@@ -1908,11 +2457,11 @@ public abstract class Struct {
                 finalPointer = Memory.allocateDirect(getRuntime(), valueArray.length);
                 finalPointer.put(0, valueArray, 0, valueArray.length);
             }
-            getMemory().putPointer(offset(), finalPointer);
+            __info.getMemory().putPointer(offset(), finalPointer);
         }
 
         public void set(java.lang.Number value) {
-            getMemory().putAddress(offset(), value.longValue());
+            __info.getMemory().putAddress(offset(), value.longValue());
         }
 
         /**
@@ -1922,7 +2471,7 @@ public abstract class Struct {
          */
         @Override
         public int intValue() {
-            return (int) getMemory().getAddress(offset());
+            return (int) __info.getMemory().getAddress(offset());
         }
 
         /**
@@ -1932,7 +2481,7 @@ public abstract class Struct {
          */
         @Override
         public long longValue() {
-            return getMemory().getAddress(offset());
+            return __info.getMemory().getAddress(offset());
         }
 
         /**
@@ -2112,6 +2661,7 @@ public abstract class Struct {
      */
     protected abstract class EnumField<E> extends NumberField {
         protected final Class<E> enumClass;
+        final EnumMapper mapper;
 
         /**
          * Constructs a new Enum field.
@@ -2122,6 +2672,7 @@ public abstract class Struct {
         public EnumField(NativeType type, Class<E> enumClass) {
             super(type);
             this.enumClass = enumClass;
+            this.mapper = EnumMapper.getInstance(enumClass.asSubclass(java.lang.Enum.class));
         }
 
         /**
@@ -2162,7 +2713,7 @@ public abstract class Struct {
          * @return a java Enum value.
          */
         public final E get() {
-            return enumClass.cast(EnumMapper.getInstance(enumClass).valueOf(intValue()));
+            return enumClass.cast(mapper.valueOf(intValue()));
         }
 
         /**
@@ -2171,11 +2722,11 @@ public abstract class Struct {
          * @param value the java <tt>Enum</tt> value.
          */
         public final void set(E value) {
-            getMemory().putByte(offset(), (byte) EnumMapper.getInstance(enumClass).intValue(value));
+            __info.getMemory().putByte(offset(), (byte) mapper.intValue(value));
         }
 
         public void set(java.lang.Number value) {
-            getMemory().putByte(offset(), value.byteValue());
+            __info.getMemory().putByte(offset(), value.byteValue());
         }
         /**
          * Returns an integer representation of this enum field.
@@ -2184,7 +2735,7 @@ public abstract class Struct {
          */
         @Override
         public final int intValue() {
-            return getMemory().getByte(offset());
+            return __info.getMemory().getByte(offset());
         }
     }
 
@@ -2193,17 +2744,17 @@ public abstract class Struct {
             super(NativeType.SSHORT, enumClass);
         }
         public final E get() {
-            return enumClass.cast(EnumMapper.getInstance(enumClass).valueOf(intValue()));
+            return enumClass.cast(mapper.valueOf(intValue()));
         }
         public final void set(E value) {
-            getMemory().putShort(offset(), (short) EnumMapper.getInstance(enumClass).intValue(value));
+            __info.getMemory().putShort(offset(), (short) mapper.intValue(value));
         }
         public void set(java.lang.Number value) {
-            getMemory().putShort(offset(), value.shortValue());
+            __info.getMemory().putShort(offset(), value.shortValue());
         }
         @Override
         public final int intValue() {
-            return getMemory().getShort(offset());
+            return __info.getMemory().getShort(offset());
         }
     }
 
@@ -2212,17 +2763,17 @@ public abstract class Struct {
             super(NativeType.SINT, enumClass);
         }
         public final E get() {
-            return enumClass.cast(EnumMapper.getInstance(enumClass).valueOf(intValue()));
+            return enumClass.cast(mapper.valueOf(intValue()));
         }
         public final void set(E value) {
-            getMemory().putInt(offset(), EnumMapper.getInstance(enumClass).intValue(value));
+            __info.getMemory().putInt(offset(), mapper.intValue(value));
         }
         public void set(java.lang.Number value) {
-            getMemory().putInt(offset(), value.intValue());
+            __info.getMemory().putInt(offset(), value.intValue());
         }
         @Override
         public final int intValue() {
-            return getMemory().getInt(offset());
+            return __info.getMemory().getInt(offset());
         }
     }
 
@@ -2231,13 +2782,13 @@ public abstract class Struct {
             super(NativeType.SLONGLONG, enumClass);
         }
         public final E get() {
-            return enumClass.cast(EnumMapper.getInstance(enumClass).valueOf(intValue()));
+            return enumClass.cast(mapper.valueOf(longValue()));
         }
         public final void set(E value) {
-            getMemory().putLongLong(offset(), EnumMapper.getInstance(enumClass).intValue(value));
+            __info.getMemory().putLongLong(offset(), mapper.longValue(value));
         }
         public void set(java.lang.Number value) {
-            getMemory().putLongLong(offset(), value.longValue());
+            __info.getMemory().putLongLong(offset(), value.longValue());
         }
         @Override
         public final int intValue() {
@@ -2245,7 +2796,7 @@ public abstract class Struct {
         }
         @Override
         public final long longValue() {
-            return getMemory().getLongLong(offset());
+            return __info.getMemory().getLongLong(offset());
         }
     }
 
@@ -2255,13 +2806,13 @@ public abstract class Struct {
         }
 
         public final E get() {
-            return enumClass.cast(EnumMapper.getInstance(enumClass).valueOf(intValue()));
+            return enumClass.cast(mapper.valueOf(longValue()));
         }
         public final void set(E value) {
-            getMemory().putNativeLong(offset(), EnumMapper.getInstance(enumClass).intValue(value));
+            __info.getMemory().putNativeLong(offset(), mapper.longValue(value));
         }
         public void set(java.lang.Number value) {
-            getMemory().putNativeLong(offset(), value.longValue());
+            __info.getMemory().putNativeLong(offset(), value.longValue());
         }
 
         @Override
@@ -2271,7 +2822,7 @@ public abstract class Struct {
 
         @Override
         public final long longValue() {
-            return getMemory().getNativeLong(offset());
+            return __info.getMemory().getNativeLong(offset());
         }
     }
 
@@ -2315,7 +2866,7 @@ public abstract class Struct {
 
         }
         protected jnr.ffi.Pointer getStringMemory() {
-            return getMemory().slice(offset(), length());
+            return __info.getMemory().slice(offset(), length());
         }
 
         public final java.lang.String get() {
@@ -2352,7 +2903,7 @@ public abstract class Struct {
         }
 
         protected jnr.ffi.Pointer getStringMemory() {
-            return getMemory().getPointer(offset(), length());
+            return __info.getMemory().getPointer(offset(), length());
         }
 
         public final java.lang.String get() {
@@ -2364,11 +2915,11 @@ public abstract class Struct {
             if (value != null) {
                 valueHolder = getRuntime().getMemoryManager().allocateDirect(length() * 4);
                 valueHolder.putString(0, value, length() * 4, charset);
-                getMemory().putPointer(offset(), valueHolder);
+                __info.getMemory().putPointer(offset(), valueHolder);
 
             } else {
                 this.valueHolder = null;
-                getMemory().putAddress(offset(), 0);
+                __info.getMemory().putAddress(offset(), 0);
             }
         }
     }
@@ -2415,7 +2966,7 @@ public abstract class Struct {
         }
 
         public final void set(T value) {
-            getMemory().putPointer(offset(), getRuntime().getClosureManager().getClosurePointer(closureClass, instance = value));
+            __info.getMemory().putPointer(offset(), getRuntime().getClosureManager().getClosurePointer(closureClass, instance = value));
         }
     }
 
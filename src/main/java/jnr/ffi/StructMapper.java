@@ -0,0 +1,344 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+import jnr.ffi.provider.jffi.StructMapperGenerator;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copies the numeric fields of a {@link StructLayout} to and from plain java objects.
+ * <p>
+ * A mapper matches each instance field of the java class against the layout field with the same
+ * name, and converts between the native representation and the primitive type of the java field.
+ * Java fields without a matching layout field are left alone.  When bytecode generation is
+ * enabled and the java class and its fields are public, the mapper is generated so no reflection
+ * or boxing is involved per field.
+ * </p>
+ * <pre>
+ * {@code
+ * public static class Record {
+ *     public int id;
+ *     public double price;
+ * }
+ *
+ * StructMapper<Record> mapper = StructMapper.create(new RecordLayout(runtime), Record.class);
+ * Record r = mapper.read(memory, 0);
+ * }
+ * </pre>
+ * <p>
+ * Creating a mapper generates a new class, so mappers should be created once and reused.
+ * </p>
+ *
+ * @param <T> the java type this mapper copies struct data to and from.
+ */
+public abstract class StructMapper<T> {
+    private final StructLayout layout;
+    private final Class<T> javaClass;
+    private volatile Constructor<T> constructor;
+
+    protected StructMapper(StructLayout layout, Class<T> javaClass) {
+        this.layout = layout;
+        this.javaClass = javaClass;
+    }
+
+    /**
+     * Creates a mapper between the fields of a struct layout and the fields of a java class.
+     *
+     * @param layout the layout describing the native struct.
+     * @param javaClass the java class to map to.  It must have a no-argument constructor to use
+     *                  {@link #read(Pointer, long)}.
+     * @param <T> the java type.
+     * @return a new {@code StructMapper}.
+     * @throws IllegalArgumentException if a java field cannot be converted to the matching struct field.
+     */
+    public static <T> StructMapper<T> create(StructLayout layout, Class<T> javaClass) {
+        Map<java.lang.String, StructLayout.NumberField> layoutFields = getNumberFields(layout);
+        List<java.lang.reflect.Field> javaFields = new ArrayList<java.lang.reflect.Field>();
+        List<StructLayout.NumberField> mappedFields = new ArrayList<StructLayout.NumberField>();
+
+        for (Class c = javaClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (java.lang.reflect.Field f : c.getDeclaredFields()) {
+                if ((f.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT)) != 0) {
+                    continue;
+                }
+                StructLayout.NumberField layoutField = layoutFields.get(f.getName());
+                if (layoutField != null) {
+                    javaFields.add(f);
+                    mappedFields.add(layoutField);
+                }
+            }
+        }
+
+        return StructMapperGenerator.createMapper(layout, javaClass,
+                javaFields.toArray(new java.lang.reflect.Field[javaFields.size()]),
+                nativeTypes(mappedFields), offsets(mappedFields));
+    }
+
+    /**
+     * Creates a reader which copies the named fields of an array of structs into primitive arrays.
+     * <p>
+     * Each column is a primitive array of the same java type {@link StructLayout} uses for the field, e.g.
+     * an {@code int[]} for a {@link StructLayout.Signed32} field and a {@code long[]} for a
+     * {@link StructLayout.Unsigned32} or {@link StructLayout.Pointer} field.
+     * </p>
+     *
+     * @param layout the layout describing each struct.
+     * @param fieldNames the names of the layout fields to extract.
+     * @return a new {@code ColumnReader}.
+     * @throws IllegalArgumentException if a name does not refer to a numeric field of the layout.
+     */
+    public static ColumnReader columns(StructLayout layout, java.lang.String... fieldNames) {
+        Map<java.lang.String, StructLayout.NumberField> layoutFields = getNumberFields(layout);
+        List<StructLayout.NumberField> columnFields = new ArrayList<StructLayout.NumberField>();
+        for (java.lang.String name : fieldNames) {
+            StructLayout.NumberField field = layoutFields.get(name);
+            if (field == null) {
+                throw new IllegalArgumentException("no numeric field named " + name + " in " + layout.getClass().getName());
+            }
+            columnFields.add(field);
+        }
+
+        return StructMapperGenerator.createColumnReader(layout, nativeTypes(columnFields), offsets(columnFields));
+    }
+
+    private static Map<java.lang.String, StructLayout.NumberField> getNumberFields(StructLayout layout) {
+        Map<java.lang.String, StructLayout.NumberField> fields = new HashMap<java.lang.String, StructLayout.NumberField>();
+        for (Class c = layout.getClass(); c != StructLayout.class; c = c.getSuperclass()) {
+            for (java.lang.reflect.Field f : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(f.getModifiers()) && StructLayout.NumberField.class.isAssignableFrom(f.getType())
+                        && !fields.containsKey(f.getName())) {
+                    try {
+                        f.setAccessible(true);
+                        fields.put(f.getName(), (StructLayout.NumberField) f.get(layout));
+                    } catch (IllegalAccessException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                }
+            }
+        }
+
+        return fields;
+    }
+
+    private static NativeType[] nativeTypes(List<StructLayout.NumberField> fields) {
+        NativeType[] types = new NativeType[fields.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = fields.get(i).type.getNativeType();
+        }
+        return types;
+    }
+
+    private static long[] offsets(List<StructLayout.NumberField> fields) {
+        long[] offsets = new long[fields.size()];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = fields.get(i).offset();
+        }
+        return offsets;
+    }
+
+    /**
+     * Gets the layout this mapper reads and writes.
+     *
+     * @return a {@code StructLayout}.
+     */
+    public final StructLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Gets the java class this mapper reads and writes.
+     *
+     * @return a java class.
+     */
+    public final Class<T> getJavaClass() {
+        return javaClass;
+    }
+
+    /**
+     * Copies the fields of the struct at {@code offset} into an existing java object.
+     *
+     * @param memory the memory the struct is in.
+     * @param offset the offset of the struct within {@code memory}.
+     * @param object the object to update.
+     */
+    public abstract void read(Pointer memory, long offset, T object);
+
+    /**
+     * Copies the fields of a java object into the struct at {@code offset}.
+     *
+     * @param memory the memory the struct is in.
+     * @param offset the offset of the struct within {@code memory}.
+     * @param object the object to copy from.
+     */
+    public abstract void write(Pointer memory, long offset, T object);
+
+    /**
+     * Creates a new java object from the struct at {@code offset}.
+     *
+     * @param memory the memory the struct is in.
+     * @param offset the offset of the struct within {@code memory}.
+     * @return a new java object.
+     */
+    public T read(Pointer memory, long offset) {
+        T object = newInstance();
+        read(memory, offset, object);
+        return object;
+    }
+
+    /**
+     * Creates java objects from a contiguous array of structs.
+     *
+     * @param memory the memory the structs are in.
+     * @param offset the offset of the first struct within {@code memory}.
+     * @param count the number of structs to read.
+     * @return an array of new java objects.
+     */
+    @SuppressWarnings("unchecked")
+    public T[] readArray(Pointer memory, long offset, int count) {
+        T[] objects = (T[]) Array.newInstance(javaClass, count);
+        final int stride = layout.size();
+        for (int i = 0; i < count; i++) {
+            objects[i] = newInstance();
+            read(memory, offset + ((long) i * stride), objects[i]);
+        }
+        return objects;
+    }
+
+    /**
+     * Copies java objects into a contiguous array of structs.
+     *
+     * @param memory the memory the structs are in.
+     * @param offset the offset of the first struct within {@code memory}.
+     * @param objects the objects to copy from.
+     */
+    public void writeArray(Pointer memory, long offset, T[] objects) {
+        final int stride = layout.size();
+        for (int i = 0; i < objects.length; i++) {
+            write(memory, offset + ((long) i * stride), objects[i]);
+        }
+    }
+
+    private T newInstance() {
+        try {
+            Constructor<T> constructor = this.constructor;
+            if (constructor == null) {
+                constructor = javaClass.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                this.constructor = constructor;
+            }
+            return constructor.newInstance();
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalArgumentException("no default constructor for " + javaClass.getName(), ex);
+        } catch (Exception ex) {
+            throw new IllegalArgumentException("cannot instantiate " + javaClass.getName(), ex);
+        }
+    }
+
+    /**
+     * Extracts fields from an array of structs into one primitive array per field, in a single pass
+     * over the native memory.
+     */
+    public static abstract class ColumnReader {
+        private final StructLayout layout;
+        private final Class[] columnTypes;
+
+        protected ColumnReader(StructLayout layout, Class[] columnTypes) {
+            this.layout = layout;
+            this.columnTypes = columnTypes.clone();
+        }
+
+        /**
+         * Gets the number of columns this reader extracts.
+         *
+         * @return the number of columns.
+         */
+        public final int getColumnCount() {
+            return columnTypes.length;
+        }
+
+        /**
+         * Gets the primitive array type of a column, e.g. {@code int[].class}.
+         *
+         * @param index the index of the column.
+         * @return the array class of the column.
+         */
+        public final Class getColumnType(int index) {
+            return columnTypes[index];
+        }
+
+        /**
+         * Reads {@code count} structs into newly allocated column arrays.
+         *
+         * @param memory the memory the structs are in.
+         * @param offset the offset of the first struct within {@code memory}.
+         * @param count the number of structs to read.
+         * @return the column arrays, in the order the field names were given.
+         */
+        public final Object[] read(Pointer memory, long offset, int count) {
+            Object[] columns = new Object[columnTypes.length];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = Array.newInstance(columnTypes[i].getComponentType(), count);
+            }
+            read(memory, offset, count, columns, 0);
+            return columns;
+        }
+
+        /**
+         * Reads {@code count} structs into existing column arrays.
+         *
+         * @param memory the memory the structs are in.
+         * @param offset the offset of the first struct within {@code memory}.
+         * @param count the number of structs to read.
+         * @param columns the column arrays, in the order the field names were given.
+         * @param index the index in each column array to store the first struct's values at.
+         */
+        public final void read(Pointer memory, long offset, int count, Object[] columns, int index) {
+            if (columns.length != columnTypes.length) {
+                throw new IllegalArgumentException("expected " + columnTypes.length + " columns, got " + columns.length);
+            }
+            if (count < 0 || index < 0) {
+                throw new IndexOutOfBoundsException();
+            }
+            for (int i = 0; i < columns.length; i++) {
+                if (!columnTypes[i].isInstance(columns[i])) {
+                    throw new IllegalArgumentException("column " + i + " is not a " + columnTypes[i].getSimpleName());
+                }
+                if (Array.getLength(columns[i]) - index < count) {
+                    throw new IndexOutOfBoundsException("column " + i + " is too short");
+                }
+            }
+            if (count > 0) {
+                memory.checkBounds(offset, (long) layout.size() * count);
+                readColumns(memory, offset, layout.size(), count, columns, index);
+            }
+        }
+
+        /**
+         * Reads the columns once the arguments have been validated.
+         */
+        protected abstract void readColumns(Pointer memory, long offset, int stride, int count, Object[] columns, int index);
+    }
+}
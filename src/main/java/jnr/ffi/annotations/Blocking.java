@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Indicates that a library or a library method may block for a long time (e.g. read(2), poll(2) or accept(2)).
+ *
+ * <p>Calls to blocking methods are not made on the calling thread, but are handed off to a bounded
+ * {@link jnr.ffi.util.BlockingCallExecutor}, and the calling thread is parked until the native call completes.
+ * A lightweight (virtual) thread parked this way releases its carrier thread to run other work while the native
+ * function blocks.  A platform thread, such as an event loop thread, stays blocked for the whole call, just as
+ * it would calling the function directly; only the number of threads blocked in native code is bounded.
+ *
+ * <p>The errno/last error value of the native call is copied back to the calling thread.
+ *
+ * <p>The executor can be supplied with the {@link jnr.ffi.LibraryOption#BlockingCallExecutor} option, otherwise
+ * the {@link jnr.ffi.util.BlockingCallExecutor#getDefault() default} executor is used.
+ *
+ * @see jnr.ffi.util.BlockingCallExecutor
+ */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Blocking {
+
+}
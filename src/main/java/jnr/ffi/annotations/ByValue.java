@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Passes a {@link jnr.ffi.Struct} parameter, or returns a {@link jnr.ffi.Struct} result, by value instead of
+ * as a pointer to the struct.
+ * <p>
+ * A parameter is copied straight from the struct's memory into the native call.  A result is copied into a
+ * new Java heap array owned by the returned struct, so no native memory is allocated for it.
+ * </p>
+ * <p>
+ * The layout of the struct is described to native code from its members, so unions are not supported.
+ * </p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.PARAMETER, ElementType.METHOD, ElementType.ANNOTATION_TYPE })
+public @interface ByValue {
+}
@@ -20,6 +20,7 @@ package jnr.ffi.annotations;
 
 
 import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
@@ -36,9 +37,12 @@ import java.lang.annotation.Target;
  * with the {@link jnr.ffi.Struct} instance, and will remain allocated
  * for as long as the {@code Struct} instance remains strongly referenced by java code.
  *
+ * <p>When applied to a {@link jnr.ffi.Struct} subclass, all instances of the class are
+ * backed by native memory.
  */
 @Retention(RetentionPolicy.RUNTIME)
-@Target({ ElementType.PARAMETER, ElementType.ANNOTATION_TYPE })
+@Inherited
+@Target({ ElementType.PARAMETER, ElementType.ANNOTATION_TYPE, ElementType.TYPE })
 public @interface Direct {
 
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits the number of characters transferred for a {@link StringBuilder} or {@link StringBuffer} parameter.
+ * <p>
+ * The native buffer is sized for the smaller of this limit and the capacity of the builder, instead of the
+ * capacity alone.  Use this to bound the allocation for functions such as {@code getcwd(3)} or
+ * {@code readlink(2)}, which take the buffer size as a separate argument.
+ * </p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.PARAMETER, ElementType.ANNOTATION_TYPE })
+public @interface MaxLength {
+    /**
+     * The maximum number of characters, not including the NUL terminator.
+     *
+     * @return the maximum length.
+     */
+    int value();
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Reuses the {@link jnr.ffi.Struct} returned by a method that returns a pointer to a struct.
+ * <p>
+ * Instead of creating a new struct for every call, each thread gets the same instance back from every call
+ * of the method, pointed at the memory returned by the latest call.  This suits functions such as
+ * {@code getpwent(3)} or {@code readdir(3)}, which return a pointer to static or per-stream storage that
+ * is overwritten by the next call anyway.  A NULL result is still returned as {@code null}.
+ * </p>
+ * <p>
+ * The returned struct must not be kept, or handed to another thread, past the next call of the method.
+ * </p>
+ * <p>
+ * A method cannot be both {@link Blocking} and {@code ReuseResult}, because blocking calls are made on an
+ * executor thread rather than the caller's.
+ * </p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.ANNOTATION_TYPE })
+public @interface ReuseResult {
+}
@@ -25,10 +25,45 @@ import java.lang.annotation.RetentionPolicy;
  * Indicates that a library or a library method requires all calls to be
  * synchronized.
  * 
- * i.e. calls from multiple threads will synchronize on a monitor object,
- * then call the native method.
+ * i.e. calls from multiple threads will acquire a lock, then call the native method.
+ *
+ * <p>
+ * By default, all synchronized methods of a library share a single lock.  A finer grained lock
+ * can be selected with {@link #value()}:
+ * <ul>
+ *     <li>{@link #LIBRARY} - the library-wide lock</li>
+ *     <li>{@link #FUNCTION} - a lock used only by the annotated method</li>
+ *     <li>any other name - a lock shared by all methods of the library annotated with the same name</li>
+ * </ul>
+ * When applied to a library interface, the annotation applies to every method that is not itself annotated.
+ * <p>
+ * Locks are looked up by name in the library's {@link jnr.ffi.util.LockRegistry}, which can be supplied with the
+ * {@link jnr.ffi.LibraryOption#LockRegistry} option to use custom locks or to read lock contention statistics.
  */
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Synchronized {
+    /** The name of the library-wide lock */
+    public static final String LIBRARY = "";
+
+    /**
+     * Use a lock that is specific to the annotated method.  The lock is registered under this prefix followed by
+     * the method signature, e.g. {@code <function>add(int,int)}.
+     */
+    public static final String FUNCTION = "<function>";
+
+    /**
+     * The name of the lock to synchronize on.
+     *
+     * @return the lock name.
+     */
+    String value() default LIBRARY;
 
+    /**
+     * The maximum time to wait for the lock, in milliseconds.  A negative value waits indefinitely.
+     * <p>
+     * If the lock cannot be acquired in time, an {@link IllegalStateException} is thrown.
+     *
+     * @return the timeout in milliseconds.
+     */
+    long timeout() default -1;
 }
@@ -30,6 +30,22 @@ public interface FromNativeConverter<J, N> {
     public J fromNative(N nativeValue, FromNativeContext context);
     public Class<N> nativeType();
 
+    /**
+     * A converter from a native {@code int}, which generated invokers call without boxing the native value.
+     * {@link #fromNative(Object, FromNativeContext)} is still used where boxing cannot be avoided.
+     */
+    public static interface FromInt<J> extends FromNativeConverter<J, Integer> {
+        public J fromNativeInt(int nativeValue, FromNativeContext context);
+    }
+
+    /**
+     * A converter from a native {@code long}, which generated invokers call without boxing the native value.
+     * {@link #fromNative(Object, FromNativeContext)} is still used where boxing cannot be avoided.
+     */
+    public static interface FromLong<J> extends FromNativeConverter<J, Long> {
+        public J fromNativeLong(long nativeValue, FromNativeContext context);
+    }
+
     @Retention(RetentionPolicy.RUNTIME)
     @Target({ElementType.TYPE, ElementType.METHOD})
     public static @interface NoContext {
@@ -36,6 +36,22 @@ public interface ToNativeConverter<J, N> {
         public void postInvoke(J j, N n, ToNativeContext context);
     }
 
+    /**
+     * A converter to a native {@code int}, which generated invokers call without boxing the result.
+     * {@link #toNative(Object, ToNativeContext)} is still used where boxing cannot be avoided.
+     */
+    public static interface ToInt<J> extends ToNativeConverter<J, Integer> {
+        public int toNativeInt(J value, ToNativeContext context);
+    }
+
+    /**
+     * A converter to a native {@code long}, which generated invokers call without boxing the result.
+     * {@link #toNative(Object, ToNativeContext)} is still used where boxing cannot be avoided.
+     */
+    public static interface ToLong<J> extends ToNativeConverter<J, Long> {
+        public long toNativeLong(J value, ToNativeContext context);
+    }
+
     @Retention(RetentionPolicy.RUNTIME)
     @Target({ElementType.TYPE, ElementType.METHOD})
     public static @interface NoContext {
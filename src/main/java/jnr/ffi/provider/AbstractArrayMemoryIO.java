@@ -443,4 +443,10 @@ public abstract class AbstractArrayMemoryIO extends AbstractMemoryIO {
             putInt64(buffer, offset, value);
         }
     }
+
+    @Override
+    public ByteBuffer asByteBuffer(long offset, int length) {
+        checkBounds(this.length, offset, length);
+        return ByteBuffer.wrap(buffer, index(offset), length).slice().order(getRuntime().byteOrder());
+    }
 }
@@ -216,4 +216,14 @@ abstract public class AbstractBufferMemoryIO extends AbstractMemoryIO {
     }
 
     
+
+    @Override
+    public ByteBuffer asByteBuffer(long offset, int length) {
+        checkBounds(buffer.capacity(), offset, length);
+        ByteBuffer view = buffer.duplicate();
+        view.clear();
+        view.limit((int) offset + length);
+        view.position((int) offset);
+        return view.slice().order(buffer.order());
+    }
 }
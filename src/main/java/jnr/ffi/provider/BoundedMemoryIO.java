@@ -21,6 +21,7 @@ package jnr.ffi.provider;
 import jnr.ffi.Address;
 import jnr.ffi.Pointer;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
 
@@ -285,6 +286,66 @@ public final class BoundedMemoryIO extends AbstractMemoryIO implements Delegatin
         return io.indexOf(base + offset, value, maxlen);
     }
 
+    @Override
+    public int getIntVolatile(long offset) {
+        checkBounds(size, offset, 4);
+        return io.getIntVolatile(base + offset);
+    }
+
+    @Override
+    public void putIntVolatile(long offset, int value) {
+        checkBounds(size, offset, 4);
+        io.putIntVolatile(base + offset, value);
+    }
+
+    @Override
+    public void putIntOrdered(long offset, int value) {
+        checkBounds(size, offset, 4);
+        io.putIntOrdered(base + offset, value);
+    }
+
+    @Override
+    public boolean compareAndSwapInt(long offset, int expected, int value) {
+        checkBounds(size, offset, 4);
+        return io.compareAndSwapInt(base + offset, expected, value);
+    }
+
+    @Override
+    public int getAndAddInt(long offset, int delta) {
+        checkBounds(size, offset, 4);
+        return io.getAndAddInt(base + offset, delta);
+    }
+
+    @Override
+    public long getLongVolatile(long offset) {
+        checkBounds(size, offset, 8);
+        return io.getLongVolatile(base + offset);
+    }
+
+    @Override
+    public void putLongVolatile(long offset, long value) {
+        checkBounds(size, offset, 8);
+        io.putLongVolatile(base + offset, value);
+    }
+
+    @Override
+    public void putLongOrdered(long offset, long value) {
+        checkBounds(size, offset, 8);
+        io.putLongOrdered(base + offset, value);
+    }
+
+    @Override
+    public boolean compareAndSwapLong(long offset, long expected, long value) {
+        checkBounds(size, offset, 8);
+        return io.compareAndSwapLong(base + offset, expected, value);
+    }
+
+    @Override
+    public long getAndAddLong(long offset, long delta) {
+        checkBounds(size, offset, 8);
+        return io.getAndAddLong(base + offset, delta);
+    }
+
     @Override
     public void setMemory(long offset, long size, byte value) {
         checkBounds(this.size, base + offset, size);
@@ -302,4 +363,10 @@ public final class BoundedMemoryIO extends AbstractMemoryIO implements Delegatin
         checkBounds(this.size, base + offset, count);
         getDelegatedMemoryIO().transferTo(offset, other, otherOffset, count);
     }
+
+    @Override
+    public ByteBuffer asByteBuffer(long offset, int length) {
+        checkBounds(size, offset, length);
+        return io.asByteBuffer(base + offset, length);
+    }
 }
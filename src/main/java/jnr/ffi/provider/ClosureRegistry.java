@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider;
+
+/**
+ * Keeps the native closures of long-lived delegates.
+ * <p>
+ * This is implemented by a {@link ClosureManager} that supports registering delegates.
+ */
+public interface ClosureRegistry {
+    /**
+     * Registers a long-lived delegate, so its native closure is created now and found without a lookup
+     * whenever it is passed to native code.  The delegate is kept alive until it is unregistered.
+     *
+     * @param closureClass the delegate interface.
+     * @param instance the delegate to register.
+     * @param <T> the type of the delegate.
+     */
+    public abstract <T> void register(Class<? extends T> closureClass, T instance);
+
+    /**
+     * Unregisters a delegate registered with {@link #register(Class, Object)}, so it can be collected.
+     *
+     * @param closureClass the delegate interface.
+     * @param instance the delegate to unregister.
+     * @param <T> the type of the delegate.
+     */
+    public abstract <T> void unregister(Class<? extends T> closureClass, T instance);
+}
@@ -115,6 +115,7 @@ public class InterfaceScanner {
         public boolean hasNext() {
             for (; nextIndex < methods.length; nextIndex++) {
                 if (!Variable.class.isAssignableFrom(methods[nextIndex].getReturnType())
+                        && !NativeVariable.isVariableType(methods[nextIndex].getReturnType())
                         && !isDefault(methods[nextIndex])) {
                     return true;
                 }
@@ -149,7 +150,7 @@ public class InterfaceScanner {
         @Override
         public boolean hasNext() {
             for (; nextIndex < methods.length; nextIndex++) {
-                if (Variable.class == methods[nextIndex].getReturnType()) {
+                if (NativeVariable.isVariableType(methods[nextIndex].getReturnType())) {
                     return true;
                 }
             }
@@ -62,6 +62,12 @@ class InvalidRuntime extends jnr.ffi.Runtime {
         throw newLoadError();
     }
 
+    @Override
+    public CallBatch newCallBatch(Pointer function, int capacity, boolean saveError,
+                                  NativeType resultType, NativeType... parameterTypes) {
+        throw newLoadError();
+    }
+
     @Override
     public int getLastError() {
         throw newLoadError();
@@ -21,11 +21,17 @@ package jnr.ffi.provider;
 import java.util.ArrayList;
 
 /**
- * Holds information for each invocation of a native function
+ * Holds information for each invocation of a native function.
+ *
+ * The first couple of post-invoke callbacks and kept-alive objects are held inline, so a session only
+ * allocates lists when a call has more of them.  A session may be reused once {@link #finish()} has run.
  */
 public class InvocationSession {
+    private PostInvoke postInvoke0, postInvoke1;
     private ArrayList<PostInvoke> list;
+    private Object liveObject0, liveObject1;
     private ArrayList<Object> liveObjects;
+
     public InvocationSession() {
         
     }
@@ -33,23 +39,55 @@ public class InvocationSession {
         void postInvoke();
     }
     public void finish() {
-        if (list != null) for (PostInvoke p : list) {
+        try {
+            postInvoke(postInvoke0);
+            postInvoke(postInvoke1);
+            if (list != null) for (PostInvoke p : list) {
+                postInvoke(p);
+            }
+        } finally {
+            postInvoke0 = postInvoke1 = null;
+            liveObject0 = liveObject1 = null;
+            if (list != null) list.clear();
+            if (liveObjects != null) liveObjects.clear();
+        }
+    }
+
+    private static void postInvoke(PostInvoke p) {
+        if (p != null) {
             try {
                 p.postInvoke();
             } catch (Throwable t) {}
         }
     }
+
     public void addPostInvoke(PostInvoke postInvoke) {
-        if (list == null) {
-            list = new ArrayList<PostInvoke>();
+        if (postInvoke0 == null) {
+            postInvoke0 = postInvoke;
+
+        } else if (postInvoke1 == null) {
+            postInvoke1 = postInvoke;
+
+        } else {
+            if (list == null) {
+                list = new ArrayList<PostInvoke>();
+            }
+            list.add(postInvoke);
         }
-        list.add(postInvoke);
     }
 
     public void keepAlive(Object obj) {
-        if (liveObjects == null) {
-            liveObjects = new ArrayList<Object>();
+        if (liveObject0 == null) {
+            liveObject0 = obj;
+
+        } else if (liveObject1 == null) {
+            liveObject1 = obj;
+
+        } else {
+            if (liveObjects == null) {
+                liveObjects = new ArrayList<Object>();
+            }
+            liveObjects.add(obj);
         }
-        liveObjects.add(obj);
     }
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider;
+
+import jnr.ffi.MappedMemory;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Maps files, or zero filled memory, into the address space of the process.
+ * <p>
+ * This is implemented by a {@link MemoryManager} that supports memory mapping.  Use
+ * {@link MappedMemory#map} and {@link MappedMemory#mapAnonymous} rather than calling it directly.
+ */
+public interface MemoryMapper {
+    /**
+     * Maps a region of a file into memory.
+     *
+     * @param file The file to map.
+     * @param mode How the file is mapped.
+     * @param offset The offset in the file to start the mapping at.  It need not be page aligned.
+     * @param length The number of bytes to map, or -1 to map to the end of the file.
+     * @return The mapped region.
+     * @throws IOException if the file could not be opened or mapped.
+     */
+    public abstract MappedMemory map(File file, MappedMemory.MapMode mode, long offset, long length) throws IOException;
+
+    /**
+     * Maps a region of zero filled memory that is not backed by a file.
+     *
+     * @param length The number of bytes to map.
+     * @param shared If true, the mapping is shared with child processes, otherwise it is private.
+     * @return The mapped region.
+     */
+    public abstract MappedMemory mapAnonymous(long length, boolean shared);
+}
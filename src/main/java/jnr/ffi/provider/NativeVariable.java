@@ -18,6 +18,11 @@
 
 package jnr.ffi.provider;
 
+import jnr.ffi.IntVariable;
+import jnr.ffi.LongVariable;
+import jnr.ffi.PointerVariable;
+import jnr.ffi.Variable;
+
 import java.lang.reflect.Method;
 
 public class NativeVariable {
@@ -30,4 +35,15 @@ public class NativeVariable {
     public Method getMethod() {
         return method;
     }
+
+    /**
+     * Checks if a method return type declares a global variable accessor.
+     *
+     * @param type The return type of the method.
+     * @return true if the method accesses a global variable, instead of calling a function.
+     */
+    public static boolean isVariableType(Class type) {
+        return Variable.class == type || IntVariable.class == type || LongVariable.class == type
+                || PointerVariable.class == type;
+    }
 }
@@ -20,6 +20,7 @@ package jnr.ffi.provider;
 
 import jnr.ffi.Pointer;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
 /**
@@ -228,8 +229,63 @@ public class ShareMemoryIO extends AbstractMemoryIO implements DelegatingMemoryI
         return ptr.indexOf(base + offset, value, maxlen);
     }
 
+    @Override
+    public int getIntVolatile(long offset) {
+        return ptr.getIntVolatile(base + offset);
+    }
+
+    @Override
+    public void putIntVolatile(long offset, int value) {
+        ptr.putIntVolatile(base + offset, value);
+    }
+
+    @Override
+    public void putIntOrdered(long offset, int value) {
+        ptr.putIntOrdered(base + offset, value);
+    }
+
+    @Override
+    public boolean compareAndSwapInt(long offset, int expected, int value) {
+        return ptr.compareAndSwapInt(base + offset, expected, value);
+    }
+
+    @Override
+    public int getAndAddInt(long offset, int delta) {
+        return ptr.getAndAddInt(base + offset, delta);
+    }
+
+    @Override
+    public long getLongVolatile(long offset) {
+        return ptr.getLongVolatile(base + offset);
+    }
+
+    @Override
+    public void putLongVolatile(long offset, long value) {
+        ptr.putLongVolatile(base + offset, value);
+    }
+
+    @Override
+    public void putLongOrdered(long offset, long value) {
+        ptr.putLongOrdered(base + offset, value);
+    }
+
+    @Override
+    public boolean compareAndSwapLong(long offset, long expected, long value) {
+        return ptr.compareAndSwapLong(base + offset, expected, value);
+    }
+
+    @Override
+    public long getAndAddLong(long offset, long delta) {
+        return ptr.getAndAddLong(base + offset, delta);
+    }
+
     @Override
     public void setMemory(long offset, long size, byte value) {
         ptr.setMemory(base + offset, size, value);
     }
+
+    @Override
+    public ByteBuffer asByteBuffer(long offset, int length) {
+        return ptr.asByteBuffer(base + offset, length);
+    }
 }
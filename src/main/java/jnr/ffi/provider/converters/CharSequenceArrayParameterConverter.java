@@ -25,31 +25,48 @@ import jnr.ffi.mapper.ToNativeConverter;
 import jnr.ffi.provider.InAccessibleMemoryIO;
 import jnr.ffi.provider.ParameterFlags;
 
+import java.lang.ref.Reference;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.charset.CharsetEncoder;
+
+import static jnr.ffi.provider.converters.StringUtil.getEncoder;
 
 /**
- * Converts a CharSequence[] array to a Pointer parameter
+ * Converts a CharSequence[] array to a Pointer parameter.
+ * <p>
+ * The NULL terminated pointer table and all the strings it points to are packed into a single block of native
+ * memory, so an array of any length costs one allocation.
  */
 @ToNativeConverter.NoContext
 @ToNativeConverter.Cacheable
 public class CharSequenceArrayParameterConverter implements ToNativeConverter<CharSequence[], Pointer> {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Charset USASCII = Charset.forName("US-ASCII");
+    private static final Charset ISO8859_1 = Charset.forName("ISO-8859-1");
+
+    private final ThreadLocal<Reference<CharsetEncoder>> localEncoder = new ThreadLocal<Reference<CharsetEncoder>>();
     private final jnr.ffi.Runtime runtime;
     private final int parameterFlags;
+    private final Charset charset;
+    private final int terminatorWidth;
+    private final boolean asciiCompatible;
 
     public static ToNativeConverter<CharSequence[], Pointer> getInstance(ToNativeContext toNativeContext) {
         int parameterFlags = ParameterFlags.parse(toNativeContext.getAnnotations());
+        Charset charset = StringUtil.getCharset(toNativeContext);
         return !ParameterFlags.isOut(parameterFlags)
-                ? new CharSequenceArrayParameterConverter(toNativeContext.getRuntime(), parameterFlags)
-                : new CharSequenceArrayParameterConverter.Out(toNativeContext.getRuntime(), parameterFlags);
+                ? new CharSequenceArrayParameterConverter(toNativeContext.getRuntime(), parameterFlags, charset)
+                : new CharSequenceArrayParameterConverter.Out(toNativeContext.getRuntime(), parameterFlags, charset);
     }
 
-    CharSequenceArrayParameterConverter(jnr.ffi.Runtime runtime, int parameterFlags) {
+    CharSequenceArrayParameterConverter(jnr.ffi.Runtime runtime, int parameterFlags, Charset charset) {
         this.runtime = runtime;
         this.parameterFlags = parameterFlags;
+        this.charset = charset;
+        this.terminatorWidth = StringUtil.terminatorWidth(charset);
+        this.asciiCompatible = charset.equals(UTF8) || charset.equals(USASCII) || charset.equals(ISO8859_1);
     }
 
     @Override
@@ -58,19 +75,93 @@ public class CharSequenceArrayParameterConverter implements ToNativeConverter<Ch
             return null;
         }
 
-        StringArray stringArray = StringArray.allocate(runtime, array.length + 1);
-        if (ParameterFlags.isIn(parameterFlags)) {
-            for (int i = 0; i < array.length; i++) {
-                stringArray.put(i, array[i]);
+        final int tableSize = (array.length + 1) * runtime.addressSize();
+        if (!ParameterFlags.isIn(parameterFlags)) {
+            return new StringArray(runtime, Memory.allocateDirect(runtime, tableSize), charset);
+        }
+
+        // Size the string data first, encoding only the strings which are not plain ascii
+        byte[][] encoded = null;
+        long dataSize = 0;
+        for (int i = 0; i < array.length; i++) {
+            CharSequence str = array[i];
+            if (str == null) {
+                continue;
+            }
+
+            if (asciiCompatible && isAscii(str)) {
+                dataSize += str.length() + terminatorWidth;
+
+            } else {
+                if (encoded == null) {
+                    encoded = new byte[array.length][];
+                }
+                encoded[i] = encode(str);
+                dataSize += encoded[i].length + terminatorWidth;
             }
         }
 
-        return stringArray;
+        if (dataSize > Integer.MAX_VALUE - tableSize) {
+            throw new IllegalArgumentException("string array too large");
+        }
+
+        Pointer memory = Memory.allocateDirect(runtime, tableSize + (int) dataSize, false);
+        byte[] data = new byte[(int) dataSize];
+        int dataOffset = 0;
+        final long dataAddress = memory.address() + tableSize;
+        final int addressSize = runtime.addressSize();
+
+        for (int i = 0; i < array.length; i++) {
+            CharSequence str = array[i];
+            if (str == null) {
+                memory.putAddress((long) i * addressSize, 0L);
+                continue;
+            }
+
+            memory.putAddress((long) i * addressSize, dataAddress + dataOffset);
+            if (encoded != null && encoded[i] != null) {
+                System.arraycopy(encoded[i], 0, data, dataOffset, encoded[i].length);
+                dataOffset += encoded[i].length;
+
+            } else {
+                for (int j = 0; j < str.length(); j++) {
+                    data[dataOffset++] = (byte) str.charAt(j);
+                }
+            }
+            // The terminator is already zero in the freshly allocated array
+            dataOffset += terminatorWidth;
+        }
+        memory.putAddress((long) array.length * addressSize, 0L);
+        memory.put(tableSize, data, 0, data.length);
+
+        return new StringArray(runtime, memory, charset);
+    }
+
+    private static boolean isAscii(CharSequence str) {
+        for (int i = 0; i < str.length(); i++) {
+            if (str.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private byte[] encode(CharSequence str) {
+        try {
+            ByteBuffer buf = getEncoder(charset, localEncoder).encode(CharBuffer.wrap(str));
+            byte[] bytes = new byte[buf.remaining()];
+            buf.get(bytes);
+            return bytes;
+
+        } catch (java.nio.charset.CharacterCodingException ex) {
+            throw new RuntimeException(ex);
+        }
     }
 
     public static final class Out extends CharSequenceArrayParameterConverter implements PostInvocation<CharSequence[], Pointer> {
-        Out(jnr.ffi.Runtime runtime, int parameterFlags) {
-            super(runtime, parameterFlags);
+        Out(jnr.ffi.Runtime runtime, int parameterFlags, Charset charset) {
+            super(runtime, parameterFlags, charset);
         }
 
         @Override
@@ -91,42 +182,22 @@ public class CharSequenceArrayParameterConverter implements ToNativeConverter<Ch
 
     private final static class StringArray extends InAccessibleMemoryIO {
         private final Pointer memory;
-        private List<Pointer> stringMemory;
-        private final Charset charset = Charset.defaultCharset();
+        private final Charset charset;
 
-        private StringArray(Runtime runtime, Pointer memory, int capacity) {
+        private StringArray(Runtime runtime, Pointer memory, Charset charset) {
             super(runtime, memory.address(), memory.isDirect());
             this.memory = memory;
-            this.stringMemory = new ArrayList<Pointer>(capacity);
+            this.charset = charset;
         }
 
         String get(int idx) {
             Pointer ptr = memory.getPointer(idx * getRuntime().addressSize());
-            return ptr != null ? ptr.getString(0) : null;
-        }
-
-        void put(int idx, CharSequence str) {
-            if (str == null) {
-                memory.putAddress(idx * getRuntime().addressSize(), 0L);
-                stringMemory.add(idx, null);
-            } else {
-                ByteBuffer buf = charset.encode(CharBuffer.wrap(str));
-                Pointer ptr = Memory.allocateDirect(getRuntime(), buf.remaining() + 4, true);
-                ptr.put(0, buf.array(), 0, buf.remaining());
-                stringMemory.add(idx, ptr);
-                memory.putPointer(idx * getRuntime().addressSize(), ptr);
-            }
+            return ptr != null ? ptr.getString(0, Integer.MAX_VALUE, charset) : null;
         }
 
         @Override
         public long size() {
             return memory.size();
         }
-
-        static StringArray allocate(Runtime runtime, int capacity) {
-            Pointer memory = Memory.allocateDirect(runtime, capacity * runtime.addressSize());
-            return new StringArray(runtime, memory, capacity);
-        }
-
     }
 }
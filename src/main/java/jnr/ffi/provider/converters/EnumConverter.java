@@ -26,7 +26,8 @@ import jnr.ffi.util.EnumMapper;
 @FromNativeConverter.NoContext
 @ToNativeConverter.Cacheable
 @FromNativeConverter.Cacheable
-public final class EnumConverter implements DataConverter<Enum, Integer> {
+public final class EnumConverter implements DataConverter<Enum, Integer>,
+        ToNativeConverter.ToInt<Enum>, FromNativeConverter.FromInt<Enum> {
     private final EnumMapper mapper;
 
     public static EnumConverter getInstance(Class<? extends Enum> enumClass) {
@@ -38,6 +39,10 @@ public final class EnumConverter implements DataConverter<Enum, Integer> {
     }
 
     public Enum fromNative(Integer nativeValue, FromNativeContext context) {
+        return mapper.valueOf(nativeValue.intValue());
+    }
+
+    public Enum fromNativeInt(int nativeValue, FromNativeContext context) {
         return mapper.valueOf(nativeValue);
     }
 
@@ -45,6 +50,10 @@ public final class EnumConverter implements DataConverter<Enum, Integer> {
         return mapper.integerValue(value);
     }
 
+    public int toNativeInt(Enum value, ToNativeContext context) {
+        return mapper.intValue(value);
+    }
+
     public Class<Integer> nativeType() {
         return Integer.class;
     }
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.converters;
+
+import jnr.ffi.NativeArray;
+import jnr.ffi.Pointer;
+import jnr.ffi.mapper.ToNativeContext;
+import jnr.ffi.mapper.ToNativeConverter;
+
+/**
+ * Passes a {@link NativeArray} as a pointer to its memory.
+ */
+@ToNativeConverter.NoContext
+@ToNativeConverter.Cacheable
+public final class NativeArrayParameterConverter implements ToNativeConverter<NativeArray, Pointer> {
+    private static final ToNativeConverter<NativeArray, Pointer> INSTANCE = new NativeArrayParameterConverter();
+
+    public static ToNativeConverter<NativeArray, Pointer> getInstance() {
+        return INSTANCE;
+    }
+
+    public Class<Pointer> nativeType() {
+        return Pointer.class;
+    }
+
+    public Pointer toNative(NativeArray value, ToNativeContext ctx) {
+        return value != null ? value.getPointer() : null;
+    }
+}
@@ -29,7 +29,8 @@ import jnr.ffi.mapper.*;
 @FromNativeConverter.NoContext
 @ToNativeConverter.Cacheable
 @FromNativeConverter.Cacheable
-public final class NativeLongConverter extends AbstractDataConverter<NativeLong, Long> {
+public final class NativeLongConverter extends AbstractDataConverter<NativeLong, Long>
+        implements ToNativeConverter.ToLong<NativeLong>, FromNativeConverter.FromLong<NativeLong> {
     private static final DataConverter INSTANCE = new NativeLongConverter();
 
     public static DataConverter<NativeLong, Long> getInstance() {
@@ -44,7 +45,15 @@ public final class NativeLongConverter extends AbstractDataConverter<NativeLong,
         return value.longValue();
     }
 
+    public long toNativeLong(NativeLong value, ToNativeContext toNativeContext) {
+        return value.longValue();
+    }
+
     public NativeLong fromNative(Long value, FromNativeContext fromNativeContext) {
         return NativeLong.valueOf(value);
     }
+
+    public NativeLong fromNativeLong(long value, FromNativeContext fromNativeContext) {
+        return NativeLong.valueOf(value);
+    }
 }
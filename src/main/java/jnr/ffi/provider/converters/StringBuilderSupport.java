@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.converters;
+
+import jnr.ffi.annotations.MaxLength;
+import jnr.ffi.mapper.ToNativeContext;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.ref.Reference;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.*;
+
+import static jnr.ffi.provider.converters.StringUtil.*;
+
+/**
+ * Native buffer handling shared by the {@link StringBuilder} and {@link StringBuffer} parameter converters.
+ * <p>
+ * Each thread keeps one direct buffer, grown to the largest size needed so far (up to
+ * {@link #MAX_CACHED_BUFFER_SIZE}), so repeated calls do not allocate.  A buffer is taken from the thread
+ * when the parameter is converted, and given back once the result has been copied out, so a buffer is
+ * never shared by two parameters of the same call.
+ */
+final class StringBuilderSupport {
+    /** Buffers larger than this are allocated on the heap for each call, and not kept */
+    static final int MAX_CACHED_BUFFER_SIZE = 64 * 1024;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Charset USASCII = Charset.forName("US-ASCII");
+    private static final Charset ISO8859_1 = Charset.forName("ISO-8859-1");
+    private static final byte[] ZEROS = new byte[4096];
+
+    private final ThreadLocal<Reference<CharsetEncoder>> localEncoder = new ThreadLocal<Reference<CharsetEncoder>>();
+    private final ThreadLocal<Reference<CharsetDecoder>> localDecoder = new ThreadLocal<Reference<CharsetDecoder>>();
+    private final ThreadLocal<ByteBuffer> localBuffer = new ThreadLocal<ByteBuffer>();
+    private final Charset charset;
+    private final int terminatorWidth;
+    private final int maxLength;
+    private final boolean asciiCompatible;
+
+    StringBuilderSupport(Charset charset, int maxLength) {
+        this.charset = charset;
+        this.terminatorWidth = terminatorWidth(charset);
+        this.maxLength = maxLength;
+        this.asciiCompatible = charset.equals(UTF8) || charset.equals(USASCII) || charset.equals(ISO8859_1);
+    }
+
+    static int getMaxLength(ToNativeContext toNativeContext) {
+        for (Annotation a : toNativeContext.getAnnotations()) {
+            if (a instanceof MaxLength) {
+                return ((MaxLength) a).value();
+            }
+        }
+
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Gets a buffer with room for {@code capacity} characters, optionally holding the encoded value.
+     * The returned buffer is always NUL terminated; a value that does not fit is truncated.
+     */
+    ByteBuffer toNative(CharSequence value, int capacity, boolean in) {
+        CharsetEncoder encoder = getEncoder(charset, localEncoder);
+        int chars = Math.min(capacity, maxLength);
+        long required = (long) chars * (int) Math.ceil(encoder.maxBytesPerChar()) + Math.max(4, terminatorWidth);
+        if (required > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("string buffer too large");
+        }
+
+        ByteBuffer buffer = getBuffer((int) required);
+        if (in) {
+            // Keep room for the terminator, so a value longer than @MaxLength is truncated, not left unterminated
+            int limit = buffer.limit();
+            buffer.limit(limit - terminatorWidth);
+            encoder.reset();
+            CoderResult result = encoder.encode(CharBuffer.wrap(value), buffer, true);
+            if (result.isUnderflow()) result = encoder.flush(buffer);
+            if (result.isError()) throwException(result);
+            buffer.limit(limit);
+            buffer.put(ZEROS, 0, terminatorWidth);
+        }
+
+        buffer.rewind();
+
+        return buffer;
+    }
+
+    private ByteBuffer getBuffer(int size) {
+        if (size > MAX_CACHED_BUFFER_SIZE) {
+            return ByteBuffer.wrap(new byte[size]);
+        }
+
+        ByteBuffer buffer = localBuffer.get();
+        if (buffer == null || buffer.capacity() < size) {
+            buffer = ByteBuffer.allocateDirect(Math.max(size, buffer != null ? buffer.capacity() : 0));
+        } else {
+            localBuffer.set(null);
+            // Native code need not NUL terminate what it writes, so clear the data from the previous call
+            buffer.clear();
+            while (buffer.position() < size) {
+                buffer.put(ZEROS, 0, Math.min(ZEROS.length, size - buffer.position()));
+            }
+        }
+        buffer.clear().limit(size);
+
+        return buffer;
+    }
+
+    /**
+     * Decodes the NUL terminated string in a buffer returned by {@link #toNative}, and makes the buffer
+     * available for reuse by this thread.
+     */
+    void fromNative(ByteBuffer buffer, Appendable out) {
+        buffer.rewind();
+        int length = stringLength(buffer, terminatorWidth);
+        if (length < 0) {
+            length = buffer.limit();
+        }
+
+        try {
+            if (!asciiCompatible || !appendAscii(buffer, length, out)) {
+                buffer.limit(length);
+                out.append(getDecoder(charset, localDecoder).reset().decode(buffer));
+            }
+        } catch (CharacterCodingException cce) {
+            throw new RuntimeException(cce);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+
+        release(buffer);
+    }
+
+    /**
+     * Makes a buffer returned by {@link #toNative} available for reuse by this thread.
+     */
+    void release(ByteBuffer buffer) {
+        if (buffer.isDirect()) {
+            localBuffer.set(buffer);
+        }
+    }
+
+    private static boolean appendAscii(ByteBuffer buffer, int length, Appendable out) throws IOException {
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(i) < 0) {
+                return false;
+            }
+        }
+
+        for (int i = 0; i < length; i++) {
+            out.append((char) buffer.get(i));
+        }
+
+        return true;
+    }
+}
@@ -42,6 +42,6 @@ public final class StructByReferenceToNativeConverter implements ToNativeConvert
     }
 
     public Pointer toNative(Struct value, ToNativeContext ctx) {
-        return value != null ? Struct.getMemory(value, flags) : null;
+        return value != null ? Struct.getNativeMemory(value, flags) : null;
     }
 }
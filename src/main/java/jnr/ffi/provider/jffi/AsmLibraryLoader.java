@@ -24,6 +24,7 @@ import static jnr.ffi.provider.jffi.CodegenUtils.p;
 import static jnr.ffi.provider.jffi.CodegenUtils.sig;
 import static jnr.ffi.provider.jffi.InvokerUtil.getCallContext;
 import static jnr.ffi.provider.jffi.InvokerUtil.getCallingConvention;
+import static jnr.ffi.provider.jffi.InvokerUtil.getLockRegistry;
 import static jnr.ffi.provider.jffi.InvokerUtil.getParameterTypes;
 import static jnr.ffi.provider.jffi.InvokerUtil.getResultType;
 import static jnr.ffi.util.Annotations.sortedAnnotationCollection;
@@ -42,6 +43,7 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import jnr.ffi.CallingConvention;
 import jnr.ffi.LibraryOption;
+import jnr.ffi.annotations.Blocking;
 import jnr.ffi.annotations.Synchronized;
 import jnr.ffi.mapper.CachingTypeMapper;
 import jnr.ffi.mapper.CompositeTypeMapper;
@@ -62,6 +64,7 @@ import jnr.ffi.provider.NullTypeMapper;
 import jnr.ffi.provider.ParameterType;
 import jnr.ffi.provider.ResultType;
 import jnr.ffi.provider.jffi.AsmBuilder.ObjectField;
+import jnr.ffi.util.LockRegistry;
 
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
@@ -142,11 +145,16 @@ public class AsmLibraryLoader extends LibraryLoader {
                 new BufferMethodGenerator()
         };
         
-        DefaultInvokerFactory invokerFactory = new DefaultInvokerFactory(runtime, library, typeMapper, functionMapper, libraryCallingConvention, libraryOptions, interfaceClass.isAnnotationPresent(Synchronized.class));
+        Synchronized librarySynchronized = interfaceClass.getAnnotation(Synchronized.class);
+        boolean libraryIsBlocking = interfaceClass.isAnnotationPresent(Blocking.class);
+        LockRegistry locks = getLockRegistry(libraryOptions);
+        DefaultInvokerFactory invokerFactory = new DefaultInvokerFactory(runtime, library, typeMapper, functionMapper, libraryCallingConvention, libraryOptions,
+                librarySynchronized, locks, libraryIsBlocking);
         InterfaceScanner scanner = new InterfaceScanner(interfaceClass, typeMapper, libraryCallingConvention);
 
         for (NativeFunction function : scanner.functions()) {
-            if (function.getMethod().isVarArgs()) {
+            // Blocking calls are offloaded to another thread, so the cost of the reflective invoker is negligible
+            if (function.getMethod().isVarArgs() || libraryIsBlocking || function.getMethod().isAnnotationPresent(Blocking.class)) {
                 ObjectField field = builder.getObjectField(invokerFactory.createInvoker(function.getMethod()), Invoker.class);
                 generateVarargsInvocation(builder, function.getMethod(), field);
                 continue;
@@ -170,13 +178,24 @@ public class AsmLibraryLoader extends LibraryLoader {
                 Function jffiFunction = new Function(functionAddress, 
                         getCallContext(resultType, parameterTypes,function.convention(), saveError));
 
+                // Synchronized methods delegate to an unsynchronized inner method which does the native call
+                FunctionLock lock = FunctionLock.getFunctionLock(function.getMethod(), librarySynchronized, locks);
+                String methodName = lock != null
+                        ? function.getMethod().getName() + "$unsynchronized$" + uniqueId.incrementAndGet()
+                        : function.getMethod().getName();
+
                 for (MethodGenerator g : generators) {
                     if (g.isSupported(resultType, parameterTypes, function.convention())) {
-                        g.generate(builder, function.getMethod().getName(), jffiFunction, resultType, parameterTypes, !saveError);
+                        g.generate(builder, methodName, jffiFunction, resultType, parameterTypes, !saveError);
                         break;
                     }
                 }
 
+                if (lock != null) {
+                    generateSynchronizedInvocation(builder, function.getMethod(), methodName,
+                            builder.getObjectField(lock, FunctionLock.class));
+                }
+
             } catch (SymbolNotFoundError ex) {
                 String errorFieldName = "error_" + uniqueId.incrementAndGet();
                 cv.visitField(ACC_PRIVATE | ACC_FINAL | ACC_STATIC, errorFieldName, ci(String.class), null, ex.getMessage());
@@ -189,12 +208,18 @@ public class AsmLibraryLoader extends LibraryLoader {
         VariableAccessorGenerator variableAccessorGenerator = new VariableAccessorGenerator(runtime);
         for (NativeVariable v : scanner.variables()) {
             Method m = v.getMethod();
-            java.lang.reflect.Type variableType = ((ParameterizedType) m.getGenericReturnType()).getActualTypeArguments()[0];
-            if (!(variableType instanceof Class)) {
-                throw new IllegalArgumentException("unsupported variable class: " + variableType);
-            }
             String functionName = functionMapper.mapFunctionName(m.getName(), null);
             try {
+                if (PrimitiveVariableAccessor.isPrimitiveVariableType(m.getReturnType())) {
+                    variableAccessorGenerator.generatePrimitive(builder, m.getName(),
+                            library.findSymbolAddress(functionName), m.getReturnType());
+                    continue;
+                }
+
+                java.lang.reflect.Type variableType = ((ParameterizedType) m.getGenericReturnType()).getActualTypeArguments()[0];
+                if (!(variableType instanceof Class)) {
+                    throw new IllegalArgumentException("unsupported variable class: " + variableType);
+                }
                 variableAccessorGenerator.generate(builder, interfaceClass, m.getName(),
                         library.findSymbolAddress(functionName), (Class) variableType, sortedAnnotationCollection(m.getAnnotations()),
                         typeMapper, classLoader);
@@ -260,6 +285,46 @@ public class AsmLibraryLoader extends LibraryLoader {
         mv.visitEnd();
     }
 
+    private void generateSynchronizedInvocation(final AsmBuilder builder, Method m, final String innerMethodName,
+                                                final ObjectField lock) {
+        final Class returnType = m.getReturnType();
+        final Class[] parameterTypes = m.getParameterTypes();
+        final SkinnyMethodAdapter mv = new SkinnyMethodAdapter(builder.getClassVisitor(), ACC_PUBLIC | ACC_FINAL,
+                m.getName(), sig(returnType, parameterTypes), null, null);
+        mv.start();
+
+        final LocalVariable[] parameters = AsmUtil.getParameterVariables(parameterTypes);
+        final LocalVariable result = new LocalVariable(returnType, 1 + AsmUtil.calculateLocalVariableSpace(parameterTypes));
+
+        AsmUtil.getfield(mv, builder, lock);
+        mv.invokevirtual(FunctionLock.class, "lock", void.class);
+
+        AsmUtil.tryfinally(mv, new Runnable() {
+            public void run() {
+                mv.aload(0);
+                for (int i = 0; i < parameterTypes.length; i++) {
+                    AsmUtil.load(mv, parameterTypes[i], parameters[i]);
+                }
+                mv.invokevirtual(builder.getClassNamePath(), innerMethodName, sig(returnType, parameterTypes));
+                if (void.class != returnType) {
+                    AsmUtil.store(mv, returnType, result);
+                }
+            }
+        }, new Runnable() {
+            public void run() {
+                AsmUtil.getfield(mv, builder, lock);
+                mv.invokevirtual(FunctionLock.class, "unlock", void.class);
+            }
+        });
+
+        if (void.class != returnType) {
+            AsmUtil.load(mv, returnType, result);
+        }
+        AsmUtil.emitReturnOp(mv, returnType);
+        mv.visitMaxs(100, AsmUtil.calculateLocalVariableSpace(parameterTypes) + 10);
+        mv.visitEnd();
+    }
+
     private void generateVarargsInvocation(AsmBuilder builder, Method m, ObjectField field) {
         Class[] parameterTypes = m.getParameterTypes();
         SkinnyMethodAdapter mv = new SkinnyMethodAdapter(builder.getClassVisitor(), ACC_PUBLIC | ACC_FINAL,
@@ -308,9 +373,8 @@ public class AsmLibraryLoader extends LibraryLoader {
                 mv.iload(slot);
                 mv.i2b();
                 mv.invokestatic(Byte.class, "valueOf", Byte.class, byte.class);
-            } else if (parameterTypes[i].equals(char.class)) {
+            } else if (parameterTypes[i].equals(boolean.class)) {
                 mv.iload(slot);
-                mv.i2b();
                 mv.invokestatic(Boolean.class, "valueOf", Boolean.class, boolean.class);
             } else {
                 mv.aload(slot);
@@ -215,6 +215,24 @@ public final class AsmRuntime {
         return array != null ? PrimitiveArrayParameterStrategy.BOOLEAN : NullObjectParameterStrategy.NULL;
     }
 
+    /**
+     * Copies a struct passed by value into the invocation buffer, straight from its memory when it is big enough.
+     */
+    public static void putStruct(HeapInvocationBuffer buffer, Pointer memory, int size) {
+        if (memory.isDirect() && memory.size() >= size) {
+            buffer.putStruct(memory.address());
+
+        } else if (memory.hasArray() && memory.size() >= size) {
+            buffer.putStruct((byte[]) memory.array(), memory.arrayOffset());
+
+        } else {
+            // The struct memory does not include the trailing padding native code expects
+            byte[] bytes = new byte[size];
+            memory.get(0, bytes, 0, (int) Math.min(size, memory.size()));
+            buffer.putStruct(bytes, 0);
+        }
+    }
+
     public static void postInvoke(ToNativeConverter.PostInvocation postInvocation, Object j, Object n, ToNativeContext context) {
         try {
             postInvocation.postInvoke(j, n, context);
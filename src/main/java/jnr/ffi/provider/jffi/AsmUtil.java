@@ -468,9 +468,68 @@ final class AsmUtil {
         mv.label(done);
     }
 
+    /**
+     * Gets the primitive type a converter can produce without boxing, or null if it only converts to objects.
+     */
+    static Class primitiveNativeClass(ToNativeConverter converter) {
+        // Post-invocation converters need the converted value kept as an object for the postInvoke call
+        if (converter instanceof ToNativeConverter.PostInvocation) {
+            return null;
+
+        } else if (converter instanceof ToNativeConverter.ToInt) {
+            return int.class;
+
+        } else if (converter instanceof ToNativeConverter.ToLong) {
+            return long.class;
+
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the primitive type a converter can accept without boxing, or null if it only converts from objects.
+     */
+    static Class primitiveNativeClass(FromNativeConverter converter) {
+        if (converter instanceof FromNativeConverter.FromInt) {
+            return int.class;
+
+        } else if (converter instanceof FromNativeConverter.FromLong) {
+            return long.class;
+
+        } else {
+            return null;
+        }
+    }
+
     static void emitToNativeConversion(AsmBuilder builder, SkinnyMethodAdapter mv, ToNativeType toNativeType) {
         ToNativeConverter parameterConverter = toNativeType.getToNativeConverter();
-        if (parameterConverter != null) {
+        Class primitiveClass = primitiveNativeClass(parameterConverter);
+        if (primitiveClass != null) {
+            Class<?> converterInterface = primitiveClass == int.class ? ToNativeConverter.ToInt.class : ToNativeConverter.ToLong.class;
+            if (toNativeType.getDeclaredType().isPrimitive()) {
+                boxValue(builder, mv, getBoxedClass(toNativeType.getDeclaredType()), toNativeType.getDeclaredType());
+            }
+
+            AsmBuilder.ObjectField toNativeConverterField = builder.getToNativeConverterField(parameterConverter);
+            getfield(mv, builder, toNativeConverterField);
+            if (!converterInterface.isAssignableFrom(toNativeConverterField.klass)) {
+                mv.checkcast(converterInterface);
+            }
+
+            // Re-order so the value to be converted is on the top of the stack
+            mv.swap();
+
+            if (toNativeType.getToNativeContext() != null) {
+                getfield(mv, builder, builder.getToNativeContextField(toNativeType.getToNativeContext()));
+            } else {
+                mv.aconst_null();
+            }
+
+            mv.invokeinterface(converterInterface, primitiveClass == int.class ? "toNativeInt" : "toNativeLong",
+                    primitiveClass, Object.class, ToNativeContext.class);
+
+        } else if (parameterConverter != null) {
             Method toNativeMethod = getToNativeMethod(toNativeType, builder.getClassLoader());
 
             if (toNativeType.getDeclaredType().isPrimitive()) {
@@ -513,7 +572,36 @@ final class AsmUtil {
     static void emitFromNativeConversion(AsmBuilder builder, SkinnyMethodAdapter mv, FromNativeType fromNativeType, Class nativeClass) {
         // If there is a result converter, retrieve it and put on the stack
         FromNativeConverter fromNativeConverter = fromNativeType.getFromNativeConverter();
-        if (fromNativeConverter != null) {
+        Class primitiveClass = primitiveNativeClass(fromNativeConverter);
+        if (primitiveClass != null) {
+            Class<?> converterInterface = primitiveClass == int.class ? FromNativeConverter.FromInt.class : FromNativeConverter.FromLong.class;
+            convertPrimitive(mv, nativeClass, primitiveClass, fromNativeType.getNativeType());
+
+            AsmBuilder.ObjectField fromNativeConverterField = builder.getFromNativeConverterField(fromNativeConverter);
+            getfield(mv, builder, fromNativeConverterField);
+            if (!converterInterface.isAssignableFrom(fromNativeConverterField.klass)) {
+                mv.checkcast(converterInterface);
+            }
+
+            // Re-order so the native value follows the converter on the stack
+            if (primitiveClass == long.class) {
+                mv.dup_x2();
+                mv.pop();
+            } else {
+                mv.swap();
+            }
+
+            if (fromNativeType.getFromNativeContext() != null) {
+                getfield(mv, builder, builder.getFromNativeContextField(fromNativeType.getFromNativeContext()));
+            } else {
+                mv.aconst_null();
+            }
+
+            mv.invokeinterface(converterInterface, primitiveClass == int.class ? "fromNativeInt" : "fromNativeLong",
+                    Object.class, primitiveClass, FromNativeContext.class);
+            emitConvertedResultCast(mv, fromNativeType, Object.class);
+
+        } else if (fromNativeConverter != null) {
             convertPrimitive(mv, nativeClass, unboxedType(fromNativeConverter.nativeType()), fromNativeType.getNativeType());
             boxValue(builder, mv, fromNativeConverter.nativeType(), nativeClass);
 
@@ -534,15 +622,7 @@ final class AsmUtil {
                         fromNativeMethod.getReturnType(), fromNativeMethod.getParameterTypes());
             }
 
-            if (fromNativeType.getDeclaredType().isPrimitive()) {
-                // The actual return type is a primitive, but there was a converter for it - extract the primitive value
-                Class boxedType = getBoxedClass(fromNativeType.getDeclaredType());
-                if (!boxedType.isAssignableFrom(fromNativeMethod.getReturnType())) mv.checkcast(p(boxedType));
-                unboxNumber(mv, boxedType, fromNativeType.getDeclaredType(), fromNativeType.getNativeType());
-
-            } else if (!fromNativeType.getDeclaredType().isAssignableFrom(fromNativeMethod.getReturnType())) {
-                mv.checkcast(p(fromNativeType.getDeclaredType()));
-            }
+            emitConvertedResultCast(mv, fromNativeType, fromNativeMethod.getReturnType());
 
         } else if (!fromNativeType.getDeclaredType().isPrimitive()) {
             Class unboxedType = unboxedType(fromNativeType.getDeclaredType());
@@ -552,6 +632,18 @@ final class AsmUtil {
         }
     }
 
+    private static void emitConvertedResultCast(SkinnyMethodAdapter mv, FromNativeType fromNativeType, Class returnType) {
+        if (fromNativeType.getDeclaredType().isPrimitive()) {
+            // The actual return type is a primitive, but there was a converter for it - extract the primitive value
+            Class boxedType = getBoxedClass(fromNativeType.getDeclaredType());
+            if (!boxedType.isAssignableFrom(returnType)) mv.checkcast(p(boxedType));
+            unboxNumber(mv, boxedType, fromNativeType.getDeclaredType(), fromNativeType.getNativeType());
+
+        } else if (!fromNativeType.getDeclaredType().isAssignableFrom(returnType)) {
+            mv.checkcast(p(fromNativeType.getDeclaredType()));
+        }
+    }
+
     static Method getToNativeMethod(ToNativeType toNativeType, AsmClassLoader classLoader) {
         ToNativeConverter toNativeConverter = toNativeType.getToNativeConverter();
         if (toNativeConverter == null) {
@@ -73,9 +73,11 @@ abstract class BaseMethodGenerator implements MethodGenerator {
         emitToNativeConversion(builder, mv, parameterType);
 
         if (parameterType.getToNativeConverter() != null) {
-            LocalVariable converted = localVariableAllocator.allocate(parameterType.getToNativeConverter().nativeType());
-            mv.astore(converted);
-            mv.aload(converted);
+            Class primitiveClass = AsmUtil.primitiveNativeClass(parameterType.getToNativeConverter());
+            Class convertedClass = primitiveClass != null ? primitiveClass : parameterType.getToNativeConverter().nativeType();
+            LocalVariable converted = localVariableAllocator.allocate(convertedClass);
+            AsmUtil.store(mv, convertedClass, converted);
+            AsmUtil.load(mv, convertedClass, converted);
             return converted;
         }
 
@@ -0,0 +1,418 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.Address;
+import jnr.ffi.Pointer;
+import jnr.ffi.provider.AbstractMemoryIO;
+import jnr.ffi.provider.DelegatingMemoryIO;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import static jnr.ffi.provider.jffi.DirectMemoryIO.IO;
+
+/**
+ * A bounded region of direct memory.
+ * <p>
+ * This is equivalent to a {@link jnr.ffi.provider.BoundedMemoryIO} wrapping a {@link DirectMemoryIO}, but
+ * primitive accesses check bounds once, then access the memory directly instead of going through the
+ * delegate.
+ */
+final class BoundedDirectMemoryIO extends AbstractMemoryIO implements DelegatingMemoryIO {
+    private final DirectMemoryIO io;
+    private final long base, size;
+
+    BoundedDirectMemoryIO(DirectMemoryIO parent, long offset, long size) {
+        super(parent.getRuntime(), parent.address() + offset, true);
+        this.io = parent;
+        this.base = offset;
+        this.size = size;
+    }
+
+    public long size() {
+        return this.size;
+    }
+
+    @Override
+    public boolean hasArray() {
+        return false;
+    }
+
+    @Override
+    public Object array() {
+        throw new UnsupportedOperationException("no array");
+    }
+
+    @Override
+    public int arrayOffset() {
+        throw new UnsupportedOperationException("no array");
+    }
+
+    @Override
+    public int arrayLength() {
+        throw new UnsupportedOperationException("no array");
+    }
+
+    @Override
+    public void checkBounds(long offset, long length) {
+        checkBounds(this.size, offset, length);
+    }
+
+    public Pointer getDelegatedMemoryIO() {
+        return io;
+    }
+
+    @Override
+    public int hashCode() {
+        return io.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return (obj instanceof BoundedDirectMemoryIO && io.equals(((BoundedDirectMemoryIO) obj).io) &&
+                ((BoundedDirectMemoryIO) obj).base == base && ((BoundedDirectMemoryIO) obj).size == size)
+                || io.equals(obj);
+    }
+
+    @Override
+    public byte getByte(long offset) {
+        checkBounds(size, offset, 1);
+        return UnsafeAccess.ENABLED ? UnsafeAccess.getByte(address() + offset) : IO.getByte(address() + offset);
+    }
+
+    @Override
+    public short getShort(long offset) {
+        checkBounds(size, offset, 2);
+        return UnsafeAccess.ENABLED ? UnsafeAccess.getShort(address() + offset) : IO.getShort(address() + offset);
+    }
+
+    @Override
+    public int getInt(long offset) {
+        checkBounds(size, offset, 4);
+        return UnsafeAccess.ENABLED ? UnsafeAccess.getInt(address() + offset) : IO.getInt(address() + offset);
+    }
+
+    @Override
+    public long getLongLong(long offset) {
+        checkBounds(size, offset, 8);
+        return UnsafeAccess.ENABLED ? UnsafeAccess.getLong(address() + offset) : IO.getLong(address() + offset);
+    }
+
+    @Override
+    public float getFloat(long offset) {
+        checkBounds(size, offset, 4);
+        return UnsafeAccess.ENABLED ? UnsafeAccess.getFloat(address() + offset) : IO.getFloat(address() + offset);
+    }
+
+    @Override
+    public double getDouble(long offset) {
+        checkBounds(size, offset, 8);
+        return UnsafeAccess.ENABLED ? UnsafeAccess.getDouble(address() + offset) : IO.getDouble(address() + offset);
+    }
+
+    public Pointer getPointer(long offset) {
+        checkBounds(size, offset, getRuntime().addressSize());
+        return io.getPointer(base + offset);
+    }
+
+    public Pointer getPointer(long offset, long size) {
+        checkBounds(this.size, offset, getRuntime().addressSize());
+        return io.getPointer(base + offset, size);
+    }
+
+    @Override
+    public void putByte(long offset, byte value) {
+        checkBounds(size, offset, 1);
+        if (UnsafeAccess.ENABLED) {
+            UnsafeAccess.putByte(address() + offset, value);
+        } else {
+            IO.putByte(address() + offset, value);
+        }
+    }
+
+    @Override
+    public void putShort(long offset, short value) {
+        checkBounds(size, offset, 2);
+        if (UnsafeAccess.ENABLED) {
+            UnsafeAccess.putShort(address() + offset, value);
+        } else {
+            IO.putShort(address() + offset, value);
+        }
+    }
+
+    @Override
+    public void putInt(long offset, int value) {
+        checkBounds(size, offset, 4);
+        if (UnsafeAccess.ENABLED) {
+            UnsafeAccess.putInt(address() + offset, value);
+        } else {
+            IO.putInt(address() + offset, value);
+        }
+    }
+
+    @Override
+    public void putLongLong(long offset, long value) {
+        checkBounds(size, offset, 8);
+        if (UnsafeAccess.ENABLED) {
+            UnsafeAccess.putLong(address() + offset, value);
+        } else {
+            IO.putLong(address() + offset, value);
+        }
+    }
+
+    @Override
+    public void putFloat(long offset, float value) {
+        checkBounds(size, offset, 4);
+        if (UnsafeAccess.ENABLED) {
+            UnsafeAccess.putFloat(address() + offset, value);
+        } else {
+            IO.putFloat(address() + offset, value);
+        }
+    }
+
+    @Override
+    public void putDouble(long offset, double value) {
+        checkBounds(size, offset, 8);
+        if (UnsafeAccess.ENABLED) {
+            UnsafeAccess.putDouble(address() + offset, value);
+        } else {
+            IO.putDouble(address() + offset, value);
+        }
+    }
+
+    public void putPointer(long offset, Pointer value) {
+        checkBounds(size, offset, getRuntime().addressSize());
+        io.putPointer(base + offset, value);
+    }
+
+    @Override
+    public void get(long offset, byte[] dst, int off, int len) {
+        checkBounds(size, offset, len);
+        io.get(base + offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, byte[] src, int off, int len) {
+        checkBounds(size, offset, len);
+        io.put(base + offset, src, off, len);
+    }
+
+    @Override
+    public void get(long offset, short[] dst, int off, int len) {
+        checkBounds(size, offset, len * Short.SIZE / 8);
+        io.get(base + offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, short[] src, int off, int len) {
+        checkBounds(size, offset, len * Short.SIZE / 8);
+        io.put(base + offset, src, off, len);
+    }
+
+    @Override
+    public void get(long offset, int[] dst, int off, int len) {
+        checkBounds(size, offset, len * Integer.SIZE / 8);
+        io.get(base + offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, int[] src, int off, int len) {
+        checkBounds(size, offset, len * Integer.SIZE / 8);
+        io.put(base + offset, src, off, len);
+    }
+
+    @Override
+    public void get(long offset, long[] dst, int off, int len) {
+        checkBounds(size, offset, len * Long.SIZE / 8);
+        io.get(base + offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, long[] src, int off, int len) {
+        checkBounds(size, offset, len * Long.SIZE / 8);
+        io.put(base + offset, src, off, len);
+    }
+
+    @Override
+    public void get(long offset, float[] dst, int off, int len) {
+        checkBounds(size, offset, len * Float.SIZE / 8);
+        io.get(base + offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, float[] src, int off, int len) {
+        checkBounds(size, offset, len * Float.SIZE / 8);
+        io.put(base + offset, src, off, len);
+    }
+
+    @Override
+    public void get(long offset, double[] dst, int off, int len) {
+        checkBounds(size, offset, len * Double.SIZE / 8);
+        io.get(base + offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, double[] src, int off, int len) {
+        checkBounds(size, offset, len * Double.SIZE / 8);
+        io.put(base + offset, src, off, len);
+    }
+
+    @Override
+    public long getAddress(long offset) {
+        checkBounds(size, offset, getRuntime().addressSize());
+        return io.getAddress(base + offset);
+    }
+
+    @Override
+    public String getString(long offset, int maxLength, Charset cs) {
+        checkBounds(size, offset, maxLength);
+        return io.getString(base + offset, maxLength, cs);
+    }
+
+    @Override
+    public String getString(long offset) {
+        return io.getString(base + offset, (int) size, Charset.defaultCharset());
+    }
+
+    @Override
+    public void putAddress(long offset, long value) {
+        checkBounds(size, offset, getRuntime().addressSize());
+        io.putAddress(base + offset, value);
+    }
+
+    @Override
+    public void putAddress(long offset, Address value) {
+        checkBounds(size, offset, getRuntime().addressSize());
+        io.putAddress(base + offset, value);
+    }
+
+    @Override
+    public void putString(long offset, String string, int maxLength, Charset cs) {
+        checkBounds(size, offset, maxLength);
+        io.putString(base + offset, string, maxLength, cs);
+    }
+
+    @Override
+    public int indexOf(long offset, byte value) {
+        return io.indexOf(base + offset, value, (int) size);
+    }
+
+    @Override
+    public int indexOf(long offset, byte value, int maxlen) {
+        checkBounds(size, offset, maxlen);
+        return io.indexOf(base + offset, value, maxlen);
+    }
+
+    @Override
+    public int getIntVolatile(long offset) {
+        checkBounds(size, offset, 4);
+        return io.getIntVolatile(base + offset);
+    }
+
+    @Override
+    public void putIntVolatile(long offset, int value) {
+        checkBounds(size, offset, 4);
+        io.putIntVolatile(base + offset, value);
+    }
+
+    @Override
+    public void putIntOrdered(long offset, int value) {
+        checkBounds(size, offset, 4);
+        io.putIntOrdered(base + offset, value);
+    }
+
+    @Override
+    public boolean compareAndSwapInt(long offset, int expected, int value) {
+        checkBounds(size, offset, 4);
+        return io.compareAndSwapInt(base + offset, expected, value);
+    }
+
+    @Override
+    public int getAndAddInt(long offset, int delta) {
+        checkBounds(size, offset, 4);
+        return io.getAndAddInt(base + offset, delta);
+    }
+
+    @Override
+    public long getLongVolatile(long offset) {
+        checkBounds(size, offset, 8);
+        return io.getLongVolatile(base + offset);
+    }
+
+    @Override
+    public void putLongVolatile(long offset, long value) {
+        checkBounds(size, offset, 8);
+        io.putLongVolatile(base + offset, value);
+    }
+
+    @Override
+    public void putLongOrdered(long offset, long value) {
+        checkBounds(size, offset, 8);
+        io.putLongOrdered(base + offset, value);
+    }
+
+    @Override
+    public boolean compareAndSwapLong(long offset, long expected, long value) {
+        checkBounds(size, offset, 8);
+        return io.compareAndSwapLong(base + offset, expected, value);
+    }
+
+    @Override
+    public long getAndAddLong(long offset, long delta) {
+        checkBounds(size, offset, 8);
+        return io.getAndAddLong(base + offset, delta);
+    }
+
+    @Override
+    public void setMemory(long offset, long size, byte value) {
+        checkBounds(this.size, offset, size);
+        io.setMemory(base + offset, size, value);
+    }
+
+    @Override
+    public void transferFrom(long offset, Pointer other, long otherOffset, long count) {
+        checkBounds(this.size, offset, count);
+        io.transferFrom(base + offset, other, otherOffset, count);
+    }
+
+    @Override
+    public void transferTo(long offset, Pointer other, long otherOffset, long count) {
+        checkBounds(this.size, offset, count);
+        io.transferTo(base + offset, other, otherOffset, count);
+    }
+
+    @Override
+    public AbstractMemoryIO slice(long offset, long size) {
+        checkBounds(this.size, offset, size);
+        return new BoundedDirectMemoryIO(io, base + offset, size);
+    }
+
+    @Override
+    public ByteBuffer asByteBuffer(long offset, int length) {
+        checkBounds(size, offset, length);
+        return io.asByteBuffer(base + offset, length);
+    }
+
+    @Override
+    public Pointer uncheckedSlice(long offset, long size) {
+        checkBounds(this.size, offset, size);
+        return new DirectMemoryIO.UncheckedDirectMemoryIO(io, address() + offset, size);
+    }
+}
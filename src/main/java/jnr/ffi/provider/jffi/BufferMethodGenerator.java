@@ -23,6 +23,7 @@ import com.kenai.jffi.HeapInvocationBuffer;
 import com.kenai.jffi.Invoker;
 import com.kenai.jffi.ObjectParameterStrategy;
 import jnr.ffi.NativeType;
+import jnr.ffi.Pointer;
 import jnr.ffi.provider.InvocationSession;
 import jnr.ffi.CallingConvention;
 import jnr.ffi.provider.ParameterType;
@@ -179,7 +180,11 @@ final class BufferMethodGenerator extends BaseMethodGenerator {
 
             final Class javaParameterType = parameterTypes[i].effectiveJavaType();
             ToNativeOp op = ToNativeOp.get(parameterTypes[i]);
-            if (op != null && op.isPrimitive()) {
+            if (parameterTypes[i].getNativeType() == NativeType.STRUCT) {
+                mv.pushInt(callContext.getParameterType(i).size());
+                mv.invokestatic(AsmRuntime.class, "putStruct", void.class, HeapInvocationBuffer.class, Pointer.class, int.class);
+
+            } else if (op != null && op.isPrimitive()) {
                 emitPrimitiveOp(mv, parameterTypes[i], op);
 
             } else if (hasPointerParameterStrategy(javaParameterType)) {
@@ -196,15 +201,21 @@ final class BufferMethodGenerator extends BaseMethodGenerator {
             }
         }
 
-        InvokeOp iop = invokeOps.get(resultType.getNativeType());
-        if (iop == null) {
-            throw new IllegalArgumentException("unsupported return type " + resultType.getDeclaredType());
-        }
+        if (resultType.getNativeType() == NativeType.STRUCT) {
+            // The struct is returned in a new byte array, which the result converter wraps
+            mv.invokevirtual(Invoker.class, "invokeStruct", byte[].class, CallContext.class, long.class, HeapInvocationBuffer.class);
+
+        } else {
+            InvokeOp iop = invokeOps.get(resultType.getNativeType());
+            if (iop == null) {
+                throw new IllegalArgumentException("unsupported return type " + resultType.getDeclaredType());
+            }
 
-        mv.invokevirtual(Invoker.class, iop.methodName, iop.primitiveClass, CallContext.class, long.class, HeapInvocationBuffer.class);
+            mv.invokevirtual(Invoker.class, iop.methodName, iop.primitiveClass, CallContext.class, long.class, HeapInvocationBuffer.class);
 
-        // box and/or narrow/widen the return value if needed
-        convertPrimitive(mv, iop.primitiveClass, unboxedReturnType(resultType.effectiveJavaType()), resultType.getNativeType());
+            // box and/or narrow/widen the return value if needed
+            convertPrimitive(mv, iop.primitiveClass, unboxedReturnType(resultType.effectiveJavaType()), resultType.getNativeType());
+        }
         emitEpilogue(builder, mv, resultType, parameterTypes, parameters, converted, sessionRequired ? new Runnable() {
             public void run() {
                 mv.aload(session);
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.util.ref.FinalizableWeakReference;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the memory of a {@link ByteBuffer} created over native memory alive, for as long as the buffer is reachable.
+ */
+final class BufferOwner extends FinalizableWeakReference<ByteBuffer> {
+    /** Keeps strong references to the owners until their buffers are collected */
+    @SuppressWarnings("MismatchedQueryAndUpdateOfCollection")
+    private static final Map<BufferOwner, Boolean> referenceSet = new ConcurrentHashMap<BufferOwner, Boolean>();
+
+    @SuppressWarnings("unused")
+    private final Object owner;
+
+    private BufferOwner(ByteBuffer buffer, Object owner) {
+        super(buffer, NativeFinalizer.getInstance().getFinalizerQueue());
+        this.owner = owner;
+    }
+
+    static ByteBuffer attach(ByteBuffer buffer, Object owner) {
+        referenceSet.put(new BufferOwner(buffer, owner), Boolean.TRUE);
+        return buffer;
+    }
+
+    public void finalizeReferent() {
+        referenceSet.remove(this);
+    }
+}
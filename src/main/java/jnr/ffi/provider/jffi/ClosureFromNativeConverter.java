@@ -31,13 +31,13 @@ import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 
 import java.io.PrintWriter;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static jnr.ffi.provider.jffi.ClosureUtil.getDelegateMethod;
 import static jnr.ffi.provider.jffi.CodegenUtils.*;
 import static jnr.ffi.provider.jffi.InvokerUtil.*;
+import static jnr.ffi.provider.jffi.Util.getIntegerProperty;
 import static org.objectweb.asm.Opcodes.*;
 
 /**
@@ -53,27 +53,66 @@ abstract public class ClosureFromNativeConverter implements FromNativeConverter<
         return newClosureConverter(runtime, classLoader, type.getDeclaredType(), typeMapper);
     }
 
+    /**
+     * The number of function pointer wrappers each converter caches.  Set to 0 to create a new wrapper
+     * every time a function pointer is converted.
+     */
+    private static final int CACHE_SIZE = getIntegerProperty("jnr.ffi.closure.cache.size", 64);
+
     public static final class ProxyConverter extends ClosureFromNativeConverter {
         private final jnr.ffi.Runtime runtime;
-        private final Constructor closureConstructor;
+        private final ClosureFactory factory;
         private final Object[] initFields;
+        private final CacheEntry[] cache;
 
-        public ProxyConverter(jnr.ffi.Runtime runtime, Constructor closureConstructor, Object[] initFields) {
+        public ProxyConverter(jnr.ffi.Runtime runtime, ClosureFactory factory, Object[] initFields) {
             this.runtime = runtime;
-            this.closureConstructor = closureConstructor;
+            this.factory = factory;
             this.initFields = initFields.clone();
+            this.cache = CACHE_SIZE > 0 ? new CacheEntry[CACHE_SIZE > 1 ? Integer.highestOneBit(CACHE_SIZE - 1) << 1 : 1] : null;
         }
 
         @Override
         public Object fromNative(Pointer nativeValue, FromNativeContext context) {
-            try {
-                return closureConstructor.newInstance(runtime, nativeValue.address(), initFields);
-            } catch (Throwable t) {
-                throw new RuntimeException(t);
+            if (nativeValue == null) {
+                return null;
+            }
+
+            final long address = nativeValue.address();
+            if (cache == null) {
+                return factory.newClosure(runtime, address, initFields);
             }
+
+            // Wrappers only hold the function address, so any wrapper for an address can stand in for another
+            final int index = (int) ((address ^ (address >>> 17)) >>> 3) & (cache.length - 1);
+            CacheEntry entry = cache[index];
+            if (entry != null && entry.address == address) {
+                return entry.closure;
+            }
+
+            Object closure = factory.newClosure(runtime, address, initFields);
+            cache[index] = new CacheEntry(address, closure);
+            return closure;
+        }
+    }
+
+    private static final class CacheEntry {
+        final long address;
+        final Object closure;
+
+        CacheEntry(long address, Object closure) {
+            this.address = address;
+            this.closure = closure;
         }
     }
 
+    /**
+     * Creates function pointer wrappers without reflection.  Subclasses are generated for each wrapper class.
+     */
+    public static abstract class ClosureFactory {
+        public abstract Object newClosure(jnr.ffi.Runtime runtime, long functionAddress, Object[] initFields);
+    }
+
     public static abstract class AbstractClosurePointer extends InAccessibleMemoryIO {
         public static final com.kenai.jffi.Invoker ffi = com.kenai.jffi.Invoker.getInstance();
         protected final long functionAddress;
@@ -121,14 +160,47 @@ abstract public class ClosureFromNativeConverter implements FromNativeConverter<
         init.visitMaxs(10, 10);
         init.visitEnd();
 
-        Class implClass = loadClass(classLoader, className, cw);
+        loadClass(classLoader, className, cw);
         try {
-            return new ProxyConverter(runtime, implClass.getConstructor(jnr.ffi.Runtime.class, long.class, Object[].class), builder.getObjectFieldValues());
+            return new ProxyConverter(runtime, newClosureFactory(classLoader, className), builder.getObjectFieldValues());
         } catch (Throwable ex) {
             throw new RuntimeException(ex);
         }
     }
 
+    private static ClosureFactory newClosureFactory(AsmClassLoader classLoader, String closureClassName) throws Exception {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        ClassVisitor cv = AsmLibraryLoader.DEBUG ? AsmUtil.newCheckClassAdapter(cw) : cw;
+        final String className = closureClassName + "$Factory";
+
+        cv.visit(V1_6, ACC_PUBLIC | ACC_FINAL, className, null, p(ClosureFactory.class), new String[0]);
+
+        SkinnyMethodAdapter init = new SkinnyMethodAdapter(cv, ACC_PUBLIC, "<init>", sig(void.class), null, null);
+        init.start();
+        init.aload(0);
+        init.invokespecial(p(ClosureFactory.class), "<init>", sig(void.class));
+        init.voidreturn();
+        init.visitMaxs(10, 10);
+        init.visitEnd();
+
+        SkinnyMethodAdapter mv = new SkinnyMethodAdapter(cv, ACC_PUBLIC | ACC_FINAL, "newClosure",
+                sig(Object.class, jnr.ffi.Runtime.class, long.class, Object[].class), null, null);
+        mv.start();
+        mv.newobj(closureClassName);
+        mv.dup();
+        mv.aload(1);
+        mv.lload(2);
+        mv.aload(4);
+        mv.invokespecial(closureClassName, "<init>", sig(void.class, jnr.ffi.Runtime.class, long.class, Object[].class));
+        mv.areturn();
+        mv.visitMaxs(10, 10);
+        mv.visitEnd();
+
+        cv.visitEnd();
+
+        return (ClosureFactory) loadClass(classLoader, className, cw).getDeclaredConstructor().newInstance();
+    }
+
     private static Class loadClass(AsmClassLoader classLoader, String className, ClassWriter cw) {
         try {
             byte[] bytes = cw.toByteArray();
@@ -18,11 +18,13 @@
 
 package jnr.ffi.provider.jffi;
 
+import static jnr.ffi.provider.jffi.InvokerUtil.getBlockingCallExecutor;
 import static jnr.ffi.provider.jffi.InvokerUtil.getCallContext;
 import static jnr.ffi.provider.jffi.InvokerUtil.getParameterTypes;
 import static jnr.ffi.provider.jffi.InvokerUtil.getResultType;
 import static jnr.ffi.provider.jffi.NumberUtil.getBoxedClass;
 import static jnr.ffi.provider.jffi.NumberUtil.sizeof;
+import static jnr.ffi.provider.jffi.Util.getBooleanProperty;
 import static jnr.ffi.util.Annotations.sortedAnnotationCollection;
 
 import java.lang.annotation.Annotation;
@@ -39,6 +41,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import jnr.ffi.Address;
 import jnr.ffi.CallingConvention;
@@ -47,7 +50,9 @@ import jnr.ffi.LibraryOption;
 import jnr.ffi.NativeType;
 import jnr.ffi.Pointer;
 import jnr.ffi.Runtime;
+import jnr.ffi.annotations.Blocking;
 import jnr.ffi.annotations.Meta;
+import jnr.ffi.annotations.ReuseResult;
 import jnr.ffi.annotations.StdCall;
 import jnr.ffi.annotations.Synchronized;
 import jnr.ffi.mapper.DataConverter;
@@ -68,6 +73,8 @@ import jnr.ffi.provider.ParameterType;
 import jnr.ffi.provider.ResultType;
 import jnr.ffi.provider.SigType;
 import jnr.ffi.util.AnnotationProxy;
+import jnr.ffi.util.BlockingCallExecutor;
+import jnr.ffi.util.LockRegistry;
 
 import com.kenai.jffi.Function;
 import com.kenai.jffi.HeapInvocationBuffer;
@@ -75,12 +82,17 @@ import com.kenai.jffi.ObjectParameterStrategy;
 import com.kenai.jffi.ObjectParameterType;
 
 final class DefaultInvokerFactory {
+    private static final boolean METHOD_HANDLES_ENABLED = getBooleanProperty("jnr.ffi.methodhandles.enabled", true)
+            && isMethodHandleAvailable();
+
     private final Runtime runtime;
     private final NativeLibrary library;
     private final SignatureTypeMapper typeMapper;
     private final FunctionMapper functionMapper;
     private final jnr.ffi.CallingConvention libraryCallingConvention;
-    private final boolean libraryIsSynchronized;
+    private final Synchronized librarySynchronized;
+    private final LockRegistry locks;
+    private final boolean libraryIsBlocking;
     private final Map<LibraryOption, ?> libraryOptions;
 
     public DefaultInvokerFactory(
@@ -90,18 +102,28 @@ final class DefaultInvokerFactory {
             FunctionMapper functionMapper,
             CallingConvention libraryCallingConvention,
             Map<LibraryOption, ?> libraryOptions,
-            boolean libraryIsSynchronized) {
+            Synchronized librarySynchronized,
+            LockRegistry locks,
+            boolean libraryIsBlocking) {
         super();
         this.runtime = runtime;
         this.library = library;
         this.typeMapper = typeMapper;
         this.functionMapper = functionMapper;
         this.libraryCallingConvention = libraryCallingConvention;
-        this.libraryIsSynchronized = libraryIsSynchronized;
+        this.librarySynchronized = librarySynchronized;
+        this.locks = locks;
+        this.libraryIsBlocking = libraryIsBlocking;
         this.libraryOptions = libraryOptions;
     }
 
     public Invoker createInvoker(Method method) {
+        boolean blocking = libraryIsBlocking || method.isAnnotationPresent(Blocking.class);
+        if (blocking && method.isAnnotationPresent(ReuseResult.class)) {
+            // The result is converted on the executor thread, so the per-thread struct would be shared by all callers
+            throw new IllegalArgumentException("@ReuseResult cannot be used on a blocking method: " + method);
+        }
+
         Collection<Annotation> annotations = sortedAnnotationCollection(method.getAnnotations());
         String functionName = functionMapper.mapFunctionName(method.getName(), new NativeFunctionMapperContext(library, annotations));
         long functionAddress = library.getSymbolAddress(functionName);
@@ -134,25 +156,54 @@ final class DefaultInvokerFactory {
             Function function = new Function(functionAddress,
                     getCallContext(resultType, parameterTypes, callingConvention, saveError));
 
-            Marshaller[] marshallers = new Marshaller[parameterTypes.length];
-            for (int i = 0; i < marshallers.length; ++i) {
-                marshallers[i] = getMarshaller(parameterTypes[i]);
-            }
+            // Integer-only signatures can be composed from method handles, avoiding the boxed marshalling below
+            invoker = METHOD_HANDLES_ENABLED
+                    ? MethodHandleInvokerFactory.createInvoker(runtime, function, resultType, parameterTypes, callingConvention, saveError)
+                    : null;
+
+            if (invoker == null) {
+                Marshaller[] marshallers = new Marshaller[parameterTypes.length];
+                for (int i = 0; i < marshallers.length; ++i) {
+                    marshallers[i] = getMarshaller(parameterTypes[i]);
+                }
 
-            return new DefaultInvoker(runtime, library, function, functionInvoker, marshallers);
+                invoker = new DefaultInvoker(runtime, library, function, functionInvoker, marshallers);
+            }
         }
 
         //
         // If either the method or the library is specified as requiring
         // synchronization, then wrap the raw invoker in a synchronized proxy
         //
-        return libraryIsSynchronized || method.isAnnotationPresent(Synchronized.class)
-                ? new SynchronizedInvoker(invoker) : invoker;
+        FunctionLock lock = FunctionLock.getFunctionLock(method, librarySynchronized, locks);
+        if (lock != null) {
+            invoker = new SynchronizedInvoker(invoker, lock);
+        }
+
+        //
+        // Blocking calls are run on a separate thread, which also acquires any lock
+        //
+        return blocking
+                ? new BlockingInvoker(runtime, invoker, getBlockingCallExecutor(libraryOptions), functionName)
+                : invoker;
+    }
+
+    private static boolean isMethodHandleAvailable() {
+        try {
+            Class.forName("java.lang.invoke.MethodHandle");
+            return true;
+
+        } catch (Throwable t) {
+            return false;
+        }
     }
 
     private static FunctionInvoker getFunctionInvoker(ResultType resultType) {
         Class returnType = resultType.effectiveJavaType();
-        if (Void.class.isAssignableFrom(returnType) || void.class == returnType) {
+        if (resultType.getNativeType() == NativeType.STRUCT) {
+            return StructInvoker.INSTANCE;
+
+        } else if (Void.class.isAssignableFrom(returnType) || void.class == returnType) {
             return VoidInvoker.INSTANCE;
         
         } else if (Boolean.class.isAssignableFrom(returnType) || boolean.class == returnType) {
@@ -196,7 +247,9 @@ final class DefaultInvokerFactory {
     }
 
     static Marshaller getMarshaller(ParameterType parameterType) {
-        Marshaller marshaller = getMarshaller(parameterType.effectiveJavaType(), parameterType.getNativeType(), parameterType.getAnnotations());
+        Marshaller marshaller = parameterType.getNativeType() == NativeType.STRUCT
+                ? new StructMarshaller(InvokerUtil.jffiType(parameterType).size())
+                : getMarshaller(parameterType.effectiveJavaType(), parameterType.getNativeType(), parameterType.getAnnotations());
         return parameterType.getToNativeConverter() != null
             ? new ToNativeConverterMarshaller(parameterType.getToNativeConverter(), parameterType.getToNativeContext(), marshaller)
             : marshaller;
@@ -373,7 +426,7 @@ final class DefaultInvokerFactory {
                     getCallContext(resultType, argTypes, variableArgsCount + fixedParameterTypes.length - 1, callingConvention, requiresErrno));
             HeapInvocationBuffer buffer = new HeapInvocationBuffer(function.getCallContext());
 
-            InvocationSession session = new InvocationSession();
+            InvocationSession session = acquireSession();
             try {
                 if (parameters != null) for (int i = 0; i < parameters.length - 1; ++i) {
                     getMarshaller(argTypes[i]).marshal(session, buffer, parameters[i]);
@@ -385,7 +438,7 @@ final class DefaultInvokerFactory {
 
                 return functionInvoker.invoke(runtime, function, buffer);
             } finally {
-                session.finish();
+                releaseSession(session);
             }
         }
         
@@ -414,6 +467,7 @@ final class DefaultInvokerFactory {
         final FunctionInvoker functionInvoker;
         final Marshaller[] marshallers;
         final NativeLibrary nativeLibrary;
+        private final boolean sessionRequired;
 
         DefaultInvoker(jnr.ffi.Runtime runtime, NativeLibrary nativeLibrary, Function function, FunctionInvoker invoker, Marshaller[] marshallers) {
             this.runtime = runtime;
@@ -421,11 +475,20 @@ final class DefaultInvokerFactory {
             this.function = function;
             this.functionInvoker = invoker;
             this.marshallers = marshallers;
+            this.sessionRequired = isSessionRequired(marshallers);
         }
 
         public final Object invoke(Object self, Object[] parameters) {
-            InvocationSession session = new InvocationSession();
             HeapInvocationBuffer buffer = new HeapInvocationBuffer(function.getCallContext());
+            if (!sessionRequired) {
+                if (parameters != null) for (int i = 0; i < parameters.length; ++i) {
+                    marshallers[i].marshal(null, buffer, parameters[i]);
+                }
+
+                return functionInvoker.invoke(runtime, function, buffer);
+            }
+
+            InvocationSession session = acquireSession();
             try {
                 if (parameters != null) for (int i = 0; i < parameters.length; ++i) {
                     marshallers[i].marshal(session, buffer, parameters[i]);
@@ -433,21 +496,117 @@ final class DefaultInvokerFactory {
 
                 return functionInvoker.invoke(runtime, function, buffer);
             } finally {
-                session.finish();
+                releaseSession(session);
+            }
+        }
+
+        private static boolean isSessionRequired(Marshaller[] marshallers) {
+            for (Marshaller marshaller : marshallers) {
+                if (marshaller instanceof ToNativeConverterMarshaller) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * A session cached per thread, so most calls needing a session do not allocate one.
+     */
+    private static final class ThreadSession extends InvocationSession {
+        private boolean inUse;
+    }
+
+    private static final ThreadLocal<ThreadSession> threadSession = new ThreadLocal<ThreadSession>() {
+        @Override
+        protected ThreadSession initialValue() {
+            return new ThreadSession();
+        }
+    };
+
+    static InvocationSession acquireSession() {
+        ThreadSession session = threadSession.get();
+        if (session.inUse) {
+            // A callback invoked during the native call has called back into native code
+            return new InvocationSession();
+        }
+
+        session.inUse = true;
+        return session;
+    }
+
+    static void releaseSession(InvocationSession session) {
+        try {
+            session.finish();
+        } finally {
+            if (session instanceof ThreadSession) {
+                ((ThreadSession) session).inUse = false;
             }
         }
     }
 
+    private static final class BlockingInvoker implements Invoker {
+        private final Runtime runtime;
+        private final Invoker invoker;
+        private final BlockingCallExecutor executor;
+        private final String functionName;
+
+        public BlockingInvoker(Runtime runtime, Invoker invoker, BlockingCallExecutor executor, String functionName) {
+            this.runtime = runtime;
+            this.invoker = invoker;
+            this.executor = executor;
+            this.functionName = functionName;
+        }
+
+        public Object invoke(final Object self, final Object[] parameters) {
+            BlockingCall call = executor.execute(functionName, new BlockingCall(invoker, self, parameters, runtime));
+            runtime.setLastError(call.lastError);
+            return call.result;
+        }
+    }
+
+    /**
+     * Performs a blocking call, and captures the errno of the executing thread, so
+     * it can be restored on the calling thread.
+     */
+    private static final class BlockingCall implements Callable<BlockingCall> {
+        private final Invoker invoker;
+        private final Object self;
+        private final Object[] parameters;
+        private final Runtime runtime;
+        private Object result;
+        private int lastError;
+
+        BlockingCall(Invoker invoker, Object self, Object[] parameters, Runtime runtime) {
+            this.invoker = invoker;
+            this.self = self;
+            this.parameters = parameters;
+            this.runtime = runtime;
+        }
+
+        public BlockingCall call() {
+            result = invoker.invoke(self, parameters);
+            lastError = runtime.getLastError();
+            return this;
+        }
+    }
+
     private static final class SynchronizedInvoker implements Invoker {
         private final Invoker invoker;
-        public SynchronizedInvoker(Invoker invoker) {
+        private final FunctionLock lock;
+
+        public SynchronizedInvoker(Invoker invoker, FunctionLock lock) {
             this.invoker = invoker;
+            this.lock = lock;
         }
 
-        @SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
         public Object invoke(Object self, Object[] parameters) {
-            synchronized (self) {
+            lock.lock();
+            try {
                 return invoker.invoke(self, parameters);
+            } finally {
+                lock.unlock();
             }
         }
     }
@@ -467,6 +626,10 @@ final class DefaultInvokerFactory {
         }
     }
 
+    /**
+     * Marshals a parameter into the invocation buffer.  The session is null when none of the marshallers
+     * for a function needs one.
+     */
     static interface Marshaller {
         public abstract void marshal(InvocationSession session, HeapInvocationBuffer buffer, Object parameter);
     }
@@ -544,6 +707,13 @@ final class DefaultInvokerFactory {
         }
     }
 
+    static class StructInvoker extends BaseInvoker {
+        static final FunctionInvoker INSTANCE = new StructInvoker();
+        public final Object invoke(Runtime runtime, Function function, HeapInvocationBuffer buffer) {
+            return invoker.invokeStruct(function, buffer);
+        }
+    }
+
     /* ---------------------------------------------------------------------- */
     static class BooleanMarshaller implements Marshaller {
         static final Marshaller INSTANCE = new BooleanMarshaller();
@@ -619,6 +789,18 @@ final class DefaultInvokerFactory {
         }
     }
 
+    static class StructMarshaller implements Marshaller {
+        private final int size;
+
+        StructMarshaller(int size) {
+            this.size = size;
+        }
+
+        public void marshal(InvocationSession session, HeapInvocationBuffer buffer, Object parameter) {
+            AsmRuntime.putStruct(buffer, (Pointer) parameter, size);
+        }
+    }
+
     static class PrimitiveArrayMarshaller implements Marshaller {
         private final PrimitiveArrayParameterStrategy strategy;
         private final int flags;
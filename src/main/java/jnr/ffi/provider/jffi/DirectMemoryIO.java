@@ -29,6 +29,7 @@ import java.nio.charset.Charset;
 
 class DirectMemoryIO extends AbstractMemoryIO {
     static final com.kenai.jffi.MemoryIO IO = com.kenai.jffi.MemoryIO.getInstance();
+
     DirectMemoryIO(Runtime runtime, long address) {
         super(runtime, address, true);
     }
@@ -74,51 +75,75 @@ class DirectMemoryIO extends AbstractMemoryIO {
 
 
     public final byte getByte(long offset) {
-        return IO.getByte(address() + offset);
+        return UnsafeAccess.ENABLED ? UnsafeAccess.getByte(address() + offset) : IO.getByte(address() + offset);
     }
 
     public final short getShort(long offset) {
-        return IO.getShort(address() + offset);
+        return UnsafeAccess.ENABLED ? UnsafeAccess.getShort(address() + offset) : IO.getShort(address() + offset);
     }
 
     public final int getInt(long offset) {
-        return IO.getInt(address() + offset);
+        return UnsafeAccess.ENABLED ? UnsafeAccess.getInt(address() + offset) : IO.getInt(address() + offset);
     }
 
     public final long getLongLong(long offset) {
-        return IO.getLong(address() + offset);
+        return UnsafeAccess.ENABLED ? UnsafeAccess.getLong(address() + offset) : IO.getLong(address() + offset);
     }
 
     public final float getFloat(long offset) {
-        return IO.getFloat(address() + offset);
+        return UnsafeAccess.ENABLED ? UnsafeAccess.getFloat(address() + offset) : IO.getFloat(address() + offset);
     }
 
     public final double getDouble(long offset) {
-        return IO.getDouble(address() + offset);
+        return UnsafeAccess.ENABLED ? UnsafeAccess.getDouble(address() + offset) : IO.getDouble(address() + offset);
     }
 
     public final void putByte(long offset, byte value) {
-        IO.putByte(address() + offset, value);
+        if (UnsafeAccess.ENABLED) {
+            UnsafeAccess.putByte(address() + offset, value);
+        } else {
+            IO.putByte(address() + offset, value);
+        }
     }
 
     public final void putShort(long offset, short value) {
-        IO.putShort(address() + offset, value);
+        if (UnsafeAccess.ENABLED) {
+            UnsafeAccess.putShort(address() + offset, value);
+        } else {
+            IO.putShort(address() + offset, value);
+        }
     }
 
     public final void putInt(long offset, int value) {
-        IO.putInt(address() + offset, value);
+        if (UnsafeAccess.ENABLED) {
+            UnsafeAccess.putInt(address() + offset, value);
+        } else {
+            IO.putInt(address() + offset, value);
+        }
     }
     
     public final void putLongLong(long offset, long value) {
-        IO.putLong(address() + offset, value);
+        if (UnsafeAccess.ENABLED) {
+            UnsafeAccess.putLong(address() + offset, value);
+        } else {
+            IO.putLong(address() + offset, value);
+        }
     }
 
     public final void putFloat(long offset, float value) {
-        IO.putFloat(address() + offset, value);
+        if (UnsafeAccess.ENABLED) {
+            UnsafeAccess.putFloat(address() + offset, value);
+        } else {
+            IO.putFloat(address() + offset, value);
+        }
     }
 
     public final void putDouble(long offset, double value) {
-        IO.putDouble(address() + offset, value);
+        if (UnsafeAccess.ENABLED) {
+            UnsafeAccess.putDouble(address() + offset, value);
+        } else {
+            IO.putDouble(address() + offset, value);
+        }
     }
 
     public final void get(long offset, byte[] dst, int off, int len) {
@@ -206,10 +231,110 @@ class DirectMemoryIO extends AbstractMemoryIO {
         return (int) IO.indexOf(address() + offset, value, maxlen);
     }
 
+    @Override
+    public int getIntVolatile(long offset) {
+        long address = aligned(offset, 4);
+        return UnsafeAccess.ENABLED ? UnsafeAccess.getIntVolatile(address) : super.getIntVolatile(offset);
+    }
+
+    @Override
+    public void putIntVolatile(long offset, int value) {
+        long address = aligned(offset, 4);
+        if (UnsafeAccess.ENABLED) {
+            UnsafeAccess.putIntVolatile(address, value);
+        } else {
+            super.putIntVolatile(offset, value);
+        }
+    }
+
+    @Override
+    public void putIntOrdered(long offset, int value) {
+        long address = aligned(offset, 4);
+        if (UnsafeAccess.ENABLED) {
+            UnsafeAccess.putOrderedInt(address, value);
+        } else {
+            super.putIntOrdered(offset, value);
+        }
+    }
+
+    @Override
+    public boolean compareAndSwapInt(long offset, int expected, int value) {
+        long address = aligned(offset, 4);
+        return UnsafeAccess.ENABLED
+                ? UnsafeAccess.compareAndSwapInt(address, expected, value)
+                : super.compareAndSwapInt(offset, expected, value);
+    }
+
+    @Override
+    public long getLongVolatile(long offset) {
+        long address = aligned(offset, 8);
+        return UnsafeAccess.ENABLED ? UnsafeAccess.getLongVolatile(address) : super.getLongVolatile(offset);
+    }
+
+    @Override
+    public void putLongVolatile(long offset, long value) {
+        long address = aligned(offset, 8);
+        if (UnsafeAccess.ENABLED) {
+            UnsafeAccess.putLongVolatile(address, value);
+        } else {
+            super.putLongVolatile(offset, value);
+        }
+    }
+
+    @Override
+    public void putLongOrdered(long offset, long value) {
+        long address = aligned(offset, 8);
+        if (UnsafeAccess.ENABLED) {
+            UnsafeAccess.putOrderedLong(address, value);
+        } else {
+            super.putLongOrdered(offset, value);
+        }
+    }
+
+    @Override
+    public boolean compareAndSwapLong(long offset, long expected, long value) {
+        long address = aligned(offset, 8);
+        return UnsafeAccess.ENABLED
+                ? UnsafeAccess.compareAndSwapLong(address, expected, value)
+                : super.compareAndSwapLong(offset, expected, value);
+    }
+
+    /** Atomic accesses to misaligned memory are either not atomic, or fault, depending on the cpu */
+    private long aligned(long offset, int size) {
+        long address = address() + offset;
+        if ((address & (size - 1)) != 0) {
+            throw new IllegalArgumentException("address 0x" + Long.toHexString(address) + " is not aligned to " + size + " bytes");
+        }
+
+        return address;
+    }
+
     public final void setMemory(long offset, long size, byte value) {
         IO.setMemory(this.address() + offset, size, value);
     }
 
+    @Override
+    public AbstractMemoryIO slice(long offset, long size) {
+        return new BoundedDirectMemoryIO(this, offset, size);
+    }
+
+    @Override
+    public Pointer uncheckedSlice(long offset, long size) {
+        checkBounds(offset, size);
+        return new UncheckedDirectMemoryIO(this, address() + offset, size);
+    }
+
+    @Override
+    public ByteBuffer asByteBuffer(long offset, int length) {
+        checkBounds(offset, length);
+        ByteBuffer buffer = IO.newDirectByteBuffer(address() + offset, length);
+        if (buffer == null) {
+            throw new UnsupportedOperationException("direct buffers are not supported by the JVM");
+        }
+
+        return BufferOwner.attach(buffer, this).order(getRuntime().byteOrder());
+    }
+
     @Override
     public void transferTo(long offset, Pointer other, long otherOffset, long count) {
         Pointer dst = other instanceof DelegatingMemoryIO ? ((DelegatingMemoryIO) other).getDelegatedMemoryIO() : other;
@@ -237,4 +362,24 @@ class DirectMemoryIO extends AbstractMemoryIO {
     private static void memcpy(DirectMemoryIO src, long srcOffset, DirectMemoryIO dst, long dstOffset, long count) {
         IO.memcpy(dst.address() + dstOffset, src.address() + srcOffset, count);
     }
+
+    /**
+     * A region of direct memory which has already been bounds checked.
+     */
+    static final class UncheckedDirectMemoryIO extends DirectMemoryIO {
+        @SuppressWarnings("unused")
+        private final Pointer owner; // keeps the memory alive
+        private final long size;
+
+        UncheckedDirectMemoryIO(Pointer owner, long address, long size) {
+            super(owner.getRuntime(), address);
+            this.owner = owner;
+            this.size = size;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+    }
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.annotations.Synchronized;
+import jnr.ffi.util.LockRegistry;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * The lock acquired around calls to a {@link Synchronized} library method.
+ */
+public final class FunctionLock {
+    private final Lock lock;
+    private final String name;
+    private final long timeout;
+
+    FunctionLock(Lock lock, String name, long timeout) {
+        this.lock = lock;
+        this.name = name;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Gets the lock for a library method.
+     *
+     * @param method The library method.
+     * @param librarySynchronized The {@link Synchronized} annotation on the library interface, or null.
+     * @param locks The library's locks.
+     * @return The lock to acquire around calls to the method, or null if it is not synchronized.
+     */
+    static FunctionLock getFunctionLock(Method method, Synchronized librarySynchronized, LockRegistry locks) {
+        Synchronized s = method.getAnnotation(Synchronized.class);
+        if (s == null) {
+            s = librarySynchronized;
+        }
+
+        if (s == null) {
+            return null;
+        }
+
+        String name = Synchronized.FUNCTION.equals(s.value()) ? getFunctionLockName(method) : s.value();
+        return new FunctionLock(locks.getLock(name), name, s.timeout());
+    }
+
+    /**
+     * Gets the name of the {@link Synchronized#FUNCTION} lock for a method.  The name is prefixed with
+     * {@link Synchronized#FUNCTION}, so it cannot collide with a group name, and includes the parameter types,
+     * so overloads of a method do not share a lock.
+     *
+     * @param method The library method.
+     * @return The lock name, e.g. {@code <function>add(int,int)}.
+     */
+    static String getFunctionLockName(Method method) {
+        StringBuilder sb = new StringBuilder(Synchronized.FUNCTION).append(method.getName()).append('(');
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(parameterTypes[i].getName());
+        }
+
+        return sb.append(')').toString();
+    }
+
+    public void lock() {
+        if (timeout < 0) {
+            lock.lock();
+            return;
+        }
+
+        boolean locked;
+        try {
+            locked = lock.tryLock(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted waiting for lock '" + name + "'");
+        }
+
+        if (!locked) {
+            throw new IllegalStateException("timed out after " + timeout + "ms waiting for lock '" + name + "'");
+        }
+    }
+
+    public void unlock() {
+        lock.unlock();
+    }
+}
@@ -18,9 +18,11 @@
 
 package jnr.ffi.provider.jffi;
 
+import jnr.ffi.NativeArray;
 import jnr.ffi.NativeLong;
 import jnr.ffi.Pointer;
 import jnr.ffi.Struct;
+import jnr.ffi.annotations.ByValue;
 import jnr.ffi.annotations.Delegate;
 import jnr.ffi.byref.ByReference;
 import jnr.ffi.mapper.*;
@@ -89,11 +91,16 @@ final class InvokerTypeMapper extends AbstractSignatureTypeMapper implements Sig
             return ByReferenceParameterConverter.getInstance(context);
 
         } else if (Struct.class.isAssignableFrom(javaType)) {
-            return StructByReferenceToNativeConverter.getInstance(context);
+            return InvokerUtil.hasAnnotation(context.getAnnotations(), ByValue.class)
+                    ? StructByValueToNativeConverter.INSTANCE
+                    : StructByReferenceToNativeConverter.getInstance(context);
 
         } else if (NativeLong.class.isAssignableFrom(javaType)) {
             return NativeLongConverter.getInstance();
 
+        } else if (NativeArray.class.isAssignableFrom(javaType)) {
+            return NativeArrayParameterConverter.getInstance();
+
         } else if (StringBuilder.class.isAssignableFrom(javaType)) {
             return StringBuilderParameterConverter.getInstance(ParameterFlags.parse(context.getAnnotations()), context);
 
@@ -24,6 +24,7 @@ import com.kenai.jffi.Type;
 import jnr.ffi.CallingConvention;
 import jnr.ffi.LibraryOption;
 import jnr.ffi.NativeType;
+import jnr.ffi.annotations.ByValue;
 import jnr.ffi.annotations.IgnoreError;
 import jnr.ffi.annotations.SaveError;
 import jnr.ffi.annotations.StdCall;
@@ -33,6 +34,8 @@ import jnr.ffi.provider.ParameterType;
 import jnr.ffi.provider.ResultType;
 import jnr.ffi.provider.SigType;
 import jnr.ffi.util.Annotations;
+import jnr.ffi.util.BlockingCallExecutor;
+import jnr.ffi.util.LockRegistry;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
@@ -71,6 +74,28 @@ final class InvokerUtil {
         return InvokerUtil.getCallingConvention(options);
     }
 
+    static LockRegistry getLockRegistry(Map<LibraryOption, ?> libraryOptions) {
+        Object locks = libraryOptions.get(LibraryOption.LockRegistry);
+        if (locks == null) {
+            return new LockRegistry();
+        } else if (locks instanceof LockRegistry) {
+            return (LockRegistry) locks;
+        } else {
+            throw new IllegalArgumentException("LockRegistry option is not a valid LockRegistry instance");
+        }
+    }
+
+    static BlockingCallExecutor getBlockingCallExecutor(Map<LibraryOption, ?> libraryOptions) {
+        Object executor = libraryOptions.get(LibraryOption.BlockingCallExecutor);
+        if (executor == null) {
+            return BlockingCallExecutor.getDefault();
+        } else if (executor instanceof BlockingCallExecutor) {
+            return (BlockingCallExecutor) executor;
+        } else {
+            throw new IllegalArgumentException("BlockingCallExecutor option is not a valid BlockingCallExecutor instance");
+        }
+    }
+
     public static boolean hasAnnotation(Collection<Annotation> annotations, Class<? extends Annotation> annotationClass) {
         for (Annotation a : annotations) {
             if (annotationClass.isInstance(a)) {
@@ -112,6 +137,12 @@ final class InvokerUtil {
         throw new IllegalArgumentException("unsupported parameter type: " + jnrType);
     }
 
+    static Type jffiType(SigType sigType) {
+        return sigType.getNativeType() == NativeType.STRUCT
+                ? StructByValue.jffiType(sigType.getDeclaredType())
+                : jffiType(sigType.getNativeType());
+    }
+
     static NativeType nativeType(jnr.ffi.Type jnrType) {
         return jnrType.getNativeType();
     }
@@ -192,10 +223,10 @@ final class InvokerUtil {
         com.kenai.jffi.Type[] nativeParamTypes = new com.kenai.jffi.Type[paramTypesLength];
 
         for (int i = 0; i < nativeParamTypes.length; ++i) {
-            nativeParamTypes[i] = jffiType(parameterTypes[i].getNativeType());
+            nativeParamTypes[i] = jffiType(parameterTypes[i]);
         }
 
-        return CallContextCache.getInstance().getCallContext(jffiType(resultType.getNativeType()),
+        return CallContextCache.getInstance().getCallContext(jffiType(resultType),
                 nativeParamTypes, jffiConvention(convention), requiresErrno);
     }
 
@@ -210,11 +241,13 @@ final class InvokerUtil {
 
     
     static NativeType getMethodParameterNativeType(jnr.ffi.Runtime runtime, Class parameterClass, Collection<Annotation> annotations) {
-        return Types.getType(runtime, parameterClass, annotations).getNativeType();
+        return hasAnnotation(annotations, ByValue.class)
+                ? NativeType.STRUCT : Types.getType(runtime, parameterClass, annotations).getNativeType();
     }
 
     static NativeType getMethodResultNativeType(jnr.ffi.Runtime runtime, Class resultClass, Collection<Annotation> annotations) {
-        return Types.getType(runtime, resultClass, annotations).getNativeType();
+        return hasAnnotation(annotations, ByValue.class)
+                ? NativeType.STRUCT : Types.getType(runtime, resultClass, annotations).getNativeType();
     }
     
     public static final com.kenai.jffi.CallingConvention jffiConvention(jnr.ffi.CallingConvention callingConvention) {
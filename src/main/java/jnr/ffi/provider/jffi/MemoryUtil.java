@@ -18,7 +18,6 @@
 
 package jnr.ffi.provider.jffi;
 
-import jnr.ffi.provider.BoundedMemoryIO;
 import jnr.ffi.provider.NullMemoryIO;
 
 public final class MemoryUtil {
@@ -33,6 +32,6 @@ public final class MemoryUtil {
     }
     
     static jnr.ffi.Pointer newPointer(jnr.ffi.Runtime runtime, long ptr, long size) {
-        return ptr != 0 ? new BoundedMemoryIO(new DirectMemoryIO(runtime, ptr), 0, size) : null;
+        return ptr != 0 ? new BoundedDirectMemoryIO(new DirectMemoryIO(runtime, ptr), 0, size) : null;
     }
 }
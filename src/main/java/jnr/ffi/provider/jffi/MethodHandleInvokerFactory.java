@@ -0,0 +1,374 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import com.kenai.jffi.CallContext;
+import com.kenai.jffi.Function;
+import jnr.ffi.Address;
+import jnr.ffi.CallingConvention;
+import jnr.ffi.NativeType;
+import jnr.ffi.Pointer;
+import jnr.ffi.mapper.FromNativeContext;
+import jnr.ffi.mapper.FromNativeConverter;
+import jnr.ffi.mapper.ToNativeContext;
+import jnr.ffi.mapper.ToNativeConverter;
+import jnr.ffi.provider.Invoker;
+import jnr.ffi.provider.ParameterType;
+import jnr.ffi.provider.ResultType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import static java.lang.invoke.MethodType.methodType;
+import static jnr.ffi.provider.jffi.NumberUtil.sizeof;
+
+/**
+ * Composes {@link MethodHandle}s for the parameter conversions, the native call and the result conversion of
+ * an integer-only function, so the reflective invoker gets the fast int/long jffi entry points without any
+ * runtime class generation.
+ * <p>
+ * Each invoker holds its handle in an instance field, so the handle is not a constant to the JIT, and it does not
+ * inline through {@code invokeExact} into the conversions or the jffi call.  What is saved is the per call work of
+ * the generic reflective invoker: there is no {@link com.kenai.jffi.HeapInvocationBuffer} to allocate and fill,
+ * and the parameters are unboxed and passed straight to the int/long jffi entry point.
+ *
+ * This class must only be loaded when java.lang.invoke is available (JDK 7 or later).
+ */
+final class MethodHandleInvokerFactory {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final com.kenai.jffi.Invoker invoker = com.kenai.jffi.Invoker.getInstance();
+
+    private MethodHandleInvokerFactory() {
+    }
+
+    /**
+     * Creates an invoker for the function, or returns null if its signature is not supported.
+     */
+    static Invoker createInvoker(jnr.ffi.Runtime runtime, Function function, ResultType resultType,
+                                 ParameterType[] parameterTypes, CallingConvention callingConvention, boolean saveError) {
+        Class nativeIntType;
+        if (new FastIntMethodGenerator().isSupported(resultType, parameterTypes, callingConvention)) {
+            nativeIntType = int.class;
+
+        } else if (new FastLongMethodGenerator().isSupported(resultType, parameterTypes, callingConvention)) {
+            nativeIntType = long.class;
+
+        } else {
+            return null;
+        }
+
+        if (!isSupportedResult(resultType)) {
+            return null;
+        }
+
+        for (ParameterType parameterType : parameterTypes) {
+            if (!isSupportedParameter(parameterType)) {
+                return null;
+            }
+        }
+
+        try {
+            MethodHandle handle = getInvokerHandle(function, nativeIntType, parameterTypes.length, saveError);
+
+            MethodHandle[] parameterFilters = new MethodHandle[parameterTypes.length];
+            for (int i = 0; i < parameterTypes.length; ++i) {
+                parameterFilters[i] = getToNativeHandle(parameterTypes[i], nativeIntType);
+            }
+            handle = MethodHandles.filterArguments(handle, 0, parameterFilters);
+            handle = MethodHandles.filterReturnValue(handle, getFromNativeHandle(runtime, resultType, nativeIntType));
+
+            handle = parameterTypes.length > 0
+                    ? handle.asSpreader(Object[].class, parameterTypes.length)
+                    : MethodHandles.dropArguments(handle, 0, Object[].class);
+
+            return new MethodHandleInvoker(handle.asType(methodType(Object.class, Object[].class)));
+
+        } catch (NoSuchMethodException ex) {
+            return null;
+
+        } catch (IllegalAccessException ex) {
+            return null;
+        }
+    }
+
+    private static boolean isIntegralType(Class javaType) {
+        return boolean.class == javaType || Boolean.class == javaType
+                || byte.class == javaType || Byte.class == javaType
+                || short.class == javaType || Short.class == javaType
+                || int.class == javaType || Integer.class == javaType
+                || long.class == javaType || Long.class == javaType
+                || Address.class == javaType;
+    }
+
+    private static boolean isSupportedParameter(ParameterType parameterType) {
+        ToNativeConverter converter = parameterType.getToNativeConverter();
+        if (converter instanceof ToNativeConverter.PostInvocation) {
+            return false;
+        }
+
+        return AsmUtil.primitiveNativeClass(converter) != null || isIntegralType(parameterType.effectiveJavaType());
+    }
+
+    private static boolean isSupportedResult(ResultType resultType) {
+        return resultType.getNativeType() == NativeType.VOID
+                || AsmUtil.primitiveNativeClass(resultType.getFromNativeConverter()) != null
+                || isIntegralType(resultType.effectiveJavaType())
+                || (Pointer.class == resultType.effectiveJavaType() && resultType.getNativeType() == NativeType.ADDRESS);
+    }
+
+    /**
+     * Gets a handle to the fast-int or fast-long jffi entry point, bound to the function.
+     */
+    private static MethodHandle getInvokerHandle(Function function, Class nativeIntType, int parameterCount,
+                                                 boolean saveError) throws NoSuchMethodException, IllegalAccessException {
+        Class[] parameterClasses = new Class[parameterCount + 2];
+        parameterClasses[0] = CallContext.class;
+        parameterClasses[1] = long.class;
+        for (int i = 0; i < parameterCount; ++i) {
+            parameterClasses[i + 2] = nativeIntType;
+        }
+
+        String methodName = (nativeIntType == int.class ? "invokeI" : "invokeL") + parameterCount + (saveError ? "" : "NoErrno");
+        MethodHandle handle = LOOKUP.findVirtual(com.kenai.jffi.Invoker.class, methodName, methodType(nativeIntType, parameterClasses));
+
+        return MethodHandles.insertArguments(handle.bindTo(invoker), 0, function.getCallContext(), function.getFunctionAddress());
+    }
+
+    /**
+     * Gets a handle converting a java parameter value to the native int or long passed to the invoker.
+     */
+    private static MethodHandle getToNativeHandle(ParameterType parameterType, Class nativeIntType)
+            throws NoSuchMethodException, IllegalAccessException {
+        ToNativeConverter converter = parameterType.getToNativeConverter();
+        Class primitiveClass = AsmUtil.primitiveNativeClass(converter);
+        MethodHandle handle;
+
+        if (primitiveClass != null) {
+            handle = primitiveClass == int.class
+                    ? LOOKUP.findVirtual(ToNativeConverter.ToInt.class, "toNativeInt", methodType(int.class, Object.class, ToNativeContext.class))
+                    : LOOKUP.findVirtual(ToNativeConverter.ToLong.class, "toNativeLong", methodType(long.class, Object.class, ToNativeContext.class));
+            handle = MethodHandles.insertArguments(handle, 2, parameterType.getToNativeContext()).bindTo(converter);
+
+        } else {
+            handle = sizeof(parameterType.getNativeType()) <= 4
+                    ? helper("intValue", int.class, Object.class)
+                    : helper("longValue", long.class, Object.class);
+            if (converter != null) {
+                MethodHandle toNative = LOOKUP.findVirtual(ToNativeConverter.class, "toNative",
+                        methodType(Object.class, Object.class, ToNativeContext.class));
+                toNative = MethodHandles.insertArguments(toNative, 2, parameterType.getToNativeContext()).bindTo(converter);
+                handle = MethodHandles.filterReturnValue(toNative, handle);
+            }
+        }
+
+        return convertInteger(handle, parameterType.getNativeType(), nativeIntType);
+    }
+
+    /**
+     * Gets a handle converting the native int or long returned by the invoker to the java result value.
+     */
+    private static MethodHandle getFromNativeHandle(jnr.ffi.Runtime runtime, ResultType resultType, Class nativeIntType)
+            throws NoSuchMethodException, IllegalAccessException {
+        MethodHandle identity = MethodHandles.identity(nativeIntType);
+
+        if (resultType.getNativeType() == NativeType.VOID) {
+            return helper("voidValue", Object.class, nativeIntType);
+        }
+
+        FromNativeConverter converter = resultType.getFromNativeConverter();
+        Class primitiveClass = AsmUtil.primitiveNativeClass(converter);
+        if (primitiveClass != null) {
+            MethodHandle fromNative = primitiveClass == int.class
+                    ? LOOKUP.findVirtual(FromNativeConverter.FromInt.class, "fromNativeInt", methodType(Object.class, int.class, FromNativeContext.class))
+                    : LOOKUP.findVirtual(FromNativeConverter.FromLong.class, "fromNativeLong", methodType(Object.class, long.class, FromNativeContext.class));
+            fromNative = MethodHandles.insertArguments(fromNative, 2, resultType.getFromNativeContext()).bindTo(converter);
+
+            return MethodHandles.filterReturnValue(convertInteger(identity, resultType.getNativeType(), primitiveClass), fromNative);
+        }
+
+        Class javaType = resultType.effectiveJavaType();
+        MethodHandle handle;
+        if (Pointer.class == javaType) {
+            handle = MethodHandles.insertArguments(LOOKUP.findStatic(MemoryUtil.class, "newPointer",
+                    methodType(Pointer.class, jnr.ffi.Runtime.class, nativeIntType)), 0, runtime);
+
+        } else if (Address.class == javaType) {
+            handle = MethodHandles.filterReturnValue(convertInteger(identity, resultType.getNativeType(), long.class),
+                    LOOKUP.findStatic(Address.class, "valueOf", methodType(Address.class, long.class)));
+
+        } else {
+            Class primitiveType = javaType.isPrimitive() ? javaType : AsmUtil.unboxedType(javaType);
+            if (boolean.class == primitiveType) {
+                Class integerType = sizeof(resultType.getNativeType()) <= 4 ? int.class : long.class;
+                handle = MethodHandles.filterReturnValue(convertInteger(identity, resultType.getNativeType(), integerType),
+                        helper("booleanValue", boolean.class, integerType));
+
+            } else if (byte.class == primitiveType) {
+                handle = MethodHandles.filterReturnValue(convertInteger(identity, resultType.getNativeType(), int.class),
+                        helper("byteValue", byte.class, int.class));
+
+            } else if (short.class == primitiveType) {
+                handle = MethodHandles.filterReturnValue(convertInteger(identity, resultType.getNativeType(), int.class),
+                        helper("shortValue", short.class, int.class));
+
+            } else {
+                handle = convertInteger(identity, resultType.getNativeType(), primitiveType);
+            }
+        }
+
+        handle = handle.asType(handle.type().changeReturnType(Object.class));
+        if (converter != null) {
+            MethodHandle fromNative = LOOKUP.findVirtual(FromNativeConverter.class, "fromNative",
+                    methodType(Object.class, Object.class, FromNativeContext.class));
+            fromNative = MethodHandles.insertArguments(fromNative, 2, resultType.getFromNativeContext()).bindTo(converter);
+            handle = MethodHandles.filterReturnValue(handle, fromNative);
+        }
+
+        return handle;
+    }
+
+    /**
+     * Adapts a handle returning an int or long so it returns {@code targetType}, truncating and sign or zero
+     * extending the value according to the native type.
+     */
+    private static MethodHandle convertInteger(MethodHandle handle, NativeType nativeType, Class targetType)
+            throws NoSuchMethodException, IllegalAccessException {
+        Class returnType = handle.type().returnType();
+        boolean small = sizeof(nativeType) <= 4;
+
+        if (returnType == long.class && (targetType == int.class || small)) {
+            handle = MethodHandles.filterReturnValue(handle, helper("intValue", int.class, long.class));
+            returnType = int.class;
+        }
+
+        if (returnType == int.class) {
+            switch (nativeType) {
+                case SCHAR:
+                    handle = MethodHandles.filterReturnValue(handle, helper("int8Value", int.class, int.class));
+                    break;
+                case UCHAR:
+                    handle = MethodHandles.filterReturnValue(handle, helper("uint8Value", int.class, int.class));
+                    break;
+                case SSHORT:
+                    handle = MethodHandles.filterReturnValue(handle, helper("int16Value", int.class, int.class));
+                    break;
+                case USHORT:
+                    handle = MethodHandles.filterReturnValue(handle, helper("uint16Value", int.class, int.class));
+                    break;
+            }
+
+            if (targetType == long.class) {
+                boolean unsigned = nativeType == NativeType.UINT || nativeType == NativeType.ULONG || nativeType == NativeType.ADDRESS;
+                handle = unsigned
+                        ? MethodHandles.filterReturnValue(handle, helper("uint32Value", long.class, int.class))
+                        : handle.asType(handle.type().changeReturnType(long.class));
+            }
+        }
+
+        return handle;
+    }
+
+    private static MethodHandle helper(String name, Class returnType, Class parameterType)
+            throws NoSuchMethodException, IllegalAccessException {
+        return LOOKUP.findStatic(MethodHandleInvokerFactory.class, name, methodType(returnType, parameterType));
+    }
+
+    static int intValue(Object value) {
+        return value instanceof Boolean ? (((Boolean) value) ? 1 : 0) : ((Number) value).intValue();
+    }
+
+    static long longValue(Object value) {
+        return value instanceof Boolean ? (((Boolean) value) ? 1L : 0L) : ((Number) value).longValue();
+    }
+
+    static int intValue(long value) {
+        return (int) value;
+    }
+
+    static int int8Value(int value) {
+        return (byte) value;
+    }
+
+    static int uint8Value(int value) {
+        return value & 0xff;
+    }
+
+    static int int16Value(int value) {
+        return (short) value;
+    }
+
+    static int uint16Value(int value) {
+        return value & 0xffff;
+    }
+
+    static long uint32Value(int value) {
+        return value & 0xffffffffL;
+    }
+
+    static byte byteValue(int value) {
+        return (byte) value;
+    }
+
+    static short shortValue(int value) {
+        return (short) value;
+    }
+
+    static boolean booleanValue(int value) {
+        return value != 0;
+    }
+
+    static boolean booleanValue(long value) {
+        return value != 0;
+    }
+
+    static Object voidValue(int value) {
+        return null;
+    }
+
+    static Object voidValue(long value) {
+        return null;
+    }
+
+    /**
+     * Calls a composed handle.  The handle is not constant here, so the call is not inlined.
+     */
+    static final class MethodHandleInvoker implements Invoker {
+        private final MethodHandle handle;
+
+        MethodHandleInvoker(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        public Object invoke(Object self, Object[] parameters) {
+            try {
+                return (Object) handle.invokeExact(parameters);
+
+            } catch (RuntimeException ex) {
+                throw ex;
+
+            } catch (Error error) {
+                throw error;
+
+            } catch (Throwable t) {
+                throw new RuntimeException(t);
+            }
+        }
+    }
+}
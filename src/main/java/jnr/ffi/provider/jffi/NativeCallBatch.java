@@ -0,0 +1,540 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import com.kenai.jffi.CallContext;
+import com.kenai.jffi.CallContextCache;
+import com.kenai.jffi.HeapInvocationBuffer;
+import jnr.ffi.CallBatch;
+import jnr.ffi.NativeType;
+import jnr.ffi.Pointer;
+import org.objectweb.asm.ClassWriter;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static jnr.ffi.provider.jffi.CodegenUtils.p;
+import static jnr.ffi.provider.jffi.CodegenUtils.sig;
+import static jnr.ffi.provider.jffi.InvokerUtil.jffiType;
+import static jnr.ffi.provider.jffi.NumberUtil.sizeof;
+import static jnr.ffi.provider.jffi.Util.getBooleanProperty;
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * A {@link CallBatch} that stores invocation records in native memory.
+ * <p>
+ * Each record consists of one 8 byte slot per parameter, followed by an 8 byte slot for the result.  Integer
+ * parameters are stored sign/zero extended to 64 bits, floating point parameters and results are stored
+ * in the first 4 or 8 bytes of their slot, and integer results are stored as returned by the native function,
+ * and are sign/zero extended when they are read.
+ */
+final class NativeCallBatch extends CallBatch {
+    private static final boolean COMPILE_ENABLED = getBooleanProperty("jnr.ffi.x86asm.enabled", true);
+    static final com.kenai.jffi.MemoryIO IO = com.kenai.jffi.MemoryIO.getInstance();
+    static final int SLOT_SIZE = 8;
+
+    private final jnr.ffi.Runtime runtime;
+    private final Pointer function;
+    private final NativeType resultType;
+    private final NativeType[] parameterTypes;
+    private final int recordSize;
+    private final int resultOffset;
+    private final int capacity;
+    private final Pointer memory;
+    private final long records;
+    private final Invoker invoker;
+    private int size;
+
+    NativeCallBatch(jnr.ffi.Runtime runtime, Pointer function, int capacity, boolean saveError,
+                    NativeType resultType, NativeType[] parameterTypes) {
+        this(runtime, function, capacity, saveError, resultType, parameterTypes, COMPILE_ENABLED);
+    }
+
+    NativeCallBatch(jnr.ffi.Runtime runtime, Pointer function, int capacity, boolean saveError,
+                    NativeType resultType, NativeType[] parameterTypes, boolean compile) {
+        if (function == null || !function.isDirect()) {
+            throw new IllegalArgumentException("function must be a direct pointer");
+        }
+
+        if (capacity < 1) {
+            throw new IllegalArgumentException("invalid batch capacity " + capacity);
+        }
+
+        checkResultType(resultType);
+        for (NativeType t : parameterTypes) {
+            checkParameterType(t);
+        }
+
+        this.runtime = runtime;
+        this.function = function;
+        this.resultType = resultType;
+        this.parameterTypes = parameterTypes.clone();
+        this.recordSize = recordSize(parameterTypes.length);
+        this.resultOffset = parameterTypes.length * SLOT_SIZE;
+        this.capacity = capacity;
+        if ((long) capacity * recordSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("batch capacity too large " + capacity);
+        }
+        this.memory = runtime.getMemoryManager().allocateDirect(capacity * recordSize, true);
+        this.records = memory.address();
+        this.invoker = compile
+                ? getInvoker(resultType, this.parameterTypes, saveError)
+                : new DefaultInvoker(resultType, this.parameterTypes, saveError);
+    }
+
+    static int recordSize(int parameterCount) {
+        return (parameterCount + 1) * SLOT_SIZE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int add() {
+        if (size >= capacity) {
+            throw new IllegalStateException("batch is full");
+        }
+        IO.setMemory(records + (long) size * recordSize, recordSize, (byte) 0);
+        return size++;
+    }
+
+    public int add(long arg0) {
+        checkParameterCount(1);
+        int index = add();
+        putLong(index, 0, arg0);
+        return index;
+    }
+
+    public int add(long arg0, long arg1) {
+        checkParameterCount(2);
+        int index = add();
+        putLong(index, 0, arg0);
+        putLong(index, 1, arg1);
+        return index;
+    }
+
+    public int add(long arg0, long arg1, long arg2) {
+        checkParameterCount(3);
+        int index = add();
+        putLong(index, 0, arg0);
+        putLong(index, 1, arg1);
+        putLong(index, 2, arg2);
+        return index;
+    }
+
+    public void putInt(int index, int parameter, int value) {
+        putLong(index, parameter, value);
+    }
+
+    public void putLong(int index, int parameter, long value) {
+        long slot = slot(index, parameter);
+        switch (parameterTypes[parameter]) {
+            case FLOAT:
+                IO.putFloat(slot, (float) value);
+                break;
+
+            case DOUBLE:
+                IO.putDouble(slot, (double) value);
+                break;
+
+            default:
+                IO.putLong(slot, extend(parameterTypes[parameter], value));
+                break;
+        }
+    }
+
+    public void putFloat(int index, int parameter, float value) {
+        putDouble(index, parameter, value);
+    }
+
+    public void putDouble(int index, int parameter, double value) {
+        long slot = slot(index, parameter);
+        switch (parameterTypes[parameter]) {
+            case FLOAT:
+                IO.putFloat(slot, (float) value);
+                break;
+
+            case DOUBLE:
+                IO.putDouble(slot, value);
+                break;
+
+            default:
+                IO.putLong(slot, extend(parameterTypes[parameter], (long) value));
+                break;
+        }
+    }
+
+    public void putPointer(int index, int parameter, Pointer value) {
+        if (value != null && !value.isDirect()) {
+            throw new IllegalArgumentException("pointer parameters must be direct");
+        }
+        putLong(index, parameter, value != null ? value.address() : 0L);
+    }
+
+    public void invoke() {
+        if (size > 0) {
+            invoker.invoke(function.address(), records, size);
+        }
+    }
+
+    public int getInt(int index) {
+        return (int) getLong(index);
+    }
+
+    public long getLong(int index) {
+        long slot = resultSlot(index);
+        switch (resultType) {
+            case FLOAT:
+                return (long) IO.getFloat(slot);
+
+            case DOUBLE:
+                return (long) IO.getDouble(slot);
+
+            default:
+                return extend(resultType, IO.getLong(slot));
+        }
+    }
+
+    public float getFloat(int index) {
+        return resultType == NativeType.FLOAT ? IO.getFloat(resultSlot(index)) : (float) getDouble(index);
+    }
+
+    public double getDouble(int index) {
+        switch (resultType) {
+            case FLOAT:
+                return IO.getFloat(resultSlot(index));
+
+            case DOUBLE:
+                return IO.getDouble(resultSlot(index));
+
+            default:
+                return getLong(index);
+        }
+    }
+
+    public Pointer getPointer(int index) {
+        return MemoryUtil.newPointer(runtime, getLong(index));
+    }
+
+    private void checkParameterCount(int count) {
+        if (parameterTypes.length != count) {
+            throw new IllegalArgumentException("function has " + parameterTypes.length + " parameters, not " + count);
+        }
+    }
+
+    private long slot(int index, int parameter) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("invalid record index " + index);
+        }
+        if (parameter < 0 || parameter >= parameterTypes.length) {
+            throw new IndexOutOfBoundsException("invalid parameter index " + parameter);
+        }
+        return records + (long) index * recordSize + (long) parameter * SLOT_SIZE;
+    }
+
+    private long resultSlot(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("invalid record index " + index);
+        }
+        if (resultType == NativeType.VOID) {
+            throw new UnsupportedOperationException("function has no result");
+        }
+        return records + (long) index * recordSize + resultOffset;
+    }
+
+    /**
+     * Sign or zero extends an integer value to 64 bits according to the size and signedness of its native type.
+     */
+    static long extend(NativeType type, long value) {
+        switch (type) {
+            case SCHAR:
+                return (byte) value;
+
+            case UCHAR:
+                return value & 0xffL;
+
+            case SSHORT:
+                return (short) value;
+
+            case USHORT:
+                return value & 0xffffL;
+
+            case SINT:
+                return (int) value;
+
+            case UINT:
+                return value & 0xffffffffL;
+
+            case SLONG:
+                return sizeof(type) == 4 ? (long) (int) value : value;
+
+            case ULONG:
+            case ADDRESS:
+                return sizeof(type) == 4 ? value & 0xffffffffL : value;
+
+            default:
+                return value;
+        }
+    }
+
+    private static void checkParameterType(NativeType type) {
+        switch (type) {
+            case VOID:
+            case STRUCT:
+                throw new IllegalArgumentException("unsupported batch parameter type " + type);
+        }
+    }
+
+    private static void checkResultType(NativeType type) {
+        if (type == NativeType.STRUCT) {
+            throw new IllegalArgumentException("unsupported batch result type " + type);
+        }
+    }
+
+    /**
+     * Executes a sequence of invocation records.
+     */
+    public static interface Invoker {
+        void invoke(long function, long records, int count);
+    }
+
+    private static final ConcurrentMap<Signature, Invoker> invokers = new ConcurrentHashMap<Signature, Invoker>();
+
+    private static Invoker getInvoker(NativeType resultType, NativeType[] parameterTypes, boolean saveError) {
+        Signature signature = new Signature(resultType, parameterTypes, saveError);
+        Invoker invoker = invokers.get(signature);
+        if (invoker != null) {
+            return invoker;
+        }
+
+        invoker = newInvoker(resultType, parameterTypes, saveError);
+        Invoker existing = invokers.putIfAbsent(signature, invoker);
+        return existing != null ? existing : invoker;
+    }
+
+    private static Invoker newInvoker(NativeType resultType, NativeType[] parameterTypes, boolean saveError) {
+        StubCompiler compiler = StubCompiler.newCompiler(NativeRuntime.getInstance());
+        if (compiler.canCompileBatch(resultType, parameterTypes)) {
+            try {
+                return newCompiledInvoker(compiler, resultType, parameterTypes, saveError);
+            } catch (Throwable t) {
+                // fall through to the default invoker
+            }
+        }
+
+        return new DefaultInvoker(resultType, parameterTypes, saveError);
+    }
+
+    private static final AtomicLong nextClassID = new AtomicLong(0);
+
+    private static Invoker newCompiledInvoker(StubCompiler compiler, NativeType resultType, NativeType[] parameterTypes,
+                                              boolean saveError) throws Exception {
+        String className = p(NativeCallBatch.class) + "$batch$" + nextClassID.getAndIncrement();
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        cw.visit(V1_6, ACC_PUBLIC | ACC_FINAL, className, null, p(Object.class), new String[] { p(Invoker.class) });
+
+        SkinnyMethodAdapter init = new SkinnyMethodAdapter(cw, ACC_PUBLIC, "<init>", sig(void.class), null, null);
+        init.start();
+        init.aload(0);
+        init.invokespecial(p(Object.class), "<init>", sig(void.class));
+        init.voidreturn();
+        init.visitMaxs(10, 10);
+        init.visitEnd();
+
+        cw.visitMethod(ACC_PUBLIC | ACC_FINAL | ACC_NATIVE, "invoke",
+                sig(void.class, long.class, long.class, int.class), null, null);
+        cw.visitEnd();
+
+        compiler.compileBatch("invoke", resultType, parameterTypes, saveError);
+
+        AsmClassLoader classLoader = new AsmClassLoader(NativeCallBatch.class.getClassLoader());
+        Class<?> klass = classLoader.defineClass(className.replace("/", "."), cw.toByteArray());
+        compiler.attach(klass);
+
+        return (Invoker) klass.getDeclaredConstructor().newInstance();
+    }
+
+    /**
+     * Executes each invocation record with a separate call through jffi, for platforms that cannot
+     * compile a batch stub.
+     */
+    static final class DefaultInvoker implements Invoker {
+        private static final com.kenai.jffi.Invoker ffi = com.kenai.jffi.Invoker.getInstance();
+        private static final boolean LITTLE_ENDIAN = java.nio.ByteOrder.nativeOrder() == java.nio.ByteOrder.LITTLE_ENDIAN;
+        private final NativeType resultType;
+        private final NativeType[] parameterTypes;
+        private final CallContext callContext;
+        private final boolean saveError;
+
+        DefaultInvoker(NativeType resultType, NativeType[] parameterTypes, boolean saveError) {
+            this.resultType = resultType;
+            this.parameterTypes = parameterTypes;
+            this.saveError = saveError;
+            com.kenai.jffi.Type[] nativeParameterTypes = new com.kenai.jffi.Type[parameterTypes.length];
+            for (int i = 0; i < parameterTypes.length; i++) {
+                nativeParameterTypes[i] = jffiType(parameterTypes[i]);
+            }
+            this.callContext = CallContextCache.getInstance().getCallContext(jffiType(resultType),
+                    nativeParameterTypes, com.kenai.jffi.CallingConvention.DEFAULT, saveError);
+        }
+
+        public void invoke(long function, long records, int count) {
+            if (!LITTLE_ENDIAN) {
+                invokeBuffered(function, records, count);
+                return;
+            }
+
+            // Each value sits at the start of its slot, so the native function can read its arguments from, and
+            // write its result to, the record itself.  Only the parameter addresses change from record to record.
+            // That call does not save errno, so the last record goes through an invocation buffer when it is needed.
+            final int recordSize = recordSize(parameterTypes.length);
+            final int inPlace = saveError ? count - 1 : count;
+            long[] parameters = new long[parameterTypes.length];
+            for (int p = 0; p < parameters.length; p++) {
+                parameters[p] = records + (long) p * SLOT_SIZE;
+            }
+
+            for (int i = 0; i < inPlace; i++) {
+                long record = records + (long) i * recordSize;
+                ffi.invoke(callContext, function, record + (long) parameters.length * SLOT_SIZE, parameters);
+                for (int p = 0; p < parameters.length; p++) {
+                    parameters[p] += recordSize;
+                }
+            }
+
+            if (inPlace < count) {
+                invokeBuffered(function, records + (long) inPlace * recordSize, count - inPlace);
+            }
+        }
+
+        /**
+         * Copies the arguments of each record into an invocation buffer.  Integer values are not at the start of
+         * their slot on big endian platforms, so they cannot be passed to the native function in place.
+         */
+        private void invokeBuffered(long function, long records, int count) {
+            final int recordSize = recordSize(parameterTypes.length);
+            for (int i = 0; i < count; i++) {
+                long record = records + (long) i * recordSize;
+                HeapInvocationBuffer buffer = new HeapInvocationBuffer(callContext);
+                for (int p = 0; p < parameterTypes.length; p++) {
+                    long slot = record + (long) p * SLOT_SIZE;
+                    switch (parameterTypes[p]) {
+                        case FLOAT:
+                            buffer.putFloat(IO.getFloat(slot));
+                            break;
+
+                        case DOUBLE:
+                            buffer.putDouble(IO.getDouble(slot));
+                            break;
+
+                        case ADDRESS:
+                            buffer.putAddress(IO.getLong(slot));
+                            break;
+
+                        case SCHAR:
+                        case UCHAR:
+                            buffer.putByte((int) IO.getLong(slot));
+                            break;
+
+                        case SSHORT:
+                        case USHORT:
+                            buffer.putShort((int) IO.getLong(slot));
+                            break;
+
+                        default:
+                            if (sizeof(parameterTypes[p]) <= 4) {
+                                buffer.putInt((int) IO.getLong(slot));
+                            } else {
+                                buffer.putLong(IO.getLong(slot));
+                            }
+                            break;
+                    }
+                }
+
+                long resultSlot = record + (long) parameterTypes.length * SLOT_SIZE;
+                switch (resultType) {
+                    case VOID:
+                        ffi.invokeInt(callContext, function, buffer);
+                        break;
+
+                    case FLOAT:
+                        IO.putFloat(resultSlot, ffi.invokeFloat(callContext, function, buffer));
+                        break;
+
+                    case DOUBLE:
+                        IO.putDouble(resultSlot, ffi.invokeDouble(callContext, function, buffer));
+                        break;
+
+                    case ADDRESS:
+                        IO.putLong(resultSlot, ffi.invokeAddress(callContext, function, buffer));
+                        break;
+
+                    default:
+                        if (sizeof(resultType) <= 4) {
+                            IO.putLong(resultSlot, ffi.invokeInt(callContext, function, buffer));
+                        } else {
+                            IO.putLong(resultSlot, ffi.invokeLong(callContext, function, buffer));
+                        }
+                        break;
+                }
+            }
+        }
+    }
+
+    private static final class Signature {
+        private final NativeType resultType;
+        private final NativeType[] parameterTypes;
+        private final boolean saveError;
+
+        Signature(NativeType resultType, NativeType[] parameterTypes, boolean saveError) {
+            this.resultType = resultType;
+            this.parameterTypes = parameterTypes;
+            this.saveError = saveError;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Signature signature = (Signature) o;
+
+            return saveError == signature.saveError && resultType == signature.resultType
+                    && Arrays.equals(parameterTypes, signature.parameterTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = resultType.hashCode();
+            result = 31 * result + Arrays.hashCode(parameterTypes);
+            result = 31 * result + (saveError ? 1 : 0);
+            return result;
+        }
+    }
+}
@@ -51,6 +51,9 @@ public final class NativeClosureFactory<T> {
     private final ConcurrentLinkedQueue<NativeClosurePointer> freeQueue = new ConcurrentLinkedQueue<NativeClosurePointer>();
     private ClosureMagazine currentMagazine;
 
+    /** Long-lived delegates, held strongly so their native closures are never collected */
+    private volatile Registration[] registrations = new Registration[0];
+
 
     protected NativeClosureFactory(jnr.ffi.Runtime runtime, CallContext callContext,
                                    NativeClosureProxy.Factory closureProxyFactory) {
@@ -196,6 +199,50 @@ public final class NativeClosureFactory<T> {
         return ref;
     }
 
+    private static final class Registration {
+        final Object callable;
+        final Pointer pointer;
+
+        Registration(Object callable, Pointer pointer) {
+            this.callable = callable;
+            this.pointer = pointer;
+        }
+    }
+
+    synchronized void register(Object callable) {
+        if (getRegisteredPointer(callable) != null) {
+            return;
+        }
+
+        Registration[] registrations = new Registration[this.registrations.length + 1];
+        System.arraycopy(this.registrations, 0, registrations, 0, this.registrations.length);
+        registrations[registrations.length - 1] = new Registration(callable, getClosureReference(callable).getPointer());
+        this.registrations = registrations;
+    }
+
+    synchronized void unregister(Object callable) {
+        Registration[] registrations = this.registrations;
+        for (int i = 0; i < registrations.length; i++) {
+            if (registrations[i].callable == callable) {
+                Registration[] remaining = new Registration[registrations.length - 1];
+                System.arraycopy(registrations, 0, remaining, 0, i);
+                System.arraycopy(registrations, i + 1, remaining, i, remaining.length - i);
+                this.registrations = remaining;
+                return;
+            }
+        }
+    }
+
+    Pointer getRegisteredPointer(Object callable) {
+        for (Registration registration : registrations) {
+            if (registration.callable == callable) {
+                return registration.pointer;
+            }
+        }
+
+        return null;
+    }
+
     ClosureReference getClosureReference(Object callable) {
         Integer key = System.identityHashCode(callable);
         ClosureReference ref = closures.get(key);
@@ -21,14 +21,17 @@ package jnr.ffi.provider.jffi;
 import jnr.ffi.Pointer;
 import jnr.ffi.mapper.*;
 import jnr.ffi.provider.ClosureManager;
+import jnr.ffi.provider.ClosureRegistry;
 
 import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  *
  */
-final class NativeClosureManager implements ClosureManager {
+final class NativeClosureManager implements ClosureManager, ClosureRegistry {
     private volatile Map<Class<?>, NativeClosureFactory> factories = new IdentityHashMap<Class<?>, NativeClosureFactory>();
     private volatile Map<ClassLoader,AsmClassLoader> asmClassLoaders = new IdentityHashMap<ClassLoader,AsmClassLoader>();
     private final jnr.ffi.Runtime runtime;
@@ -62,7 +65,17 @@ final class NativeClosureManager implements ClosureManager {
     }
 
     public final <T> jnr.ffi.Pointer getClosurePointer(Class<? extends T> closureClass, T instance) {
-        return getClosureFactory(closureClass).getClosureReference(instance).getPointer();
+        NativeClosureFactory<? extends T> factory = getClosureFactory(closureClass);
+        Pointer registered = factory.getRegisteredPointer(instance);
+        return registered != null ? registered : factory.getClosureReference(instance).getPointer();
+    }
+
+    public <T> void register(Class<? extends T> closureClass, T instance) {
+        getClosureFactory(closureClass).register(instance);
+    }
+
+    public <T> void unregister(Class<? extends T> closureClass, T instance) {
+        getClosureFactory(closureClass).unregister(instance);
     }
 
     synchronized <T> NativeClosureFactory<T> initClosureFactory(Class<T> closureClass, AsmClassLoader classLoader) {
@@ -85,10 +98,29 @@ final class NativeClosureManager implements ClosureManager {
         return new ClosureSite<T>(getClosureFactory(closureClass));
     }
 
+    /**
+     * Converts delegates passed to one method parameter, caching the native closures of the last few
+     * delegates passed there so that callers alternating between a handful of delegates never look them up.
+     */
     @ToNativeConverter.NoContext
     public static final class ClosureSite<T> implements ToNativeConverter<T, Pointer> {
+        /**
+         * The number of native closures each site caches.  Set to 0 to look up the native closure on every call.
+         */
+        private static final int CACHE_SIZE = Util.getIntegerProperty("jnr.ffi.closure.site.cache.size", 4);
+
+        /**
+         * Whether sites count cache hits and misses.  Off by default, since the counters are shared by every
+         * thread calling through the site.
+         */
+        private static final boolean STATISTICS_ENABLED = Util.getBooleanProperty("jnr.ffi.closure.site.statistics", false);
+
         private final NativeClosureFactory<T> factory;
-        private NativeClosureFactory.ClosureReference closureReference = null;
+        private final AtomicReferenceArray<NativeClosureFactory.ClosureReference> cache
+                = new AtomicReferenceArray<NativeClosureFactory.ClosureReference>(Math.max(0, CACHE_SIZE));
+        private int nextVictim;
+        private final AtomicLong hitCount = new AtomicLong();
+        private final AtomicLong missCount = new AtomicLong();
 
         private ClosureSite(NativeClosureFactory<T> factory) {
             this.factory = factory;
@@ -104,23 +136,68 @@ final class NativeClosureManager implements ClosureManager {
                 return (ClosureFromNativeConverter.AbstractClosurePointer) value;
             }
 
-            NativeClosureFactory.ClosureReference ref = closureReference;
-            // Fast path - same delegate as last call to this site - just re-use the native closure
-            if (ref != null && ref.getCallable() == value) {
-                return ref.getPointer();
+            // Fast path - one of the last few delegates passed to this site - just re-use the native closure
+            final int length = cache.length();
+            for (int i = 0; i < length; i++) {
+                NativeClosureFactory.ClosureReference ref = cache.get(i);
+                if (ref != null && ref.getCallable() == value) {
+                    if (STATISTICS_ENABLED) hitCount.incrementAndGet();
+                    return ref.getPointer();
+                }
+            }
+
+            Pointer registered = factory.getRegisteredPointer(value);
+            if (registered != null) {
+                if (STATISTICS_ENABLED) hitCount.incrementAndGet();
+                return registered;
             }
 
-            ref = factory.getClosureReference(value);
-            // Cache the new native closure, if this site has no valid native closure
-            if (closureReference == null || closureReference.get() == null) {
-                closureReference = ref;
+            if (STATISTICS_ENABLED) missCount.incrementAndGet();
+            NativeClosureFactory.ClosureReference ref = factory.getClosureReference(value);
+
+            if (length > 0) {
+                cache.set(victim(length), ref);
             }
 
             return ref.getPointer();
         }
 
+        private int victim(int length) {
+            // Prefer a slot whose delegate has been collected, else replace round-robin
+            for (int i = 0; i < length; i++) {
+                NativeClosureFactory.ClosureReference ref = cache.get(i);
+                if (ref == null || ref.get() == null) {
+                    return i;
+                }
+            }
+
+            int victim = nextVictim;
+            nextVictim = victim + 1 < length ? victim + 1 : 0;
+            return victim;
+        }
+
         public Class<Pointer> nativeType() {
             return Pointer.class;
         }
+
+        /**
+         * Gets the number of conversions that found the native closure in this site's cache, or registered.
+         * Only counted when the {@code jnr.ffi.closure.site.statistics} property is true.
+         *
+         * @return the number of cache hits.
+         */
+        public long getHitCount() {
+            return hitCount.get();
+        }
+
+        /**
+         * Gets the number of conversions that had to look up or create the native closure.
+         * Only counted when the {@code jnr.ffi.closure.site.statistics} property is true.
+         *
+         * @return the number of cache misses.
+         */
+        public long getMissCount() {
+            return missCount.get();
+        }
     }
 }
@@ -147,7 +147,11 @@ public abstract class NativeClosureProxy {
         }
 
         emitToNativeConversion(builder, mv, resultType);
-        if (!resultType.effectiveJavaType().isPrimitive()) {
+        Class primitiveResultClass = primitiveNativeClass(resultType.getToNativeConverter());
+        if (primitiveResultClass != null) {
+            convertPrimitive(mv, primitiveResultClass, nativeResultClass, resultType.getNativeType());
+
+        } else if (!resultType.effectiveJavaType().isPrimitive()) {
             if (Number.class.isAssignableFrom(resultType.effectiveJavaType())) {
                 AsmUtil.unboxNumber(mv, resultType.effectiveJavaType(), nativeResultClass, resultType.getNativeType());
 
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import com.kenai.jffi.PageManager;
+import jnr.ffi.LibraryLoader;
+import jnr.ffi.MappedMemory;
+import jnr.ffi.Platform;
+import jnr.ffi.Pointer;
+import jnr.ffi.annotations.SaveError;
+import jnr.ffi.types.intptr_t;
+import jnr.ffi.types.off_t;
+import jnr.ffi.types.size_t;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link MappedMemory} implemented using the POSIX mmap(2) family of functions.
+ */
+final class NativeMappedMemory extends MappedMemory {
+    private static final int PROT_READ = 0x1;
+    private static final int PROT_WRITE = 0x2;
+    private static final int MAP_SHARED = 0x1;
+    private static final int MAP_PRIVATE = 0x2;
+    private static final int O_RDONLY = 0;
+    private static final int O_RDWR = 2;
+    private static final int MS_ASYNC = 0x1;
+    private static final long MAP_FAILED = -1L;
+
+    private final NativeRuntime runtime;
+    private final long mapAddress, mapLength;
+    private final Pointer pointer;
+    private final long size;
+    private final AtomicBoolean unmapped = new AtomicBoolean(false);
+
+    private NativeMappedMemory(NativeRuntime runtime, long mapAddress, long mapLength, long delta, long size, boolean readOnly) {
+        this.runtime = runtime;
+        this.mapAddress = mapAddress;
+        this.mapLength = mapLength;
+        this.size = size;
+        Pointer memory = new BoundedDirectMemoryIO(new DirectMemoryIO(runtime, mapAddress), delta, size);
+        // A write to a read only mapping would crash the process, so reject it in java
+        this.pointer = readOnly ? new ReadOnlyMemoryIO(memory) : memory;
+    }
+
+    public static interface LibC {
+        @SaveError @intptr_t long mmap(@intptr_t long addr, @size_t long length, int prot, int flags, int fd, @off_t long offset);
+        @SaveError int munmap(@intptr_t long addr, @size_t long length);
+        @SaveError int msync(@intptr_t long addr, @size_t long length, int flags);
+        @SaveError int madvise(@intptr_t long addr, @size_t long length, int advice);
+        @SaveError int open(String path, int flags);
+        int close(int fd);
+        String strerror(int error);
+    }
+
+    private static final class SingletonHolder {
+        static final LibC libc = LibraryLoader.create(LibC.class)
+                .load(Platform.getNativePlatform().getStandardCLibraryName());
+    }
+
+    private static LibC libc() {
+        if (Platform.getNativePlatform().getOS() == Platform.OS.WINDOWS) {
+            throw new UnsupportedOperationException("memory mapping not supported on " + Platform.getNativePlatform().getOS());
+        }
+
+        return SingletonHolder.libc;
+    }
+
+    private static int mapAnonymousFlag() {
+        Platform platform = Platform.getNativePlatform();
+        switch (platform.getOS()) {
+            case LINUX:
+                return 0x20;
+            case SOLARIS:
+                return 0x100;
+            case AIX:
+                return 0x10;
+            default:
+                // Darwin and the BSDs
+                return 0x1000;
+        }
+    }
+
+    private static int syncFlags(boolean async) {
+        // MS_ASYNC is the same everywhere it is known, MS_SYNC is not
+        Platform.OS os = Platform.getNativePlatform().getOS();
+        switch (os) {
+            case LINUX:
+            case NETBSD:
+            case SOLARIS:
+                return async ? MS_ASYNC : 0x4;
+            case DARWIN:
+                return async ? MS_ASYNC : 0x10;
+            case FREEBSD:
+                return async ? MS_ASYNC : 0x0;
+            case OPENBSD:
+                return async ? MS_ASYNC : 0x2;
+            default:
+                throw new UnsupportedOperationException("sync is not supported on " + os);
+        }
+    }
+
+    private static int adviceValue(Advice advice) {
+        switch (advice) {
+            case NORMAL:
+                return 0;
+            case RANDOM:
+                return 1;
+            case SEQUENTIAL:
+                return 2;
+            case WILL_NEED:
+                return 3;
+            case DONT_NEED:
+                return 4;
+            default:
+                throw new IllegalArgumentException("unknown advice " + advice);
+        }
+    }
+
+    private static long pageSize() {
+        return PageManager.getInstance().pageSize();
+    }
+
+    private static String errorMessage(NativeRuntime runtime, String function) {
+        int error = runtime.getLastError();
+        return function + " failed: " + libc().strerror(error) + " (errno " + error + ")";
+    }
+
+    static MappedMemory map(NativeRuntime runtime, File file, MapMode mode, long offset, long length) throws IOException {
+        if (offset < 0) {
+            throw new IllegalArgumentException("negative offset " + offset);
+        }
+
+        LibC libc = libc();
+        if (length < 0) {
+            length = file.length() - offset;
+        }
+
+        if (length <= 0) {
+            throw new IllegalArgumentException("cannot map " + length + " bytes of " + file);
+        }
+
+        int prot, flags, openFlags;
+        switch (mode) {
+            case READ_ONLY:
+                prot = PROT_READ; flags = MAP_SHARED; openFlags = O_RDONLY;
+                break;
+            case READ_WRITE:
+                prot = PROT_READ | PROT_WRITE; flags = MAP_SHARED; openFlags = O_RDWR;
+                break;
+            case PRIVATE:
+                prot = PROT_READ | PROT_WRITE; flags = MAP_PRIVATE; openFlags = O_RDONLY;
+                break;
+            default:
+                throw new IllegalArgumentException("unknown map mode " + mode);
+        }
+
+        int fd = libc.open(file.getPath(), openFlags);
+        if (fd < 0) {
+            throw new FileNotFoundException(file + ": " + errorMessage(runtime, "open"));
+        }
+
+        try {
+            // mmap(2) requires the file offset to be page aligned
+            long delta = offset % pageSize();
+            long mapLength = length + delta;
+            long address = libc.mmap(0L, mapLength, prot, flags, fd, offset - delta);
+            if (address == MAP_FAILED) {
+                throw new IOException(file + ": " + errorMessage(runtime, "mmap"));
+            }
+
+            return new NativeMappedMemory(runtime, address, mapLength, delta, length, mode == MapMode.READ_ONLY);
+
+        } finally {
+            // The mapping keeps its own reference to the file
+            libc.close(fd);
+        }
+    }
+
+    static MappedMemory mapAnonymous(NativeRuntime runtime, long length, boolean shared) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("invalid length " + length);
+        }
+
+        long address = libc().mmap(0L, length, PROT_READ | PROT_WRITE,
+                (shared ? MAP_SHARED : MAP_PRIVATE) | mapAnonymousFlag(), -1, 0L);
+        if (address == MAP_FAILED) {
+            throw new OutOfMemoryError(errorMessage(runtime, "mmap"));
+        }
+
+        return new NativeMappedMemory(runtime, address, length, 0, length, false);
+    }
+
+    public Pointer getPointer() {
+        checkMapped();
+        return pointer;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public void sync(long offset, long length, boolean async) {
+        checkMapped();
+        pointer.checkBounds(offset, length);
+        long start = pointer.address() + offset;
+        long aligned = start - ((start - mapAddress) % pageSize());
+        if (libc().msync(aligned, length + (start - aligned), syncFlags(async)) != 0) {
+            throw new RuntimeException(errorMessage(runtime, "msync"));
+        }
+    }
+
+    public void advise(long offset, long length, Advice advice) {
+        checkMapped();
+        pointer.checkBounds(offset, length);
+        long start = pointer.address() + offset;
+        long aligned = start - ((start - mapAddress) % pageSize());
+        if (libc().madvise(aligned, length + (start - aligned), adviceValue(advice)) != 0) {
+            throw new RuntimeException(errorMessage(runtime, "madvise"));
+        }
+    }
+
+    public void unmap() {
+        if (unmapped.compareAndSet(false, true)) {
+            if (libc().munmap(mapAddress, mapLength) != 0) {
+                throw new RuntimeException(errorMessage(runtime, "munmap"));
+            }
+        }
+    }
+
+    public boolean isUnmapped() {
+        return unmapped.get();
+    }
+
+    private void checkMapped() {
+        if (unmapped.get()) {
+            throw new IllegalStateException("memory has been unmapped");
+        }
+    }
+}
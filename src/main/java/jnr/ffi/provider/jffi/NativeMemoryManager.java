@@ -18,14 +18,17 @@
 
 package jnr.ffi.provider.jffi;
 
+import jnr.ffi.MappedMemory;
 import jnr.ffi.Pointer;
-import jnr.ffi.provider.BoundedMemoryIO;
 import jnr.ffi.provider.IntPointer;
+import jnr.ffi.provider.MemoryMapper;
 
+import java.io.File;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 
-public class NativeMemoryManager implements jnr.ffi.provider.MemoryManager {
-    private final jnr.ffi.Runtime runtime;
+public class NativeMemoryManager implements jnr.ffi.provider.MemoryManager, MemoryMapper {
+    private final NativeRuntime runtime;
     private final long addressMask;
 
     public NativeMemoryManager(NativeRuntime runtime) {
@@ -38,19 +41,19 @@ public class NativeMemoryManager implements jnr.ffi.provider.MemoryManager {
     }
 
     public Pointer allocateDirect(int size) {
-        return new BoundedMemoryIO(TransientNativeMemory.allocate(runtime, size, 8, true), 0, size);
+        return new BoundedDirectMemoryIO(TransientNativeMemory.allocate(runtime, size, 8, true), 0, size);
     }
 
     public Pointer allocateDirect(int size, boolean clear) {
-        return new BoundedMemoryIO(TransientNativeMemory.allocate(runtime, size, 8, clear), 0, size);
+        return new BoundedDirectMemoryIO(TransientNativeMemory.allocate(runtime, size, 8, clear), 0, size);
     }
 
     public Pointer allocateTemporary(int size) {
-        return new BoundedMemoryIO(TransientNativeMemory.allocate(runtime, size, 8, true), 0, size);
+        return new BoundedDirectMemoryIO(TransientNativeMemory.allocate(runtime, size, 8, true), 0, size);
     }
 
     public Pointer allocateTemporary(int size, boolean clear) {
-        return new BoundedMemoryIO(TransientNativeMemory.allocate(runtime, size, 8, clear), 0, size);
+        return new BoundedDirectMemoryIO(TransientNativeMemory.allocate(runtime, size, 8, clear), 0, size);
     }
 
     public Pointer newPointer(ByteBuffer buffer) {
@@ -62,11 +65,19 @@ public class NativeMemoryManager implements jnr.ffi.provider.MemoryManager {
     }
 
     public Pointer newPointer(long address, long size) {
-        return new BoundedMemoryIO(new DirectMemoryIO(runtime, address & addressMask), 0, size);
+        return new BoundedDirectMemoryIO(new DirectMemoryIO(runtime, address & addressMask), 0, size);
     }
 
     public Pointer newOpaquePointer(long address) {
         return new IntPointer(runtime, address);
     }
 
+    public MappedMemory map(File file, MappedMemory.MapMode mode, long offset, long length) throws IOException {
+        return NativeMappedMemory.map(runtime, file, mode, offset, length);
+    }
+
+    public MappedMemory mapAnonymous(long length, boolean shared) {
+        return NativeMappedMemory.mapAnonymous(runtime, length, shared);
+    }
+
 }
@@ -127,6 +127,12 @@ public final class NativeRuntime extends AbstractRuntime {
         return new DefaultObjectReferenceManager(this);
     }
 
+    @Override
+    public CallBatch newCallBatch(Pointer function, int capacity, boolean saveError,
+                                  NativeType resultType, NativeType... parameterTypes) {
+        return new NativeCallBatch(this, function, capacity, saveError, resultType, parameterTypes);
+    }
+
     @Override
     public int getLastError() {
         return com.kenai.jffi.LastError.getInstance().get();
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.IntVariable;
+import jnr.ffi.LongVariable;
+import jnr.ffi.Pointer;
+import jnr.ffi.PointerVariable;
+
+/**
+ * Accessors for primitive global variables, which read and write the variable without boxing.
+ */
+final class PrimitiveVariableAccessor {
+    private PrimitiveVariableAccessor() {}
+
+    static boolean isPrimitiveVariableType(Class type) {
+        return IntVariable.class == type || LongVariable.class == type || PointerVariable.class == type;
+    }
+
+    static Object create(jnr.ffi.Runtime runtime, Class variableType, long address) {
+        DirectMemoryIO memory = new DirectMemoryIO(runtime, address);
+        if (IntVariable.class == variableType) {
+            return new IntAccessor(memory);
+
+        } else if (LongVariable.class == variableType) {
+            return new LongAccessor(memory);
+
+        } else if (PointerVariable.class == variableType) {
+            return new PointerAccessor(memory);
+
+        } else {
+            throw new IllegalArgumentException("unsupported variable class: " + variableType);
+        }
+    }
+
+    static final class IntAccessor implements IntVariable {
+        private final DirectMemoryIO memory;
+
+        IntAccessor(DirectMemoryIO memory) {
+            this.memory = memory;
+        }
+
+        public int getInt() {
+            return memory.getIntVolatile(0);
+        }
+
+        public void setInt(int value) {
+            memory.putIntVolatile(0, value);
+        }
+
+        public boolean compareAndSet(int expected, int value) {
+            return memory.compareAndSwapInt(0, expected, value);
+        }
+
+        public int getAndAdd(int delta) {
+            return memory.getAndAddInt(0, delta);
+        }
+    }
+
+    static final class LongAccessor implements LongVariable {
+        private final DirectMemoryIO memory;
+
+        LongAccessor(DirectMemoryIO memory) {
+            this.memory = memory;
+        }
+
+        public long getLong() {
+            return memory.getLongVolatile(0);
+        }
+
+        public void setLong(long value) {
+            memory.putLongVolatile(0, value);
+        }
+
+        public boolean compareAndSet(long expected, long value) {
+            return memory.compareAndSwapLong(0, expected, value);
+        }
+
+        public long getAndAdd(long delta) {
+            return memory.getAndAddLong(0, delta);
+        }
+    }
+
+    static final class PointerAccessor implements PointerVariable {
+        private final DirectMemoryIO memory;
+        private final boolean is64Bit;
+
+        PointerAccessor(DirectMemoryIO memory) {
+            this.memory = memory;
+            this.is64Bit = memory.getRuntime().addressSize() == 8;
+        }
+
+        public Pointer getPointer() {
+            return MemoryUtil.newPointer(memory.getRuntime(), getAddress());
+        }
+
+        public void setPointer(Pointer value) {
+            setAddress(value != null ? value.address() : 0L);
+        }
+
+        public long getAddress() {
+            return is64Bit ? memory.getLongVolatile(0) : memory.getIntVolatile(0) & 0xffffffffL;
+        }
+
+        public void setAddress(long address) {
+            if (is64Bit) {
+                memory.putLongVolatile(0, address);
+            } else {
+                memory.putIntVolatile(0, (int) address);
+            }
+        }
+
+        public boolean compareAndSet(long expected, long address) {
+            return is64Bit
+                    ? memory.compareAndSwapLong(0, expected, address)
+                    : memory.compareAndSwapInt(0, (int) expected, (int) address);
+        }
+    }
+}
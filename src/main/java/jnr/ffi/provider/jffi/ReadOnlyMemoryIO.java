@@ -0,0 +1,336 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.Address;
+import jnr.ffi.Pointer;
+import jnr.ffi.provider.AbstractMemoryIO;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A view of memory which can be read, but not written, such as a read only memory mapping.
+ * <p>
+ * Writing to read only native memory would crash the process, so every write throws
+ * {@link UnsupportedOperationException} instead.
+ */
+final class ReadOnlyMemoryIO extends AbstractMemoryIO {
+    private final Pointer io;
+
+    ReadOnlyMemoryIO(Pointer io) {
+        super(io.getRuntime(), io.address(), io.isDirect());
+        this.io = io;
+    }
+
+    private UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("memory is read only");
+    }
+
+    public long size() {
+        return io.size();
+    }
+
+    @Override
+    public boolean hasArray() {
+        return false;
+    }
+
+    @Override
+    public Object array() {
+        throw new UnsupportedOperationException("no array");
+    }
+
+    @Override
+    public int arrayOffset() {
+        throw new UnsupportedOperationException("no array");
+    }
+
+    @Override
+    public int arrayLength() {
+        throw new UnsupportedOperationException("no array");
+    }
+
+    @Override
+    public void checkBounds(long offset, long length) {
+        io.checkBounds(offset, length);
+    }
+
+    @Override
+    public int hashCode() {
+        return io.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return (obj instanceof ReadOnlyMemoryIO && io.equals(((ReadOnlyMemoryIO) obj).io)) || io.equals(obj);
+    }
+
+    @Override
+    public byte getByte(long offset) {
+        return io.getByte(offset);
+    }
+
+    @Override
+    public short getShort(long offset) {
+        return io.getShort(offset);
+    }
+
+    @Override
+    public int getInt(long offset) {
+        return io.getInt(offset);
+    }
+
+    @Override
+    public long getLongLong(long offset) {
+        return io.getLongLong(offset);
+    }
+
+    @Override
+    public float getFloat(long offset) {
+        return io.getFloat(offset);
+    }
+
+    @Override
+    public double getDouble(long offset) {
+        return io.getDouble(offset);
+    }
+
+    public Pointer getPointer(long offset) {
+        return io.getPointer(offset);
+    }
+
+    public Pointer getPointer(long offset, long size) {
+        return io.getPointer(offset, size);
+    }
+
+    @Override
+    public void putByte(long offset, byte value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putShort(long offset, short value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putInt(long offset, int value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putLongLong(long offset, long value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putFloat(long offset, float value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putDouble(long offset, double value) {
+        throw readOnly();
+    }
+
+    public void putPointer(long offset, Pointer value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void get(long offset, byte[] dst, int off, int len) {
+        io.get(offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, byte[] src, int off, int len) {
+        throw readOnly();
+    }
+
+    @Override
+    public void get(long offset, short[] dst, int off, int len) {
+        io.get(offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, short[] src, int off, int len) {
+        throw readOnly();
+    }
+
+    @Override
+    public void get(long offset, int[] dst, int off, int len) {
+        io.get(offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, int[] src, int off, int len) {
+        throw readOnly();
+    }
+
+    @Override
+    public void get(long offset, long[] dst, int off, int len) {
+        io.get(offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, long[] src, int off, int len) {
+        throw readOnly();
+    }
+
+    @Override
+    public void get(long offset, float[] dst, int off, int len) {
+        io.get(offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, float[] src, int off, int len) {
+        throw readOnly();
+    }
+
+    @Override
+    public void get(long offset, double[] dst, int off, int len) {
+        io.get(offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, double[] src, int off, int len) {
+        throw readOnly();
+    }
+
+    @Override
+    public long getAddress(long offset) {
+        return io.getAddress(offset);
+    }
+
+    @Override
+    public void putAddress(long offset, long value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putAddress(long offset, Address value) {
+        throw readOnly();
+    }
+
+    @Override
+    public String getString(long offset) {
+        return io.getString(offset);
+    }
+
+    @Override
+    public String getString(long offset, int maxLength, Charset cs) {
+        return io.getString(offset, maxLength, cs);
+    }
+
+    @Override
+    public void putString(long offset, String string, int maxLength, Charset cs) {
+        throw readOnly();
+    }
+
+    @Override
+    public int indexOf(long offset, byte value) {
+        return io.indexOf(offset, value);
+    }
+
+    @Override
+    public int indexOf(long offset, byte value, int maxlen) {
+        return io.indexOf(offset, value, maxlen);
+    }
+
+    @Override
+    public int getIntVolatile(long offset) {
+        return io.getIntVolatile(offset);
+    }
+
+    @Override
+    public void putIntVolatile(long offset, int value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putIntOrdered(long offset, int value) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean compareAndSwapInt(long offset, int expected, int value) {
+        throw readOnly();
+    }
+
+    @Override
+    public int getAndAddInt(long offset, int delta) {
+        throw readOnly();
+    }
+
+    @Override
+    public long getLongVolatile(long offset) {
+        return io.getLongVolatile(offset);
+    }
+
+    @Override
+    public void putLongVolatile(long offset, long value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putLongOrdered(long offset, long value) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean compareAndSwapLong(long offset, long expected, long value) {
+        throw readOnly();
+    }
+
+    @Override
+    public long getAndAddLong(long offset, long delta) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setMemory(long offset, long size, byte value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void transferFrom(long offset, Pointer other, long otherOffset, long count) {
+        throw readOnly();
+    }
+
+    @Override
+    public void transferTo(long offset, Pointer other, long otherOffset, long count) {
+        io.transferTo(offset, other, otherOffset, count);
+    }
+
+    @Override
+    public AbstractMemoryIO slice(long offset, long size) {
+        return new ReadOnlyMemoryIO(io.slice(offset, size));
+    }
+
+    @Override
+    public Pointer uncheckedSlice(long offset, long size) {
+        return new ReadOnlyMemoryIO(io.uncheckedSlice(offset, size));
+    }
+
+    @Override
+    public ByteBuffer asByteBuffer(long offset, int length) {
+        return io.asByteBuffer(offset, length).asReadOnlyBuffer().order(getRuntime().byteOrder());
+    }
+}
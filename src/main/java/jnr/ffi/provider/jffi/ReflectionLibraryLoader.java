@@ -19,6 +19,7 @@
 package jnr.ffi.provider.jffi;
 
 import static jnr.ffi.provider.jffi.InvokerUtil.getCallingConvention;
+import static jnr.ffi.provider.jffi.InvokerUtil.getLockRegistry;
 import static jnr.ffi.util.Annotations.sortedAnnotationCollection;
 
 import java.lang.annotation.Annotation;
@@ -32,6 +33,7 @@ import java.util.Set;
 import jnr.ffi.LibraryOption;
 import jnr.ffi.Runtime;
 import jnr.ffi.Variable;
+import jnr.ffi.annotations.Blocking;
 import jnr.ffi.annotations.Synchronized;
 import jnr.ffi.mapper.CachingTypeMapper;
 import jnr.ffi.mapper.CompositeTypeMapper;
@@ -43,6 +45,7 @@ import jnr.ffi.provider.IdentityFunctionMapper;
 import jnr.ffi.provider.Invoker;
 import jnr.ffi.provider.LoadedLibrary;
 import jnr.ffi.provider.NativeInvocationHandler;
+import jnr.ffi.provider.NativeVariable;
 import jnr.ffi.provider.NullTypeMapper;
 
 /**
@@ -92,8 +95,6 @@ class ReflectionLibraryLoader extends LibraryLoader {
         private final FunctionMapper functionMapper;
         private final jnr.ffi.CallingConvention libraryCallingConvention;
 
-        private final boolean libraryIsSynchronized;
-
         private final NativeLibrary library;
         @SuppressWarnings("unused")
         private final Class<T> interfaceClass;
@@ -125,8 +126,9 @@ class ReflectionLibraryLoader extends LibraryLoader {
             this.typeMapper = new CompositeTypeMapper(typeMapper,
                     new CachingTypeMapper(new InvokerTypeMapper(new NativeClosureManager(runtime, typeMapper), classLoader, NativeLibraryLoader.ASM_ENABLED)));
             libraryCallingConvention = getCallingConvention(interfaceClass, libraryOptions);
-            libraryIsSynchronized = interfaceClass.isAnnotationPresent(Synchronized.class);
-            invokerFactory = new DefaultInvokerFactory(runtime, library, this.typeMapper, functionMapper, libraryCallingConvention, libraryOptions, libraryIsSynchronized);
+            invokerFactory = new DefaultInvokerFactory(runtime, library, this.typeMapper, functionMapper, libraryCallingConvention, libraryOptions,
+                    interfaceClass.getAnnotation(Synchronized.class), getLockRegistry(libraryOptions),
+                    interfaceClass.isAnnotationPresent(Blocking.class));
         }
 
         @Override
@@ -142,7 +144,7 @@ class ReflectionLibraryLoader extends LibraryLoader {
             }
 
             Method method = (Method) key;
-            if (Variable.class.isAssignableFrom(method.getReturnType())) {
+            if (NativeVariable.isVariableType(method.getReturnType())) {
                 return getVariableAccessor(method);
 
             } else if (method.getName().equals("getRuntime") && method.getReturnType().isAssignableFrom(NativeRuntime.class)) {
@@ -160,6 +162,10 @@ class ReflectionLibraryLoader extends LibraryLoader {
             if (symbolAddress == 0L) {
                 return new FunctionNotFoundInvoker(method, functionName);
             }
+            if (PrimitiveVariableAccessor.isPrimitiveVariableType(method.getReturnType())) {
+                return new VariableAcccessorInvoker(PrimitiveVariableAccessor.create(runtime, method.getReturnType(), symbolAddress));
+            }
+
             Variable variable = ReflectionVariableAccessorGenerator.createVariableAccessor(runtime, method, symbolAddress,
                     typeMapper, annotations);
             return new VariableAcccessorInvoker(variable);
@@ -167,9 +173,9 @@ class ReflectionLibraryLoader extends LibraryLoader {
 
 
         private static final class VariableAcccessorInvoker implements Invoker {
-            private final Variable variable;
+            private final Object variable;
 
-            private VariableAcccessorInvoker(Variable variable) {
+            private VariableAcccessorInvoker(Object variable) {
                 this.variable = variable;
             }
 
@@ -19,6 +19,8 @@
 package jnr.ffi.provider.jffi;
 
 import jnr.ffi.*;
+import jnr.ffi.annotations.ByValue;
+import jnr.ffi.annotations.ReuseResult;
 import jnr.ffi.mapper.FromNativeContext;
 import jnr.ffi.mapper.FromNativeConverter;
 import jnr.ffi.provider.converters.StructByReferenceFromNativeConverter;
@@ -38,8 +40,8 @@ final class StructByReferenceResultConverterFactory {
         this.asmEnabled = asmEnabled;
     }
 
-    public final FromNativeConverter<? extends Struct, Pointer> get(Class<? extends Struct> structClass,
-                                                                    FromNativeContext fromNativeContext) {
+    public final FromNativeConverter<? extends Struct, ?> get(Class<? extends Struct> structClass,
+                                                              FromNativeContext fromNativeContext) {
         FromNativeConverter<? extends Struct, Pointer> converter = converters.get(structClass);
         if (converter == null) {
             synchronized (converters) {
@@ -49,7 +51,13 @@ final class StructByReferenceResultConverterFactory {
             }
         }
 
-        return converter;
+        // Not cacheable, so each method gets its own converter, and so its own struct per thread
+        if (InvokerUtil.hasAnnotation(fromNativeContext.getAnnotations(), ReuseResult.class)) {
+            converter = new ReusableStructConverter(converter);
+        }
+
+        return InvokerUtil.hasAnnotation(fromNativeContext.getAnnotations(), ByValue.class)
+                ? new StructByValueFromNativeConverter(fromNativeContext.getRuntime(), converter) : converter;
     }
     
     private FromNativeConverter<? extends Struct, Pointer> createConverter(jnr.ffi.Runtime runtime,
@@ -59,4 +67,36 @@ final class StructByReferenceResultConverterFactory {
             ? AsmStructByReferenceFromNativeConverter.newStructByReferenceConverter(runtime, structClass, 0, classLoader)
             : StructByReferenceFromNativeConverter.getInstance(structClass, fromNativeContext);
     }
+
+    /**
+     * Creates one struct per thread, and points it at the memory of each subsequent result.
+     */
+    static final class ReusableStructConverter implements FromNativeConverter<Struct, Pointer> {
+        private final FromNativeConverter<? extends Struct, Pointer> converter;
+        private final ThreadLocal<Struct> localStruct = new ThreadLocal<Struct>();
+
+        ReusableStructConverter(FromNativeConverter<? extends Struct, Pointer> converter) {
+            this.converter = converter;
+        }
+
+        public Struct fromNative(Pointer nativeValue, FromNativeContext context) {
+            if (nativeValue == null) {
+                return null;
+            }
+
+            Struct struct = localStruct.get();
+            if (struct != null) {
+                struct.useMemory(nativeValue);
+
+            } else {
+                localStruct.set(struct = converter.fromNative(nativeValue, context));
+            }
+
+            return struct;
+        }
+
+        public Class<Pointer> nativeType() {
+            return Pointer.class;
+        }
+    }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import com.kenai.jffi.Type;
+import jnr.ffi.NativeType;
+import jnr.ffi.Struct;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Describes {@link Struct} classes to native code as aggregate types, so they can be passed and returned by value.
+ */
+final class StructByValue {
+    private static final Map<Class<?>, Type> types = new ConcurrentHashMap<Class<?>, Type>();
+
+    private StructByValue() {}
+
+    static Type jffiType(Class<?> structClass) {
+        Type type = types.get(structClass);
+        if (type == null) {
+            types.put(structClass, type = jffiType(newStruct(structClass)));
+        }
+
+        return type;
+    }
+
+    private static Struct newStruct(Class<?> structClass) {
+        if (!Struct.class.isAssignableFrom(structClass)) {
+            throw new IllegalArgumentException("only a Struct can be passed by value, not " + structClass.getName());
+        }
+
+        // Only this instance records its members, so ordinary instances of the class do not pay for it
+        return Struct.newMemberRecordingInstance(structClass.asSubclass(Struct.class), NativeRuntime.getInstance());
+    }
+
+    private static Type jffiType(Struct struct) {
+        if (Struct.isUnion(struct)) {
+            throw new IllegalArgumentException("a union cannot be passed by value: " + struct.getClass().getName());
+        }
+
+        List<Object> members = Struct.getMemberTypes(struct);
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("an empty struct cannot be passed by value: " + struct.getClass().getName());
+        }
+
+        // Explicit offsets or packing can place members where native code would not, so check each one
+        int[] offsets = Struct.getMemberOffsets(struct);
+        Type[] fields = new Type[members.size()];
+        int offset = 0;
+        for (int i = 0; i < fields.length; i++) {
+            Object member = members.get(i);
+            fields[i] = member instanceof Struct ? jffiType((Struct) member) : InvokerUtil.jffiType((NativeType) member);
+            offset = align(offset, fields[i].alignment());
+            if (offsets[i] != offset) {
+                throw new IllegalArgumentException("the layout of " + struct.getClass().getName()
+                        + " cannot be passed by value");
+            }
+            offset += fields[i].size();
+        }
+
+        Type type = com.kenai.jffi.Struct.newStruct(fields);
+
+        // The struct size does not always include trailing padding, so round it up before comparing.
+        if (type.size() != align(Struct.size(struct), type.alignment())) {
+            throw new IllegalArgumentException("the layout of " + struct.getClass().getName()
+                    + " cannot be passed by value");
+        }
+
+        return type;
+    }
+
+    private static int align(int offset, int align) {
+        return (offset + align - 1) & ~(align - 1);
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.Pointer;
+import jnr.ffi.Struct;
+import jnr.ffi.mapper.FromNativeContext;
+import jnr.ffi.mapper.FromNativeConverter;
+
+/**
+ * Wraps the bytes of a {@link Struct} returned by value in a struct, without copying them to native memory.
+ */
+final class StructByValueFromNativeConverter implements FromNativeConverter<Struct, byte[]> {
+    private final jnr.ffi.Runtime runtime;
+    private final FromNativeConverter<? extends Struct, Pointer> converter;
+
+    StructByValueFromNativeConverter(jnr.ffi.Runtime runtime, FromNativeConverter<? extends Struct, Pointer> converter) {
+        this.runtime = runtime;
+        this.converter = converter;
+    }
+
+    public Struct fromNative(byte[] nativeValue, FromNativeContext context) {
+        return converter.fromNative(new ArrayMemoryIO(runtime, nativeValue, 0, nativeValue.length), context);
+    }
+
+    public Class<byte[]> nativeType() {
+        return byte[].class;
+    }
+}
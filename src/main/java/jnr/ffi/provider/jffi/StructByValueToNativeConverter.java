@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.Pointer;
+import jnr.ffi.Struct;
+import jnr.ffi.mapper.ToNativeContext;
+import jnr.ffi.mapper.ToNativeConverter;
+import jnr.ffi.provider.ParameterFlags;
+
+/**
+ * Supplies the memory of a {@link Struct} passed by value, which is then copied into the invocation buffer.
+ */
+@ToNativeConverter.NoContext
+@ToNativeConverter.Cacheable
+final class StructByValueToNativeConverter implements ToNativeConverter<Struct, Pointer> {
+    static final ToNativeConverter<Struct, Pointer> INSTANCE = new StructByValueToNativeConverter();
+
+    public Class<Pointer> nativeType() {
+        return Pointer.class;
+    }
+
+    public Pointer toNative(Struct value, ToNativeContext ctx) {
+        if (value == null) {
+            throw new NullPointerException("a null struct cannot be passed by value");
+        }
+
+        return Struct.getNativeMemory(value, ParameterFlags.IN);
+    }
+}
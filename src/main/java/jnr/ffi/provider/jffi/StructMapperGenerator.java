@@ -0,0 +1,640 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.NativeType;
+import jnr.ffi.Pointer;
+import jnr.ffi.StructLayout;
+import jnr.ffi.StructMapper;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+
+import java.io.PrintWriter;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static jnr.ffi.provider.jffi.CodegenUtils.*;
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Generates {@link StructMapper} and {@link StructMapper.ColumnReader} implementations.
+ * <p>
+ * Each struct field is read with the primitive {@link Pointer} accessor for its native type, and converted to the
+ * java type {@link StructLayout} uses for that field before it is stored.  When bytecode generation is disabled,
+ * or the java class or its fields are not public or are final, a reflection based implementation is used instead.
+ * </p>
+ */
+public final class StructMapperGenerator {
+    private static final AtomicLong nextClassID = new AtomicLong(0);
+
+    private StructMapperGenerator() {
+    }
+
+    public static <T> StructMapper<T> createMapper(StructLayout layout, Class<T> javaClass, Field[] javaFields,
+                                                   NativeType[] nativeTypes, long[] offsets) {
+        for (int i = 0; i < javaFields.length; i++) {
+            Class fieldType = javaFields[i].getType();
+            if (!fieldType.isPrimitive() || boolean.class == fieldType) {
+                throw new IllegalArgumentException("cannot map field " + javaFields[i].getName() + " of type " + fieldType);
+            }
+            columnType(nativeTypes[i]);
+        }
+
+        if (NativeLibraryLoader.ASM_ENABLED && isAccessible(javaClass, javaFields)) {
+            return generateMapper(layout, javaClass, javaFields, nativeTypes, offsets);
+        }
+
+        return new ReflectionStructMapper<T>(layout, javaClass, javaFields, nativeTypes, offsets);
+    }
+
+    public static StructMapper.ColumnReader createColumnReader(StructLayout layout, NativeType[] nativeTypes, long[] offsets) {
+        Class[] columnTypes = new Class[nativeTypes.length];
+        for (int i = 0; i < nativeTypes.length; i++) {
+            columnTypes[i] = java.lang.reflect.Array.newInstance(columnType(nativeTypes[i]), 0).getClass();
+        }
+
+        if (NativeLibraryLoader.ASM_ENABLED) {
+            return generateColumnReader(layout, columnTypes, nativeTypes, offsets);
+        }
+
+        return new ReflectionColumnReader(layout, columnTypes, nativeTypes, offsets);
+    }
+
+    private static boolean isAccessible(Class javaClass, Field[] javaFields) {
+        for (Class c = javaClass; c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers())) {
+                return false;
+            }
+        }
+
+        for (Field f : javaFields) {
+            if (!Modifier.isPublic(f.getModifiers()) || Modifier.isFinal(f.getModifiers())
+                    || !Modifier.isPublic(f.getDeclaringClass().getModifiers())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Gets the java type {@link StructLayout} uses for a field of the given native type.
+     */
+    static Class columnType(NativeType nativeType) {
+        switch (nativeType) {
+            case SCHAR:
+                return byte.class;
+            case UCHAR:
+            case SSHORT:
+                return short.class;
+            case USHORT:
+            case SINT:
+                return int.class;
+            case UINT:
+            case SLONG:
+            case ULONG:
+            case SLONGLONG:
+            case ULONGLONG:
+            case ADDRESS:
+                return long.class;
+            case FLOAT:
+                return float.class;
+            case DOUBLE:
+                return double.class;
+            default:
+                throw new IllegalArgumentException("unsupported struct field type " + nativeType);
+        }
+    }
+
+    private static String accessorName(NativeType nativeType) {
+        switch (nativeType) {
+            case SCHAR:
+            case UCHAR:
+                return "Byte";
+            case SSHORT:
+            case USHORT:
+                return "Short";
+            case SINT:
+            case UINT:
+                return "Int";
+            case SLONG:
+            case ULONG:
+                return "NativeLong";
+            case SLONGLONG:
+            case ULONGLONG:
+                return "LongLong";
+            case FLOAT:
+                return "Float";
+            case DOUBLE:
+                return "Double";
+            case ADDRESS:
+                return "Address";
+            default:
+                throw new IllegalArgumentException("unsupported struct field type " + nativeType);
+        }
+    }
+
+    private static Class accessorType(NativeType nativeType) {
+        switch (nativeType) {
+            case SCHAR:
+            case UCHAR:
+                return byte.class;
+            case SSHORT:
+            case USHORT:
+                return short.class;
+            case SINT:
+            case UINT:
+                return int.class;
+            case FLOAT:
+                return float.class;
+            case DOUBLE:
+                return double.class;
+            default:
+                return long.class;
+        }
+    }
+
+    private static boolean isUnsigned32(jnr.ffi.Runtime runtime, NativeType nativeType) {
+        return nativeType == NativeType.UINT
+                || (nativeType == NativeType.ULONG && runtime.longSize() == 4)
+                || (nativeType == NativeType.ADDRESS && runtime.addressSize() == 4);
+    }
+
+    /**
+     * Emits a read of the field at the address on the stack, leaving the value as its column type.
+     */
+    private static void emitGet(SkinnyMethodAdapter mv, jnr.ffi.Runtime runtime, NativeType nativeType) {
+        Class accessorType = accessorType(nativeType);
+        mv.invokevirtual(Pointer.class, "get" + accessorName(nativeType), accessorType, long.class);
+
+        if (nativeType == NativeType.UCHAR) {
+            mv.pushInt(0xff);
+            mv.iand();
+            mv.i2s();
+
+        } else if (nativeType == NativeType.USHORT) {
+            mv.pushInt(0xffff);
+            mv.iand();
+
+        } else if (nativeType == NativeType.UINT) {
+            mv.i2l();
+        }
+
+        if (isUnsigned32(runtime, nativeType)) {
+            mv.ldc(0xffffffffL);
+            mv.land();
+        }
+    }
+
+    private static void emitPut(SkinnyMethodAdapter mv, NativeType nativeType) {
+        mv.invokevirtual(Pointer.class, "put" + accessorName(nativeType), void.class, long.class, accessorType(nativeType));
+    }
+
+    private static void emitAddress(SkinnyMethodAdapter mv, int offsetIndex, long fieldOffset) {
+        mv.lload(offsetIndex);
+        if (fieldOffset != 0) {
+            mv.ldc(fieldOffset);
+            mv.ladd();
+        }
+    }
+
+    /**
+     * Emits a conversion between two primitive numeric types.
+     */
+    private static void convert(SkinnyMethodAdapter mv, Class from, Class to) {
+        if (from == to) {
+            return;
+        }
+
+        if (long.class == from) {
+            if (float.class == to) {
+                mv.l2f();
+            } else if (double.class == to) {
+                mv.l2d();
+            } else {
+                mv.l2i();
+                NumberUtil.narrow(mv, int.class, to);
+            }
+
+        } else if (float.class == from) {
+            if (double.class == to) {
+                mv.f2d();
+            } else if (long.class == to) {
+                mv.f2l();
+            } else {
+                mv.f2i();
+                NumberUtil.narrow(mv, int.class, to);
+            }
+
+        } else if (double.class == from) {
+            if (float.class == to) {
+                mv.d2f();
+            } else if (long.class == to) {
+                mv.d2l();
+            } else {
+                mv.d2i();
+                NumberUtil.narrow(mv, int.class, to);
+            }
+
+        } else if (long.class == to) {
+            mv.i2l();
+
+        } else if (float.class == to) {
+            mv.i2f();
+
+        } else if (double.class == to) {
+            mv.i2d();
+
+        } else {
+            NumberUtil.narrow(mv, int.class, to);
+        }
+    }
+
+    private static void emitArrayStore(SkinnyMethodAdapter mv, Class componentType) {
+        if (byte.class == componentType) {
+            mv.bastore();
+        } else if (short.class == componentType) {
+            mv.sastore();
+        } else if (int.class == componentType) {
+            mv.iastore();
+        } else if (long.class == componentType) {
+            mv.lastore();
+        } else if (float.class == componentType) {
+            mv.fastore();
+        } else {
+            mv.dastore();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> StructMapper<T> generateMapper(StructLayout layout, Class<T> javaClass, Field[] javaFields,
+                                                      NativeType[] nativeTypes, long[] offsets) {
+        jnr.ffi.Runtime runtime = layout.getRuntime();
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        ClassVisitor cv = AsmLibraryLoader.DEBUG ? AsmUtil.newCheckClassAdapter(cw) : cw;
+        String className = p(javaClass) + "$StructMapper$$" + nextClassID.getAndIncrement();
+
+        cv.visit(V1_6, ACC_PUBLIC | ACC_FINAL, className, null, p(StructMapper.class), new String[0]);
+
+        SkinnyMethodAdapter init = new SkinnyMethodAdapter(cv, ACC_PUBLIC, "<init>",
+                sig(void.class, StructLayout.class, Class.class), null, null);
+        init.start();
+        init.aload(0);
+        init.aload(1);
+        init.aload(2);
+        init.invokespecial(p(StructMapper.class), "<init>", sig(void.class, StructLayout.class, Class.class));
+        init.voidreturn();
+        init.visitMaxs(10, 10);
+        init.visitEnd();
+
+        // locals: 0 = this, 1 = memory, 2 = offset, 4 = object, 5 = object cast to javaClass
+        SkinnyMethodAdapter read = new SkinnyMethodAdapter(cv, ACC_PUBLIC | ACC_FINAL, "read",
+                sig(void.class, Pointer.class, long.class, Object.class), null, null);
+        read.start();
+        read.aload(4);
+        read.checkcast(p(javaClass));
+        read.astore(5);
+        for (int i = 0; i < javaFields.length; i++) {
+            Class fieldType = javaFields[i].getType();
+            read.aload(5);
+            read.aload(1);
+            emitAddress(read, 2, offsets[i]);
+            emitGet(read, runtime, nativeTypes[i]);
+            convert(read, columnType(nativeTypes[i]), fieldType);
+            read.putfield(p(javaFields[i].getDeclaringClass()), javaFields[i].getName(), ci(fieldType));
+        }
+        read.voidreturn();
+        read.visitMaxs(10, 10);
+        read.visitEnd();
+
+        SkinnyMethodAdapter write = new SkinnyMethodAdapter(cv, ACC_PUBLIC | ACC_FINAL, "write",
+                sig(void.class, Pointer.class, long.class, Object.class), null, null);
+        write.start();
+        write.aload(4);
+        write.checkcast(p(javaClass));
+        write.astore(5);
+        for (int i = 0; i < javaFields.length; i++) {
+            Class fieldType = javaFields[i].getType();
+            write.aload(1);
+            emitAddress(write, 2, offsets[i]);
+            write.aload(5);
+            write.getfield(p(javaFields[i].getDeclaringClass()), javaFields[i].getName(), ci(fieldType));
+            convert(write, fieldType, accessorType(nativeTypes[i]));
+            emitPut(write, nativeTypes[i]);
+        }
+        write.voidreturn();
+        write.visitMaxs(10, 10);
+        write.visitEnd();
+
+        cv.visitEnd();
+
+        try {
+            Class<StructMapper<T>> implClass = defineClass(javaClass.getClassLoader(), className, cw.toByteArray());
+            Constructor<StructMapper<T>> cons = implClass.getDeclaredConstructor(StructLayout.class, Class.class);
+            return cons.newInstance(layout, javaClass);
+        } catch (Throwable ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static StructMapper.ColumnReader generateColumnReader(StructLayout layout, Class[] columnTypes,
+                                                                  NativeType[] nativeTypes, long[] offsets) {
+        jnr.ffi.Runtime runtime = layout.getRuntime();
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        ClassVisitor cv = AsmLibraryLoader.DEBUG ? AsmUtil.newCheckClassAdapter(cw) : cw;
+        String className = p(layout.getClass()) + "$ColumnReader$$" + nextClassID.getAndIncrement();
+
+        cv.visit(V1_6, ACC_PUBLIC | ACC_FINAL, className, null, p(StructMapper.ColumnReader.class), new String[0]);
+
+        SkinnyMethodAdapter init = new SkinnyMethodAdapter(cv, ACC_PUBLIC, "<init>",
+                sig(void.class, StructLayout.class, Class[].class), null, null);
+        init.start();
+        init.aload(0);
+        init.aload(1);
+        init.aload(2);
+        init.invokespecial(p(StructMapper.ColumnReader.class), "<init>", sig(void.class, StructLayout.class, Class[].class));
+        init.voidreturn();
+        init.visitMaxs(10, 10);
+        init.visitEnd();
+
+        // locals: 0 = this, 1 = memory, 2 = offset, 4 = stride, 5 = count, 6 = columns, 7 = index,
+        // 8.. = the column arrays, followed by the loop counter and the address of the current struct
+        SkinnyMethodAdapter mv = new SkinnyMethodAdapter(cv, ACC_PROTECTED | ACC_FINAL, "readColumns",
+                sig(void.class, Pointer.class, long.class, int.class, int.class, Object[].class, int.class), null, null);
+        mv.start();
+        final int firstColumn = 8;
+        final int counter = firstColumn + columnTypes.length;
+        final int address = counter + 1;
+        for (int i = 0; i < columnTypes.length; i++) {
+            mv.aload(6);
+            mv.pushInt(i);
+            mv.aaload();
+            mv.checkcast(ci(columnTypes[i]));
+            mv.astore(firstColumn + i);
+        }
+        mv.iconst_0();
+        mv.istore(counter);
+        mv.lload(2);
+        mv.lstore(address);
+
+        Label loop = new Label();
+        Label done = new Label();
+        mv.label(loop);
+        mv.iload(counter);
+        mv.iload(5);
+        mv.if_icmpge(done);
+
+        for (int i = 0; i < columnTypes.length; i++) {
+            mv.aload(firstColumn + i);
+            mv.iload(7);
+            mv.iload(counter);
+            mv.iadd();
+            mv.aload(1);
+            emitAddress(mv, address, offsets[i]);
+            emitGet(mv, runtime, nativeTypes[i]);
+            emitArrayStore(mv, columnTypes[i].getComponentType());
+        }
+
+        mv.lload(address);
+        mv.iload(4);
+        mv.i2l();
+        mv.ladd();
+        mv.lstore(address);
+        mv.iinc(counter, 1);
+        mv.go_to(loop);
+
+        mv.label(done);
+        mv.voidreturn();
+        mv.visitMaxs(10, 10);
+        mv.visitEnd();
+
+        cv.visitEnd();
+
+        try {
+            Class<StructMapper.ColumnReader> implClass = defineClass(layout.getClass().getClassLoader(), className, cw.toByteArray());
+            Constructor<StructMapper.ColumnReader> cons = implClass.getDeclaredConstructor(StructLayout.class, Class[].class);
+            return cons.newInstance(layout, columnTypes);
+        } catch (Throwable ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Class<T> defineClass(ClassLoader parent, String className, byte[] bytes) {
+        if (AsmLibraryLoader.DEBUG) {
+            ClassVisitor trace = AsmUtil.newTraceClassVisitor(new PrintWriter(System.err));
+            new ClassReader(bytes).accept(trace, 0);
+        }
+
+        return new AsmClassLoader(parent).defineClass(className.replace("/", "."), bytes);
+    }
+
+    static long getLong(Pointer memory, long address, jnr.ffi.Runtime runtime, NativeType nativeType) {
+        long value;
+        switch (nativeType) {
+            case SCHAR:
+                return memory.getByte(address);
+            case UCHAR:
+                return memory.getByte(address) & 0xffL;
+            case SSHORT:
+                return memory.getShort(address);
+            case USHORT:
+                return memory.getShort(address) & 0xffffL;
+            case SINT:
+            case UINT:
+                value = memory.getInt(address);
+                break;
+            case SLONG:
+            case ULONG:
+                value = memory.getNativeLong(address);
+                break;
+            case SLONGLONG:
+            case ULONGLONG:
+                return memory.getLongLong(address);
+            case ADDRESS:
+                value = memory.getAddress(address);
+                break;
+            default:
+                throw new IllegalArgumentException("unsupported struct field type " + nativeType);
+        }
+
+        return isUnsigned32(runtime, nativeType) ? value & 0xffffffffL : value;
+    }
+
+    static void putLong(Pointer memory, long address, NativeType nativeType, long value) {
+        switch (nativeType) {
+            case SCHAR:
+            case UCHAR:
+                memory.putByte(address, (byte) value);
+                break;
+            case SSHORT:
+            case USHORT:
+                memory.putShort(address, (short) value);
+                break;
+            case SINT:
+            case UINT:
+                memory.putInt(address, (int) value);
+                break;
+            case SLONG:
+            case ULONG:
+                memory.putNativeLong(address, value);
+                break;
+            case SLONGLONG:
+            case ULONGLONG:
+                memory.putLongLong(address, value);
+                break;
+            case ADDRESS:
+                memory.putAddress(address, value);
+                break;
+            default:
+                throw new IllegalArgumentException("unsupported struct field type " + nativeType);
+        }
+    }
+
+    private static boolean isFloatingPoint(Class type) {
+        return float.class == type || double.class == type;
+    }
+
+    static final class ReflectionStructMapper<T> extends StructMapper<T> {
+        private final Field[] javaFields;
+        private final NativeType[] nativeTypes;
+        private final long[] offsets;
+
+        ReflectionStructMapper(StructLayout layout, Class<T> javaClass, Field[] javaFields, NativeType[] nativeTypes, long[] offsets) {
+            super(layout, javaClass);
+            this.javaFields = javaFields.clone();
+            this.nativeTypes = nativeTypes;
+            this.offsets = offsets;
+            for (Field f : this.javaFields) {
+                f.setAccessible(true);
+            }
+        }
+
+        @Override
+        public void read(Pointer memory, long offset, T object) {
+            jnr.ffi.Runtime runtime = getLayout().getRuntime();
+            try {
+                for (int i = 0; i < javaFields.length; i++) {
+                    final Field f = javaFields[i];
+                    final Class type = f.getType();
+                    final long address = offset + offsets[i];
+                    if (nativeTypes[i] == NativeType.FLOAT || nativeTypes[i] == NativeType.DOUBLE) {
+                        double value = nativeTypes[i] == NativeType.FLOAT ? memory.getFloat(address) : memory.getDouble(address);
+                        if (double.class == type) {
+                            f.setDouble(object, value);
+                        } else if (float.class == type) {
+                            f.setFloat(object, (float) value);
+                        } else {
+                            setLong(f, object, (long) value);
+                        }
+                    } else {
+                        long value = getLong(memory, address, runtime, nativeTypes[i]);
+                        if (double.class == type) {
+                            f.setDouble(object, value);
+                        } else if (float.class == type) {
+                            f.setFloat(object, value);
+                        } else {
+                            setLong(f, object, value);
+                        }
+                    }
+                }
+            } catch (IllegalAccessException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
+        private static void setLong(Field f, Object object, long value) throws IllegalAccessException {
+            final Class type = f.getType();
+            if (long.class == type) {
+                f.setLong(object, value);
+            } else if (int.class == type) {
+                f.setInt(object, (int) value);
+            } else if (short.class == type) {
+                f.setShort(object, (short) value);
+            } else if (char.class == type) {
+                f.setChar(object, (char) value);
+            } else {
+                f.setByte(object, (byte) value);
+            }
+        }
+
+        @Override
+        public void write(Pointer memory, long offset, T object) {
+            try {
+                for (int i = 0; i < javaFields.length; i++) {
+                    final Field f = javaFields[i];
+                    final long address = offset + offsets[i];
+                    if (nativeTypes[i] == NativeType.FLOAT) {
+                        memory.putFloat(address, isFloatingPoint(f.getType()) ? (float) f.getDouble(object) : (float) f.getLong(object));
+                    } else if (nativeTypes[i] == NativeType.DOUBLE) {
+                        memory.putDouble(address, isFloatingPoint(f.getType()) ? f.getDouble(object) : (double) f.getLong(object));
+                    } else {
+                        putLong(memory, address, nativeTypes[i], isFloatingPoint(f.getType()) ? (long) f.getDouble(object) : f.getLong(object));
+                    }
+                }
+            } catch (IllegalAccessException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    static final class ReflectionColumnReader extends StructMapper.ColumnReader {
+        private final NativeType[] nativeTypes;
+        private final long[] offsets;
+        private final jnr.ffi.Runtime runtime;
+
+        ReflectionColumnReader(StructLayout layout, Class[] columnTypes, NativeType[] nativeTypes, long[] offsets) {
+            super(layout, columnTypes);
+            this.runtime = layout.getRuntime();
+            this.nativeTypes = nativeTypes;
+            this.offsets = offsets;
+        }
+
+        @Override
+        protected void readColumns(Pointer memory, long offset, int stride, int count, Object[] columns, int index) {
+            long address = offset;
+            for (int i = 0; i < count; i++, address += stride) {
+                for (int c = 0; c < columns.length; c++) {
+                    final long fieldAddress = address + offsets[c];
+                    final Object column = columns[c];
+                    if (nativeTypes[c] == NativeType.FLOAT) {
+                        ((float[]) column)[index + i] = memory.getFloat(fieldAddress);
+                    } else if (nativeTypes[c] == NativeType.DOUBLE) {
+                        ((double[]) column)[index + i] = memory.getDouble(fieldAddress);
+                    } else {
+                        long value = getLong(memory, fieldAddress, runtime, nativeTypes[c]);
+                        if (column instanceof long[]) {
+                            ((long[]) column)[index + i] = value;
+                        } else if (column instanceof int[]) {
+                            ((int[]) column)[index + i] = (int) value;
+                        } else if (column instanceof short[]) {
+                            ((short[]) column)[index + i] = (short) value;
+                        } else {
+                            ((byte[]) column)[index + i] = (byte) value;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -20,6 +20,7 @@ package jnr.ffi.provider.jffi;
 
 import com.kenai.jffi.*;
 import jnr.ffi.CallingConvention;
+import jnr.ffi.NativeType;
 import jnr.ffi.provider.ParameterType;
 import jnr.ffi.provider.ResultType;
 import jnr.x86asm.Assembler;
@@ -68,6 +69,28 @@ abstract class StubCompiler {
 
     abstract void attach(Class clazz);
 
+    /**
+     * Checks if a batch invocation stub can be compiled for a function signature.
+     *
+     * @param resultType The native result type of the function.
+     * @param parameterTypes The native parameter types of the function.
+     * @return true if {@link #compileBatch} is supported for this signature.
+     */
+    boolean canCompileBatch(NativeType resultType, NativeType[] parameterTypes) {
+        return false;
+    }
+
+    /**
+     * Compiles a stub for a native method with the signature <tt>void name(long function, long records, int count)</tt>
+     * which calls <tt>function</tt> once for each of the <tt>count</tt> invocation records starting at
+     * <tt>records</tt>, storing the result of each call back into its record.
+     * <p>
+     * See {@link NativeCallBatch} for the layout of the invocation records.
+     */
+    void compileBatch(String name, NativeType resultType, NativeType[] parameterTypes, boolean saveErrno) {
+        throw new UnsupportedOperationException("batch invocation not supported");
+    }
+
     static final class DummyStubCompiler extends StubCompiler {
 
         boolean canCompile(ResultType returnType, ParameterType[] parameterTypes, CallingConvention convention) {
@@ -64,7 +64,8 @@ abstract class ToNativeOp {
     }
 
     static ToNativeOp get(ToNativeType type) {
-        ToNativeOp op = operations.get(type.effectiveJavaType());
+        Class primitiveClass = primitiveNativeClass(type.getToNativeConverter());
+        ToNativeOp op = operations.get(primitiveClass != null ? primitiveClass : type.effectiveJavaType());
         if (op != null) {
             return op;
 
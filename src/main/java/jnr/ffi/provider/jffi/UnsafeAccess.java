@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import java.lang.reflect.Field;
+
+/**
+ * Holds all use of {@code sun.misc.Unsafe}.
+ * <p>
+ * Direct memory is read and written through {@code Unsafe} in preference to jffi's {@link com.kenai.jffi.MemoryIO},
+ * since it avoids a level of indirection.  Callers must check {@link #ENABLED} before using the memory accessors.
+ * <p>
+ * The fences are public so {@link jnr.ffi.Pointer} can use them; use {@link jnr.ffi.Pointer#fullFence()} and
+ * friends rather than calling them directly.
+ */
+public final class UnsafeAccess {
+    // Referring to sun.misc.Unsafe makes javac warn that it is internal proprietary API.  That is intentional,
+    // and the warning cannot be suppressed, so this is the only class which refers to it.
+    private static final sun.misc.Unsafe UNSAFE = getUnsafe();
+
+    /** Whether Unsafe is available for direct memory accesses */
+    static final boolean ENABLED = UNSAFE != null && Util.getBooleanProperty("jnr.ffi.unsafe.enabled", true);
+
+    /** Whether Unsafe has fences (Java 8 or later) */
+    private static final boolean FENCES = UNSAFE != null && hasFences();
+
+    private UnsafeAccess() {
+    }
+
+    private static sun.misc.Unsafe getUnsafe() {
+        try {
+            Field f = sun.misc.Unsafe.class.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            return (sun.misc.Unsafe) f.get(null);
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    private static boolean hasFences() {
+        try {
+            sun.misc.Unsafe.class.getMethod("fullFence");
+            sun.misc.Unsafe.class.getMethod("loadFence");
+            sun.misc.Unsafe.class.getMethod("storeFence");
+            return true;
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    static byte getByte(long address) {
+        return UNSAFE.getByte(address);
+    }
+
+    static short getShort(long address) {
+        return UNSAFE.getShort(address);
+    }
+
+    static int getInt(long address) {
+        return UNSAFE.getInt(address);
+    }
+
+    static long getLong(long address) {
+        return UNSAFE.getLong(address);
+    }
+
+    static float getFloat(long address) {
+        return UNSAFE.getFloat(address);
+    }
+
+    static double getDouble(long address) {
+        return UNSAFE.getDouble(address);
+    }
+
+    static void putByte(long address, byte value) {
+        UNSAFE.putByte(address, value);
+    }
+
+    static void putShort(long address, short value) {
+        UNSAFE.putShort(address, value);
+    }
+
+    static void putInt(long address, int value) {
+        UNSAFE.putInt(address, value);
+    }
+
+    static void putLong(long address, long value) {
+        UNSAFE.putLong(address, value);
+    }
+
+    static void putFloat(long address, float value) {
+        UNSAFE.putFloat(address, value);
+    }
+
+    static void putDouble(long address, double value) {
+        UNSAFE.putDouble(address, value);
+    }
+
+    static int getIntVolatile(long address) {
+        return UNSAFE.getIntVolatile(null, address);
+    }
+
+    static void putIntVolatile(long address, int value) {
+        UNSAFE.putIntVolatile(null, address, value);
+    }
+
+    static void putOrderedInt(long address, int value) {
+        UNSAFE.putOrderedInt(null, address, value);
+    }
+
+    static boolean compareAndSwapInt(long address, int expected, int value) {
+        return UNSAFE.compareAndSwapInt(null, address, expected, value);
+    }
+
+    static long getLongVolatile(long address) {
+        return UNSAFE.getLongVolatile(null, address);
+    }
+
+    static void putLongVolatile(long address, long value) {
+        UNSAFE.putLongVolatile(null, address, value);
+    }
+
+    static void putOrderedLong(long address, long value) {
+        UNSAFE.putOrderedLong(null, address, value);
+    }
+
+    static boolean compareAndSwapLong(long address, long expected, long value) {
+        return UNSAFE.compareAndSwapLong(null, address, expected, value);
+    }
+
+    /**
+     * Ensures that loads and stores before the fence are not reordered with loads and stores after it.
+     */
+    public static void fullFence() {
+        if (FENCES) {
+            UNSAFE.fullFence();
+        } else {
+            // A volatile write followed by a volatile read cannot be reordered
+            fence = 0;
+            loadFence();
+        }
+    }
+
+    /**
+     * Ensures that loads before the fence are not reordered with loads and stores after it.
+     */
+    @SuppressWarnings("unused")
+    public static void loadFence() {
+        if (FENCES) {
+            UNSAFE.loadFence();
+        } else {
+            int value = fence;
+        }
+    }
+
+    /**
+     * Ensures that loads and stores before the fence are not reordered with stores after it.
+     */
+    public static void storeFence() {
+        if (FENCES) {
+            UNSAFE.storeFence();
+        } else {
+            fence = 0;
+        }
+    }
+
+    /**
+     * Only used when Unsafe has no fences.  The Java memory model only orders volatile accesses with respect to
+     * other accesses to the same field, so this does not formally order plain accesses to native memory, although
+     * current JVMs emit the barriers needed to do so.  Every fence also touches this one field, so concurrent
+     * fences contend on its cache line.
+     */
+    private static volatile int fence;
+}
@@ -28,4 +28,12 @@ final class Util {
             return defaultValue;
         }
     }
+
+    static int getIntegerProperty(String propertyName, int defaultValue) {
+        try {
+            return Integer.getInteger(propertyName, defaultValue);
+        } catch (SecurityException se) {
+            return defaultValue;
+        }
+    }
 }
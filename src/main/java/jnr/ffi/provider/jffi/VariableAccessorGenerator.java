@@ -80,6 +80,22 @@ public class VariableAccessorGenerator {
         mv.visitEnd();
     }
 
+    /**
+     * Generates a method which returns an {@link jnr.ffi.IntVariable}, {@link jnr.ffi.LongVariable} or
+     * {@link jnr.ffi.PointerVariable} accessor.
+     */
+    public void generatePrimitive(AsmBuilder builder, String variableName, long address, Class variableClass) {
+        Object variableAccessor = PrimitiveVariableAccessor.create(builder.getRuntime(), variableClass, address);
+        SkinnyMethodAdapter mv = new SkinnyMethodAdapter(builder.getClassVisitor(), ACC_PUBLIC | ACC_FINAL,
+                variableName, sig(variableClass), null, null);
+        mv.start();
+        mv.aload(0);
+        mv.getfield(builder.getClassNamePath(), builder.getObjectFieldName(variableAccessor, variableClass), ci(variableClass));
+        mv.areturn();
+        mv.visitMaxs(10, 10);
+        mv.visitEnd();
+    }
+
     Variable buildVariableAccessor(jnr.ffi.Runtime runtime, long address, Class interfaceClass, Class javaType, Collection<Annotation> annotations,
                                    ToNativeConverter toNativeConverter, FromNativeConverter fromNativeConverter,
                                    AsmClassLoader classLoader) {
@@ -23,8 +23,10 @@ import jnr.ffi.*;
 import jnr.ffi.provider.ParameterType;
 import jnr.ffi.provider.ResultType;
 import jnr.x86asm.Assembler;
+import jnr.x86asm.Label;
 import jnr.x86asm.REG;
 import jnr.x86asm.Register;
+import jnr.x86asm.XMMRegister;
 
 import static jnr.ffi.provider.jffi.CodegenUtils.sig;
 import static jnr.x86asm.Asm.*;
@@ -188,9 +190,10 @@ final class X86_64StubCompiler extends AbstractX86StubCompiler {
             throw new IllegalArgumentException("integer argument count > 6");
         }
 
-        // For args 5 & 6 of the function, they would have been pushed on the stack
+        // For args 5 & 6 of the function, they would have been pushed on the stack,
+        // above the return address at [rsp], so they are at [rsp + 8] and [rsp + 16]
         for (int i = 4; i < iCount; i++) {
-            int disp = 8 + ((4 - i) * 8);
+            int disp = 8 + ((i - 4) * 8);
             switch (parameterTypes[i].getNativeType()) {
                 case SCHAR:
                     a.movsx(dstRegisters64[i], byte_ptr(rsp, disp));
@@ -350,6 +353,154 @@ final class X86_64StubCompiler extends AbstractX86StubCompiler {
         stubs.add(new Stub(name, sig(resultClass, parameterClasses), a));
     }
 
+    @Override
+    boolean canCompileBatch(NativeType resultType, NativeType[] parameterTypes) {
+        switch (resultType) {
+            case VOID:
+            case SCHAR:
+            case UCHAR:
+            case SSHORT:
+            case USHORT:
+            case SINT:
+            case UINT:
+            case SLONG:
+            case ULONG:
+            case SLONGLONG:
+            case ULONGLONG:
+            case FLOAT:
+            case DOUBLE:
+            case ADDRESS:
+                break;
+
+            default:
+                return false;
+        }
+
+        int fCount = 0;
+        int iCount = 0;
+
+        for (NativeType t : parameterTypes) {
+            switch (t) {
+                case SCHAR:
+                case UCHAR:
+                case SSHORT:
+                case USHORT:
+                case SINT:
+                case UINT:
+                case SLONG:
+                case ULONG:
+                case SLONGLONG:
+                case ULONGLONG:
+                case ADDRESS:
+                    ++iCount;
+                    break;
+
+                case FLOAT:
+                case DOUBLE:
+                    ++fCount;
+                    break;
+
+                default:
+                    return false;
+            }
+        }
+
+        // All parameters must be passed in registers
+        return iCount <= 6 && fCount <= 8;
+    }
+
+    static final XMMRegister[] floatRegisters = { xmm0, xmm1, xmm2, xmm3, xmm4, xmm5, xmm6, xmm7 };
+
+    @Override
+    final void compileBatch(String name, NativeType resultType, NativeType[] parameterTypes, boolean saveErrno) {
+        Assembler a = new Assembler(X86_64);
+
+        // The JNI stub looks like:
+        // void invoke(JNIEnv* env, jobject self, jlong function, jlong records, jint count)
+        // so function, records and count arrive in %rdx, %rcx and %r8d respectively.
+        //
+        // Preserve the callee-saved registers used to hold the loop state across calls.  Three pushes on
+        // top of the return address also leave the stack aligned on a 16 byte boundary for the calls below.
+        a.push(rbx);
+        a.push(r12);
+        a.push(r13);
+
+        a.mov(r12, rdx);
+        a.mov(rbx, rcx);
+        a.movsxd(r13, srcRegisters32[2]);
+
+        // The java side never calls the stub with count == 0, so the loop is always entered
+        int loop = a.offset();
+
+        // Load all the arguments from the current record into their parameter registers.
+        // Integer values have already been sign/zero extended to 64 bits by the java side.
+        int iCount = 0, fCount = 0;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            int disp = i * NativeCallBatch.SLOT_SIZE;
+            switch (parameterTypes[i]) {
+                case FLOAT:
+                    a.movss(floatRegisters[fCount++], dword_ptr(rbx, disp));
+                    break;
+
+                case DOUBLE:
+                    a.movsd(floatRegisters[fCount++], qword_ptr(rbx, disp));
+                    break;
+
+                default:
+                    a.mov(dstRegisters64[iCount++], qword_ptr(rbx, disp));
+                    break;
+            }
+        }
+
+        // %al holds the number of vector registers used, in case the target is a varargs function
+        a.mov(rax, imm(fCount));
+        a.call(r12);
+
+        // Store the raw result in the record - the java side does any sign/zero extension
+        int resultOffset = parameterTypes.length * NativeCallBatch.SLOT_SIZE;
+        switch (resultType) {
+            case VOID:
+                break;
+
+            case FLOAT:
+                a.movss(dword_ptr(rbx, resultOffset), xmm0);
+                break;
+
+            case DOUBLE:
+                a.movsd(qword_ptr(rbx, resultOffset), xmm0);
+                break;
+
+            default:
+                a.mov(qword_ptr(rbx, resultOffset), rax);
+                break;
+        }
+
+        a.add(rbx, imm(NativeCallBatch.recordSize(parameterTypes.length)));
+        a.dec(r13);
+
+        // The assembler cannot bind labels, so emit the backward branch against a dummy label
+        // and then patch its 32 bit displacement to point at the top of the loop.
+        int jcc = a.offset();
+        a.jnz(new Label(), 0);
+        int next = a.offset();
+        if (next - jcc != 6) {
+            throw new IllegalStateException("unexpected branch encoding length " + (next - jcc));
+        }
+        a.setDWordAt(next - 4, loop - next);
+
+        if (saveErrno) {
+            // Only the errno of the last call in the batch is saved
+            a.call(imm(errnoFunctionAddress));
+        }
+
+        a.pop(r13);
+        a.pop(r12);
+        a.pop(rbx);
+        a.ret();
+
+        stubs.add(new Stub(name, sig(void.class, long.class, long.class, int.class), a));
+    }
+
     static int fCount(ParameterType[] parameterTypes) {
         int fCount = 0;
 
@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes {@link jnr.ffi.annotations.Blocking} native calls on a dedicated pool of threads.
+ * <p>
+ * Queue depth and latency statistics are recorded for each function.
+ */
+public final class BlockingCallExecutor {
+    private final ExecutorService executor;
+    private final ConcurrentMap<String, Statistics> statistics = new ConcurrentHashMap<String, Statistics>();
+
+    private static final class SingletonHolder {
+        static final BlockingCallExecutor INSTANCE = new BlockingCallExecutor(
+                Math.max(4, java.lang.Runtime.getRuntime().availableProcessors() * 2), 1024);
+    }
+
+    /**
+     * Gets the executor used by libraries which do not specify one.
+     *
+     * @return the default executor.
+     */
+    public static BlockingCallExecutor getDefault() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    /**
+     * Creates a new executor with its own pool of daemon threads.
+     *
+     * @param threads The maximum number of native calls that can run concurrently.
+     * @param queueCapacity The maximum number of calls that can wait for a thread.  When the queue is full,
+     *                      further calls fail with a {@link RejectedExecutionException}.
+     */
+    public BlockingCallExecutor(int threads, int queueCapacity) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new DaemonThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+        this.executor = executor;
+    }
+
+    /**
+     * Creates a new executor which runs native calls on an existing {@link ExecutorService}.
+     *
+     * @param executor The executor service to run native calls on.
+     */
+    public BlockingCallExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Runs a call on the executor, and parks the calling thread until it completes.
+     * <p>
+     * If the calling thread is interrupted before the call has started, the call is abandoned and an
+     * {@link IllegalStateException} is thrown.  Once started, a native call cannot be interrupted, so the
+     * calling thread waits for it to complete and its interrupt status is restored.
+     *
+     * @param function The name of the function, used to record statistics.
+     * @param call The call to run.
+     * @param <T> The result type of the call.
+     * @return The result of the call.
+     */
+    public <T> T execute(String function, final Callable<T> call) {
+        final Statistics stats = getStatistics(function);
+        final long submitted = System.nanoTime();
+
+        stats.queued.incrementAndGet();
+        Future<T> future;
+        try {
+            future = executor.submit(new Callable<T>() {
+                public T call() throws Exception {
+                    long start = System.nanoTime();
+                    stats.started(start - submitted);
+                    try {
+                        return call.call();
+                    } finally {
+                        stats.completed(System.nanoTime() - start);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            stats.queued.decrementAndGet();
+            stats.rejected.incrementAndGet();
+            throw ex;
+        }
+
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+
+                } catch (InterruptedException ie) {
+                    if (future.cancel(false)) {
+                        stats.queued.decrementAndGet();
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("interrupted waiting for native call to " + function);
+                    }
+                    interrupted = true;
+
+                } catch (ExecutionException ee) {
+                    Throwable cause = ee.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    } else {
+                        throw new RuntimeException(cause);
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Gets the statistics for a function.
+     *
+     * @param function The name of the function.
+     * @return The statistics of the function.
+     */
+    public Statistics getStatistics(String function) {
+        Statistics stats = statistics.get(function);
+        if (stats == null) {
+            Statistics newStats = new Statistics();
+            stats = statistics.putIfAbsent(function, newStats);
+            if (stats == null) {
+                stats = newStats;
+            }
+        }
+
+        return stats;
+    }
+
+    /**
+     * Gets the statistics of all functions which have been called through this executor.
+     *
+     * @return A map of function name to statistics.
+     */
+    public Map<String, Statistics> getStatistics() {
+        return Collections.unmodifiableMap(new HashMap<String, Statistics>(statistics));
+    }
+
+    /**
+     * Shuts down the threads of this executor.  Calls which have already been submitted are completed.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Queue depth and latency statistics of a function.
+     */
+    public static final class Statistics {
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong totalQueueNanos = new AtomicLong();
+        private final AtomicLong totalExecutionNanos = new AtomicLong();
+        private volatile long maxQueueNanos;
+        private volatile long maxExecutionNanos;
+
+        Statistics() {
+        }
+
+        private void started(long queueNanos) {
+            queued.decrementAndGet();
+            active.incrementAndGet();
+            totalQueueNanos.addAndGet(queueNanos);
+            if (queueNanos > maxQueueNanos) {
+                // Benign race - the maximum is only a statistic
+                maxQueueNanos = queueNanos;
+            }
+        }
+
+        private void completed(long executionNanos) {
+            active.decrementAndGet();
+            completed.incrementAndGet();
+            totalExecutionNanos.addAndGet(executionNanos);
+            if (executionNanos > maxExecutionNanos) {
+                maxExecutionNanos = executionNanos;
+            }
+        }
+
+        /**
+         * Gets the number of calls waiting for a thread.
+         *
+         * @return the current queue depth.
+         */
+        public int getQueueDepth() {
+            return queued.get();
+        }
+
+        /**
+         * Gets the number of calls currently executing.
+         *
+         * @return the number of active calls.
+         */
+        public int getActiveCount() {
+            return active.get();
+        }
+
+        /**
+         * Gets the number of calls which have completed.
+         *
+         * @return the number of completed calls.
+         */
+        public long getCompletedCount() {
+            return completed.get();
+        }
+
+        /**
+         * Gets the number of calls which were rejected because the queue was full.
+         *
+         * @return the number of rejected calls.
+         */
+        public long getRejectedCount() {
+            return rejected.get();
+        }
+
+        /**
+         * Gets the total time calls have spent waiting for a thread.
+         *
+         * @return the total queue time in nanoseconds.
+         */
+        public long getTotalQueueNanos() {
+            return totalQueueNanos.get();
+        }
+
+        /**
+         * Gets the longest time a call has waited for a thread.
+         *
+         * @return the maximum queue time in nanoseconds.
+         */
+        public long getMaxQueueNanos() {
+            return maxQueueNanos;
+        }
+
+        /**
+         * Gets the total time spent executing calls.
+         *
+         * @return the total execution time in nanoseconds.
+         */
+        public long getTotalExecutionNanos() {
+            return totalExecutionNanos.get();
+        }
+
+        /**
+         * Gets the longest time a call has taken to execute.
+         *
+         * @return the maximum execution time in nanoseconds.
+         */
+        public long getMaxExecutionNanos() {
+            return maxExecutionNanos;
+        }
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private static final AtomicInteger poolId = new AtomicInteger();
+        private final int pool = poolId.incrementAndGet();
+        private final AtomicInteger threadId = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "jnr-ffi-blocking-" + pool + "-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
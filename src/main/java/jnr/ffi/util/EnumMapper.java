@@ -37,7 +37,14 @@ public final class EnumMapper {
     private final Class<? extends Enum> enumClass;
     private final Integer[] intValues;
     private final Long[] longValues;
-    private final Map<Number, Enum> reverseLookupMap = new HashMap<Number, Enum>();
+
+    // Reverse lookup table.  Dense values are looked up directly in values[value - base],
+    // sparse values are looked up in an open addressing hash table of keys/values.
+    private final long base;
+    private final long[] keys;
+    private final Enum[] values;
+    private final int shift;
+    private final Enum unknownValue;
 
     private EnumMapper(Class<? extends Enum> enumClass) {
         this.enumClass = enumClass;
@@ -61,10 +68,44 @@ public final class EnumMapper {
             }
             intValues[e.ordinal()] = value.intValue();
             longValues[e.ordinal()] = value.longValue();
+        }
 
-            reverseLookupMap.put(value, e);
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (Long value : longValues) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
         }
-        
+
+        // Use a direct-indexed array if it would be no more than a quarter empty (or is tiny)
+        int count = longValues.length;
+        long span = count > 0 ? max - min : -1; // negative if the subtraction overflows
+        if (count == 0 || (span >= 0 && span < Math.max(16, count + count / 3))) {
+            this.base = count > 0 ? min : 0;
+            this.keys = null;
+            this.values = new Enum[(int) (span + 1)];
+            this.shift = 0;
+            for (Enum e : enums) {
+                values[(int) (longValues[e.ordinal()] - base)] = e;
+            }
+
+        } else {
+            int capacity = Integer.highestOneBit(count * 2 - 1) << 1;
+            this.base = 0;
+            this.keys = new long[capacity];
+            this.values = new Enum[capacity];
+            this.shift = 64 - Integer.numberOfTrailingZeros(capacity);
+            for (Enum e : enums) {
+                long value = longValues[e.ordinal()];
+                int idx = hash(value);
+                while (values[idx] != null && keys[idx] != value) {
+                    idx = (idx + 1) & (capacity - 1);
+                }
+                keys[idx] = value;
+                values[idx] = e;
+            }
+        }
+
+        this.unknownValue = unknownValue(enumClass);
     }
 
     public static interface IntegerEnum {
@@ -139,28 +180,51 @@ public final class EnumMapper {
     }
 
     public Enum valueOf(Number value) {
-        return reverseLookup(value);
+        return reverseLookup(value.longValue());
+    }
+
+    private int hash(long value) {
+        return (int) ((value * 0x9E3779B97F4A7C15L) >>> shift);
     }
 
-    private Enum reverseLookup(Number value) {
-        Enum e = reverseLookupMap.get(value);
+    private Enum reverseLookup(long value) {
+        Enum e;
+        if (keys == null) {
+            long idx = value - base;
+            e = idx >= 0 && idx < values.length ? values[(int) idx] : null;
+
+        } else {
+            int idx = hash(value);
+            while ((e = values[idx]) != null && keys[idx] != value) {
+                idx = (idx + 1) & (values.length - 1);
+            }
+        }
+
         return e != null ? e : badValue(value);
     }
 
-    private Enum badValue(Number value) {
+    private Enum badValue(long value) {
+        if (unknownValue != null) {
+            return unknownValue;
+        }
+
         //
-        // No value found - try to find the default value for unknown values.
+        // No default, so just give up and throw an exception
+        //
+        throw new IllegalArgumentException("No known Enum mapping for value "
+                + value + " of type " + enumClass.getName());
+    }
+
+    private static Enum unknownValue(Class<? extends Enum> enumClass) {
+        //
+        // Find the default value for unknown values.
         // This is useful for enums that aren't fixed in stone and/or where you
         // don't want to throw an Exception for an unknown value.
         //
         try {
             return Enum.valueOf(enumClass, "__UNKNOWN_NATIVE_VALUE");
         } catch (IllegalArgumentException ex) {
-            //
-            // No default, so just give up and throw an exception
-            //
-            throw new IllegalArgumentException("No known Enum mapping for value "
-                    + value + " of type " + enumClass.getName());
+            return null;
         }
     }
 }
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link ReentrantLock} that records contention statistics.
+ * <p>
+ * This is the lock used for {@link jnr.ffi.annotations.Synchronized} methods, unless a different
+ * lock has been registered in the library's {@link LockRegistry}.
+ */
+public class InstrumentedLock extends ReentrantLock {
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong contendedAcquisitions = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private volatile long maxWaitNanos;
+
+    public InstrumentedLock() {
+    }
+
+    public InstrumentedLock(boolean fair) {
+        super(fair);
+    }
+
+    @Override
+    public void lock() {
+        if (!isFair() && super.tryLock()) {
+            acquisitions.incrementAndGet();
+            return;
+        }
+
+        long start = System.nanoTime();
+        super.lock();
+        acquired(System.nanoTime() - start);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        if (!isFair() && super.tryLock()) {
+            acquisitions.incrementAndGet();
+            return;
+        }
+
+        long start = System.nanoTime();
+        super.lockInterruptibly();
+        acquired(System.nanoTime() - start);
+    }
+
+    @Override
+    public boolean tryLock(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!isFair() && super.tryLock()) {
+            acquisitions.incrementAndGet();
+            return true;
+        }
+
+        long start = System.nanoTime();
+        if (super.tryLock(timeout, unit)) {
+            acquired(System.nanoTime() - start);
+            return true;
+        }
+
+        return false;
+    }
+
+    private void acquired(long waitNanos) {
+        acquisitions.incrementAndGet();
+        contendedAcquisitions.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        if (waitNanos > maxWaitNanos) {
+            // Benign race - the maximum is only a statistic
+            maxWaitNanos = waitNanos;
+        }
+    }
+
+    /**
+     * Gets the number of times the lock has been acquired.
+     *
+     * @return the number of lock acquisitions.
+     */
+    public long getAcquisitionCount() {
+        return acquisitions.get();
+    }
+
+    /**
+     * Gets the number of times a thread could not acquire the lock immediately, and had to wait.
+     *
+     * @return the number of contended lock acquisitions.
+     */
+    public long getContendedAcquisitionCount() {
+        return contendedAcquisitions.get();
+    }
+
+    /**
+     * Gets the total time threads have spent waiting to acquire the lock.
+     *
+     * @return the total wait time in nanoseconds.
+     */
+    public long getTotalWaitNanos() {
+        return totalWaitNanos.get();
+    }
+
+    /**
+     * Gets the longest time a thread has waited to acquire the lock.
+     *
+     * @return the maximum wait time in nanoseconds.
+     */
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    /**
+     * Resets all statistics to zero.
+     */
+    public void resetStatistics() {
+        acquisitions.set(0);
+        contendedAcquisitions.set(0);
+        totalWaitNanos.set(0);
+        maxWaitNanos = 0;
+    }
+}
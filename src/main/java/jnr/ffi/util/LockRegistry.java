@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * A set of named locks used to synchronize calls to {@link jnr.ffi.annotations.Synchronized} library methods.
+ * <p>
+ * Locks are created on demand as {@link InstrumentedLock} instances.  A custom lock can be used for a name by
+ * registering it before the library is loaded.
+ * <p>
+ * <b>Example</b>
+ * <pre>
+ *     {@code
+ *
+ *     LockRegistry locks = new LockRegistry();
+ *     locks.register(Synchronized.LIBRARY, myLock);
+ *
+ *     MyLib lib = LibraryLoader.create(MyLib.class).option(LibraryOption.LockRegistry, locks).load("mylib");
+ *     }
+ * </pre>
+ */
+public final class LockRegistry {
+    private final ConcurrentMap<String, Lock> locks = new ConcurrentHashMap<String, Lock>();
+
+    /**
+     * Gets the lock with the given name, creating it if it does not exist.
+     *
+     * @param name The name of the lock.
+     * @return The lock.
+     */
+    public Lock getLock(String name) {
+        Lock lock = locks.get(name);
+        if (lock != null) {
+            return lock;
+        }
+
+        Lock newLock = new InstrumentedLock();
+        lock = locks.putIfAbsent(name, newLock);
+        return lock != null ? lock : newLock;
+    }
+
+    /**
+     * Registers a lock under a name.
+     *
+     * @param name The name of the lock.
+     * @param lock The lock.
+     * @throws IllegalStateException if a different lock is already registered with that name.
+     */
+    public void register(String name, Lock lock) {
+        Lock existing = locks.putIfAbsent(name, lock);
+        if (existing != null && existing != lock) {
+            throw new IllegalStateException("lock '" + name + "' is already registered");
+        }
+    }
+
+    /**
+     * Gets all locks currently in the registry.
+     *
+     * @return an unmodifiable snapshot of the registered locks, keyed by name.
+     */
+    public Map<String, Lock> getLocks() {
+        return Collections.unmodifiableMap(new HashMap<String, Lock>(locks));
+    }
+}
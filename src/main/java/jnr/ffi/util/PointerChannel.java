@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.util;
+
+import jnr.ffi.Pointer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A seekable {@link ByteChannel} over a fixed size region of memory.
+ * <p>
+ * Transfers to and from heap buffers copy directly between the memory and the buffer's backing array.
+ * Transfers to and from direct buffers, and to other channels, go through a {@link ByteBuffer} view of the
+ * memory (see {@link Pointer#asByteBuffer(long, int)}), so no temporary array is involved.
+ * <p>
+ * The position, size and transfer methods follow {@link java.nio.channels.FileChannel}.  The size of the
+ * channel is the size of the region and never changes; writing past the end throws an {@link IOException}.
+ * The channel is not thread safe.
+ */
+public class PointerChannel implements ByteChannel {
+    /** The largest view created for a single transfer */
+    private static final int MAX_VIEW_SIZE = 1 << 30;
+
+    /** The size of the temporary buffer used for memory which cannot be viewed as a ByteBuffer */
+    private static final int COPY_BUFFER_SIZE = 8192;
+
+    private final Pointer memory;
+    private final long start;
+    private final long size;
+    private long position;
+    private boolean viewable = true;
+    private volatile boolean open = true;
+
+    /**
+     * Creates a channel over the whole of a bounded memory region.
+     *
+     * @param memory the memory to read and write.
+     */
+    public PointerChannel(Pointer memory) {
+        this(memory, 0, memory.size());
+    }
+
+    /**
+     * Creates a channel over a region of memory.
+     *
+     * @param memory the memory to read and write.
+     * @param offset the offset within {@code memory} of the start of the channel.
+     * @param length the size of the channel in bytes.
+     * @throws IndexOutOfBoundsException if the region is not within the bounds of {@code memory}.
+     */
+    public PointerChannel(Pointer memory, long offset, long length) {
+        if (offset < 0 || length < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        memory.checkBounds(offset, length);
+        this.memory = memory;
+        this.start = offset;
+        this.size = length;
+    }
+
+    private void checkOpen() throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    /**
+     * Gets the position of the next read or write, relative to the start of the channel.
+     *
+     * @return the current position.
+     * @throws IOException if the channel is closed.
+     */
+    public long position() throws IOException {
+        checkOpen();
+        return position;
+    }
+
+    /**
+     * Sets the position of the next read or write.  Setting the position beyond the size of the channel is
+     * permitted, but subsequent reads return end-of-stream and writes fail.
+     *
+     * @param newPosition the new position, relative to the start of the channel.
+     * @return this channel.
+     * @throws IOException if the channel is closed.
+     */
+    public PointerChannel position(long newPosition) throws IOException {
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("negative position");
+        }
+        checkOpen();
+        position = newPosition;
+        return this;
+    }
+
+    /**
+     * Gets the size of the channel.
+     *
+     * @return the size in bytes.
+     * @throws IOException if the channel is closed.
+     */
+    public long size() throws IOException {
+        checkOpen();
+        return size;
+    }
+
+    public int read(ByteBuffer dst) throws IOException {
+        checkOpen();
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+        if (position >= size) {
+            return -1;
+        }
+
+        int n = (int) Math.min(dst.remaining(), size - position);
+        copyTo(start + position, dst, n);
+        position += n;
+        return n;
+    }
+
+    public int write(ByteBuffer src) throws IOException {
+        checkOpen();
+        int n = src.remaining();
+        if (n > size - position) {
+            throw new IOException("insufficient space in memory region: " + n + " bytes requested, "
+                    + Math.max(0, size - position) + " remaining");
+        }
+
+        copyFrom(start + position, src, n);
+        position += n;
+        return n;
+    }
+
+    /**
+     * Writes bytes from this channel to another channel, without changing the position of this channel.
+     *
+     * @param position the position in this channel of the first byte to transfer.
+     * @param count the maximum number of bytes to transfer.
+     * @param target the channel to write to.
+     * @return the number of bytes transferred, which may be less than {@code count} if the target
+     * accepts fewer bytes.
+     * @throws IOException if an I/O error occurs.
+     */
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        if (position < 0 || count < 0) {
+            throw new IllegalArgumentException();
+        }
+        checkOpen();
+
+        long remaining = Math.max(0, Math.min(count, size - position));
+        long transferred = 0;
+        while (transferred < remaining) {
+            int n = (int) Math.min(remaining - transferred, MAX_VIEW_SIZE);
+            ByteBuffer view = view(start + position + transferred, n);
+            if (view == null) {
+                n = Math.min(n, COPY_BUFFER_SIZE);
+                view = ByteBuffer.allocate(n);
+                copyTo(start + position + transferred, view, n);
+                view.flip();
+            }
+            int written = target.write(view);
+            transferred += written;
+            if (written < n) {
+                break;
+            }
+        }
+
+        return transferred;
+    }
+
+    /**
+     * Reads bytes from another channel into this channel, without changing the position of this channel.
+     *
+     * @param src the channel to read from.
+     * @param position the position in this channel to store the first byte at.
+     * @param count the maximum number of bytes to transfer.
+     * @return the number of bytes transferred, which may be less than {@code count} if the source
+     * has fewer bytes available.
+     * @throws IOException if an I/O error occurs.
+     */
+    public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+        if (position < 0 || count < 0) {
+            throw new IllegalArgumentException();
+        }
+        checkOpen();
+
+        long remaining = Math.max(0, Math.min(count, size - position));
+        long transferred = 0;
+        while (transferred < remaining) {
+            int n = (int) Math.min(remaining - transferred, MAX_VIEW_SIZE);
+            ByteBuffer view = view(start + position + transferred, n);
+            ByteBuffer buffer = view;
+            if (view == null) {
+                n = Math.min(n, COPY_BUFFER_SIZE);
+                buffer = ByteBuffer.allocate(n);
+            }
+            int read = src.read(buffer);
+            if (read <= 0) {
+                break;
+            }
+            if (view == null) {
+                buffer.flip();
+                copyFrom(start + position + transferred, buffer, read);
+            }
+            transferred += read;
+            if (read < n) {
+                break;
+            }
+        }
+
+        return transferred;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public void close() {
+        open = false;
+    }
+
+    /**
+     * Creates a view of part of the memory, or returns null if the memory cannot be viewed as a ByteBuffer.
+     */
+    private ByteBuffer view(long offset, int length) {
+        if (viewable) {
+            try {
+                return memory.asByteBuffer(offset, length);
+            } catch (UnsupportedOperationException ex) {
+                viewable = false;
+            }
+        }
+
+        return null;
+    }
+
+    private void copyTo(long offset, ByteBuffer dst, int n) {
+        ByteBuffer view;
+        if (dst.hasArray()) {
+            memory.get(offset, dst.array(), dst.arrayOffset() + dst.position(), n);
+            dst.position(dst.position() + n);
+
+        } else if ((view = view(offset, n)) != null) {
+            dst.put(view);
+
+        } else {
+            byte[] bytes = new byte[n];
+            memory.get(offset, bytes, 0, n);
+            dst.put(bytes);
+        }
+    }
+
+    private void copyFrom(long offset, ByteBuffer src, int n) {
+        ByteBuffer view;
+        if (src.hasArray()) {
+            memory.put(offset, src.array(), src.arrayOffset() + src.position(), n);
+            src.position(src.position() + n);
+
+        } else if ((view = view(offset, n)) != null) {
+            view.put(src);
+
+        } else {
+            byte[] bytes = new byte[n];
+            src.get(bytes);
+            memory.put(offset, bytes, 0, n);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.util;
+
+import jnr.ffi.Pointer;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An {@link InputStream} which reads from a region of memory.
+ * <p>
+ * Reads copy directly from the memory into the caller's array with {@link Pointer#get(long, byte[], int, int)}.
+ * The stream supports {@link #mark(int)} and {@link #reset()}.  It is not thread safe.
+ */
+public class PointerInputStream extends InputStream {
+    private final Pointer memory;
+    private final long limit;
+    private long position;
+    private long mark;
+    private boolean closed;
+
+    /**
+     * Creates a stream which reads the whole of a bounded memory region.
+     *
+     * @param memory the memory to read from.
+     */
+    public PointerInputStream(Pointer memory) {
+        this(memory, 0, memory.size());
+    }
+
+    /**
+     * Creates a stream which reads a region of memory.
+     *
+     * @param memory the memory to read from.
+     * @param offset the offset within {@code memory} of the first byte to read.
+     * @param length the number of bytes which can be read.
+     * @throws IndexOutOfBoundsException if the region is not within the bounds of {@code memory}.
+     */
+    public PointerInputStream(Pointer memory, long offset, long length) {
+        if (offset < 0 || length < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        memory.checkBounds(offset, length);
+        this.memory = memory;
+        this.position = this.mark = offset;
+        this.limit = offset + length;
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("stream closed");
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkOpen();
+        return position < limit ? memory.getByte(position++) & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkOpen();
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= limit) {
+            return -1;
+        }
+
+        int n = (int) Math.min(len, limit - position);
+        memory.get(position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        checkOpen();
+        long skipped = Math.max(0, Math.min(n, limit - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        checkOpen();
+        return (int) Math.min(Integer.MAX_VALUE, limit - position);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        mark = position;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        checkOpen();
+        position = mark;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
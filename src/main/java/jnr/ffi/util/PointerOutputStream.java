@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.util;
+
+import jnr.ffi.Pointer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An {@link OutputStream} which writes to a region of memory.
+ * <p>
+ * Writes copy directly from the caller's array into the memory with {@link Pointer#put(long, byte[], int, int)}.
+ * Writing past the end of the region throws an {@link IOException}, and writes nothing.  The stream is not
+ * thread safe.
+ */
+public class PointerOutputStream extends OutputStream {
+    private final Pointer memory;
+    private final long start;
+    private final long limit;
+    private long position;
+    private boolean closed;
+
+    /**
+     * Creates a stream which writes to the whole of a bounded memory region.
+     *
+     * @param memory the memory to write to.
+     */
+    public PointerOutputStream(Pointer memory) {
+        this(memory, 0, memory.size());
+    }
+
+    /**
+     * Creates a stream which writes to a region of memory.
+     *
+     * @param memory the memory to write to.
+     * @param offset the offset within {@code memory} of the first byte to write.
+     * @param length the number of bytes which can be written.
+     * @throws IndexOutOfBoundsException if the region is not within the bounds of {@code memory}.
+     */
+    public PointerOutputStream(Pointer memory, long offset, long length) {
+        if (offset < 0 || length < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        memory.checkBounds(offset, length);
+        this.memory = memory;
+        this.start = this.position = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * Gets the number of bytes written so far.
+     *
+     * @return the number of bytes written.
+     */
+    public long size() {
+        return position - start;
+    }
+
+    /**
+     * Gets the number of bytes which can still be written.
+     *
+     * @return the number of bytes remaining.
+     */
+    public long remaining() {
+        return limit - position;
+    }
+
+    private void ensureCapacity(int len) throws IOException {
+        if (closed) {
+            throw new IOException("stream closed");
+        }
+        if (len > limit - position) {
+            throw new IOException("insufficient space in memory region: " + len + " bytes requested, "
+                    + (limit - position) + " remaining");
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureCapacity(1);
+        memory.putByte(position++, (byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        ensureCapacity(len);
+        memory.put(position, b, off, len);
+        position += len;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
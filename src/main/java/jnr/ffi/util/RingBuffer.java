@@ -0,0 +1,321 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.util;
+
+import jnr.ffi.Memory;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+
+/**
+ * A lock-free ring buffer of variable length messages in native memory, for passing data between java and
+ * native code without a native call (or callback) per message.
+ * <p>
+ * The buffer may have many producers, but only one consumer.  Producers and the consumer can be either java
+ * or native code; native code must follow the layout and protocol below.
+ * <p>
+ * <b>Layout.</b>  All values are in native byte order.  Each cursor is on its own 64 byte cache line, so
+ * producers and the consumer do not contend for the same line.
+ * <pre>
+ * offset   size      description
+ *      0      8      capacity of the data area in bytes; a power of two, at least 64
+ *     64      8      tail: total bytes ever claimed by producers
+ *    128      8      head: total bytes ever consumed
+ *    192   capacity  data area
+ * </pre>
+ * Each message is a record in the data area.  Records start on an 8 byte boundary, and never wrap
+ * around the end of the data area.
+ * <pre>
+ * offset   size      description
+ *      0      4      record length in bytes, including this header; 0 until the record is committed
+ *      4      4      message type; {@link #PADDING_TYPE} for padding records, which are skipped
+ *      8      n      message payload
+ * </pre>
+ * <b>Producing.</b>  A producer reserves space by advancing the tail with a compare and swap, ensuring that
+ * {@code tail - head} never exceeds the capacity.  If the record would not fit before the end of the data
+ * area, the producer also reserves the remaining space, and fills it with a padding record.  It then writes
+ * the type and payload, and finally commits the record by writing its length with release semantics.
+ * <p>
+ * <b>Consuming.</b>  The consumer reads the record length at {@code head % capacity} with acquire semantics,
+ * and stops if it is zero.  Once a record has been processed, the consumer zeroes it, then advances the head
+ * with release semantics.
+ */
+public final class RingBuffer {
+    /** Offset of the capacity in the header */
+    public static final int CAPACITY_OFFSET = 0;
+
+    /** Offset of the tail cursor in the header */
+    public static final int TAIL_OFFSET = 64;
+
+    /** Offset of the head cursor in the header */
+    public static final int HEAD_OFFSET = 128;
+
+    /** Size of the header, and so the offset of the data area */
+    public static final int HEADER_SIZE = 192;
+
+    /** Size of the header of each record */
+    public static final int RECORD_HEADER_SIZE = 8;
+
+    /** The message type used for padding records */
+    public static final int PADDING_TYPE = -1;
+
+    private static final int ALIGNMENT = 8;
+
+    private final Pointer memory;
+    private final long capacity;
+    private final long mask;
+    private final boolean multiProducer;
+
+    /**
+     * Receives messages from a {@link RingBuffer}.
+     */
+    public interface MessageHandler {
+        /**
+         * Called for each message read from the ring buffer.
+         * <p>
+         * The payload is only valid until this method returns.
+         *
+         * @param type the message type.
+         * @param buffer the memory containing the payload.
+         * @param offset the offset of the payload in {@code buffer}.
+         * @param length the length of the payload in bytes.
+         */
+        void onMessage(int type, Pointer buffer, long offset, int length);
+    }
+
+    private RingBuffer(Pointer memory, long capacity, boolean multiProducer) {
+        this.memory = memory;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.multiProducer = multiProducer;
+    }
+
+    /**
+     * Allocates a new ring buffer in direct memory.
+     *
+     * @param runtime The runtime to allocate the memory in.
+     * @param capacity The size of the data area in bytes.  Must be a power of two, and at least 64.
+     * @param multiProducer true if more than one thread may write to the buffer concurrently.
+     * @return A new, empty ring buffer.
+     */
+    public static RingBuffer allocate(Runtime runtime, int capacity, boolean multiProducer) {
+        checkCapacity(capacity);
+        Pointer memory = Memory.allocateDirect(runtime, HEADER_SIZE + capacity, true);
+        memory.putLongVolatile(CAPACITY_OFFSET, capacity);
+
+        return new RingBuffer(memory, capacity, multiProducer);
+    }
+
+    /**
+     * Wraps memory that already contains a ring buffer, e.g. one created by native code.
+     *
+     * @param memory The memory containing the ring buffer header and data area.
+     * @param multiProducer true if more than one thread may write to the buffer concurrently.
+     * @return A ring buffer using the memory.
+     */
+    public static RingBuffer wrap(Pointer memory, boolean multiProducer) {
+        long capacity = memory.getLongVolatile(CAPACITY_OFFSET);
+        checkCapacity(capacity);
+        memory.checkBounds(0, HEADER_SIZE + capacity);
+
+        return new RingBuffer(memory, capacity, multiProducer);
+    }
+
+    private static void checkCapacity(long capacity) {
+        if (capacity < 64 || (capacity & (capacity - 1)) != 0) {
+            throw new IllegalArgumentException("capacity must be a power of two, and at least 64: " + capacity);
+        }
+    }
+
+    /**
+     * Gets the memory containing the ring buffer, to pass to native code.
+     *
+     * @return the ring buffer memory.
+     */
+    public Pointer getMemory() {
+        return memory;
+    }
+
+    /**
+     * Gets the size of the data area.
+     *
+     * @return the capacity in bytes.
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the largest payload that can be written.
+     *
+     * @return the maximum message length in bytes.
+     */
+    public int maxMessageLength() {
+        return (int) Math.min(Integer.MAX_VALUE, capacity / 8);
+    }
+
+    /**
+     * Gets the number of bytes used by records which have not yet been consumed.
+     *
+     * @return the number of bytes in use.
+     */
+    public long size() {
+        long head = memory.getLongVolatile(HEAD_OFFSET);
+        return memory.getLongVolatile(TAIL_OFFSET) - head;
+    }
+
+    /**
+     * Writes a message from a java array.
+     *
+     * @param type the message type.  Must not be {@link #PADDING_TYPE}.
+     * @param src the array containing the payload.
+     * @param idx the index in {@code src} of the payload.
+     * @param length the length of the payload.
+     * @return true if the message was written, false if there was not enough space.
+     */
+    public boolean write(int type, byte[] src, int idx, int length) {
+        long index = claim(type, length);
+        if (index < 0) {
+            return false;
+        }
+
+        memory.put(index + RECORD_HEADER_SIZE, src, idx, length);
+        commit(index, length);
+        return true;
+    }
+
+    /**
+     * Writes a message from memory.
+     *
+     * @param type the message type.  Must not be {@link #PADDING_TYPE}.
+     * @param src the memory containing the payload.
+     * @param offset the offset in {@code src} of the payload.
+     * @param length the length of the payload.
+     * @return true if the message was written, false if there was not enough space.
+     */
+    public boolean write(int type, Pointer src, long offset, int length) {
+        long index = claim(type, length);
+        if (index < 0) {
+            return false;
+        }
+
+        memory.transferFrom(index + RECORD_HEADER_SIZE, src, offset, length);
+        commit(index, length);
+        return true;
+    }
+
+    /**
+     * Reserves space for a record and writes its type.  Returns the offset of the record, or -1 if it does not fit.
+     */
+    private long claim(int type, int length) {
+        if (type == PADDING_TYPE) {
+            throw new IllegalArgumentException("invalid message type " + type);
+        }
+
+        if (length < 0 || length > maxMessageLength()) {
+            throw new IllegalArgumentException("invalid message length " + length);
+        }
+
+        final long required = align(length + RECORD_HEADER_SIZE);
+        long tail, padding;
+        do {
+            long head = memory.getLongVolatile(HEAD_OFFSET);
+            tail = memory.getLongVolatile(TAIL_OFFSET);
+            long toEnd = capacity - (tail & mask);
+            padding = required > toEnd ? toEnd : 0;
+            if (padding + required > capacity - (tail - head)) {
+                return -1;
+            }
+
+            if (!multiProducer) {
+                memory.putLongOrdered(TAIL_OFFSET, tail + padding + required);
+                break;
+            }
+        } while (!memory.compareAndSwapLong(TAIL_OFFSET, tail, tail + padding + required));
+
+        long index = HEADER_SIZE + (tail & mask);
+        if (padding != 0) {
+            memory.putInt(index + 4, PADDING_TYPE);
+            memory.putIntOrdered(index, (int) padding);
+            index = HEADER_SIZE;
+        }
+
+        memory.putInt(index + 4, type);
+        return index;
+    }
+
+    private void commit(long index, int length) {
+        memory.putIntOrdered(index, length + RECORD_HEADER_SIZE);
+    }
+
+    /**
+     * Reads all available messages.
+     *
+     * @param handler the handler to pass each message to.
+     * @return the number of messages read.
+     */
+    public int read(MessageHandler handler) {
+        return read(handler, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads available messages.  Only one thread may read from the buffer at a time.
+     *
+     * @param handler the handler to pass each message to.
+     * @param limit the maximum number of messages to read.
+     * @return the number of messages read.
+     */
+    public int read(MessageHandler handler, int limit) {
+        // Only the reading thread moves the head, so a plain 64-bit read sees its latest value
+        final long head = memory.getLongLong(HEAD_OFFSET);
+        long bytesRead = 0;
+        int count = 0;
+
+        try {
+            while (count < limit && bytesRead < capacity) {
+                long index = HEADER_SIZE + ((head + bytesRead) & mask);
+                int recordLength = memory.getIntVolatile(index);
+                if (recordLength <= 0) {
+                    break;
+                }
+
+                long aligned = align(recordLength);
+                bytesRead += aligned;
+                int type = memory.getInt(index + 4);
+                try {
+                    if (type != PADDING_TYPE) {
+                        ++count;
+                        handler.onMessage(type, memory, index + RECORD_HEADER_SIZE, recordLength - RECORD_HEADER_SIZE);
+                    }
+                } finally {
+                    memory.setMemory(index, aligned, (byte) 0);
+                }
+            }
+        } finally {
+            if (bytesRead != 0) {
+                memory.putLongOrdered(HEAD_OFFSET, head + bytesRead);
+            }
+        }
+
+        return count;
+    }
+
+    private static long align(long length) {
+        return (length + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+    }
+}
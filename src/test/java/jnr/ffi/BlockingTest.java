@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+import jnr.ffi.annotations.Blocking;
+import jnr.ffi.annotations.Delegate;
+import jnr.ffi.annotations.Synchronized;
+import jnr.ffi.util.BlockingCallExecutor;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BlockingTest {
+    public static interface TestLib {
+        public static interface CallableVrI {
+            @Delegate
+            public int call();
+        }
+
+        @Blocking
+        int blocking_sleep(int millis);
+        @Blocking
+        int testClosureVrI(CallableVrI closure);
+        @Blocking
+        boolean blocking_not(boolean value);
+        @Blocking @Synchronized
+        int setLastError(int error);
+        int add_int32_t(int i1, int i2);
+    }
+
+    static BlockingCallExecutor executor;
+    static TestLib testlib;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        executor = new BlockingCallExecutor(2, 16);
+        testlib = TstUtil.loadTestLib(TestLib.class, Collections.singletonMap(LibraryOption.BlockingCallExecutor, executor));
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        executor.shutdown();
+    }
+
+    @Test
+    public void blockingCall() {
+        long completed = executor.getStatistics("blocking_sleep").getCompletedCount();
+        assertEquals(1, testlib.blocking_sleep(1));
+        assertTrue(testlib.blocking_not(false));
+        assertFalse(testlib.blocking_not(true));
+        assertEquals(completed + 1, executor.getStatistics("blocking_sleep").getCompletedCount());
+        assertFalse(executor.getStatistics().containsKey("add_int32_t"));
+    }
+
+    @Test
+    public void lastErrorIsCopiedToCaller() {
+        Runtime runtime = Runtime.getRuntime(testlib);
+        runtime.setLastError(0);
+        assertEquals(-1, testlib.setLastError(0x1234));
+        assertEquals(0x1234, runtime.getLastError());
+    }
+
+    @Test
+    public void statistics() throws InterruptedException {
+        final CountDownLatch entered = new CountDownLatch(2), release = new CountDownLatch(1);
+        final TestLib.CallableVrI closure = new TestLib.CallableVrI() {
+            public int call() {
+                entered.countDown();
+                try {
+                    return release.await(10, TimeUnit.SECONDS) ? 1 : 0;
+                } catch (InterruptedException ie) {
+                    return 0;
+                }
+            }
+        };
+        final AtomicInteger results = new AtomicInteger();
+        Thread[] threads = new Thread[2];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    results.addAndGet(testlib.testClosureVrI(closure));
+                }
+            });
+            threads[i].start();
+        }
+
+        // Both calls are now running on the executor's two threads, blocked in the callback
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+        BlockingCallExecutor.Statistics stats = executor.getStatistics("testClosureVrI");
+        assertEquals(2, stats.getActiveCount());
+        assertEquals(0, stats.getQueueDepth());
+        assertEquals(0, stats.getCompletedCount());
+
+        release.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(2, results.get());
+        assertEquals(0, stats.getActiveCount());
+        assertEquals(0, stats.getQueueDepth());
+        assertEquals(2, stats.getCompletedCount());
+    }
+}
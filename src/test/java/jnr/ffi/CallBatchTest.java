@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class CallBatchTest {
+    public static interface TestLib {
+        Pointer batch_function(int id);
+        int batch_counter_value();
+    }
+
+    static TestLib testlib;
+    static Runtime runtime;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        testlib = TstUtil.loadTestLib(TestLib.class);
+        runtime = Runtime.getRuntime(testlib);
+    }
+
+    @Test
+    public void addInt32() {
+        CallBatch batch = CallBatch.newInstance(runtime, testlib.batch_function(0), 100,
+                NativeType.SINT, NativeType.SINT, NativeType.SINT);
+        for (int i = 0; i < 100; i++) {
+            batch.add(i, -2 * i);
+        }
+        batch.invoke();
+        assertEquals(100, batch.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(-i, batch.getInt(i));
+        }
+    }
+
+    @Test
+    public void resultIsSignExtended() {
+        CallBatch batch = CallBatch.newInstance(runtime, testlib.batch_function(1), 2,
+                NativeType.SCHAR, NativeType.SCHAR, NativeType.SCHAR);
+        batch.add(100, 100);
+        batch.add(-1, -1);
+        batch.invoke();
+        assertEquals((byte) 200, batch.getLong(0));
+        assertEquals(-2L, batch.getLong(1));
+    }
+
+    @Test
+    public void mixedParameters() {
+        CallBatch batch = CallBatch.newInstance(runtime, testlib.batch_function(2), 10,
+                NativeType.DOUBLE, NativeType.SLONGLONG, NativeType.DOUBLE, NativeType.FLOAT);
+        for (int i = 0; i < 10; i++) {
+            int index = batch.add();
+            batch.putLong(index, 0, 1L << 40);
+            batch.putDouble(index, 1, i + 0.25);
+            batch.putFloat(index, 2, 0.5f);
+        }
+        batch.invoke();
+        for (int i = 0; i < 10; i++) {
+            assertEquals((double) (1L << 40) + i + 0.75, batch.getDouble(i), 0d);
+        }
+    }
+
+    @Test
+    public void invocationsAreOrderedAndRepeatable() {
+        CallBatch batch = CallBatch.newInstance(runtime, testlib.batch_function(3), 5, NativeType.SINT, NativeType.SINT);
+        int start = testlib.batch_counter_value();
+        for (int i = 0; i < 5; i++) {
+            batch.add(1);
+        }
+        batch.invoke();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(start + i + 1, batch.getInt(i));
+        }
+        batch.invoke();
+        assertEquals(start + 10, testlib.batch_counter_value());
+
+        batch.clear();
+        assertEquals(0, batch.size());
+        batch.invoke();
+        assertEquals(start + 10, testlib.batch_counter_value());
+    }
+
+    @Test
+    public void lastErrorIsSaved() {
+        CallBatch batch = CallBatch.newInstance(runtime, testlib.batch_function(4), 2, NativeType.VOID, NativeType.SINT);
+        batch.add(1);
+        batch.add(0x1234);
+        runtime.setLastError(0);
+        batch.invoke();
+        assertEquals(0x1234, runtime.getLastError());
+    }
+
+    @Test
+    public void batchIsFull() {
+        CallBatch batch = CallBatch.newInstance(runtime, testlib.batch_function(3), 1, NativeType.SINT, NativeType.SINT);
+        batch.add(0);
+        try {
+            batch.add(0);
+            fail("batch should be full");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongParameterCount() {
+        CallBatch.newInstance(runtime, testlib.batch_function(0), 1, NativeType.SINT, NativeType.SINT, NativeType.SINT).add(1);
+    }
+}
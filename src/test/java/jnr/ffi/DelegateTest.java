@@ -24,6 +24,9 @@ import jnr.ffi.types.u_int32_t;
 import org.junit.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 /**
  *
@@ -231,6 +234,48 @@ public class DelegateTest {
         assertTrue("Callable not called", called[0]);
         assertEquals("Incorrect return value from closure", MAGIC, retVal);
     }
+    private static TestLib.CallableVrI constant(final int value) {
+        return new TestLib.CallableVrI() {
+            public int call() {
+                return value;
+            }
+        };
+    }
+
+    @Test
+    public void alternatingClosures() {
+        TestLib.CallableVrI[] closures = new TestLib.CallableVrI[6];
+        for (int i = 0; i < closures.length; i++) {
+            closures[i] = constant(i + 1);
+        }
+        // More delegates than the site caches, cycled through several times
+        for (int n = 0; n < 4; n++) {
+            for (int i = 0; i < closures.length; i++) {
+                assertEquals(i + 1, lib.testClosureVrI(closures[i]));
+            }
+            for (int i = 0; i < 3; i++) {
+                assertEquals(i + 1, lib.testClosureVrI(closures[i]));
+                assertEquals(2, lib.testClosureVrI(closures[1]));
+            }
+        }
+    }
+
+    @Test
+    public void registeredClosure() {
+        jnr.ffi.provider.ClosureManager closureManager = Runtime.getRuntime(lib).getClosureManager();
+        jnr.ffi.provider.ClosureRegistry registry = (jnr.ffi.provider.ClosureRegistry) closureManager;
+        TestLib.CallableVrI closure = constant(42);
+        registry.register(TestLib.CallableVrI.class, closure);
+        try {
+            Pointer ptr = closureManager.getClosurePointer(TestLib.CallableVrI.class, closure);
+            assertEquals(42, lib.testClosureVrI(closure));
+            assertSame(ptr, closureManager.getClosurePointer(TestLib.CallableVrI.class, closure));
+        } finally {
+            registry.unregister(TestLib.CallableVrI.class, closure);
+        }
+        assertEquals(42, lib.testClosureVrI(closure));
+    }
+
     @Test
     public void closureVrL() {
         final boolean[] called = { false };
@@ -430,6 +475,27 @@ public class DelegateTest {
         assertTrue(called[0]);
     }
 
+    @Test public void functionPointerWrapperShouldBeReused() {
+        TestLib.CallableVrV javaClosure = new TestLib.CallableVrV() {
+            @Override
+            public void call() {
+            }
+        };
+        TestLib.CallableVrV other = new TestLib.CallableVrV() {
+            @Override
+            public void call() {
+            }
+        };
+
+        TestLib.CallableVrV callable = lib.ret_pointer(javaClosure);
+        assertSame(callable, lib.ret_pointer(javaClosure));
+        assertNotSame(callable, lib.ret_pointer(other));
+    }
+
+    @Test public void nullFunctionPointerShouldReturnNull() {
+        assertNull(lib.ret_pointer((TestLib.CallableVrV) null));
+    }
+
     @Test public void callFunctionPointerIrV() {
         final boolean[] called = { false };
         final int[] values = { 0 };
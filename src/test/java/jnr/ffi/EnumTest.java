@@ -69,6 +69,24 @@ public class EnumTest {
         private final int value;
     }
     
+    public static enum LongEnum {
+        MIN(Long.MIN_VALUE),
+        NEGATIVE(-1),
+        ZERO(0),
+        LARGE(1L << 40),
+        MAX(Long.MAX_VALUE),
+        __UNKNOWN_NATIVE_VALUE(42);
+
+        LongEnum(long value) {
+            this.value = value;
+        }
+
+        public long longValue() {
+            return value;
+        }
+        private final long value;
+    }
+
     public static interface TestLib {
         public int ret_int32_t(TestEnum e);
         public int add_int32_t(TestEnum i1, TestEnum i2);
@@ -128,4 +146,36 @@ public class EnumTest {
         EnumSet<BitField> MAGIC = EnumSet.of(BitField.A, BitField.B);
         assertEquals(MAGIC, retenum.ret_int32_t(MAGIC));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void reverseLookup() {
+        EnumMapper dense = EnumMapper.getInstance(BitField.class);
+        for (BitField b : BitField.values()) {
+            assertEquals(b, dense.valueOf(b.intValue()));
+            assertEquals(b, dense.valueOf((long) b.intValue()));
+            assertEquals(b, dense.valueOf(Integer.valueOf(b.intValue())));
+        }
+
+        EnumMapper sparse = EnumMapper.getInstance(TestEnum.class);
+        for (TestEnum e : TestEnum.values()) {
+            assertEquals(e, sparse.valueOf(e.intValue()));
+            assertEquals(e, sparse.valueOf(Long.valueOf(e.intValue())));
+        }
+
+        EnumMapper wide = EnumMapper.getInstance(LongEnum.class);
+        for (LongEnum e : LongEnum.values()) {
+            assertEquals(e, wide.valueOf(e.longValue()));
+        }
+        assertEquals(LongEnum.__UNKNOWN_NATIVE_VALUE, wide.valueOf(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownDenseValue() {
+        EnumMapper.getInstance(BitField.class).valueOf(0x3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownSparseValue() {
+        EnumMapper.getInstance(TestEnum.class).valueOf(4L);
+    }
+}
@@ -24,7 +24,10 @@ import jnr.ffi.types.u_int32_t;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class GlobalVariableTest {
     public static interface ClosureIrV {
@@ -39,6 +42,54 @@ public class GlobalVariableTest {
         Pointer gvar_pointer_get();
     }
 
+    public static interface PrimitiveLib {
+        IntVariable gvar_s32();
+        LongVariable gvar_s64();
+        PointerVariable gvar_pointer();
+        int gvar_s32_get();
+        void gvar_s64_set(long value);
+        Pointer gvar_pointer_get();
+    }
+
+    @Test
+    public void testIntVariable() {
+        PrimitiveLib lib = TstUtil.loadTestLib(PrimitiveLib.class);
+        IntVariable var = lib.gvar_s32();
+        var.setInt(0xdeadbeef);
+        assertEquals(0xdeadbeef, lib.gvar_s32_get());
+        assertEquals(0xdeadbeef, var.getInt());
+        assertTrue(var.compareAndSet(0xdeadbeef, 1));
+        assertFalse(var.compareAndSet(0xdeadbeef, 2));
+        assertEquals(1, var.getAndAdd(41));
+        assertEquals(42, lib.gvar_s32_get());
+    }
+
+    @Test
+    public void testLongVariable() {
+        PrimitiveLib lib = TstUtil.loadTestLib(PrimitiveLib.class);
+        LongVariable var = lib.gvar_s64();
+        lib.gvar_s64_set(0x123456789abcdefL);
+        assertEquals(0x123456789abcdefL, var.getLong());
+        assertTrue(var.compareAndSet(0x123456789abcdefL, -1L));
+        assertEquals(-1L, var.getAndAdd(1));
+        var.setLong(7);
+        assertEquals(7L, var.getLong());
+    }
+
+    @Test
+    public void testPointerVariable() {
+        PrimitiveLib lib = TstUtil.loadTestLib(PrimitiveLib.class);
+        PointerVariable var = lib.gvar_pointer();
+        Pointer memory = Memory.allocateDirect(Runtime.getRuntime(lib), 8);
+        var.setPointer(memory);
+        assertEquals(memory.address(), lib.gvar_pointer_get().address());
+        assertEquals(memory.address(), var.getPointer().address());
+        assertTrue(var.compareAndSet(memory.address(), 0L));
+        assertNull(var.getPointer());
+        var.setAddress(memory.address());
+        assertEquals(memory.address(), var.getAddress());
+    }
+
     @Test
     public void testIntegerVariableSet() {
         TestLib lib = TstUtil.loadTestLib(TestLib.class);
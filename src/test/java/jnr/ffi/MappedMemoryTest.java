@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class MappedMemoryTest {
+    private Runtime runtime;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(Platform.getNativePlatform().getOS() != Platform.OS.WINDOWS);
+        runtime = Runtime.getSystemRuntime();
+    }
+
+    private static File createFile(byte[] contents) throws IOException {
+        File file = File.createTempFile("jnr-mmap", ".dat");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(contents);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        byte[] contents = new byte[(int) file.length()];
+        FileInputStream in = new FileInputStream(file);
+        try {
+            int n = 0;
+            while (n < contents.length) {
+                n += in.read(contents, n, contents.length - n);
+            }
+        } finally {
+            in.close();
+        }
+        return contents;
+    }
+
+    private static byte[] pattern(int size) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        return bytes;
+    }
+
+    @Test public void readOnly() throws IOException {
+        File file = createFile(pattern(1024));
+        MappedMemory memory = MappedMemory.map(runtime, file, MappedMemory.MapMode.READ_ONLY, 0, -1);
+        try {
+            assertEquals(1024, memory.size());
+            assertEquals(1024, memory.getPointer().size());
+            assertEquals((byte) 0x10, memory.getPointer().getByte(0x10));
+            int expected = runtime.byteOrder() == java.nio.ByteOrder.LITTLE_ENDIAN ? 0x03020100 : 0x00010203;
+            assertEquals(expected, memory.getPointer().getInt(0));
+            memory.advise(MappedMemory.Advice.SEQUENTIAL);
+        } finally {
+            memory.unmap();
+        }
+        assertTrue(memory.isUnmapped());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void readOnlyRejectsWrites() throws IOException {
+        MappedMemory memory = MappedMemory.map(runtime, createFile(pattern(64)), MappedMemory.MapMode.READ_ONLY, 0, -1);
+        try {
+            memory.getPointer().putInt(0, 1);
+        } finally {
+            memory.unmap();
+        }
+    }
+
+    @Test public void unalignedOffset() throws IOException {
+        File file = createFile(pattern(8192));
+        MappedMemory memory = MappedMemory.map(runtime, file, MappedMemory.MapMode.READ_ONLY, 4101, 100);
+        try {
+            assertEquals(100, memory.size());
+            assertEquals((byte) 4101, memory.getPointer().getByte(0));
+            assertEquals((byte) 4200, memory.getPointer().getByte(99));
+        } finally {
+            memory.close();
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfBounds() throws IOException {
+        MappedMemory memory = MappedMemory.map(runtime, createFile(pattern(64)), MappedMemory.MapMode.READ_ONLY, 0, -1);
+        try {
+            memory.getPointer().getInt(62);
+        } finally {
+            memory.unmap();
+        }
+    }
+
+    @Test public void readWriteIsWrittenToFile() throws IOException {
+        File file = createFile(new byte[256]);
+        MappedMemory memory = MappedMemory.map(runtime, file, MappedMemory.MapMode.READ_WRITE, 0, -1);
+        try {
+            memory.getPointer().put(16, pattern(32), 0, 32);
+            memory.sync();
+            memory.sync(16, 8, true);
+        } finally {
+            memory.unmap();
+        }
+
+        byte[] contents = readFile(file);
+        assertEquals(0, contents[15]);
+        assertEquals(1, contents[17]);
+        assertEquals(31, contents[47]);
+        assertEquals(0, contents[48]);
+    }
+
+    @Test public void privateIsNotWrittenToFile() throws IOException {
+        File file = createFile(pattern(128));
+        MappedMemory memory = MappedMemory.map(runtime, file, MappedMemory.MapMode.PRIVATE, 0, -1);
+        try {
+            memory.getPointer().putByte(0, (byte) 0x7f);
+            assertEquals((byte) 0x7f, memory.getPointer().getByte(0));
+        } finally {
+            memory.unmap();
+        }
+        assertEquals(0, readFile(file)[0]);
+    }
+
+    @Test public void anonymous() {
+        MappedMemory memory = MappedMemory.mapAnonymous(runtime, 65536, true);
+        try {
+            Pointer ptr = memory.getPointer();
+            assertEquals(0L, ptr.getLong(8192));
+            ptr.putLong(8192, 0xdeadbeefcafebabeL);
+            assertEquals(0xdeadbeefcafebabeL, ptr.getLong(8192));
+            memory.advise(4096, 8192, MappedMemory.Advice.WILL_NEED);
+        } finally {
+            memory.unmap();
+        }
+    }
+
+    @Test public void unmapIsIdempotent() {
+        MappedMemory memory = MappedMemory.mapAnonymous(runtime, 4096, false);
+        memory.unmap();
+        memory.unmap();
+        try {
+            memory.getPointer();
+            fail("pointer returned after unmap");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void missingFile() throws IOException {
+        MappedMemory.map(runtime, new File("/nonexistent/jnr-mmap"), MappedMemory.MapMode.READ_ONLY, 0, 16);
+    }
+}
@@ -410,4 +410,82 @@ public class MemoryIOTest {
             Memory.allocate(runtime, 4);
         }
     }
+
+    @Test public void directBoundsChecks() {
+        Pointer memory = Memory.allocateDirect(runtime, 16);
+        memory.putLongLong(8, 0x123456789L);
+        assertEquals(0x123456789L, memory.getLongLong(8));
+        try {
+            memory.getLongLong(12);
+            fail("read past end of memory");
+        } catch (IndexOutOfBoundsException expected) {
+        }
+        try {
+            memory.putInt(-1, 0);
+            fail("wrote before start of memory");
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+
+    @Test public void directSlice() {
+        Pointer memory = Memory.allocateDirect(runtime, 64);
+        Pointer slice = memory.slice(16, 16);
+        assertEquals(memory.address() + 16, slice.address());
+        slice.putInt(12, 0xdeadbeef);
+        assertEquals(0xdeadbeef, memory.getInt(28));
+        assertEquals(0xdeadbeef, slice.slice(8, 8).getInt(4));
+        try {
+            slice.getInt(14);
+            fail("read past end of slice");
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+
+    @Test public void uncheckedSlice() {
+        Pointer memory = Memory.allocateDirect(runtime, 64);
+        Pointer unchecked = memory.uncheckedSlice(8, 32);
+        for (int i = 0; i < 8; i++) {
+            unchecked.putInt(i * 4, i);
+        }
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i, memory.getInt(8 + i * 4));
+        }
+        assertEquals(32, unchecked.size());
+        assertEquals(4, heap(64).uncheckedSlice(0, 8).size() / 2);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void uncheckedSliceIsCheckedOnce() {
+        Memory.allocateDirect(runtime, 64).uncheckedSlice(48, 32);
+    }
+
+    private void testAsByteBuffer(Pointer memory) {
+        memory.putInt(8, 0x12345678);
+        ByteBuffer buffer = memory.asByteBuffer(8, 8);
+        assertEquals(8, buffer.remaining());
+        assertEquals(0x12345678, buffer.getInt(0));
+        buffer.putInt(4, 0xcafebabe);
+        assertEquals(0xcafebabe, memory.getInt(12));
+        try {
+            memory.asByteBuffer(12, 8);
+            fail("buffer past end of memory");
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+
+    @Test public void directAsByteBuffer() {
+        Pointer memory = direct(16);
+        testAsByteBuffer(memory);
+        assertTrue(memory.asByteBuffer(0, 16).isDirect());
+        testAsByteBuffer(direct(32).slice(8, 16));
+    }
+
+    @Test public void heapAsByteBuffer() {
+        testAsByteBuffer(heap(16));
+        testAsByteBuffer(heap(32).slice(16));
+    }
+
+    @Test public void bufferAsByteBuffer() {
+        testAsByteBuffer(buffer(16));
+    }
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+import jnr.ffi.annotations.LongLong;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class NativeArrayTest {
+    public static interface TestLib {
+        void fillIntBuffer(NativeIntArray buf, int value, int size);
+        void copyIntBuffer(NativeIntArray dst, NativeIntArray src, int size);
+        void fillLongBuffer(NativeLongArray buf, @LongLong long value, int size);
+        void fillDoubleBuffer(NativeDoubleArray buf, double value, int size);
+        Pointer ptr_return_array_element(NativePointerArray array, int index);
+        void ptr_set_array_element(NativePointerArray array, int index, Pointer value);
+    }
+
+    static TestLib testlib;
+    static Runtime runtime;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        testlib = TstUtil.loadTestLib(TestLib.class);
+        runtime = Runtime.getRuntime(testlib);
+    }
+
+    @Test public void intArray() {
+        NativeIntArray array = NativeIntArray.allocate(runtime, 8);
+        assertEquals(8, array.length());
+        assertEquals(0, array.get(7));
+        array.set(3, 0xdeadbeef);
+        assertEquals(0xdeadbeef, array.get(3));
+        assertEquals(0xdeadbeef, array.getPointer().getInt(12));
+
+        array.put(4, new int[] { 1, 2, 3, 4 }, 0, 4);
+        assertArrayEquals(new int[] { 0, 0, 0, 0xdeadbeef, 1, 2, 3, 4 }, array.toArray());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void pointerIsBoundsChecked() {
+        NativeIntArray array = NativeIntArray.allocate(runtime, 8);
+        array.getPointer().putInt(array.length() * 4, 1);
+    }
+
+    @Test public void nativeWritesAreVisibleWithoutCopy() {
+        NativeIntArray array = NativeIntArray.allocate(runtime, 16);
+        testlib.fillIntBuffer(array, 5, 16);
+        for (int i = 0; i < 16; i++) {
+            assertEquals(5, array.get(i));
+        }
+
+        testlib.fillIntBuffer(array.slice(4, 4), 9, 4);
+        assertEquals(5, array.get(3));
+        assertEquals(9, array.get(4));
+        assertEquals(9, array.get(7));
+        assertEquals(5, array.get(8));
+
+        NativeIntArray copy = NativeIntArray.allocate(runtime, 16);
+        testlib.copyIntBuffer(copy, array, 16);
+        assertArrayEquals(array.toArray(), copy.toArray());
+    }
+
+    @Test public void longAndDoubleArrays() {
+        NativeLongArray longs = NativeLongArray.allocate(runtime, 4);
+        testlib.fillLongBuffer(longs, 0x123456789abcdefL, 4);
+        assertArrayEquals(new long[] { 0x123456789abcdefL, 0x123456789abcdefL, 0x123456789abcdefL, 0x123456789abcdefL }, longs.toArray());
+        longs.set(0, -1L);
+        assertEquals(-1L, longs.get(0));
+
+        NativeDoubleArray doubles = NativeDoubleArray.allocate(runtime, 3);
+        testlib.fillDoubleBuffer(doubles, 1.5, 3);
+        double[] values = new double[4];
+        doubles.get(0, values, 1, 3);
+        assertArrayEquals(new double[] { 0, 1.5, 1.5, 1.5 }, values, 0);
+    }
+
+    @Test public void pointerArray() {
+        NativePointerArray array = NativePointerArray.allocate(runtime, 4);
+        Pointer p = Memory.allocateDirect(runtime, 8);
+        assertNull(array.get(0));
+        testlib.ptr_set_array_element(array, 2, p);
+        assertEquals(p.address(), array.getAddress(2));
+        array.set(1, p);
+        assertEquals(p.address(), testlib.ptr_return_array_element(array, 1).address());
+        assertEquals(p.address(), array.slice(1, 2).toArray()[1].address());
+    }
+
+    @Test public void wrap() {
+        Pointer memory = Memory.allocateDirect(runtime, 16);
+        NativeIntArray array = NativeIntArray.wrap(memory, 4);
+        array.set(1, 42);
+        assertEquals(42, memory.getInt(4));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void indexOutOfBounds() {
+        NativeIntArray.allocate(runtime, 4).get(4);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void sliceOutOfBounds() {
+        NativeDoubleArray.allocate(runtime, 4).slice(2, 3);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void wrapTooSmall() {
+        NativeLongArray.wrap(Memory.allocateDirect(runtime, 16), 3);
+    }
+
+    @Test public void nullTerminatedViews() {
+        Pointer[] strings = new Pointer[3];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = Memory.allocateDirect(runtime, 16);
+            strings[i].putString(0, "s" + i, 16, Charset.forName("US-ASCII"));
+        }
+        NativePointerArray array = NativePointerArray.allocate(runtime, 4);
+        array.put(0, strings, 0, 3);
+
+        NativePointerArray pointers = NativePointerArray.wrapNullTerminated(array.getPointer());
+        assertEquals(3, pointers.length());
+        assertEquals(strings[2].address(), pointers.get(2).address());
+
+        NativeStringArray view = NativeStringArray.wrapNullTerminated(array.getPointer(), Charset.forName("US-ASCII"));
+        assertEquals(3, view.length());
+        assertEquals("s1", view.get(1));
+
+        // Strings are cached once decoded
+        strings[1].putString(0, "changed", 16, Charset.forName("US-ASCII"));
+        strings[2].putString(0, "changed", 16, Charset.forName("US-ASCII"));
+        assertEquals("s1", view.get(1));
+        assertArrayEquals(new String[] { "s0", "s1", "changed" }, view.toArray());
+        assertEquals(strings[0].address(), view.getPointer(0).address());
+    }
+
+    @Test public void stringArrayWithNullElement() {
+        NativePointerArray array = NativePointerArray.allocate(runtime, 2);
+        NativeStringArray view = NativeStringArray.wrap(array.getPointer(), 2, Charset.defaultCharset());
+        assertNull(view.get(0));
+        assertEquals(0, NativeStringArray.wrapNullTerminated(array.getPointer()).length());
+    }
+}
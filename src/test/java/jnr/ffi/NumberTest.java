@@ -64,6 +64,7 @@ public class NumberTest {
         public @int32_t long ret_int32_t(@int32_t long l);
         public @u_int32_t long ret_uint32_t(@u_int32_t long l);
         public @pid_t int ret_int32_t(@pid_t int l);
+        public int args6_int32_t(int a, int b, int c, int d, int e, int f);
     }
     static TestLib testlib;
 
@@ -91,6 +92,11 @@ public class NumberTest {
     public void tearDown() throws Exception {
     }
         
+    @Test
+    public void testSixIntegerArguments() throws Exception {
+        assertEquals(123456, testlib.args6_int32_t(1, 2, 3, 4, 5, 6));
+    }
+
     @Test
     public void testByteAddition() throws Exception {
         for (int i = 0; i <= 255; ++i) {
@@ -7,7 +7,12 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 public class PlatformTest {
     private File tmpDir;
@@ -91,4 +96,61 @@ public class PlatformTest {
     public void testMultiComponentVersionComparison() throws Exception {
         testVersionComparison("42.1.3.4", "", "5", "6.1", "42", "42.1", "42.0.5", "42.1.3.4");
     }
+
+    @Test
+    public void testLdSoCacheParse() throws Exception {
+        // new format header, two entries, then the string table
+        ByteBuffer buf = ByteBuffer.allocate(48 + 2 * 24 + 64).order(ByteOrder.nativeOrder());
+        buf.put("glibc-ld.so.cache1.1".getBytes("US-ASCII"));
+        buf.putInt(20, 2);
+        int strings = 48 + 2 * 24;
+        String[] names = { "libfoo.so.1", "/lib64/libfoo.so.1", "libfoo.so.1", "/lib/libfoo.so.1" };
+        int[] offsets = new int[names.length];
+        buf.position(strings);
+        for (int i = 0; i < names.length; i++) {
+            offsets[i] = buf.position();
+            buf.put(names[i].getBytes("US-ASCII")).put((byte) 0);
+        }
+        int[] flags = { 0x0303, 0x0003 };
+        for (int i = 0; i < 2; i++) {
+            int entry = 48 + i * 24;
+            buf.putInt(entry, flags[i]);
+            buf.putInt(entry + 4, offsets[i * 2]);
+            buf.putInt(entry + 8, offsets[i * 2 + 1]);
+        }
+
+        Map<String, String> amd64 = LdSoCache.parse(buf.array(), 0x0300);
+        Assert.assertEquals(Collections.singletonMap("libfoo.so.1", "/lib64/libfoo.so.1"), amd64);
+        Map<String, String> i386 = LdSoCache.parse(buf.array(), 0x0000);
+        Assert.assertEquals(Collections.singletonMap("libfoo.so.1", "/lib/libfoo.so.1"), i386);
+        Assert.assertTrue(LdSoCache.parse(new byte[16], -1).isEmpty());
+    }
+
+    @Test
+    public void testLibraryLocationCache() throws Exception {
+        File libDir = new File(tmpDir, "lib");
+        Assert.assertTrue(libDir.mkdir());
+        File library = new File(libDir, "libtest.so.1");
+        Assert.assertTrue(library.createNewFile());
+        File cacheFile = new File(tmpDir, "locations");
+        List<String> paths = Collections.singletonList(libDir.getAbsolutePath());
+
+        new LibraryLocationCache(cacheFile).put("test", paths, library.getAbsolutePath());
+
+        LibraryLocationCache cache = new LibraryLocationCache(cacheFile);
+        Assert.assertEquals(library.getAbsolutePath(), cache.get("test", paths));
+        Assert.assertNull(cache.get("other", paths));
+        String[] files = tmpDir.list();
+        Arrays.sort(files);
+        Assert.assertEquals(Arrays.asList("lib", "locations"), Arrays.asList(files));
+
+        // locating the same library again does not rewrite the file
+        Assert.assertTrue(cacheFile.delete());
+        cache.put("test", paths, library.getAbsolutePath());
+        Assert.assertFalse(cacheFile.exists());
+
+        // a change to the directory invalidates the location
+        Assert.assertTrue(libDir.setLastModified(libDir.lastModified() + 10000));
+        Assert.assertNull(cache.get("test", paths));
+    }
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+import jnr.ffi.util.PointerChannel;
+import jnr.ffi.util.PointerInputStream;
+import jnr.ffi.util.PointerOutputStream;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+
+import static org.junit.Assert.*;
+
+public class PointerStreamTest {
+    private static final Runtime runtime = Runtime.getSystemRuntime();
+
+    private static Pointer fill(Pointer memory) {
+        for (int i = 0; i < memory.size(); i++) {
+            memory.putByte(i, (byte) i);
+        }
+        return memory;
+    }
+
+    @Test public void inputStream() throws IOException {
+        Pointer memory = fill(Memory.allocateDirect(runtime, 64));
+        PointerInputStream in = new PointerInputStream(memory, 8, 16);
+        assertEquals(16, in.available());
+        assertEquals(8, in.read());
+        in.mark(0);
+        byte[] b = new byte[32];
+        assertEquals(15, in.read(b, 0, b.length));
+        assertEquals(23, b[14]);
+        assertEquals(-1, in.read());
+        assertEquals(-1, in.read(b, 0, 1));
+        in.reset();
+        assertEquals(5, in.skip(5));
+        assertEquals(14, in.read());
+    }
+
+    @Test public void outputStream() throws IOException {
+        Pointer memory = Memory.allocate(runtime, 8);
+        PointerOutputStream out = new PointerOutputStream(memory);
+        out.write(1);
+        out.write(new byte[] { 2, 3, 4 });
+        assertEquals(4, out.size());
+        assertEquals(4, out.remaining());
+        try {
+            out.write(new byte[5]);
+            fail("write past end of memory should fail");
+        } catch (IOException expected) {
+        }
+        assertEquals(4, out.size());
+        assertEquals(3, memory.getByte(2));
+    }
+
+    @Test public void channelReadDirectAndHeap() throws IOException {
+        Pointer memory = fill(Memory.allocateDirect(runtime, 32));
+        PointerChannel channel = new PointerChannel(memory);
+        ByteBuffer direct = ByteBuffer.allocateDirect(20);
+        assertEquals(20, channel.read(direct));
+        assertEquals(19, direct.get(19));
+        ByteBuffer heap = ByteBuffer.allocate(20);
+        heap.position(4);
+        assertEquals(12, channel.read(heap));
+        assertEquals(16, heap.position());
+        assertEquals(31, heap.get(15));
+        assertEquals(-1, channel.read(heap));
+        assertEquals(32, channel.position());
+    }
+
+    @Test public void channelWrite() throws IOException {
+        Pointer memory = Memory.allocateDirect(runtime, 16);
+        PointerChannel channel = new PointerChannel(memory, 4, 8);
+        ByteBuffer direct = ByteBuffer.allocateDirect(4);
+        direct.put(new byte[] { 1, 2, 3, 4 }).flip();
+        assertEquals(4, channel.write(direct));
+        assertEquals(0, direct.remaining());
+        assertEquals(4, channel.write(ByteBuffer.wrap(new byte[] { 5, 6, 7, 8 })));
+        assertEquals(1, memory.getByte(4));
+        assertEquals(8, memory.getByte(11));
+        try {
+            channel.write(ByteBuffer.wrap(new byte[1]));
+            fail("write past end of channel should fail");
+        } catch (IOException expected) {
+        }
+        channel.position(2);
+        channel.write(ByteBuffer.wrap(new byte[] { 42 }));
+        assertEquals(42, memory.getByte(6));
+    }
+
+    @Test public void channelTransfer() throws IOException {
+        Pointer memory = fill(Memory.allocateDirect(runtime, 64));
+        PointerChannel channel = new PointerChannel(memory);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        assertEquals(4, channel.transferTo(60, 100, Channels.newChannel(bytes)));
+        assertEquals(4, bytes.size());
+        assertEquals(63, bytes.toByteArray()[3]);
+
+        byte[] src = { 9, 8, 7 };
+        assertEquals(3, channel.transferFrom(Channels.newChannel(new ByteArrayInputStream(src)), 0, 10));
+        assertEquals(7, memory.getByte(2));
+        assertEquals(0, channel.position());
+    }
+
+    @Test(expected = ClosedChannelException.class)
+    public void closedChannel() throws IOException {
+        PointerChannel channel = new PointerChannel(Memory.allocate(runtime, 4));
+        channel.close();
+        assertFalse(channel.isOpen());
+        channel.read(ByteBuffer.allocate(1));
+    }
+}
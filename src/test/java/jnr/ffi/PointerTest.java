@@ -29,6 +29,8 @@ import java.nio.charset.Charset;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  *
@@ -359,6 +361,47 @@ public class PointerTest {
         assertArrayEquals(array, out);
     }
 
+    @Test public void longNullTerminatedPointerArray() {
+        // Longer than one scan block, and starting near the end of a page
+        Pointer[] array = new Pointer[100];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = Memory.allocateDirect(runtime, 8);
+        }
+        Pointer memory = Memory.allocateDirect(runtime, 8192 + (array.length + 1) * runtime.addressSize(), true);
+        long offset = 4096 - (memory.address() & 4095) - runtime.addressSize();
+        memory.put(offset, array, 0, array.length);
+        assertArrayEquals(array, memory.getNullTerminatedPointerArray(offset));
+        assertEquals(0, memory.getNullTerminatedPointerArray(offset + array.length * runtime.addressSize()).length);
+    }
+
+    @Test public void heapNullTerminatedStringArray() {
+        Pointer string = Memory.allocateDirect(runtime, 8);
+        string.putString(0, "heap", 8, Charset.defaultCharset());
+        Pointer memory = Memory.allocate(runtime, 3 * runtime.addressSize());
+        memory.putPointer(0, string);
+        memory.putPointer(runtime.addressSize(), string);
+        assertArrayEquals(new String[] { "heap", "heap" }, memory.getNullTerminatedStringArray(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void unterminatedPointerArray() {
+        Pointer memory = Memory.allocateDirect(runtime, 4 * runtime.addressSize());
+        memory.put(0, new Pointer[] { memory, memory, memory, memory }, 0, 4);
+        memory.getNullTerminatedPointerArray(0);
+    }
+
+    @Test public void getAddresses() {
+        Pointer memory = Memory.allocateDirect(runtime, 4 * runtime.addressSize());
+        Pointer[] pointers = { memory, null, memory.slice(8), memory.slice(16) };
+        memory.put(0, pointers, 0, pointers.length);
+        long[] addresses = new long[5];
+        memory.getAddresses(0, addresses, 1, 4);
+        assertEquals(0L, addresses[0]);
+        assertEquals(memory.address(), addresses[1]);
+        assertEquals(0L, addresses[2]);
+        assertEquals(memory.address() + 16, addresses[4]);
+    }
+
     @Test
     public void testAddressSetByte() {
 
@@ -462,4 +505,82 @@ public class PointerTest {
         Pointer dst = runtime.getMemoryManager().allocateDirect(128);
         dst.transferFrom(10, dst, 0, src.size());
     }
+
+    private static void checkAtomics(Pointer p) {
+        p.putIntVolatile(0, 1);
+        assertEquals(1, p.getIntVolatile(0));
+        assertTrue(p.compareAndSwapInt(0, 1, 2));
+        assertFalse(p.compareAndSwapInt(0, 1, 3));
+        assertEquals(2, p.getAndAddInt(0, 5));
+        p.putIntOrdered(4, 9);
+        assertEquals(7, p.getInt(0));
+        assertEquals(9, p.getIntVolatile(4));
+
+        p.putLongVolatile(8, 0x1234567890L);
+        assertEquals(0x1234567890L, p.getLongVolatile(8));
+        assertTrue(p.compareAndSwapLong(8, 0x1234567890L, -1L));
+        assertFalse(p.compareAndSwapLong(8, 0x1234567890L, 0L));
+        assertEquals(-1L, p.getAndAddLong(8, 1L));
+        p.putLongOrdered(16, 42L);
+        assertEquals(0L, p.getLongLong(8));
+        assertEquals(42L, p.getLongVolatile(16));
+    }
+
+    @Test
+    public void directAtomics() {
+        checkAtomics(Memory.allocateDirect(runtime, 24));
+        checkAtomics(Memory.allocateDirect(runtime, 64).slice(8, 24));
+    }
+
+    @Test
+    public void heapAtomics() {
+        checkAtomics(Memory.allocate(runtime, 24));
+        checkAtomics(Memory.allocate(runtime, 64).slice(8, 24));
+    }
+
+    @Test
+    public void atomicIsVisibleToNativeCode() {
+        Pointer p = Memory.allocateDirect(runtime, 8);
+        p.putIntVolatile(4, 0);
+        assertTrue(p.compareAndSwapInt(4, 0, 0x12345678));
+        assertEquals(0x12345678, testlib.ptr_ret_int32_t(p, 4));
+        testlib.ptr_set_int32_t(p, 4, 7);
+        assertEquals(7, p.getAndAddInt(4, 1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void atomicOutOfBounds() {
+        Memory.allocateDirect(runtime, 64).slice(0, 8).compareAndSwapLong(4, 0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void misalignedAtomic() {
+        Memory.allocateDirect(runtime, 16).compareAndSwapInt(2, 0, 1);
+    }
+
+    @Test
+    public void concurrentGetAndAdd() throws InterruptedException {
+        final Pointer direct = Memory.allocateDirect(runtime, 16);
+        final Pointer heap = Memory.allocate(runtime, 16);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    for (int n = 0; n < 10000; n++) {
+                        direct.getAndAddInt(0, 1);
+                        direct.getAndAddLong(8, 2);
+                        heap.getAndAddInt(0, 1);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        Pointer.fullFence();
+        assertEquals(40000, direct.getIntVolatile(0));
+        assertEquals(80000L, direct.getLongVolatile(8));
+        assertEquals(40000, heap.getIntVolatile(0));
+    }
 }
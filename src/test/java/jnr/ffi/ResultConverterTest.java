@@ -175,4 +175,100 @@ public class ResultConverterTest {
             System.out.println(re);
         }
     }
+
+    public static final class Handle {
+        public final long value;
+
+        public Handle(long value) {
+            this.value = value;
+        }
+    }
+
+    public static final class HandleIntConverter implements ToNativeConverter.ToInt<Handle>, FromNativeConverter.FromInt<Handle> {
+        public Class<Integer> nativeType() {
+            return Integer.class;
+        }
+
+        public Integer toNative(Handle value, ToNativeContext context) {
+            return toNativeInt(value, context);
+        }
+
+        public int toNativeInt(Handle value, ToNativeContext context) {
+            return (int) value.value;
+        }
+
+        public Handle fromNative(Integer nativeValue, FromNativeContext context) {
+            return fromNativeInt(nativeValue, context);
+        }
+
+        public Handle fromNativeInt(int nativeValue, FromNativeContext context) {
+            return new Handle(nativeValue);
+        }
+    }
+
+    public static final class HandleLongConverter implements ToNativeConverter.ToLong<Handle>, FromNativeConverter.FromLong<Handle> {
+        public Class<Long> nativeType() {
+            return Long.class;
+        }
+
+        public Long toNative(Handle value, ToNativeContext context) {
+            return toNativeLong(value, context);
+        }
+
+        public long toNativeLong(Handle value, ToNativeContext context) {
+            return value.value;
+        }
+
+        public Handle fromNative(Long nativeValue, FromNativeContext context) {
+            return fromNativeLong(nativeValue, context);
+        }
+
+        public Handle fromNativeLong(long nativeValue, FromNativeContext context) {
+            return new Handle(nativeValue);
+        }
+    }
+
+    static TypeMapper handleMapper(final Object converter) {
+        return new TypeMapper() {
+            public FromNativeConverter getFromNativeConverter(Class type) {
+                return Handle.class == type ? (FromNativeConverter) converter : null;
+            }
+
+            public ToNativeConverter getToNativeConverter(Class type) {
+                return Handle.class == type ? (ToNativeConverter) converter : null;
+            }
+        };
+    }
+
+    public static interface IntHandleLib {
+        Handle ret_int32_t(Handle h);
+        Handle add_int32_t(Handle h1, Handle h2);
+        int add_int32_t(Handle h1, int i2);
+    }
+
+    public static interface LongHandleLib {
+        Handle ret_int64_t(Handle h);
+        Handle add_int64_t(Handle h1, Handle h2);
+        long add_int64_t(Handle h1, long l2);
+    }
+
+    @Test public void testPrimitiveIntConverter() {
+        Map<LibraryOption, Object> options = new HashMap<LibraryOption, Object>();
+        options.put(LibraryOption.TypeMapper, handleMapper(new HandleIntConverter()));
+        IntHandleLib lib = TstUtil.loadTestLib(IntHandleLib.class, options);
+        assertEquals(0x12345678L, lib.ret_int32_t(new Handle(0x12345678)).value);
+        assertEquals(-1L, lib.ret_int32_t(new Handle(-1)).value);
+        assertEquals(3L, lib.add_int32_t(new Handle(1), new Handle(2)).value);
+        assertEquals(7, lib.add_int32_t(new Handle(3), 4));
+    }
+
+    @Test public void testPrimitiveLongConverter() {
+        Map<LibraryOption, Object> options = new HashMap<LibraryOption, Object>();
+        options.put(LibraryOption.TypeMapper, handleMapper(new HandleLongConverter()));
+        LongHandleLib lib = TstUtil.loadTestLib(LongHandleLib.class, options);
+        assertEquals(0x123456789abcdefL, lib.ret_int64_t(new Handle(0x123456789abcdefL)).value);
+        assertEquals(Long.MIN_VALUE, lib.ret_int64_t(new Handle(Long.MIN_VALUE)).value);
+        assertEquals(3L, lib.add_int64_t(new Handle(1), new Handle(2)).value);
+        assertEquals(7L, lib.add_int64_t(new Handle(3), 4L));
+    }
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+import jnr.ffi.annotations.LongLong;
+import jnr.ffi.byref.IntByReference;
+import jnr.ffi.util.RingBuffer;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferTest {
+    public static interface TestLib {
+        int ring_write(Pointer ring, int type, byte[] data, int length);
+        int ring_write_longs(Pointer ring, int type, @LongLong long first, int count);
+        @LongLong long ring_read_sum(Pointer ring, IntByReference count);
+    }
+
+    static TestLib testlib;
+    static Runtime runtime;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        testlib = TstUtil.loadTestLib(TestLib.class);
+        runtime = Runtime.getRuntime(testlib);
+    }
+
+    private static final class Collector implements RingBuffer.MessageHandler {
+        final List<Integer> types = new ArrayList<Integer>();
+        final List<byte[]> payloads = new ArrayList<byte[]>();
+        long sum;
+
+        public void onMessage(int type, Pointer buffer, long offset, int length) {
+            byte[] payload = new byte[length];
+            buffer.get(offset, payload, 0, length);
+            types.add(type);
+            payloads.add(payload);
+            if (length == 8) {
+                sum += buffer.getLongLong(offset);
+            }
+        }
+    }
+
+    private static byte[] message(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (length + i);
+        }
+        return bytes;
+    }
+
+    @Test public void writeAndRead() {
+        RingBuffer ring = RingBuffer.allocate(runtime, 1024, false);
+        assertTrue(ring.write(1, message(3), 0, 3));
+        assertTrue(ring.write(2, message(0), 0, 0));
+        assertTrue(ring.write(3, message(17), 0, 17));
+        assertEquals(16 + 8 + 32, ring.size());
+
+        Collector collector = new Collector();
+        assertEquals(2, ring.read(collector, 2));
+        assertEquals(1, ring.read(collector));
+        assertEquals(0, ring.read(collector));
+        assertEquals(0, ring.size());
+
+        assertEquals(3, collector.types.size());
+        assertEquals(Integer.valueOf(2), collector.types.get(1));
+        assertArrayEquals(message(3), collector.payloads.get(0));
+        assertArrayEquals(message(0), collector.payloads.get(1));
+        assertArrayEquals(message(17), collector.payloads.get(2));
+    }
+
+    @Test public void wrapsAround() {
+        RingBuffer ring = RingBuffer.allocate(runtime, 256, true);
+        Pointer src = Memory.allocateDirect(runtime, 32);
+        Collector collector = new Collector();
+        for (int i = 0; i < 1000; i++) {
+            src.put(0, message(i % 32), 0, i % 32);
+            assertTrue(ring.write(i, src, 0, i % 32));
+            assertEquals(1, ring.read(collector));
+            assertEquals(Integer.valueOf(i), collector.types.get(i));
+            assertArrayEquals(message(i % 32), collector.payloads.get(i));
+        }
+    }
+
+    @Test public void full() {
+        RingBuffer ring = RingBuffer.allocate(runtime, 64, false);
+        assertTrue(ring.write(1, message(8), 0, 8));
+        assertTrue(ring.write(1, message(8), 0, 8));
+        assertTrue(ring.write(1, message(8), 0, 8));
+        assertTrue(ring.write(1, message(8), 0, 8));
+        assertFalse(ring.write(1, message(8), 0, 8));
+        assertEquals(1, ring.read(new Collector(), 1));
+        assertTrue(ring.write(1, message(8), 0, 8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void messageTooLong() {
+        RingBuffer ring = RingBuffer.allocate(runtime, 64, false);
+        ring.write(1, message(9), 0, 9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidCapacity() {
+        RingBuffer.allocate(runtime, 1000, false);
+    }
+
+    @Test public void javaProducerNativeConsumer() {
+        RingBuffer ring = RingBuffer.allocate(runtime, 4096, false);
+        Pointer value = Memory.allocateDirect(runtime, 8);
+        IntByReference count = new IntByReference(0);
+        long sum = 0;
+        for (int i = 0; i < 1000; i++) {
+            value.putLongLong(0, i);
+            if (!ring.write(1, value, 0, 8)) {
+                sum += testlib.ring_read_sum(ring.getMemory(), count);
+                assertTrue(ring.write(1, value, 0, 8));
+            }
+        }
+        sum += testlib.ring_read_sum(ring.getMemory(), count);
+        assertEquals(1000, count.intValue());
+        assertEquals(999L * 1000 / 2, sum);
+    }
+
+    @Test public void nativeRecordsAreReadableFromJava() {
+        RingBuffer ring = RingBuffer.wrap(RingBuffer.allocate(runtime, 128, false).getMemory(), false);
+        assertEquals(1, testlib.ring_write(ring.getMemory(), 7, message(5), 5));
+        Collector collector = new Collector();
+        assertEquals(1, ring.read(collector));
+        assertEquals(Integer.valueOf(7), collector.types.get(0));
+        assertArrayEquals(message(5), collector.payloads.get(0));
+    }
+
+    @Test public void nativeProducersJavaConsumer() throws InterruptedException {
+        final RingBuffer ring = RingBuffer.allocate(runtime, 1024, true);
+        final int producers = 3, messages = 20000;
+        final AtomicLong written = new AtomicLong();
+        Thread[] threads = new Thread[producers];
+        for (int i = 0; i < producers; i++) {
+            final int first = i * messages;
+            threads[i] = new Thread() {
+                public void run() {
+                    written.addAndGet(testlib.ring_write_longs(ring.getMemory(), 1, first, messages));
+                }
+            };
+            threads[i].start();
+        }
+
+        Collector collector = new Collector();
+        int count = 0;
+        long deadline = System.currentTimeMillis() + 30000;
+        while (count < producers * messages && System.currentTimeMillis() < deadline) {
+            int n = ring.read(collector);
+            if (n == 0) {
+                Thread.yield();
+            }
+            count += n;
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        long total = (long) producers * messages;
+        assertEquals(total, written.get());
+        assertEquals(total, count);
+        assertEquals((total - 1) * total / 2, collector.sum);
+        assertEquals(0, ring.size());
+    }
+}
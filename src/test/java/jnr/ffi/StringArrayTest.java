@@ -18,6 +18,7 @@
 
 package jnr.ffi;
 
+import jnr.ffi.annotations.Encoding;
 import jnr.ffi.annotations.In;
 import jnr.ffi.annotations.Out;
 import java.nio.charset.Charset;
@@ -42,6 +43,12 @@ public class StringArrayTest {
         void ptr_set_array_element(@Out String[] array, int index, Pointer value);
         String ptr_return_array_element(@In CharSequence[] array, int index);
     }
+
+    @Encoding("UTF-8")
+    public static interface UTF8Lib {
+        String ptr_return_array_element(@In String[] array, int index);
+        void ptr_set_array_element(@Out String[] array, int index, Pointer value);
+    }
     
     static TestLib testlib;
     static Runtime runtime;
@@ -106,4 +113,33 @@ public class StringArrayTest {
         String result = testlib.ptr_return_array_element(strings, 1);
         assertNotNull("last element of string array was null", result);
     }
-}
\ No newline at end of file
+
+    @Test public void allElementsOfLargeStringArrayShouldBeReadable() {
+        String[] strings = new String[500];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = i % 7 == 0 ? null : "element" + i;
+        }
+        for (int i = 0; i < strings.length; i++) {
+            assertEquals(strings[i], testlib.ptr_return_array_element(strings, i));
+        }
+        assertNull(testlib.ptr_return_array_element(strings, strings.length));
+    }
+
+    @Test public void nonAsciiElementsShouldUseEncoding() {
+        UTF8Lib lib = TstUtil.loadTestLib(UTF8Lib.class);
+        String[] strings = { "plain", "gr\u00fc\u00dfe", "", "\u65e5\u672c" };
+        for (int i = 0; i < strings.length; i++) {
+            assertEquals(strings[i], lib.ptr_return_array_element(strings, i));
+        }
+    }
+
+    @Test public void outElementsShouldBeDecodedWithEncoding() {
+        UTF8Lib lib = TstUtil.loadTestLib(UTF8Lib.class);
+        final String MAGIC = "\u00e9t\u00e9";
+        String[] strings = new String[1];
+        Pointer ptr = Memory.allocateDirect(runtime, 1024);
+        ptr.putString(0, MAGIC, 1024, Charset.forName("UTF-8"));
+        lib.ptr_set_array_element(strings, 0, ptr);
+        assertEquals(MAGIC, strings[0]);
+    }
+}
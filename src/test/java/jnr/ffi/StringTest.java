@@ -18,7 +18,10 @@
 
 package jnr.ffi;
 
+import jnr.ffi.annotations.Encoding;
 import jnr.ffi.annotations.In;
+import jnr.ffi.annotations.MaxLength;
+import jnr.ffi.annotations.Out;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -43,6 +46,15 @@ public class StringTest {
         void string_concat(StringBuffer dst, CharSequence src);
         String ptr_return_array_element(@In String[] array, int index);
     }
+
+    @Encoding("UTF-8")
+    public static interface OutLib {
+        void string_set(@Out StringBuilder dst, CharSequence src);
+        void string_set(@Out @MaxLength(64) StringBuffer dst, CharSequence src);
+        void string_concat(StringBuilder dst, StringBuilder src);
+        void string_copy_unterminated(@Out StringBuilder dst, CharSequence src);
+        int string_length(@MaxLength(64) StringBuilder s);
+    }
     static TestLib testlib;
     @BeforeClass
     public static void setUpClass() throws Exception {
@@ -112,4 +124,59 @@ public class StringTest {
         final String MAGIC = "deadbeef";
         assertEquals(MAGIC, testlib.ptr_return_array_element(new String[] { MAGIC }, 0));
     }
+
+    @Test public void reusedBufferShouldNotLeakPreviousResult() {
+        OutLib lib = TstUtil.loadTestLib(OutLib.class);
+        StringBuilder buffer = new StringBuilder(256);
+        lib.string_set(buffer, "a much longer string than the next one");
+        lib.string_set(buffer, "short");
+        assertEquals("short", buffer.toString());
+        lib.string_set(buffer, "");
+        assertEquals("", buffer.toString());
+    }
+
+    @Test public void unterminatedResultShouldNotSeePreviousResult() {
+        OutLib lib = TstUtil.loadTestLib(OutLib.class);
+        StringBuilder buffer = new StringBuilder(256);
+        lib.string_set(buffer, "a much longer string than the next one");
+        lib.string_copy_unterminated(buffer, "short");
+        assertEquals("short", buffer.toString());
+    }
+
+    @Test public void nonAsciiResultShouldBeDecoded() {
+        OutLib lib = TstUtil.loadTestLib(OutLib.class);
+        final String MAGIC = "gr\u00fc\u00dfe \u65e5\u672c";
+        StringBuilder buffer = new StringBuilder(64);
+        lib.string_set(buffer, MAGIC);
+        assertEquals(MAGIC, buffer.toString());
+    }
+
+    @Test public void maxLengthShouldBoundLargeBuffer() {
+        OutLib lib = TstUtil.loadTestLib(OutLib.class);
+        StringBuffer buffer = new StringBuffer(16 * 1024 * 1024);
+        lib.string_set(buffer, "deadbeef");
+        assertEquals("deadbeef", buffer.toString());
+    }
+
+    @Test public void valueLongerThanMaxLengthShouldBeTruncated() {
+        OutLib lib = TstUtil.loadTestLib(OutLib.class);
+        StringBuilder value = new StringBuilder(300);
+        for (int i = 0; i < 300; i++) {
+            value.append('a');
+        }
+        String original = value.toString();
+        int length = lib.string_length(value);
+        assertEquals(value.length(), length);
+        assertTrue(length < original.length());
+        assertEquals(original.substring(0, length), value.toString());
+    }
+
+    @Test public void twoBuffersInOneCallShouldNotShareMemory() {
+        OutLib lib = TstUtil.loadTestLib(OutLib.class);
+        StringBuilder dst = new StringBuilder(64).append("dead");
+        StringBuilder src = new StringBuilder(64).append("beef");
+        lib.string_concat(dst, src);
+        assertEquals("deadbeef", dst.toString());
+        assertEquals("beef", src.toString());
+    }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+import jnr.ffi.annotations.Synchronized;
+import jnr.ffi.util.InstrumentedLock;
+import jnr.ffi.util.LockRegistry;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class SynchronizedTest {
+    @Synchronized
+    public static interface LibrarySynchronized {
+        int add_int32_t(int i1, int i2);
+        long add_int64_t(long i1, long i2);
+        @Synchronized(Synchronized.FUNCTION)
+        double ret_double(double d);
+        @Synchronized("group")
+        float ret_float(float f);
+    }
+
+    public static interface MethodSynchronized {
+        @Synchronized(value = "timed", timeout = 10)
+        int add_int32_t(int i1, int i2);
+        int sub_int32_t(int i1, int i2);
+        @Synchronized("timed")
+        void returnVoid();
+    }
+
+    private static <T> T load(Class<T> interfaceClass, LockRegistry locks) {
+        return TstUtil.loadTestLib(interfaceClass, Collections.singletonMap(LibraryOption.LockRegistry, locks));
+    }
+
+    private static long acquisitions(LockRegistry locks, String name) {
+        return ((InstrumentedLock) locks.getLock(name)).getAcquisitionCount();
+    }
+
+    @Test
+    public void libraryLock() {
+        LockRegistry locks = new LockRegistry();
+        LibrarySynchronized lib = load(LibrarySynchronized.class, locks);
+        assertEquals(3, lib.add_int32_t(1, 2));
+        assertEquals(3L << 40, lib.add_int64_t(1L << 40, 2L << 40));
+        assertEquals(2, acquisitions(locks, Synchronized.LIBRARY));
+    }
+
+    @Test
+    public void functionAndGroupLocks() {
+        LockRegistry locks = new LockRegistry();
+        LibrarySynchronized lib = load(LibrarySynchronized.class, locks);
+        assertEquals(1.5d, lib.ret_double(1.5d), 0d);
+        assertEquals(2.5f, lib.ret_float(2.5f), 0f);
+        assertEquals(1, acquisitions(locks, Synchronized.FUNCTION + "ret_double(double)"));
+        assertFalse(locks.getLocks().containsKey("ret_double"));
+        assertEquals(1, acquisitions(locks, "group"));
+        assertEquals(0, acquisitions(locks, Synchronized.LIBRARY));
+    }
+
+    @Test
+    public void customLock() {
+        LockRegistry locks = new LockRegistry();
+        Lock lock = new ReentrantLock();
+        locks.register("timed", lock);
+        MethodSynchronized lib = load(MethodSynchronized.class, locks);
+        assertEquals(3, lib.add_int32_t(1, 2));
+        assertSame(lock, locks.getLock("timed"));
+        assertFalse(locks.getLocks().containsKey(Synchronized.LIBRARY));
+    }
+
+    @Test
+    public void lockIsReleased() {
+        LockRegistry locks = new LockRegistry();
+        MethodSynchronized lib = load(MethodSynchronized.class, locks);
+        lib.returnVoid();
+        assertEquals(3, lib.add_int32_t(1, 2));
+        assertFalse(((ReentrantLock) locks.getLock("timed")).isLocked());
+        assertEquals(2, acquisitions(locks, "timed"));
+    }
+
+    @Test
+    public void timeout() throws InterruptedException {
+        final LockRegistry locks = new LockRegistry();
+        MethodSynchronized lib = load(MethodSynchronized.class, locks);
+        final CountDownLatch locked = new CountDownLatch(1), done = new CountDownLatch(1);
+        Thread holder = new Thread(new Runnable() {
+            public void run() {
+                locks.getLock("timed").lock();
+                try {
+                    locked.countDown();
+                    done.await();
+                } catch (InterruptedException ignored) {
+                } finally {
+                    locks.getLock("timed").unlock();
+                }
+            }
+        });
+        holder.start();
+        locked.await();
+        try {
+            lib.add_int32_t(1, 2);
+            fail("lock should have timed out");
+        } catch (IllegalStateException expected) {
+        } finally {
+            done.countDown();
+            holder.join();
+        }
+        assertEquals(-1, lib.sub_int32_t(1, 2));
+        assertEquals(3, lib.add_int32_t(1, 2));
+        assertEquals(2, acquisitions(locks, "timed"));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class InvocationSessionTest {
+    private static InvocationSession.PostInvoke record(final List<Integer> calls, final int id) {
+        return new InvocationSession.PostInvoke() {
+            public void postInvoke() {
+                calls.add(id);
+            }
+        };
+    }
+
+    @Test
+    public void postInvokeRunsInOrder() {
+        List<Integer> calls = new ArrayList<Integer>();
+        InvocationSession session = new InvocationSession();
+        for (int i = 0; i < 5; i++) {
+            session.addPostInvoke(record(calls, i));
+        }
+        session.finish();
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), calls);
+    }
+
+    @Test
+    public void failingPostInvokeDoesNotStopOthers() {
+        List<Integer> calls = new ArrayList<Integer>();
+        InvocationSession session = new InvocationSession();
+        session.addPostInvoke(new InvocationSession.PostInvoke() {
+            public void postInvoke() {
+                throw new RuntimeException("fail");
+            }
+        });
+        session.addPostInvoke(record(calls, 1));
+        session.finish();
+        assertEquals(Arrays.asList(1), calls);
+    }
+
+    @Test
+    public void reuseAfterFinish() {
+        List<Integer> calls = new ArrayList<Integer>();
+        InvocationSession session = new InvocationSession();
+        for (int i = 0; i < 3; i++) {
+            session.addPostInvoke(record(calls, i));
+            session.keepAlive(new Object());
+        }
+        session.finish();
+        session.addPostInvoke(record(calls, 10));
+        session.finish();
+        session.finish();
+        assertEquals(Arrays.asList(0, 1, 2, 10), calls);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.Address;
+import jnr.ffi.LibraryOption;
+import jnr.ffi.NativeLong;
+import jnr.ffi.Pointer;
+import jnr.ffi.types.u_int16_t;
+import jnr.ffi.types.u_int32_t;
+import jnr.ffi.types.u_int8_t;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Exercises the method handle based invokers used when runtime class generation is disabled.
+ */
+public class MethodHandleInvokerTest {
+    public static enum Color {
+        RED, GREEN, BLUE
+    }
+
+    public static interface TestLib {
+        void returnVoidI(int arg);
+        int add_int32_t(int i1, int i2);
+        byte ret_int8_t(byte b);
+        @u_int8_t int ret_uint8_t(@u_int8_t int b);
+        short ret_int16_t(short s);
+        @u_int16_t int ret_uint16_t(@u_int16_t int s);
+        @u_int32_t long ret_uint32_t(@u_int32_t long i);
+        long add_int64_t(long l1, long l2);
+        Long ret_int64_t(Long l);
+        NativeLong add_long(NativeLong l1, NativeLong l2);
+        boolean blocking_not(boolean value);
+        Color ret_int32_t(Color color);
+        Address ret_pointer(Address address);
+        Pointer ret_pointer(Pointer pointer);
+        double add_double(double d1, double d2);
+    }
+
+    static TestLib testlib;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        NativeLibrary library = new NativeLibrary(Collections.singletonList("test"),
+                Arrays.asList(System.getProperty("jnr.ffi.library.path", ".")));
+        testlib = new ReflectionLibraryLoader().loadLibrary(library, TestLib.class, Collections.<LibraryOption, Object>emptyMap());
+    }
+
+    @Test
+    public void integers() {
+        testlib.returnVoidI(1);
+        assertEquals(3, testlib.add_int32_t(1, 2));
+        assertEquals((byte) -1, testlib.ret_int8_t((byte) -1));
+        assertEquals(0xff, testlib.ret_uint8_t(0xff));
+        assertEquals((short) -2, testlib.ret_int16_t((short) -2));
+        assertEquals(0xfffe, testlib.ret_uint16_t(0xfffe));
+        assertEquals(0xfffffffeL, testlib.ret_uint32_t(0xfffffffeL));
+        assertEquals(0x100000000L + 1, testlib.add_int64_t(0x100000000L, 1));
+        assertEquals(Long.valueOf(Long.MIN_VALUE), testlib.ret_int64_t(Long.MIN_VALUE));
+        assertEquals(NativeLong.valueOf(7), testlib.add_long(NativeLong.valueOf(3), NativeLong.valueOf(4)));
+    }
+
+    @Test
+    public void booleans() {
+        assertTrue(testlib.blocking_not(false));
+        assertFalse(testlib.blocking_not(true));
+    }
+
+    @Test
+    public void enums() {
+        for (Color color : Color.values()) {
+            assertEquals(color, testlib.ret_int32_t(color));
+        }
+    }
+
+    @Test
+    public void addresses() {
+        assertEquals(Address.valueOf(0xdeadbeefL), testlib.ret_pointer(Address.valueOf(0xdeadbeefL)));
+        Pointer p = testlib.ret_pointer(Pointer.wrap(jnr.ffi.Runtime.getSystemRuntime(), 0x1234L));
+        assertEquals(0x1234L, p.address());
+        assertNull(testlib.ret_pointer((Pointer) null));
+    }
+
+    @Test
+    public void unsupportedSignatureFallsBack() {
+        assertEquals(3.5d, testlib.add_double(1.25d, 2.25d), 0d);
+    }
+}
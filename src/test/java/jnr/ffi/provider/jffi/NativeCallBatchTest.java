@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.CallBatch;
+import jnr.ffi.LibraryOption;
+import jnr.ffi.NativeType;
+import jnr.ffi.Pointer;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Exercises the call batch invoker used on platforms that cannot compile a batch stub.
+ */
+public class NativeCallBatchTest {
+    public static interface TestLib {
+        Pointer batch_function(int id);
+    }
+
+    static TestLib testlib;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        NativeLibrary library = new NativeLibrary(Collections.singletonList("test"),
+                Arrays.asList(System.getProperty("jnr.ffi.library.path", ".")));
+        testlib = new ReflectionLibraryLoader().loadLibrary(library, TestLib.class, Collections.<LibraryOption, Object>emptyMap());
+    }
+
+    private static CallBatch newDefaultBatch(int id, int capacity, boolean saveError, NativeType resultType,
+                                             NativeType... parameterTypes) {
+        return new NativeCallBatch(NativeRuntime.getInstance(), testlib.batch_function(id), capacity, saveError,
+                resultType, parameterTypes, false);
+    }
+
+    @Test
+    public void addInt32() {
+        CallBatch batch = newDefaultBatch(0, 100, false, NativeType.SINT, NativeType.SINT, NativeType.SINT);
+        for (int i = 0; i < 100; i++) {
+            batch.add(i, -2 * i);
+        }
+        batch.invoke();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(-i, batch.getInt(i));
+        }
+    }
+
+    @Test
+    public void resultIsSignExtended() {
+        CallBatch batch = newDefaultBatch(1, 2, false, NativeType.SCHAR, NativeType.SCHAR, NativeType.SCHAR);
+        batch.add(100, 100);
+        batch.add(-1, -1);
+        batch.invoke();
+        assertEquals((byte) 200, batch.getLong(0));
+        assertEquals(-2L, batch.getLong(1));
+    }
+
+    @Test
+    public void mixedParameters() {
+        CallBatch batch = newDefaultBatch(2, 10, false, NativeType.DOUBLE, NativeType.SLONGLONG, NativeType.DOUBLE, NativeType.FLOAT);
+        for (int i = 0; i < 10; i++) {
+            int index = batch.add();
+            batch.putLong(index, 0, 1L << 40);
+            batch.putDouble(index, 1, i + 0.25);
+            batch.putFloat(index, 2, 0.5f);
+        }
+        batch.invoke();
+        for (int i = 0; i < 10; i++) {
+            assertEquals((double) (1L << 40) + i + 0.75, batch.getDouble(i), 0d);
+        }
+    }
+
+    @Test
+    public void lastErrorIsSaved() {
+        CallBatch batch = newDefaultBatch(4, 3, true, NativeType.VOID, NativeType.SINT);
+        batch.add(1);
+        batch.add(2);
+        batch.add(0x1234);
+        NativeRuntime.getInstance().setLastError(0);
+        batch.invoke();
+        assertEquals(0x1234, NativeRuntime.getInstance().getLastError());
+    }
+}
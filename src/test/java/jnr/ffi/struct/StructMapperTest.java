@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2014 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.struct;
+
+import jnr.ffi.Memory;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import jnr.ffi.StructLayout;
+import jnr.ffi.StructMapper;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StructMapperTest {
+    private static final Runtime runtime = Runtime.getSystemRuntime();
+
+    public static class Record extends StructLayout {
+        public final Signed32 id = new Signed32();
+        public final Unsigned8 flags = new Unsigned8();
+        public final Unsigned32 count = new Unsigned32();
+        public final Signed64 total = new Signed64();
+        public final Double price = new Double();
+        public final Pointer data = new Pointer();
+
+        public Record() {
+            super(runtime);
+        }
+    }
+
+    public static class RecordBean {
+        public int id;
+        public short flags;
+        public long count;
+        public long total;
+        public double price;
+        public long data;
+        public String name;
+    }
+
+    static class NarrowBean {
+        private int id;
+        private int count;
+        private float price;
+    }
+
+    private static Pointer fill(Record layout, int n) {
+        Pointer memory = Memory.allocateDirect(runtime, layout.size() * n);
+        for (int i = 0; i < n; i++) {
+            Pointer record = memory.slice((long) i * layout.size());
+            layout.id.set(record, i);
+            layout.flags.set(record, (short) (0x80 + i));
+            layout.count.set(record, 0xfffffff0L + i);
+            layout.total.set(record, 1L << (32 + i));
+            layout.price.set(record, i * 1.5);
+            layout.data.set(record, Pointer.wrap(runtime, 0x1000L * (i + 1)));
+        }
+        return memory;
+    }
+
+    @Test public void readObject() {
+        Record layout = new Record();
+        Pointer memory = fill(layout, 3);
+        StructMapper<RecordBean> mapper = StructMapper.create(layout, RecordBean.class);
+        RecordBean bean = mapper.read(memory, layout.size() * 2);
+        assertEquals(2, bean.id);
+        assertEquals(0x82, bean.flags);
+        assertEquals(0xfffffff2L, bean.count);
+        assertEquals(1L << 34, bean.total);
+        assertEquals(3.0, bean.price, 0d);
+        assertEquals(0x3000L, bean.data);
+        assertNull(bean.name);
+    }
+
+    @Test public void writeObject() {
+        Record layout = new Record();
+        Pointer memory = Memory.allocateDirect(runtime, layout.size());
+        StructMapper<RecordBean> mapper = StructMapper.create(layout, RecordBean.class);
+        RecordBean bean = new RecordBean();
+        bean.id = -7;
+        bean.flags = 0xfe;
+        bean.count = 0xdeadbeefL;
+        bean.total = Long.MIN_VALUE;
+        bean.price = 9.25;
+        mapper.write(memory, 0, bean);
+        assertEquals(-7, layout.id.get(memory));
+        assertEquals(0xfe, layout.flags.get(memory));
+        assertEquals(0xdeadbeefL, layout.count.get(memory));
+        assertEquals(Long.MIN_VALUE, layout.total.get(memory));
+        assertEquals(9.25, layout.price.get(memory), 0d);
+    }
+
+    @Test public void readWriteArray() {
+        Record layout = new Record();
+        Pointer memory = fill(layout, 4);
+        StructMapper<RecordBean> mapper = StructMapper.create(layout, RecordBean.class);
+        RecordBean[] beans = mapper.readArray(memory, 0, 4);
+        assertEquals(4, beans.length);
+        for (int i = 0; i < beans.length; i++) {
+            assertEquals(i, beans[i].id);
+            beans[i].id = i * 10;
+        }
+        mapper.writeArray(memory, 0, beans);
+        assertEquals(30, layout.id.get(memory.slice(layout.size() * 3)));
+    }
+
+    @Test public void nonPublicClass() {
+        Record layout = new Record();
+        Pointer memory = fill(layout, 2);
+        StructMapper<NarrowBean> mapper = StructMapper.create(layout, NarrowBean.class);
+        NarrowBean bean = mapper.read(memory, layout.size());
+        assertEquals(1, bean.id);
+        assertEquals(0xfffffff1, bean.count);
+        assertEquals(1.5f, bean.price, 0f);
+
+        bean.count = -1;
+        mapper.write(memory, 0, bean);
+        assertEquals(0xffffffffL, layout.count.get(memory));
+    }
+
+    @Test public void readColumns() {
+        Record layout = new Record();
+        Pointer memory = fill(layout, 5);
+        StructMapper.ColumnReader reader = StructMapper.columns(layout, "count", "flags", "price");
+        assertEquals(3, reader.getColumnCount());
+        assertEquals(long[].class, reader.getColumnType(0));
+        assertEquals(short[].class, reader.getColumnType(1));
+
+        Object[] columns = reader.read(memory, 0, 5);
+        long[] count = (long[]) columns[0];
+        short[] flags = (short[]) columns[1];
+        double[] price = (double[]) columns[2];
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0xfffffff0L + i, count[i]);
+            assertEquals(0x80 + i, flags[i]);
+            assertEquals(i * 1.5, price[i], 0d);
+        }
+    }
+
+    @Test public void readColumnsAtIndex() {
+        Record layout = new Record();
+        Pointer memory = fill(layout, 3);
+        StructMapper.ColumnReader reader = StructMapper.columns(layout, "id");
+        int[] ids = new int[5];
+        reader.read(memory, layout.size(), 2, new Object[] { ids }, 3);
+        assertArrayEquals(new int[] { 0, 0, 0, 1, 2 }, ids);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void columnTooShort() {
+        Record layout = new Record();
+        Pointer memory = fill(layout, 3);
+        StructMapper.columns(layout, "id").read(memory, 0, 3, new Object[] { new int[2] }, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongColumnType() {
+        Record layout = new Record();
+        Pointer memory = fill(layout, 1);
+        StructMapper.columns(layout, "id").read(memory, 0, 1, new Object[] { new long[1] }, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownColumn() {
+        StructMapper.columns(new Record(), "missing");
+    }
+}
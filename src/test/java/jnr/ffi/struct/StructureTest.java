@@ -20,7 +20,11 @@ package jnr.ffi.struct;
 
 import jnr.ffi.*;
 import jnr.ffi.Runtime;
+import jnr.ffi.annotations.Blocking;
+import jnr.ffi.annotations.ByValue;
+import jnr.ffi.annotations.Direct;
 import jnr.ffi.annotations.LongLong;
+import jnr.ffi.annotations.ReuseResult;
 import jnr.ffi.TstUtil;
 import jnr.ffi.types.*;
 import org.junit.After;
@@ -55,6 +59,63 @@ public class StructureTest {
 //        double struct_align_Float64(Float64Align s);
 //        void struct_set_string(struct1 s, String string);
     }
+    public static interface ReuseLib {
+        @ReuseResult struct1 struct_make_struct(byte b, short s, int i, @LongLong long ll, float f, double d);
+        @ReuseResult struct1 ptr_return_array_element(Pointer array, int index);
+    }
+    public static interface BlockingReuseLib {
+        @Blocking @ReuseResult struct1 struct_make_struct(byte b, short s, int i, @LongLong long ll, float f, double d);
+    }
+    public static interface ByValueLib {
+        @ByValue Point struct_point_add(@ByValue Point a, @ByValue Point b);
+        int struct_rect_area(@ByValue Rect r);
+        @ByValue Vec3 struct_vec3_scale(@ByValue Vec3 v, double f);
+        double struct_padded_sum(@ByValue Padded p);
+    }
+    public static class Point extends Struct {
+        public final Signed32 x = new Signed32();
+        public final Signed32 y = new Signed32();
+
+        public Point(jnr.ffi.Runtime runtime) {
+            super(runtime);
+        }
+    }
+    public static class Rect extends Struct {
+        public final Point origin = inner(new Point(getRuntime()));
+        public final Point size = inner(new Point(getRuntime()));
+
+        public Rect(jnr.ffi.Runtime runtime) {
+            super(runtime);
+        }
+    }
+    public static class Vec3 extends Struct {
+        public final Double x = new Double();
+        public final Double y = new Double();
+        public final Double z = new Double();
+
+        public Vec3(jnr.ffi.Runtime runtime) {
+            super(runtime);
+        }
+    }
+    public static interface PackedByValueLib {
+        int struct_rect_area(@ByValue Packed r);
+    }
+    public static class Packed extends Struct {
+        public final Signed8 a = new Signed8();
+        public final Signed32 b = new Signed32();
+
+        public Packed(jnr.ffi.Runtime runtime) {
+            super(runtime, new Alignment(1));
+        }
+    }
+    public static class Padded extends Struct {
+        public final Double d = new Double();
+        public final Signed32 i = new Signed32();
+
+        public Padded(jnr.ffi.Runtime runtime) {
+            super(runtime);
+        }
+    }
     static TestLib testlib;
     static Runtime runtime;
 
@@ -136,6 +197,55 @@ public class StructureTest {
 
     }
 
+    static final int PROMOTION_THRESHOLD = Integer.getInteger("jnr.ffi.struct.directPromotionThreshold", 4);
+
+    @Direct
+    public static class directStruct1 extends struct1 {
+        public directStruct1(jnr.ffi.Runtime runtime) {
+            super(runtime);
+        }
+    }
+
+    @Test public void heapStructIsPromotedToDirectMemory() {
+        struct1 s = new struct1(runtime);
+        s.i.set(5);
+        assertFalse(Struct.isDirect(s));
+        long promotions = Struct.getDirectPromotionCount();
+        for (int i = 0; i < PROMOTION_THRESHOLD; i++) {
+            assertEquals(5, testlib.struct_field_Signed32(s));
+        }
+        assertTrue(Struct.isDirect(s));
+        assertEquals(promotions + 1, Struct.getDirectPromotionCount());
+
+        s.i.set(7);
+        assertEquals(7, testlib.struct_field_Signed32(s));
+    }
+
+    @Test public void exposedStructIsNotPromoted() {
+        struct1 s = new struct1(runtime);
+        Pointer memory = Struct.getMemory(s);
+        for (int i = 0; i < PROMOTION_THRESHOLD * 2; i++) {
+            assertEquals(0, testlib.struct_field_Signed32(s));
+        }
+        assertSame(memory, s.i.getMemory());
+    }
+
+    @Test public void memberMemoryIsNotPromoted() {
+        struct1 s = new struct1(runtime);
+        Pointer memory = s.i.getMemory();
+        for (int i = 0; i < PROMOTION_THRESHOLD * 2; i++) {
+            assertEquals(0, testlib.struct_field_Signed32(s));
+        }
+        assertSame(memory, Struct.getMemory(s));
+    }
+
+    @Test public void directStructClass() {
+        struct1 s = new directStruct1(runtime);
+        s.i.set(5);
+        assertTrue(s.i.getMemory().isDirect());
+        assertEquals(5, testlib.struct_field_Signed32(s));
+    }
+
     @Test public void testInt8InitialValue() {
         struct1 s = new struct1(runtime);
         assertEquals("default value not zero", (byte) 0, s.b.get());
@@ -239,6 +349,99 @@ public class StructureTest {
         assertEquals("Incorrect double value in struct", D, s.d.get(), 0.0001);
         
     }
+    @Test
+    public void reusedStructResult() {
+        ReuseLib lib = TstUtil.loadTestLib(ReuseLib.class);
+        struct1 first = lib.struct_make_struct((byte) 1, (short) 2, 3, 4L, 5f, 6d);
+        assertEquals(3, first.i.get());
+        struct1 second = lib.struct_make_struct((byte) 1, (short) 2, 7, 4L, 5f, 6d);
+        assertSame(first, second);
+        assertEquals(7, second.i.get());
+        assertNotSame(first, testlib.struct_make_struct((byte) 1, (short) 2, 3, 4L, 5f, 6d));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void reusedStructResultCannotBeBlocking() {
+        BlockingReuseLib lib = TstUtil.loadTestLib(BlockingReuseLib.class);
+        lib.struct_make_struct((byte) 1, (short) 2, 3, 4L, 5f, 6d);
+    }
+
+    @Test
+    public void reusedStructResultShouldFollowMemory() {
+        ReuseLib lib = TstUtil.loadTestLib(ReuseLib.class);
+        struct1 layout = new struct1(runtime);
+        Pointer s1 = Memory.allocateDirect(runtime, Struct.size(layout));
+        Pointer s2 = Memory.allocateDirect(runtime, Struct.size(layout));
+        s1.putInt(layout.i.offset(), 11);
+        s2.putInt(layout.i.offset(), 22);
+        Pointer array = Memory.allocateDirect(runtime, 3 * runtime.addressSize());
+        array.putPointer(0, s1);
+        array.putPointer(runtime.addressSize(), s2);
+
+        assertEquals(11, lib.ptr_return_array_element(array, 0).i.get());
+        assertEquals(22, lib.ptr_return_array_element(array, 1).i.get());
+        assertNull(lib.ptr_return_array_element(array, 2));
+        assertEquals(11, lib.ptr_return_array_element(array, 0).i.get());
+    }
+
+    @Test
+    public void structByValueInRegisters() {
+        ByValueLib lib = TstUtil.loadTestLib(ByValueLib.class);
+        Point a = new Point(runtime);
+        a.x.set(1);
+        a.y.set(2);
+        Point b = new Point(runtime);
+        b.x.set(10);
+        b.y.set(20);
+        Point sum = lib.struct_point_add(a, b);
+        assertEquals(11, sum.x.get());
+        assertEquals(22, sum.y.get());
+        assertFalse("result should not use native memory", Struct.getMemory(sum).isDirect());
+    }
+
+    @Test
+    public void structByValueInMemory() {
+        ByValueLib lib = TstUtil.loadTestLib(ByValueLib.class);
+        Vec3 v = new Vec3(runtime);
+        v.x.set(1d);
+        v.y.set(2d);
+        v.z.set(3d);
+        Vec3 scaled = lib.struct_vec3_scale(v, 2d);
+        assertEquals(2d, scaled.x.get(), 0d);
+        assertEquals(4d, scaled.y.get(), 0d);
+        assertEquals(6d, scaled.z.get(), 0d);
+    }
+
+    @Test
+    public void innerStructByValue() {
+        ByValueLib lib = TstUtil.loadTestLib(ByValueLib.class);
+        Rect r = new Rect(runtime);
+        r.size.x.set(3);
+        r.size.y.set(4);
+        assertEquals(12, lib.struct_rect_area(r));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void packedStructCannotBePassedByValue() {
+        PackedByValueLib lib = TstUtil.loadTestLib(PackedByValueLib.class);
+        lib.struct_rect_area(new Packed(runtime));
+    }
+
+    @Test
+    public void paddedStructByValue() {
+        ByValueLib lib = TstUtil.loadTestLib(ByValueLib.class);
+        Padded p = new Padded(runtime);
+        p.d.set(1.5d);
+        p.i.set(2);
+        assertEquals(3.5d, lib.struct_padded_sum(p), 0d);
+
+        Padded direct = new Padded(runtime);
+        direct.useMemory(Memory.allocateDirect(runtime, Struct.size(direct)));
+        direct.d.set(0.5d);
+        direct.i.set(3);
+        assertEquals(3.5d, lib.struct_padded_sum(direct), 0d);
+    }
+
     private static final class ArrayTest extends Struct {
         public final Signed8[] byteArray = array(new Signed8[8]);
 
@@ -430,6 +633,45 @@ public class StructureTest {
         assertEquals("Direct pointer value does not match", p.getByte(0), s.pointer.get().getByte(0));
     }
 
+    public static final class Counters extends Struct {
+        public final Signed32 i = new Signed32();
+        public final Unsigned32 u = new Unsigned32();
+        public final Signed64 l = new Signed64();
+        public final SignedLong n = new SignedLong();
+
+        public Counters(jnr.ffi.Runtime runtime) {
+            super(runtime);
+        }
+    }
+
+    @Test
+    public void atomicFields() {
+        Counters direct = new Counters(runtime);
+        direct.useMemory(Memory.allocateDirect(runtime, Struct.size(direct)));
+        for (Counters s : new Counters[] { new Counters(runtime), direct }) {
+            s.i.setVolatile(1);
+            assertTrue(s.i.compareAndSet(1, 5));
+            assertFalse(s.i.compareAndSet(1, 6));
+            assertEquals(5, s.i.getAndAdd(2));
+            assertEquals(7, s.i.getVolatile());
+
+            s.u.setOrdered(0xfffffffeL);
+            assertEquals(0xfffffffeL, s.u.getAndAdd(1));
+            assertTrue(s.u.compareAndSet(0xffffffffL, 3));
+            assertEquals(3L, s.u.get());
+
+            s.l.setVolatile(Long.MAX_VALUE);
+            assertTrue(s.l.compareAndSet(Long.MAX_VALUE, 10));
+            assertEquals(10L, s.l.getAndAdd(-20));
+            assertEquals(-10L, s.l.getVolatile());
+
+            s.n.setVolatile(100);
+            assertEquals(100L, s.n.getAndAdd(1));
+            assertTrue(s.n.compareAndSet(101, -1));
+            assertEquals(-1L, s.n.get());
+        }
+    }
+
     private class TypeTest extends Struct {
         class Fixnum extends NumberField {
             Fixnum(TypeAlias type) {